@@ -0,0 +1,373 @@
+package comp3506.assn1.adts;
+
+
+/**
+ * A three-dimensional data structure that holds items in a positional relationship to each other.
+ * Each cell in the data structure can hold multiple items.
+ * A sparse cube has a specified maximum size in each dimension, but only allocates memory for
+ * the cells that currently hold elements.
+ * The root of each dimension is indexed from zero.
+ *
+ * @memory O(c + n) the SparseCube consumes memory proportional to the number of occupied cells, c,
+ *      plus the n elements stored in them, independent of the length x breadth x height of the cube.
+ *
+ * @author Sam Eadie
+ *
+ * @param <T> The type of element held in the data structure.
+ */
+public class SparseCube<T> implements Cube<T> {
+
+    private final static int DEFAULT_INITIAL_CAPACITY = 16;
+    private final static double MAX_LOAD_FACTOR = 0.75;
+    private final static long EMPTY_KEY = -1;
+
+    //Packed (x, y, z) keys and the queues of the occupied cells, indexed by the same slot
+    private long[] keys;
+    private TraversableQueue<T>[] cells;
+    private int numCells;
+    private int mask;
+
+    private int length, breadth, height;
+
+    /**
+     * Constructor for a fixed sized cube.
+     * @bigO O(1) table initialisation, argument checking are constant time
+     *
+     * @param length  Maximum size in the 'x' dimension.
+     * @param breadth Maximum size in the 'y' dimension.
+     * @param height  Maximum size in the 'z' dimension.
+     * @throws IllegalArgumentException If provided dimension sizes are negative, or the number
+     *      of cells in the cube cannot be addressed.
+     */
+    public SparseCube(int length, int breadth, int height) throws IllegalArgumentException {
+
+        if((length < 0) || (breadth < 0) || (height < 0)) {
+            throw new IllegalArgumentException("Cube size cannot be negative");
+        }
+
+        try {
+            Math.multiplyExact(Math.multiplyExact((long) length, (long) breadth), (long) height);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Cube size is too large to address");
+        }
+
+        this.length = length;
+        this.breadth = breadth;
+        this.height = height;
+
+        initialiseTable(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Allocates an empty table with the given capacity
+     * @bigO O(capacity) array initialisation
+     *
+     * @param capacity the number of slots in the table, must be a power of two
+     */
+    private void initialiseTable(int capacity) {
+        this.keys = new long[capacity];
+        this.cells = new TraversableQueue[capacity];
+        this.mask = capacity - 1;
+        this.numCells = 0;
+
+        for(int i = 0; i < capacity; i++) {
+            this.keys[i] = EMPTY_KEY;
+        }
+    }
+
+    /**
+     * Packs the position into a single key, checking it lies within the cube
+     * @bigO O(1) constant time comparisons and arithmetic
+     *
+     * @param x X Coordinate of the position.
+     * @param y Y Coordinate of the position.
+     * @param z Z Coordinate of the position.
+     * @param message The message of the exception thrown for positions outside the cube.
+     * @return the unique non-negative key of the position
+     * @throws IndexOutOfBoundsException
+     */
+    private long packPosition(int x, int y, int z, String message) throws IndexOutOfBoundsException {
+        if((x < 0) || (x >= this.length) || (y < 0) || (y >= this.breadth) || (z < 0) || (z >= this.height)) {
+            throw new IndexOutOfBoundsException(message);
+        }
+
+        return (((long) x * this.breadth) + y) * this.height + z;
+    }
+
+    /**
+     * Returns the home slot of a key, mixing its bits so neighbouring cells spread across the table
+     * @bigO O(1) constant time arithmetic
+     *
+     * @param key the packed position
+     * @return the slot the key's probe sequence starts at
+     */
+    private int homeSlot(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return (int) key & this.mask;
+    }
+
+    /**
+     * Returns the slot holding the key, else -1 if the cell is unoccupied
+     * @bigO O(1) expected time linear probing at a bounded load factor
+     *
+     * @param key the packed position
+     * @return the slot holding the key, else -1
+     */
+    private int findSlot(long key) {
+        int i = homeSlot(key);
+
+        while(this.keys[i] != EMPTY_KEY) {
+            if(this.keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & this.mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Doubles the capacity of the table, reinserting all occupied cells
+     * @bigO O(c) every occupied cell is reinserted in constant expected time
+     */
+    private void growTable() {
+        long[] oldKeys = this.keys;
+        TraversableQueue<T>[] oldCells = this.cells;
+
+        initialiseTable(oldKeys.length * 2);
+
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY_KEY) {
+                int j = homeSlot(oldKeys[i]);
+                while(this.keys[j] != EMPTY_KEY) {
+                    j = (j + 1) & this.mask;
+                }
+                this.keys[j] = oldKeys[i];
+                this.cells[j] = oldCells[i];
+                this.numCells++;
+            }
+        }
+    }
+
+    /**
+     * Removes the cell in the given slot, shifting later entries of the probe run back so that
+     * no tombstones are left in the table
+     * @bigO O(1) expected time, only the remainder of the probe run is visited
+     *
+     * @param slot the slot of the cell to remove
+     */
+    private void deleteSlot(int slot) {
+        int gap = slot;
+        int i = (slot + 1) & this.mask;
+
+        while(this.keys[i] != EMPTY_KEY) {
+            int home = homeSlot(this.keys[i]);
+
+            //Entry may fill the gap if its home slot is not cyclically between the gap and itself
+            if(((i - home) & this.mask) >= ((i - gap) & this.mask)) {
+                this.keys[gap] = this.keys[i];
+                this.cells[gap] = this.cells[i];
+                gap = i;
+            }
+            i = (i + 1) & this.mask;
+        }
+
+        this.keys[gap] = EMPTY_KEY;
+        this.cells[gap] = null;
+        this.numCells--;
+    }
+
+    /**
+     * Adds an element to the end of the queue at the given position in the cube
+     * @bigO O(1) expected time hashing, amortised resizing and .enqueue() are constant time
+     *
+     * @param x X Coordinate of the position of the element.
+     * @param y Y Coordinate of the position of the element.
+     * @param z Z Coordinate of the position of the element.
+     * @param element The element to be added at the indicated position.
+     * @throws IndexOutOfBoundsException
+     */
+    public void add(int x, int y, int z, T element) throws IndexOutOfBoundsException {
+        long key = packPosition(x, y, z, "Cannot add to cube outside its dimensions");
+        int slot = findSlot(key);
+
+        if(slot < 0) {
+            //Only allocate a queue for occupied positions
+            if(this.numCells + 1 > MAX_LOAD_FACTOR * this.keys.length) {
+                growTable();
+            }
+
+            slot = homeSlot(key);
+            while(this.keys[slot] != EMPTY_KEY) {
+                slot = (slot + 1) & this.mask;
+            }
+            this.keys[slot] = key;
+            this.cells[slot] = new TraversableQueue<>();
+            this.numCells++;
+        }
+
+        this.cells[slot].enqueue(element);
+    }
+
+    /**
+     * Returns the first element at the specified position
+     * @bigO O(1) expected time lookup, the queue's iterator exposes its head in constant time
+     *
+     * @param x X Coordinate of the position of the element.
+     * @param y Y Coordinate of the position of the element.
+     * @param z Z Coordinate of the position of the element.
+     * @return the first element at the specified position
+     * @throws IndexOutOfBoundsException
+     */
+    public T get(int x, int y, int z) throws IndexOutOfBoundsException {
+        int slot = findSlot(packPosition(x, y, z, "Can't get element outside of cube dimensions."));
+
+        if(slot < 0) {
+            return null;
+        }
+
+        return this.cells[slot].iterator().next();
+    }
+
+    /**
+     * Returns an IterableQueue for all elements at the given position in the cube
+     * @bigO O(1) expected time lookup
+     *
+     * @param x X Coordinate of the position of the element(s).
+     * @param y Y Coordinate of the position of the element(s).
+     * @param z Z Coordinate of the position of the element(s).
+     * @return An IterableQueue for all elements at the given position in the cube, else null if
+     *      the position is unoccupied
+     * @throws IndexOutOfBoundsException
+     */
+    public IterableQueue<T> getAll(int x, int y, int z) throws IndexOutOfBoundsException {
+        int slot = findSlot(packPosition(x, y, z, "Cannot getAll from outside cube dimensions."));
+
+        if(slot < 0) {
+            return null;
+        }
+
+        return this.cells[slot];
+    }
+
+    /**
+     * Returns true iff there are multiple elements at the specified position
+     * @bigO O(1) expected time lookup, equality check is constant time
+     *
+     * @param x X Coordinate of the position of the element(s).
+     * @param y Y Coordinate of the position of the element(s).
+     * @param z Z Coordinate of the position of the element(s).
+     * @return true iff there are multiple elements at the specified position, else false
+     * @throws IndexOutOfBoundsException
+     */
+    public boolean isMultipleElementsAt(int x, int y, int z) throws IndexOutOfBoundsException {
+        int slot = findSlot(packPosition(x, y, z, "Cannot query position outside cube dimensions."));
+
+        if(slot < 0) {
+            return false;
+        }
+
+        return this.cells[slot].size() > 1;
+    }
+
+    /**
+     * Removes the specified element from the specified position in the cube. The cell is
+     * released once its last element is removed
+     * @bigO O(n) must iterate through elements in traversable queue at position.
+     *      Lookup is constant expected time
+     *
+     * @param x X Coordinate of the position.
+     * @param y Y Coordinate of the position.
+     * @param z Z Coordinate of the position.
+     * @param element The element to be removed from the indicated position.
+     * @return true iff the specified element was removed
+     * @throws IndexOutOfBoundsException
+     */
+    public boolean remove(int x, int y, int z, T element) throws IndexOutOfBoundsException {
+        int slot = findSlot(packPosition(x, y, z, "Cannot remove element from position outside cube."));
+
+        if(slot < 0) {
+            return false;
+        }
+
+        TraversableQueue<T> cubeQueue = this.cells[slot];
+        TraversableQueue<T> newQueue = new TraversableQueue<>();
+        boolean removedFlag = false;
+
+        while(cubeQueue.size() > 0) {
+            T value = cubeQueue.dequeue();
+
+            if(value.equals(element)) {
+                removedFlag = true;
+            } else {
+                newQueue.enqueue(value);
+            }
+        }
+
+        if(newQueue.size() == 0) {
+            deleteSlot(slot);
+        } else {
+            this.cells[slot] = newQueue;
+        }
+
+        return removedFlag;
+    }
+
+    /**
+     * Removes all elements from the position in the cube
+     * @bigO O(1) expected time lookup and deletion
+     *
+     * @param x X Coordinate of the position.
+     * @param y Y Coordinate of the position.
+     * @param z Z Coordinate of the position.
+     * @throws IndexOutOfBoundsException
+     */
+    public void removeAll(int x, int y, int z) throws IndexOutOfBoundsException {
+        int slot = findSlot(packPosition(x, y, z, "Cannot remove all elements from outside cube dimensions."));
+
+        if(slot >= 0) {
+            deleteSlot(slot);
+        }
+    }
+
+    /**
+     * Clears the cube, removing all elements from all cells
+     * @bigO O(1) reallocates a table of default capacity, allows garbage collection
+     */
+    public void clear() {
+        initialiseTable(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the number of occupied cells in the cube
+     * @bigO O(1) count is maintained on insertion and deletion
+     *
+     * @return the number of positions holding at least one element
+     */
+    public int getNumOccupiedCells() {
+        return this.numCells;
+    }
+}
+
+/**
+ * Justification of design choices for SparseCube
+ *
+ * The airspace is sparsely populated, so a dense array of length x breadth x height queue
+ *          references (as in BoundedCube) wastes almost all of its memory. SparseCube instead
+ *          maps each occupied (x, y, z) position to its TraversableQueue. Positions are packed
+ *          into a single long, ((x * breadth) + y) * height + z, so no key objects are created.
+ * The map is an open-addressing table with linear probing over parallel key and queue arrays.
+ *          The capacity is a power of two so the probe index is found with a mask rather than a
+ *          division, and the packed key is mixed before masking so that neighbouring cells do
+ *          not cluster in neighbouring slots.
+ * Cells are deleted as soon as they become empty and deletion shifts the rest of the probe run
+ *          back instead of leaving a tombstone, so probe lengths stay short while aircraft move
+ *          through the airspace.
+ * Unlike BoundedCube, getAll returns null (not an empty queue) once a position has been emptied,
+ *          which is what the Cube interface specifies for positions without elements.
+ *
+ *
+ *
+ */
@@ -2,6 +2,7 @@ package comp3506.assn1.application;
 
 import comp3506.assn1.adts.Cube;
 import comp3506.assn1.adts.BoundedCube;
+import comp3506.assn1.adts.SparseCube;
 
 
 /**
@@ -20,10 +21,24 @@ public class AirSpace {
 	private int height;
 	
 	public AirSpace(int length, int breadth, int height) {
+		this(length, breadth, height, false);
+	}
+	
+	/**
+	 * Create an airspace model, selecting the data structure that holds it.
+	 * 
+	 * @param sparse true to model the airspace with a SparseCube, whose memory grows with the number of
+	 *               occupied cells, false to use a BoundedCube, whose memory grows with the airspace volume.
+	 */
+	public AirSpace(int length, int breadth, int height, boolean sparse) {
 		this.length = length;
 		this.breadth = breadth;
 		this.height = height;
-		airSpaceMap = new BoundedCube<>(length, breadth, height);
+		if (sparse) {
+			airSpaceMap = new SparseCube<>(length, breadth, height);
+		} else {
+			airSpaceMap = new BoundedCube<>(length, breadth, height);
+		}
 	}
 	
 	/**
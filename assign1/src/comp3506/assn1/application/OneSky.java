@@ -19,7 +19,7 @@ public class OneSky {
 	public static final int AUSTRALIA_WIDTH = 5321;
 	public static final int AUSTRALIA_LENGTH = 3428;
 	public static final int FLIGHT_CEILING = 35;
-	private AirSpace australia = new AirSpace(AUSTRALIA_WIDTH, AUSTRALIA_LENGTH, FLIGHT_CEILING);
+	private AirSpace australia = new AirSpace(AUSTRALIA_WIDTH, AUSTRALIA_LENGTH, FLIGHT_CEILING, true);
 	private AirTrafficTracker tracker = new AirTrafficTracker(australia);
 	private List<Radar> radarSites = new ArrayList<>();
 	public final int NUM_ITERATIONS;
@@ -0,0 +1,159 @@
+package comp3506.assn1.adts;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * JUnit tests for the SparseCube
+ * @author Sam Eadie
+ */
+public class SparseCubeTest {
+
+    private Object[] getTestObjects(int number) {
+        Object[] testObjects = new Object[number];
+
+        for(int i = 0; i < number; i++) {
+            testObjects[i] = new Object();
+        }
+
+        return testObjects;
+    }
+
+    @Test(timeout=500)
+    public void getWithMultipleElements() {
+        Cube<Object> testCube = new SparseCube<>(5, 5, 5);
+        Object element1 = new Object();
+        Object element2 = new Object();
+        testCube.add(1, 1, 1, element1);
+        testCube.add(1, 1, 1, element2);
+
+        Assert.assertEquals(element1, testCube.get(1, 1, 1));
+        Assert.assertEquals(2, testCube.getAll(1, 1, 1).size());
+        Assert.assertTrue(testCube.isMultipleElementsAt(1, 1, 1));
+    }
+
+    @Test(timeout=500)
+    public void unoccupiedPositions() {
+        Cube<Object> testCube = new SparseCube<>(5, 5, 5);
+        testCube.add(1, 1, 1, new Object());
+
+        Assert.assertNull(testCube.get(1, 1, 2));
+        Assert.assertNull(testCube.getAll(2, 1, 1));
+        Assert.assertFalse(testCube.isMultipleElementsAt(1, 2, 1));
+        Assert.assertFalse(testCube.remove(4, 4, 4, new Object()));
+    }
+
+    @Test(timeout=500)
+    public void airspaceSizedCube() {
+        SparseCube<Object> testCube = new SparseCube<>(5321, 3428, 35);
+        Object[] testObjects = getTestObjects(4);
+
+        testCube.add(0, 0, 0, testObjects[0]);
+        testCube.add(5320, 3427, 34, testObjects[1]);
+        testCube.add(2660, 1714, 17, testObjects[2]);
+        testCube.add(2660, 1714, 17, testObjects[3]);
+
+        Assert.assertEquals(3, testCube.getNumOccupiedCells());
+        Assert.assertEquals(testObjects[0], testCube.get(0, 0, 0));
+        Assert.assertEquals(testObjects[1], testCube.get(5320, 3427, 34));
+        Assert.assertEquals(testObjects[2], testCube.get(2660, 1714, 17));
+    }
+
+    @Test(timeout=500)
+    public void manyOccupiedPositions() {
+        SparseCube<Object> testCube = new SparseCube<>(100, 100, 10);
+        Object[] testObjects = getTestObjects(1000);
+
+        for(int i = 0; i < testObjects.length; i++) {
+            testCube.add(i % 100, i / 10, i % 10, testObjects[i]);
+        }
+
+        Assert.assertEquals(testObjects.length, testCube.getNumOccupiedCells());
+        for(int i = 0; i < testObjects.length; i++) {
+            Assert.assertEquals(testObjects[i], testCube.get(i % 100, i / 10, i % 10));
+        }
+    }
+
+    @Test(timeout=500)
+    public void removeReleasesCell() {
+        SparseCube<Object> testCube = new SparseCube<>(5, 5, 5);
+        Object[] testObjects = getTestObjects(2);
+
+        testCube.add(1, 2, 3, testObjects[0]);
+        testCube.add(1, 2, 3, testObjects[1]);
+
+        Assert.assertTrue(testCube.remove(1, 2, 3, testObjects[0]));
+        Assert.assertEquals(1, testCube.getAll(1, 2, 3).size());
+        Assert.assertEquals(testObjects[1], testCube.get(1, 2, 3));
+
+        Assert.assertTrue(testCube.remove(1, 2, 3, testObjects[1]));
+        Assert.assertNull(testCube.getAll(1, 2, 3));
+        Assert.assertEquals(0, testCube.getNumOccupiedCells());
+    }
+
+    @Test(timeout=500)
+    public void removeKeepsOtherCellsReachable() {
+        SparseCube<Object> testCube = new SparseCube<>(50, 50, 50);
+        Object[] testObjects = getTestObjects(500);
+
+        for(int i = 0; i < testObjects.length; i++) {
+            testCube.add(i % 50, (i * 7) % 50, i / 10, testObjects[i]);
+        }
+
+        //Remove every second cell, the rest must still be found
+        for(int i = 0; i < testObjects.length; i += 2) {
+            testCube.removeAll(i % 50, (i * 7) % 50, i / 10);
+        }
+
+        for(int i = 0; i < testObjects.length; i++) {
+            if(i % 2 == 0) {
+                Assert.assertNull(testCube.get(i % 50, (i * 7) % 50, i / 10));
+            } else {
+                Assert.assertEquals(testObjects[i], testCube.get(i % 50, (i * 7) % 50, i / 10));
+            }
+        }
+    }
+
+    @Test(timeout=500)
+    public void clearCube() {
+        SparseCube<Object> testCube = new SparseCube<>(3, 3, 3);
+        testCube.add(0, 0, 0, new Object());
+        testCube.add(1, 1, 1, new Object());
+        testCube.add(2, 2, 2, new Object());
+
+        testCube.clear();
+
+        Assert.assertEquals(0, testCube.getNumOccupiedCells());
+        for(int i = 0; i < 3; i++) {
+            for(int j = 0; j < 3; j++) {
+                for(int k = 0; k < 3; k++) {
+                    Assert.assertNull(testCube.get(i, j, k));
+                }
+            }
+        }
+    }
+
+    @Test(timeout=500, expected = IllegalArgumentException.class)
+    public void invalidConstructorArguments() {
+        SparseCube<Object> testCube = new SparseCube<>(5, -5, 5);
+    }
+
+    @Test(timeout=500, expected = IndexOutOfBoundsException.class)
+    public void invalidAddPosition() {
+        SparseCube<Object> testCube = new SparseCube<>(5, 5, 5);
+        testCube.add(2, 4, 5, new Object());
+    }
+
+    @Test(timeout=500, expected = IndexOutOfBoundsException.class)
+    public void negativeGetPosition() {
+        SparseCube<Object> testCube = new SparseCube<>(5, 5, 5);
+        testCube.get(-3, 3, 3);
+    }
+
+    @Test(timeout=500, expected = IndexOutOfBoundsException.class)
+    public void removeAllFromOutsideCube() {
+        SparseCube<Object> testCube = new SparseCube<>(5, 5, 5);
+        testCube.removeAll(6, 6, 6);
+    }
+}
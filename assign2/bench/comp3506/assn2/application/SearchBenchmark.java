@@ -0,0 +1,261 @@
+package comp3506.assn2.application;
+
+import comp3506.assn2.utils.OccurrenceIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks every operation of the Search interface, reporting operations per second. Run with -prof gc to also
+ * report the allocation rate of each operation, which the bench profile of the build does by default.
+ *
+ * The document is the file named by the documentFile parameter, indexed by files/shakespeare-index.txt. When
+ * documentFile is empty a synthetic corpus is generated instead: scale copies of the length of the complete works,
+ * with each section title of the index at its start line multiplied by scale, and lines of words drawn with a
+ * Zipf-like distribution from Shakespearean words and a generated vocabulary.
+ *
+ * Each operation cycles through a fixed set of queries mixing common and rare words, so runs are comparable.
+ * The first benchmarks consume only the first FIRST_HITS results of the streaming operations, for comparison with
+ * the materialised lists.
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    //Lines in the complete works, the synthetic corpus is a multiple of this
+    private static final int BASE_LINES = 150000;
+    private static final String LETTERS = "etaoinshrdlucmfwypvbgkjqxz";
+    private static final String[] COMMON_WORDS = {"the", "and", "i", "to", "of", "a", "you", "my", "that", "in",
+            "is", "not", "it", "me", "with", "for", "be", "his", "your", "this", "but", "he", "have", "thou", "so",
+            "him", "will", "what", "thy", "all", "her", "no", "do", "by", "shall", "if", "are", "we", "thee", "lord",
+            "our", "king", "good", "now", "sir", "from", "o", "come", "at", "they", "she", "love", "which", "would",
+            "let", "more", "was", "hath", "man", "there", "or", "upon", "how", "death", "heart", "sweet", "night",
+            "queen", "blood", "fair", "honour", "crown", "romeo", "juliet", "hamlet", "ophelia", "tis", "o'er"};
+
+    private static final String[] WORDS = {"king", "love", "the", "hamlet", "o'er", "crown", "thou", "ophelia"};
+    private static final String[] PHRASES = {"to be", "the king", "my lord", "sweet love", "good night", "o'er the"};
+    private static final String[] PREFIXES = {"th", "lo", "kin", "ham", "cr", "swe"};
+    private static final String[][] WORD_SETS = {{"king", "queen"}, {"love", "death", "night"},
+            {"romeo", "juliet"}, {"the", "crown"}, {"sweet", "heart"}, {"thou", "thy", "thee"}};
+    private static final String[][] EXCLUDED_SETS = {{"lord"}, {"the", "sir"}, {"hamlet"}, {"blood"}, {"o"},
+            {"good", "fair"}};
+    private static final String[][] TITLES = {{"the tragedy of hamlet"}, {"the tragedy of romeo and juliet"},
+            {"king richard the second", "the tragedy of macbeth"}, {"the sonnets"},
+            {"the sonnets", "venus and adonis", "a lover's complaint"}, {"the tempest"}};
+
+    //Results consumed by the first benchmarks
+    private static final int FIRST_HITS = 10;
+
+    @Param({""})
+    public String documentFile;
+
+    @Param({"1", "4"})
+    public int scale;
+
+    @Param({"files"})
+    public String filesDirectory;
+
+    private File generatedDocument;
+    private File generatedIndex;
+    private AutoTester search;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        String indexFile = new File(this.filesDirectory, "shakespeare-index.txt").getPath();
+        String stopWordsFile = new File(this.filesDirectory, "stop-words.txt").getPath();
+        String document = this.documentFile;
+
+        if(document.length() == 0) {
+            this.generatedIndex = File.createTempFile("search-index", ".txt");
+            this.generatedDocument = File.createTempFile("search-document", ".txt");
+            generateCorpus(indexFile);
+
+            document = this.generatedDocument.getPath();
+            indexFile = this.generatedIndex.getPath();
+        }
+
+        this.search = new AutoTester(document, indexFile, stopWordsFile);
+        this.next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if(this.generatedDocument != null) {
+            this.generatedDocument.delete();
+            this.generatedIndex.delete();
+        }
+    }
+
+    /**
+     * Writes the synthetic corpus and its section index, with every section of the index scaled
+     */
+    private void generateCorpus(String indexFile) throws IOException {
+        int numLines = BASE_LINES * this.scale;
+        String[] titles = new String[numLines + 1];
+
+        try(BufferedReader reader = new BufferedReader(new FileReader(indexFile));
+            Writer index = new FileWriter(this.generatedIndex)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                String[] parts = line.split(",", 2);
+                int start = Integer.parseInt(parts[1]) * this.scale;
+                if(start <= numLines) {
+                    titles[start] = parts[0];
+                    index.write(parts[0] + "," + start + "\n");
+                }
+            }
+        }
+
+        Random random = new Random(3506);
+        String[] vocabulary = new String[20000];
+        for(int i = 0; i < vocabulary.length; i++) {
+            if(i < COMMON_WORDS.length) {
+                vocabulary[i] = COMMON_WORDS[i];
+                continue;
+            }
+            StringBuilder word = new StringBuilder();
+            int length = 2 + random.nextInt(8);
+            for(int j = 0; j < length; j++) {
+                word.append(LETTERS.charAt((int) (Math.pow(random.nextDouble(), 2) * LETTERS.length())));
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        try(Writer writer = new FileWriter(this.generatedDocument)) {
+            for(int line = 1; line <= numLines; line++) {
+                if(titles[line] != null) {
+                    writer.write(titles[line]);
+                } else {
+                    int numWords = random.nextInt(12);
+                    for(int i = 0; i < numWords; i++) {
+                        String word = vocabulary[(int) (Math.pow(random.nextDouble(), 4) * vocabulary.length)];
+                        writer.write((random.nextInt(20) == 0) ? word.toUpperCase() : word);
+                        writer.write((i + 1 < numWords) ? ((random.nextInt(8) == 0) ? ", " : " ") : ".");
+                    }
+                }
+                writer.write('\n');
+            }
+        }
+    }
+
+    private int nextQuery(int numQueries) {
+        this.next = (this.next + 1) % numQueries;
+        return this.next;
+    }
+
+    @Benchmark
+    public int wordCount() {
+        return this.search.wordCount(WORDS[nextQuery(WORDS.length)]);
+    }
+
+    @Benchmark
+    public List<?> phraseOccurrence() {
+        return this.search.phraseOccurrence(PHRASES[nextQuery(PHRASES.length)]);
+    }
+
+    @Benchmark
+    public List<?> prefixOccurrence() {
+        return this.search.prefixOccurrence(PREFIXES[nextQuery(PREFIXES.length)]);
+    }
+
+    @Benchmark
+    public List<Integer> wordsOnLine() {
+        return this.search.wordsOnLine(WORD_SETS[nextQuery(WORD_SETS.length)]);
+    }
+
+    @Benchmark
+    public List<Integer> someWordsOnLine() {
+        return this.search.someWordsOnLine(WORD_SETS[nextQuery(WORD_SETS.length)]);
+    }
+
+    @Benchmark
+    public List<Integer> wordsNotOnLine() {
+        int query = nextQuery(WORD_SETS.length);
+        return this.search.wordsNotOnLine(WORD_SETS[query], EXCLUDED_SETS[query]);
+    }
+
+    @Benchmark
+    public List<?> simpleAndSearch() {
+        int query = nextQuery(WORD_SETS.length);
+        return this.search.simpleAndSearch(TITLES[query], WORD_SETS[query]);
+    }
+
+    @Benchmark
+    public List<?> simpleOrSearch() {
+        int query = nextQuery(WORD_SETS.length);
+        return this.search.simpleOrSearch(TITLES[query], WORD_SETS[query]);
+    }
+
+    @Benchmark
+    public List<?> simpleNotSearch() {
+        int query = nextQuery(WORD_SETS.length);
+        return this.search.simpleNotSearch(TITLES[query], WORD_SETS[query], EXCLUDED_SETS[query]);
+    }
+
+    @Benchmark
+    public List<?> compoundAndOrSearch() {
+        int query = nextQuery(WORD_SETS.length);
+        return this.search.compoundAndOrSearch(TITLES[query], EXCLUDED_SETS[query], WORD_SETS[query]);
+    }
+
+    @Benchmark
+    public List<?> topSections() {
+        return this.search.topSections(WORD_SETS[nextQuery(WORD_SETS.length)], 5);
+    }
+
+    @Benchmark
+    public int firstPrefixOccurrences() {
+        OccurrenceIterator occurrences = this.search.iteratePrefix(PREFIXES[nextQuery(PREFIXES.length)]);
+        int checksum = 0;
+        for(int i = 0; (i < FIRST_HITS) && occurrences.hasNext(); i++) {
+            occurrences.next();
+            checksum += occurrences.getLine();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int firstPhraseOccurrences() {
+        OccurrenceIterator occurrences = this.search.iteratePhrase(PHRASES[nextQuery(PHRASES.length)]);
+        int checksum = 0;
+        for(int i = 0; (i < FIRST_HITS) && occurrences.hasNext(); i++) {
+            occurrences.next();
+            checksum += occurrences.getLine();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int[] firstWordsOnLine() {
+        return this.search.iterateWordsOnLine(WORD_SETS[nextQuery(WORD_SETS.length)]).stream()
+                .limit(FIRST_HITS).toArray();
+    }
+}
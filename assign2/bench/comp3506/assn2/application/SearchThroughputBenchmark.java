@@ -0,0 +1,158 @@
+package comp3506.assn2.application;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures query throughput of one AutoTester shared by every benchmark thread. The index is frozen once
+ * constructed and queries take no locks, so throughput should scale with the number of threads: compare runs
+ * with -t 1 against -t 4 or more. Each benchmark also runs on a compressed index, where phrase and OR queries go
+ * through the cache of decoded postings, which must not serialise the threads either.
+ *
+ * The document is a deterministic stream of words drawn with a Zipf-like distribution from a generated
+ * vocabulary, so queries mix common and rare words as in natural text.
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class SearchThroughputBenchmark {
+
+    private static final String LETTERS = "etaoinshrdlucmfwypvbgkjqxz";
+    private static final int WORDS_PER_LINE = 10;
+
+    @Param({"100000"})
+    public int numLines;
+
+    @Param({"20000"})
+    public int vocabularySize;
+
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    private File documentFile;
+    private String[] vocabulary;
+    private AutoTester search;
+
+    /**
+     * Each thread draws its own query words, so no state is shared between threads other than the index
+     */
+    @State(Scope.Thread)
+    public static class Queries {
+        private Random random;
+        private String[] vocabulary;
+
+        @Setup(Level.Trial)
+        public void setup(SearchThroughputBenchmark benchmark) {
+            this.random = new Random(Thread.currentThread().getId());
+            this.vocabulary = benchmark.vocabulary;
+        }
+
+        String nextWord() {
+            //Zipf-like: small indexes are drawn far more often
+            double u = this.random.nextDouble();
+            return this.vocabulary[(int) (Math.pow(u, 3) * this.vocabulary.length)];
+        }
+
+        String nextPrefix() {
+            String word = nextWord();
+            return word.substring(0, Math.min(2, word.length()));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Random random = new Random(3506);
+
+        this.vocabulary = new String[this.vocabularySize];
+        for(int i = 0; i < this.vocabularySize; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 2 + random.nextInt(8);
+            for(int j = 0; j < length; j++) {
+                word.append(LETTERS.charAt((int) (Math.pow(random.nextDouble(), 2) * LETTERS.length())));
+            }
+            this.vocabulary[i] = word.toString();
+        }
+
+        this.documentFile = File.createTempFile("search-throughput", ".txt");
+        try(Writer writer = new FileWriter(this.documentFile)) {
+            for(int line = 0; line < this.numLines; line++) {
+                for(int i = 0; i < WORDS_PER_LINE; i++) {
+                    double u = random.nextDouble();
+                    writer.write(this.vocabulary[(int) (Math.pow(u, 3) * this.vocabularySize)]);
+                    writer.write(i + 1 < WORDS_PER_LINE ? ' ' : '\n');
+                }
+            }
+        }
+
+        this.search = new AutoTester(this.documentFile.getPath(), null, null);
+        if(this.compressed) {
+            this.search.compressIndex();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.documentFile.delete();
+    }
+
+    @Benchmark
+    public int wordCount(Queries queries) {
+        return this.search.wordCount(queries.nextWord());
+    }
+
+    @Benchmark
+    public List<?> prefixOccurrence(Queries queries) {
+        return this.search.prefixOccurrence(queries.nextPrefix());
+    }
+
+    @Benchmark
+    public List<?> phraseOccurrence(Queries queries) {
+        return this.search.phraseOccurrence(queries.nextWord() + " " + queries.nextWord());
+    }
+
+    @Benchmark
+    public List<?> simpleOrSearch(Queries queries) {
+        return this.search.simpleOrSearch(null, new String[] {queries.nextWord(), queries.nextWord()});
+    }
+
+    @Benchmark
+    public List<Integer> wordsOnLine(Queries queries) {
+        return this.search.wordsOnLine(new String[] {queries.nextWord(), queries.nextWord()});
+    }
+
+    @Benchmark
+    public List<Integer> someWordsOnLine(Queries queries) {
+        return this.search.someWordsOnLine(new String[] {queries.nextWord(), queries.nextWord()});
+    }
+
+    @Benchmark
+    public List<Integer> wordsNotOnLine(Queries queries) {
+        return this.search.wordsNotOnLine(new String[] {queries.nextWord()}, new String[] {queries.nextWord()});
+    }
+}
@@ -0,0 +1,102 @@
+package comp3506.assn2.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the time to build the trie of a document scales with the number of threads building it. Each
+ * thread count builds from four chunks per thread, as IndexBuilder does on the common pool.
+ *
+ * The document is a deterministic stream of words drawn with a Zipf-like distribution from a generated
+ * vocabulary, split into sections of a few hundred lines.
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexBuilderBenchmark {
+
+    private static final String LETTERS = "etaoinshrdlucmfwypvbgkjqxz";
+    private static final int WORDS_PER_LINE = 10;
+    private static final int LINES_PER_SECTION = 300;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int numThreads;
+
+    @Param({"200000"})
+    public int numLines;
+
+    private File documentFile;
+    private MappedDocument document;
+    private ArrayList<Integer> sectionStarts;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Random random = new Random(3506);
+
+        String[] vocabulary = new String[20000];
+        for(int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 2 + random.nextInt(8);
+            for(int j = 0; j < length; j++) {
+                word.append(LETTERS.charAt((int) (Math.pow(random.nextDouble(), 2) * LETTERS.length())));
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        this.documentFile = File.createTempFile("index-builder", ".txt");
+        try(Writer writer = new FileWriter(this.documentFile)) {
+            for(int line = 0; line < this.numLines; line++) {
+                for(int i = 0; i < WORDS_PER_LINE; i++) {
+                    writer.write(vocabulary[(int) (Math.pow(random.nextDouble(), 3) * vocabulary.length)]);
+                    writer.write(i + 1 < WORDS_PER_LINE ? ' ' : '\n');
+                }
+            }
+        }
+
+        this.document = new MappedDocument(MappedDocument.map(this.documentFile.getPath()));
+        this.document.scanLines();
+
+        this.sectionStarts = new ArrayList<>();
+        for(int line = 1; line <= this.numLines; line += LINES_PER_SECTION) {
+            this.sectionStarts.append(line);
+        }
+
+        this.pool = new ForkJoinPool(this.numThreads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.pool.shutdown();
+        this.documentFile.delete();
+    }
+
+    @Benchmark
+    public OccurrenceTrie build() {
+        return IndexBuilder.build(this.document, this.sectionStarts, this.pool, 4 * this.numThreads);
+    }
+}
@@ -0,0 +1,173 @@
+package comp3506.assn2.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the adaptive child layout of OccurrenceTrieNode against the previous linear scan of an
+ * ArrayList of children, for building a trie from a corpus and for looking up words.
+ *
+ * The corpus is a deterministic stream of words drawn with a Zipf-like distribution from a generated
+ * vocabulary, so common words share short prefixes near the root as in natural text.
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OccurrenceTrieNodeBenchmark {
+
+    private static final String LETTERS = "etaoinshrdlucmfwypvbgkjqxz";
+
+    @Param({"1000000"})
+    public int corpusWords;
+
+    @Param({"20000"})
+    public int vocabularySize;
+
+    private String[] corpus;
+    private String[] queries;
+    private OccurrenceTrie adaptiveTrie;
+    private ScanTrieNode scanRoot;
+
+    /**
+     * The previous trie node layout: children in an ArrayList, found by linear scan
+     */
+    static class ScanTrieNode {
+        private char value;
+        private ArrayList<ScanTrieNode> children = new ArrayList<>(4);
+        private int count;
+
+        ScanTrieNode(char value) {
+            this.value = value;
+        }
+
+        ScanTrieNode getChild(char letter) {
+            for(int i = 0; i < this.children.size(); i++) {
+                if(this.children.get(i).value == letter) {
+                    return this.children.get(i);
+                }
+            }
+            return null;
+        }
+
+        ScanTrieNode addChild(char letter) {
+            ScanTrieNode child = getChild(letter);
+            if(child == null) {
+                child = new ScanTrieNode(letter);
+                this.children.append(child);
+            }
+            return child;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(3506);
+
+        String[] vocabulary = new String[this.vocabularySize];
+        for(int i = 0; i < vocabulary.length; i++) {
+            int length = 2 + random.nextInt(8);
+            StringBuilder word = new StringBuilder(length);
+            for(int j = 0; j < length; j++) {
+                //Skew letters towards the front of LETTERS, as in English text
+                int letter = (int) (LETTERS.length() * Math.pow(random.nextDouble(), 2));
+                word.append(LETTERS.charAt(letter));
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        this.corpus = new String[this.corpusWords];
+        for(int i = 0; i < this.corpus.length; i++) {
+            //Zipf-like rank: small ranks are drawn far more often
+            int rank = (int) (vocabulary.length * Math.pow(random.nextDouble(), 3));
+            this.corpus[i] = vocabulary[rank];
+        }
+
+        this.queries = new String[10000];
+        for(int i = 0; i < this.queries.length; i++) {
+            this.queries[i] = this.corpus[random.nextInt(this.corpus.length)];
+        }
+
+        this.adaptiveTrie = buildAdaptive();
+        this.scanRoot = buildScan();
+    }
+
+    private OccurrenceTrie buildAdaptive() {
+        OccurrenceTrie trie = new OccurrenceTrie();
+
+        for(int i = 0; i < this.corpus.length; i++) {
+            OccurrenceTrieNode reference = trie.getRoot();
+            String word = this.corpus[i];
+            for(int j = 0; j < word.length(); j++) {
+                reference = reference.addChild(word.charAt(j));
+            }
+            reference.setIsWord(true);
+        }
+
+        return trie;
+    }
+
+    private ScanTrieNode buildScan() {
+        ScanTrieNode root = new ScanTrieNode((char) 0);
+
+        for(int i = 0; i < this.corpus.length; i++) {
+            ScanTrieNode reference = root;
+            String word = this.corpus[i];
+            for(int j = 0; j < word.length(); j++) {
+                reference = reference.addChild(word.charAt(j));
+            }
+            reference.count++;
+        }
+
+        return root;
+    }
+
+    @Benchmark
+    public OccurrenceTrie corpusBuildAdaptive() {
+        return buildAdaptive();
+    }
+
+    @Benchmark
+    public ScanTrieNode corpusBuildScan() {
+        return buildScan();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void getNodeTerminatingWordAdaptive(Blackhole blackhole) {
+        for(int i = 0; i < this.queries.length; i++) {
+            blackhole.consume(this.adaptiveTrie.getNodeTerminatingWord(this.queries[i]));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void getNodeTerminatingWordScan(Blackhole blackhole) {
+        for(int i = 0; i < this.queries.length; i++) {
+            ScanTrieNode reference = this.scanRoot;
+            String word = this.queries[i];
+            for(int j = 0; (j < word.length()) && (reference != null); j++) {
+                reference = reference.getChild(word.charAt(j));
+            }
+            blackhole.consume(reference);
+        }
+    }
+}
@@ -0,0 +1,584 @@
+package comp3506.assn2.application;
+
+import comp3506.assn2.utils.LruCache;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.Tokenizer;
+import comp3506.assn2.utils.Triple;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Search that answers repeated queries from a bounded cache in front of another Search. Results are cached as
+ * primitive arrays under a key describing the operation and its arguments, and evicted least recently used first
+ * once the cache exceeds its byte budget. Each hit builds a new result list, so callers may modify it.
+ *
+ * Words are keyed by their Tokenizer.normalise form, as they are searched for, so queries differing only in case
+ * share one entry. Line searches (wordsOnLine, someWordsOnLine and wordsNotOnLine) return the same lines whatever
+ * the order of their words, so their words are also sorted and deduplicated and permutations of a query share one
+ * entry. Section titles are keyed exactly as given, and null titles as no titles, as both search the whole
+ * document. Section searches return the query's own words, so a cached result records which query word each
+ * occurrence is of and a hit returns the words of the query being answered. A section search repeating a word in
+ * different cases would be ambiguous, so it is passed straight to the wrapped Search, as are queries with other
+ * null arguments and queries that throw, which are never cached.
+ *
+ * The wrapped Search must not change while it is cached: an index version is never changed once built, so
+ * cached results stay valid for as long as the same version is wrapped. Appending lines returns a new version
+ * rather than changing this one, see AutoTester.append, so the new version is wrapped in a new CachingSearch. A
+ * wrapped Search that switches itself to another version must be followed by a call to invalidate. Thread safe if
+ * the wrapped Search is.
+ *
+ * @bigO
+ *      O(byteBudget) space complexity: the cache holds results of at most byteBudget estimated bytes
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class CachingSearch implements Search {
+
+    //Estimated bytes of an object header and array length
+    private final static int ARRAY_OVERHEAD = 16;
+    private final static int STRING_OVERHEAD = 40;
+
+    //Separate elements and arguments of cache keys, they cannot appear in words
+    private final static char ELEMENT_SEPARATOR = '\u0000';
+    private final static char ARGUMENT_SEPARATOR = '\u0001';
+
+    //Key of null titles, which search the whole document as an empty array does
+    private final static String[] NO_TITLES = new String[0];
+
+    /**
+     * A cached section search result: the (line, column) of each occurrence interleaved, and the word found there.
+     * The word is the index of the query word it is among the query's word arguments, else the word itself.
+     */
+    private static class Occurrences {
+        private final int[] positions;
+        private final int[] wordIndexes;
+        private final String[] words;
+
+        Occurrences(int[] positions, int[] wordIndexes, String[] words) {
+            this.positions = positions;
+            this.wordIndexes = wordIndexes;
+            this.words = words;
+        }
+    }
+
+    private final Search search;
+    private final LruCache<String, Object> cache;
+
+    /**
+     * Wraps a Search in a cache
+     *
+     * @bigO
+     *      O(1): value assignment in constant time
+     *
+     * @param search
+     *      The Search to answer queries that miss the cache
+     * @param byteBudget
+     *      The estimated number of bytes of results the cache may hold
+     */
+    public CachingSearch(Search search, long byteBudget) {
+        this.search = search;
+        this.cache = new LruCache<>(byteBudget);
+    }
+
+    /**
+     * Discards every cached result, to be called after the wrapped Search switches to another index version
+     *
+     * @bigO
+     *      O(1): see LruCache.clear
+     */
+    public void invalidate() {
+        this.cache.clear();
+    }
+
+    /**
+     * Returns the number of queries answered from the cache
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of hits
+     */
+    public long getHits() {
+        return this.cache.getHits();
+    }
+
+    /**
+     * Returns the number of cacheable queries passed to the wrapped Search
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of misses
+     */
+    public long getMisses() {
+        return this.cache.getMisses();
+    }
+
+    /**
+     * Returns the number of results evicted to stay within the byte budget
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of evictions
+     */
+    public long getEvictions() {
+        return this.cache.getEvictions();
+    }
+
+    /**
+     * Returns the estimated number of bytes of cached results
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The estimated size of the cache in bytes
+     */
+    public long getCachedBytes() {
+        return this.cache.getNumBytes();
+    }
+
+    @Override
+    public int wordCount(String word) throws IllegalArgumentException {
+        if(word == null) {
+            return this.search.wordCount(word);
+        }
+
+        String key = "c" + Tokenizer.normalise(word);
+        Object cached = this.cache.get(key);
+        if(cached != null) {
+            return ((int[]) cached)[0];
+        }
+
+        int count = this.search.wordCount(word);
+        this.cache.put(key, new int[] {count}, weight(key) + ARRAY_OVERHEAD + 4);
+        return count;
+    }
+
+    @Override
+    public List<Pair<Integer,Integer>> phraseOccurrence(String phrase) throws IllegalArgumentException {
+        if(phrase == null) {
+            return this.search.phraseOccurrence(phrase);
+        }
+
+        String key = "p" + Tokenizer.normalise(phrase);
+        Object cached = this.cache.get(key);
+        if(cached != null) {
+            return toPairs((int[]) cached);
+        }
+
+        List<Pair<Integer,Integer>> result = this.search.phraseOccurrence(phrase);
+        cachePairs(key, result);
+        return result;
+    }
+
+    @Override
+    public List<Pair<Integer,Integer>> prefixOccurrence(String prefix) throws IllegalArgumentException {
+        if(prefix == null) {
+            return this.search.prefixOccurrence(prefix);
+        }
+
+        String key = "x" + Tokenizer.normalise(prefix);
+        Object cached = this.cache.get(key);
+        if(cached != null) {
+            return toPairs((int[]) cached);
+        }
+
+        List<Pair<Integer,Integer>> result = this.search.prefixOccurrence(prefix);
+        cachePairs(key, result);
+        return result;
+    }
+
+    @Override
+    public List<Integer> wordsOnLine(String[] words) throws IllegalArgumentException {
+        String key = key('a', true, NO_TITLES, words);
+        if(key == null) {
+            return this.search.wordsOnLine(words);
+        }
+
+        Object cached = this.cache.get(key);
+        if(cached != null) {
+            return toLines((int[]) cached);
+        }
+
+        List<Integer> result = this.search.wordsOnLine(words);
+        cacheLines(key, result);
+        return result;
+    }
+
+    @Override
+    public List<Integer> someWordsOnLine(String[] words) throws IllegalArgumentException {
+        String key = key('o', true, NO_TITLES, words);
+        if(key == null) {
+            return this.search.someWordsOnLine(words);
+        }
+
+        Object cached = this.cache.get(key);
+        if(cached != null) {
+            return toLines((int[]) cached);
+        }
+
+        List<Integer> result = this.search.someWordsOnLine(words);
+        cacheLines(key, result);
+        return result;
+    }
+
+    @Override
+    public List<Integer> wordsNotOnLine(String[] wordsRequired, String[] wordsExcluded)
+            throws IllegalArgumentException {
+        String key = key('n', true, NO_TITLES, wordsRequired, wordsExcluded);
+        if(key == null) {
+            return this.search.wordsNotOnLine(wordsRequired, wordsExcluded);
+        }
+
+        Object cached = this.cache.get(key);
+        if(cached != null) {
+            return toLines((int[]) cached);
+        }
+
+        List<Integer> result = this.search.wordsNotOnLine(wordsRequired, wordsExcluded);
+        cacheLines(key, result);
+        return result;
+    }
+
+    @Override
+    public List<Triple<Integer,Integer,String>> simpleAndSearch(String[] titles, String[] words)
+            throws IllegalArgumentException {
+        String key = key('A', false, (titles == null) ? NO_TITLES : titles, words);
+        if(key == null) {
+            return this.search.simpleAndSearch(titles, words);
+        }
+
+        Object cached = this.cache.get(key);
+        if(cached != null) {
+            return toTriples((Occurrences) cached, words);
+        }
+
+        List<Triple<Integer,Integer,String>> result = this.search.simpleAndSearch(titles, words);
+        cacheTriples(key, result, words);
+        return result;
+    }
+
+    @Override
+    public List<Triple<Integer,Integer,String>> simpleOrSearch(String[] titles, String[] words)
+            throws IllegalArgumentException {
+        String key = key('O', false, (titles == null) ? NO_TITLES : titles, words);
+        if(key == null) {
+            return this.search.simpleOrSearch(titles, words);
+        }
+
+        Object cached = this.cache.get(key);
+        if(cached != null) {
+            return toTriples((Occurrences) cached, words);
+        }
+
+        List<Triple<Integer,Integer,String>> result = this.search.simpleOrSearch(titles, words);
+        cacheTriples(key, result, words);
+        return result;
+    }
+
+    @Override
+    public List<Triple<Integer,Integer,String>> simpleNotSearch(String[] titles, String[] wordsRequired,
+                                                                String[] wordsExcluded)
+            throws IllegalArgumentException {
+        String key = key('N', false, (titles == null) ? NO_TITLES : titles, wordsRequired, wordsExcluded);
+        if(key == null) {
+            return this.search.simpleNotSearch(titles, wordsRequired, wordsExcluded);
+        }
+
+        Object cached = this.cache.get(key);
+        if(cached != null) {
+            return toTriples((Occurrences) cached, wordsRequired, wordsExcluded);
+        }
+
+        List<Triple<Integer,Integer,String>> result = this.search.simpleNotSearch(titles, wordsRequired,
+                wordsExcluded);
+        cacheTriples(key, result, wordsRequired, wordsExcluded);
+        return result;
+    }
+
+    @Override
+    public List<Triple<Integer,Integer,String>> compoundAndOrSearch(String[] titles, String[] wordsRequired,
+                                                                    String[] orWords)
+            throws IllegalArgumentException {
+        String key = key('C', false, (titles == null) ? NO_TITLES : titles, wordsRequired, orWords);
+        if(key == null) {
+            return this.search.compoundAndOrSearch(titles, wordsRequired, orWords);
+        }
+
+        Object cached = this.cache.get(key);
+        if(cached != null) {
+            return toTriples((Occurrences) cached, wordsRequired, orWords);
+        }
+
+        List<Triple<Integer,Integer,String>> result = this.search.compoundAndOrSearch(titles, wordsRequired,
+                orWords);
+        cacheTriples(key, result, wordsRequired, orWords);
+        return result;
+    }
+
+    /**
+     * Returns the cache key of an operation and its arguments, else null if the query is not cached: if any
+     * argument or element is null, or an ordered query has two different words with the same normalised form
+     *
+     * @bigO
+     *      O(numTitles * titleLength + numWords^2 * wordLength): normalises every word and sorts each argument if
+     *          unordered, else compares every pair of words, then concatenates them
+     *
+     * @param operation
+     *      A character identifying the operation
+     * @param unordered
+     *      Whether the result of the operation is independent of the order and repetition of each argument's words
+     * @param titles
+     *      The titles of the sections searched, keyed exactly
+     * @param arguments
+     *      The word arguments of the query, keyed by their normalised words
+     * @return
+     *      The key, else null
+     */
+    private static String key(char operation, boolean unordered, String[] titles, String[]... arguments) {
+        StringBuilder key = new StringBuilder();
+        key.append(operation);
+
+        for(int i = 0; i < titles.length; i++) {
+            if(titles[i] == null) {
+                return null;
+            }
+            key.append(titles[i]).append(ELEMENT_SEPARATOR);
+        }
+        key.append(ARGUMENT_SEPARATOR);
+
+        for(int i = 0; i < arguments.length; i++) {
+            if(arguments[i] == null) {
+                return null;
+            }
+
+            String[] argument = new String[arguments[i].length];
+            for(int j = 0; j < argument.length; j++) {
+                if(arguments[i][j] == null) {
+                    return null;
+                }
+                argument[j] = Tokenizer.normalise(arguments[i][j]);
+            }
+
+            if(unordered) {
+                Arrays.sort(argument);
+            } else if(isAmbiguous(arguments, i, argument)) {
+                return null;
+            }
+
+            for(int j = 0; j < argument.length; j++) {
+                if(unordered && (j > 0) && argument[j].equals(argument[j - 1])) {
+                    continue;
+                }
+                key.append(argument[j]).append(ELEMENT_SEPARATOR);
+            }
+            key.append(ARGUMENT_SEPARATOR);
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Returns true iff a word of the specified argument has the same normalised form as a different word of it or
+     * of an earlier argument, so the words of a cached result could not be told apart
+     *
+     * @bigO
+     *      O(numWords * argumentLength * wordLength): compares each word of the argument with every earlier word
+     *
+     * @param arguments
+     *      The word arguments of the query
+     * @param index
+     *      The index of the argument to check
+     * @param normalised
+     *      The normalised words of the argument
+     */
+    private static boolean isAmbiguous(String[][] arguments, int index, String[] normalised) {
+        for(int j = 0; j < normalised.length; j++) {
+            for(int i = 0; i <= index; i++) {
+                int end = (i == index) ? j : arguments[i].length;
+                for(int k = 0; k < end; k++) {
+                    if(!arguments[i][k].equals(arguments[index][j])
+                            && Tokenizer.normalise(arguments[i][k]).equals(normalised[j])) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the index of the first word of the query's word arguments equal to word, counting through the
+     * arguments in order, else -1
+     *
+     * @bigO
+     *      O(numWords * wordLength): compares every word
+     */
+    private static int indexOfWord(String[][] arguments, String word) {
+        int index = 0;
+        for(int i = 0; i < arguments.length; i++) {
+            for(int j = 0; j < arguments[i].length; j++) {
+                if(arguments[i][j].equals(word)) {
+                    return index;
+                }
+                index++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the word at the specified index of the query's word arguments, counting through the arguments in
+     * order
+     *
+     * @bigO
+     *      O(numArguments): skips whole arguments
+     */
+    private static String getWord(String[][] arguments, int index) {
+        int i = 0;
+        while(index >= arguments[i].length) {
+            index -= arguments[i].length;
+            i++;
+        }
+        return arguments[i][index];
+    }
+
+    /**
+     * Returns the estimated size of a String in bytes
+     *
+     * @bigO
+     *      O(1): arithmetic
+     */
+    private static long weight(String string) {
+        return STRING_OVERHEAD + 2L * string.length();
+    }
+
+    /**
+     * Caches a list of line numbers as an int array
+     *
+     * @bigO
+     *      O(lines.size()): copies every line number
+     */
+    private void cacheLines(String key, List<Integer> lines) {
+        if(lines == null) {
+            return;
+        }
+
+        int[] cached = new int[lines.size()];
+        for(int i = 0; i < cached.length; i++) {
+            cached[i] = lines.get(i);
+        }
+
+        this.cache.put(key, cached, weight(key) + ARRAY_OVERHEAD + 4L * cached.length);
+    }
+
+    /**
+     * Caches a list of (line, column) pairs as an interleaved int array
+     *
+     * @bigO
+     *      O(pairs.size()): copies every pair
+     */
+    private void cachePairs(String key, List<Pair<Integer,Integer>> pairs) {
+        if(pairs == null) {
+            return;
+        }
+
+        int[] cached = new int[2 * pairs.size()];
+        for(int i = 0; i < pairs.size(); i++) {
+            cached[2 * i] = pairs.get(i).getLeftValue();
+            cached[2 * i + 1] = pairs.get(i).getRightValue();
+        }
+
+        this.cache.put(key, cached, weight(key) + ARRAY_OVERHEAD + 4L * cached.length);
+    }
+
+    /**
+     * Caches a list of (line, column, word) triples as an interleaved int array and the index of each word among
+     * the query's words, else the word itself
+     *
+     * @bigO
+     *      O(triples.size() * numWords): copies every triple, finding its word among the query's words when it
+     *          differs from the previous triple's
+     */
+    private void cacheTriples(String key, List<Triple<Integer,Integer,String>> triples, String[]... arguments) {
+        if(triples == null) {
+            return;
+        }
+
+        int[] positions = new int[2 * triples.size()];
+        int[] wordIndexes = new int[triples.size()];
+        String[] words = new String[triples.size()];
+        long bytes = weight(key) + 4 * ARRAY_OVERHEAD + 4L * positions.length + 8L * words.length;
+
+        for(int i = 0; i < triples.size(); i++) {
+            Triple<Integer,Integer,String> triple = triples.get(i);
+            positions[2 * i] = triple.getLeftValue();
+            positions[2 * i + 1] = triple.getCentreValue();
+
+            //Consecutive occurrences of the same word share one lookup
+            String word = triple.getRightValue();
+            if((i > 0) && (word == triples.get(i - 1).getRightValue())) {
+                wordIndexes[i] = wordIndexes[i - 1];
+                words[i] = words[i - 1];
+                continue;
+            }
+
+            wordIndexes[i] = (word == null) ? -1 : indexOfWord(arguments, word);
+            if(wordIndexes[i] < 0) {
+                words[i] = word;
+                bytes += (word == null) ? 0 : weight(word);
+            }
+        }
+
+        this.cache.put(key, new Occurrences(positions, wordIndexes, words), bytes);
+    }
+
+    /**
+     * Returns a new list of the cached line numbers
+     *
+     * @bigO
+     *      O(cached.length): boxes every line number
+     */
+    private static List<Integer> toLines(int[] cached) {
+        java.util.ArrayList<Integer> lines = new java.util.ArrayList<>(cached.length);
+        for(int i = 0; i < cached.length; i++) {
+            lines.add(cached[i]);
+        }
+        return lines;
+    }
+
+    /**
+     * Returns a new list of the cached (line, column) pairs
+     *
+     * @bigO
+     *      O(cached.length): creates every pair
+     */
+    private static List<Pair<Integer,Integer>> toPairs(int[] cached) {
+        java.util.ArrayList<Pair<Integer,Integer>> pairs = new java.util.ArrayList<>(cached.length / 2);
+        for(int i = 0; i < cached.length; i += 2) {
+            pairs.add(new Pair<>(cached[i], cached[i + 1]));
+        }
+        return pairs;
+    }
+
+    /**
+     * Returns a new list of the cached (line, column, word) triples, with the words of the query being answered
+     *
+     * @bigO
+     *      O(cached.words.length * numArguments): creates every triple, finding each query word
+     */
+    private static List<Triple<Integer,Integer,String>> toTriples(Occurrences cached, String[]... arguments) {
+        java.util.ArrayList<Triple<Integer,Integer,String>> triples = new java.util.ArrayList<>(cached.words.length);
+        for(int i = 0; i < cached.words.length; i++) {
+            String word = (cached.wordIndexes[i] < 0) ? cached.words[i] : getWord(arguments, cached.wordIndexes[i]);
+            triples.add(new Triple<>(cached.positions[2 * i], cached.positions[2 * i + 1], word));
+        }
+        return triples;
+    }
+}
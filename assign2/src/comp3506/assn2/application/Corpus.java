@@ -0,0 +1,483 @@
+package comp3506.assn2.application;
+
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.Triple;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A library of documents served by one object, each document indexed separately as a shard with its own trie and
+ * section table. Queries are fanned out to every shard in parallel on a ForkJoinPool and their results merged under
+ * the document id of the shard that found them, so an occurrence is keyed by (docId, line, column) and a line by
+ * (docId, line). Document ids are assigned in the order documents are added, from 0, and results are ordered by
+ * document id, then in the order the document's own search returns them.
+ *
+ * Every shard must fit a memory budget. A document whose index is over budget is compressed, and rejected if it
+ * is still over budget, so no one document can take memory meant for the others.
+ *
+ * Documents are added and replaced by copying the array of shards and publishing the copy, so queries never lock
+ * and each query sees every shard of the corpus at the time it starts. Thread safe if the shards are.
+ *
+ * @bigO
+ *      O(numDocuments * shardByteBudget) space complexity: every shard is within the budget
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class Corpus {
+
+    /**
+     * A document of the corpus and the estimated size of its index
+     */
+    private static class Shard {
+        private final String name;
+        private final DocumentIndex index;
+        private final long indexBytes;
+
+        Shard(String name, DocumentIndex index, long indexBytes) {
+            this.name = name;
+            this.index = index;
+            this.indexBytes = indexBytes;
+        }
+    }
+
+    /**
+     * A query run on a single shard
+     */
+    private interface ShardQuery<R> {
+        R apply(DocumentIndex index);
+    }
+
+    private final long shardByteBudget;
+    private final ForkJoinPool pool;
+    private volatile Shard[] shards = new Shard[0];
+
+    /**
+     * Initialises an empty corpus whose queries run on the specified pool
+     *
+     * @bigO
+     *      O(1): value assignment in constant time
+     *
+     * @param shardByteBudget
+     *      The estimated number of bytes the index of each document may use
+     * @param pool
+     *      The pool to run each shard's part of a query on
+     */
+    public Corpus(long shardByteBudget, ForkJoinPool pool) {
+        this.shardByteBudget = shardByteBudget;
+        this.pool = pool;
+    }
+
+    /**
+     * Initialises an empty corpus whose queries run on the common ForkJoinPool
+     *
+     * @bigO
+     *      O(1): calls constructor
+     *
+     * @param shardByteBudget
+     *      The estimated number of bytes the index of each document may use
+     */
+    public Corpus(long shardByteBudget) {
+        this(shardByteBudget, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Adds a document to the corpus. The index must not yet be shared with other threads, as it is compressed if it
+     * is over the shard budget
+     *
+     * @bigO
+     *      O(numDocuments + indexCost): copies the shards, after DocumentIndex.getIndexBytes and possibly
+     *          DocumentIndex.compressIndex
+     *
+     * @param name
+     *      The name of the document
+     * @param index
+     *      The index of the document
+     * @return
+     *      The id of the document
+     * @throws IllegalArgumentException
+     *      If name or index is null, or the index is over the shard budget even once compressed
+     */
+    public synchronized int addDocument(String name, DocumentIndex index) throws IllegalArgumentException {
+        Shard shard = admit(name, index);
+
+        Shard[] shards = Arrays.copyOf(this.shards, this.shards.length + 1);
+        shards[shards.length - 1] = shard;
+        this.shards = shards;
+        return shards.length - 1;
+    }
+
+    /**
+     * Replaces the index of a document, such as with a version with lines appended, keeping its name and id.
+     * Queries already running keep using the previous index
+     *
+     * @bigO
+     *      O(numDocuments + indexCost): see addDocument
+     *
+     * @param docId
+     *      The id of the document
+     * @param index
+     *      The new index of the document
+     * @throws IllegalArgumentException
+     *      If docId is not the id of a document, index is null, or the index is over the shard budget even once
+     *      compressed
+     */
+    public synchronized void replaceDocument(int docId, DocumentIndex index) throws IllegalArgumentException {
+        if((docId < 0) || (docId >= this.shards.length)) { throw new IllegalArgumentException("Invalid document id"); }
+        Shard shard = admit(this.shards[docId].name, index);
+
+        Shard[] shards = this.shards.clone();
+        shards[docId] = shard;
+        this.shards = shards;
+    }
+
+    /**
+     * Returns the shard of a document after enforcing the shard budget, compressing the index if it is over
+     *
+     * @bigO
+     *      O(indexCost): see DocumentIndex.getIndexBytes and DocumentIndex.compressIndex
+     */
+    private Shard admit(String name, DocumentIndex index) throws IllegalArgumentException {
+        if(name == null) { throw new IllegalArgumentException("Invalid document name"); }
+        if(index == null) { throw new IllegalArgumentException("Invalid document index"); }
+
+        long indexBytes = index.getIndexBytes();
+        if(indexBytes > this.shardByteBudget) {
+            index.compressIndex();
+            indexBytes = index.getIndexBytes();
+            if(indexBytes > this.shardByteBudget) {
+                throw new IllegalArgumentException("Document index exceeds shard budget");
+            }
+        }
+
+        return new Shard(name, index, indexBytes);
+    }
+
+    /**
+     * Returns the number of documents in the corpus
+     *
+     * @bigO
+     *      O(1): array length
+     *
+     * @return
+     *      The number of documents
+     */
+    public int getNumDocuments() {
+        return this.shards.length;
+    }
+
+    /**
+     * Returns the name of a document
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param docId
+     *      The id of the document
+     * @return
+     *      The name the document was added with
+     */
+    public String getName(int docId) {
+        return this.shards[docId].name;
+    }
+
+    /**
+     * Returns the index of a document, for the searches that only apply to one document, such as searches of
+     * sections by title
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param docId
+     *      The id of the document
+     * @return
+     *      The index of the document
+     */
+    public DocumentIndex getDocument(int docId) {
+        return this.shards[docId].index;
+    }
+
+    /**
+     * Returns the estimated memory used by the index of a document, as measured when it was added
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param docId
+     *      The id of the document
+     * @return
+     *      The estimated number of bytes of the document's index
+     */
+    public long getIndexBytes(int docId) {
+        return this.shards[docId].indexBytes;
+    }
+
+    /**
+     * Determines the number of times the word appears in every document of the corpus
+     *
+     * @bigO
+     *      O(numDocuments + max(wordCountCost)): fans out to every shard, then sums their counts
+     *
+     * @param word The word to be counted in the corpus.
+     * @return The number of occurrences of the word in the corpus.
+     * @throws IllegalArgumentException if word is null or an empty String.
+     */
+    public int wordCount(final String word) throws IllegalArgumentException {
+        if((word == null) || (word.length() == 0)) { throw new IllegalArgumentException("Invalid word"); }
+
+        Object[] counts = fanOut(index -> index.wordCount(word));
+        int count = 0;
+        for(int docId = 0; docId < counts.length; docId++) {
+            count += (Integer) counts[docId];
+        }
+        return count;
+    }
+
+    /**
+     * Finds all occurrences of the phrase in the corpus, see Search.phraseOccurrence
+     *
+     * @bigO
+     *      O(numDocuments + max(phraseOccurrenceCost) + numOccurrences): fans out to every shard, then keys every
+     *          occurrence found by its document
+     *
+     * @param phrase The phrase to be found in the corpus.
+     * @return List of triples, where each triple indicates the document id, line and column number of each
+     *         occurrence of the phrase. Returns an empty list if the phrase is not found in the corpus.
+     * @throws IllegalArgumentException if phrase is null or an empty String.
+     */
+    public List<Triple<Integer,Integer,Integer>> phraseOccurrence(final String phrase)
+            throws IllegalArgumentException {
+        if((phrase == null) || (phrase.length() == 0)) { throw new IllegalArgumentException("Invalid phrase"); }
+
+        return toOccurrences(fanOut(index -> index.phraseOccurrence(phrase)));
+    }
+
+    /**
+     * Finds all occurrences of the prefix in the corpus, see Search.prefixOccurrence
+     *
+     * @bigO
+     *      O(numDocuments + max(prefixOccurrenceCost) + numOccurrences): see phraseOccurrence
+     *
+     * @param prefix The prefix of a word that is to be found in the corpus.
+     * @return List of triples, where each triple indicates the document id, line and column number of each
+     *         occurrence of the prefix. Returns an empty list if the prefix is not found in the corpus.
+     * @throws IllegalArgumentException if prefix is null or an empty String.
+     */
+    public List<Triple<Integer,Integer,Integer>> prefixOccurrence(final String prefix)
+            throws IllegalArgumentException {
+        if((prefix == null) || (prefix.length() == 0)) { throw new IllegalArgumentException("Invalid prefix"); }
+
+        return toOccurrences(fanOut(index -> index.prefixOccurrence(prefix)));
+    }
+
+    /**
+     * Finds all the lines of the corpus that contain every word, see Search.wordsOnLine
+     *
+     * @bigO
+     *      O(numDocuments + max(wordsOnLineCost) + numLines): fans out to every shard, then keys every line found
+     *          by its document
+     *
+     * @param words Array of words to find on a single line in the corpus.
+     * @return List of pairs, where each pair indicates the document id and line number of each line containing
+     *         all the words. Returns an empty list if the words are not found on any line of the corpus.
+     * @throws IllegalArgumentException if words is null or an empty array or any of the Strings in the array
+     *                                  are null or empty.
+     */
+    public List<Pair<Integer,Integer>> wordsOnLine(final String[] words) throws IllegalArgumentException {
+        if((words == null) || (words.length == 0)) { throw new IllegalArgumentException("Invalid search words"); }
+
+        return toLines(fanOut(index -> index.wordsOnLine(words)));
+    }
+
+    /**
+     * Finds all the lines of the corpus that contain any of the words, see Search.someWordsOnLine
+     *
+     * @bigO
+     *      O(numDocuments + max(someWordsOnLineCost) + numLines): see wordsOnLine
+     *
+     * @param words Array of words to find on a single line in the corpus.
+     * @return List of pairs, where each pair indicates the document id and line number of each line containing
+     *         any of the words. Returns an empty list if the words are not found on any line of the corpus.
+     * @throws IllegalArgumentException if words is null or an empty array or any of the Strings in the array
+     *                                  are null or empty.
+     */
+    public List<Pair<Integer,Integer>> someWordsOnLine(final String[] words) throws IllegalArgumentException {
+        if((words == null) || (words.length == 0)) { throw new IllegalArgumentException("Invalid search words"); }
+
+        return toLines(fanOut(index -> index.someWordsOnLine(words)));
+    }
+
+    /**
+     * Finds all the lines of the corpus that contain all of the required words but none of the excluded words,
+     * see Search.wordsNotOnLine
+     *
+     * @bigO
+     *      O(numDocuments + max(wordsNotOnLineCost) + numLines): see wordsOnLine
+     *
+     * @param wordsRequired Array of words to find on a single line in the corpus.
+     * @param wordsExcluded Array of words that must not be on the same line as wordsRequired.
+     * @return List of pairs, where each pair indicates the document id and line number of each line containing
+     *         all the required words and none of the excluded words. Returns an empty list if no such line exists.
+     * @throws IllegalArgumentException if either of the parameters is null or an empty array or any of the
+     *                                  Strings in either of the arrays are null or empty.
+     */
+    public List<Pair<Integer,Integer>> wordsNotOnLine(final String[] wordsRequired, final String[] wordsExcluded)
+            throws IllegalArgumentException {
+        if((wordsRequired == null) || (wordsRequired.length == 0)) {
+            throw new IllegalArgumentException("Invalid required words");
+        }
+        if((wordsExcluded == null) || (wordsExcluded.length == 0)) {
+            throw new IllegalArgumentException("Invalid excluded words");
+        }
+
+        return toLines(fanOut(index -> index.wordsNotOnLine(wordsRequired, wordsExcluded)));
+    }
+
+    /**
+     * Finds the sections of the corpus that best match the words, see RankedSearch.topSections. Each document
+     * scores its own sections against its own statistics, and the best k sections of every document are merged
+     * by score, ties going to the lower document id
+     *
+     * @bigO
+     *      O(numDocuments + max(topSectionsCost) + k * numDocuments): fans out to every shard, then merges their
+     *          ranked lists, checking the head of every list for each section returned
+     *
+     * @param words Array of words to rank sections by.
+     * @param k     The largest number of sections to return.
+     * @return List of triples, where each triple indicates the document id, title and score of a section,
+     *         ordered by descending score.
+     * @throws IllegalArgumentException if words is null or an empty array, any of the Strings in the array
+     *                                  are null or empty, or k is not positive.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Triple<Integer,String,Double>> topSections(final String[] words, final int k)
+            throws IllegalArgumentException {
+        if((words == null) || (words.length == 0)) { throw new IllegalArgumentException("Invalid words"); }
+        if(k <= 0) { throw new IllegalArgumentException("Invalid number of sections"); }
+
+        Object[] ranked = fanOut(index -> index.topSections(words, k));
+        int[] heads = new int[ranked.length];
+        java.util.ArrayList<Triple<Integer,String,Double>> sections = new java.util.ArrayList<>(k);
+
+        while(sections.size() < k) {
+            int best = -1;
+            double bestScore = 0;
+            for(int docId = 0; docId < ranked.length; docId++) {
+                List<Pair<String,Double>> documentSections = (List<Pair<String,Double>>) ranked[docId];
+                if((heads[docId] < documentSections.size())
+                        && ((best < 0) || (documentSections.get(heads[docId]).getRightValue() > bestScore))) {
+                    best = docId;
+                    bestScore = documentSections.get(heads[docId]).getRightValue();
+                }
+            }
+
+            if(best < 0) {
+                break;
+            }
+            Pair<String,Double> section = ((List<Pair<String,Double>>) ranked[best]).get(heads[best]++);
+            sections.add(new Triple<>(best, section.getLeftValue(), section.getRightValue()));
+        }
+
+        return sections;
+    }
+
+    /**
+     * Runs the query on every shard in parallel, returning each shard's result indexed by document id
+     *
+     * @bigO
+     *      O(numDocuments + max(queryCost)): every shard is queried by a concurrent task
+     */
+    private <R> Object[] fanOut(ShardQuery<R> query) {
+        Shard[] shards = this.shards;
+        Object[] results = new Object[shards.length];
+        ShardTask<R> task = new ShardTask<>(shards, 0, shards.length, query, results);
+
+        if(shards.length > 1) {
+            this.pool.invoke(task);
+        } else {
+            task.compute();
+        }
+        return results;
+    }
+
+    /**
+     * Queries a range of shards, splitting it in half between subtasks until each queries one shard
+     */
+    private static class ShardTask<R> extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final Shard[] shards;
+        private final int start;
+        private final int end;
+        private final ShardQuery<R> query;
+        private final Object[] results;
+
+        ShardTask(Shard[] shards, int start, int end, ShardQuery<R> query, Object[] results) {
+            this.shards = shards;
+            this.start = start;
+            this.end = end;
+            this.query = query;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if((this.end - this.start < 2) || (getPool() == null)) {
+                for(int docId = this.start; docId < this.end; docId++) {
+                    this.results[docId] = this.query.apply(this.shards[docId].index);
+                }
+                return;
+            }
+
+            int middle = (this.start + this.end) >>> 1;
+            invokeAll(new ShardTask<>(this.shards, this.start, middle, this.query, this.results),
+                    new ShardTask<>(this.shards, middle, this.end, this.query, this.results));
+        }
+    }
+
+    /**
+     * Keys the (line, column) occurrences found by each shard with its document id
+     *
+     * @bigO
+     *      O(numDocuments + numOccurrences): visits every occurrence
+     */
+    @SuppressWarnings("unchecked")
+    private static java.util.ArrayList<Triple<Integer,Integer,Integer>> toOccurrences(Object[] results) {
+        int numOccurrences = 0;
+        for(int docId = 0; docId < results.length; docId++) {
+            numOccurrences += ((List<?>) results[docId]).size();
+        }
+
+        java.util.ArrayList<Triple<Integer,Integer,Integer>> occurrences = new java.util.ArrayList<>(numOccurrences);
+        for(int docId = 0; docId < results.length; docId++) {
+            for(Pair<Integer,Integer> occurrence : (List<Pair<Integer,Integer>>) results[docId]) {
+                occurrences.add(new Triple<>(docId, occurrence.getLeftValue(), occurrence.getRightValue()));
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * Keys the lines found by each shard with its document id
+     *
+     * @bigO
+     *      O(numDocuments + numLines): visits every line
+     */
+    @SuppressWarnings("unchecked")
+    private static java.util.ArrayList<Pair<Integer,Integer>> toLines(Object[] results) {
+        int numLines = 0;
+        for(int docId = 0; docId < results.length; docId++) {
+            numLines += ((List<?>) results[docId]).size();
+        }
+
+        java.util.ArrayList<Pair<Integer,Integer>> lines = new java.util.ArrayList<>(numLines);
+        for(int docId = 0; docId < results.length; docId++) {
+            for(Integer line : (List<Integer>) results[docId]) {
+                lines.add(new Pair<>(docId, line));
+            }
+        }
+        return lines;
+    }
+}
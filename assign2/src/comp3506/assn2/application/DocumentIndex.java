@@ -0,0 +1,29 @@
+package comp3506.assn2.application;
+
+
+/**
+ * The searches over a single indexed document that can be served as one shard of a Corpus, with the memory
+ * management the corpus needs to keep each shard within its budget. All methods have a default implementation that
+ * indicates that they have not been implemented.
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public interface DocumentIndex extends Search, RankedSearch {
+
+    /**
+     * Returns an estimate of the memory used by the index of the document, excluding the text of the document
+     *
+     * @return The estimated number of bytes of the index.
+     */
+    default long getIndexBytes() {
+        throw new UnsupportedOperationException("DocumentIndex.getIndexBytes() Not Implemented.");
+    }
+
+    /**
+     * Compresses the index, reducing its memory use at some cost to the speed of searches. No searches may run on
+     * the index while it is compressed.
+     */
+    default void compressIndex() {
+        throw new UnsupportedOperationException("DocumentIndex.compressIndex() Not Implemented.");
+    }
+}
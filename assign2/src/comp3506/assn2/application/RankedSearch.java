@@ -0,0 +1,31 @@
+package comp3506.assn2.application;
+
+import java.util.List;
+
+import comp3506.assn2.utils.Pair;
+
+
+/**
+ * Ranked retrieval over the sections of a document, as opposed to the boolean section searches of Search which
+ * return every occurrence. All methods have a default implementation that indicates that they have not been
+ * implemented.
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public interface RankedSearch {
+
+    /**
+     * Finds the sections that best match the words, scored with BM25 over the words' occurrences in each section.
+     * Sections containing none of the words are not returned.
+     *
+     * @param words Array of words to rank sections by.
+     * @param k     The largest number of sections to return.
+     * @return List of pairs, where each pair indicates the title of a section and its score,
+     *         ordered by descending score. Sections of a document without an index have an empty title.
+     * @throws IllegalArgumentException if words is null or an empty array, any of the Strings in the array
+     *                                  are null or empty, or k is not positive.
+     */
+    default List<Pair<String,Double>> topSections(String[] words, int k) throws IllegalArgumentException {
+        throw new UnsupportedOperationException("RankedSearch.topSections() Not Implemented.");
+    }
+}
@@ -0,0 +1,78 @@
+package comp3506.assn2.application;
+
+import comp3506.assn2.utils.LineIterator;
+import comp3506.assn2.utils.OccurrenceIterator;
+
+
+/**
+ * Lazy counterparts of the Search operations that return results as they are found rather than as lists.
+ * Results are produced in the same order as the corresponding Search operation, and only as far as the caller
+ * consumes them, so a caller that needs the first few results or stops on a condition pays only for those.
+ * Arguments are validated when the method is called, not when the results are consumed.
+ * All methods have a default implementation that indicates that they have not been implemented.
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public interface StreamingSearch {
+
+    /**
+     * Iterates over the occurrences of the phrase in the document, see Search.phraseOccurrence
+     *
+     * @param phrase The phrase to be found in the document.
+     * @return Iterator over the line and column number of each occurrence of the phrase.
+     * @throws IllegalArgumentException if phrase is null or an empty String.
+     */
+    default OccurrenceIterator iteratePhrase(String phrase) throws IllegalArgumentException {
+        throw new UnsupportedOperationException("StreamingSearch.iteratePhrase() Not Implemented.");
+    }
+
+    /**
+     * Iterates over the occurrences of the prefix in the document, see Search.prefixOccurrence
+     *
+     * @param prefix The prefix of a word that is to be found in the document.
+     * @return Iterator over the line and column number of each occurrence of the prefix.
+     * @throws IllegalArgumentException if prefix is null or an empty String.
+     */
+    default OccurrenceIterator iteratePrefix(String prefix) throws IllegalArgumentException {
+        throw new UnsupportedOperationException("StreamingSearch.iteratePrefix() Not Implemented.");
+    }
+
+    /**
+     * Iterates over the lines that contain all the words, see Search.wordsOnLine
+     *
+     * @param words Array of words to find on a single line in the document.
+     * @return Iterator over the line numbers on which all the words appear, in ascending order.
+     * @throws IllegalArgumentException if words is null or an empty array
+     *                                  or any of the Strings in the array are null or empty.
+     */
+    default LineIterator iterateWordsOnLine(String[] words) throws IllegalArgumentException {
+        throw new UnsupportedOperationException("StreamingSearch.iterateWordsOnLine() Not Implemented.");
+    }
+
+    /**
+     * Iterates over the lines that contain any of the words, see Search.someWordsOnLine
+     *
+     * @param words Array of words to find on a single line in the document.
+     * @return Iterator over the line numbers on which any of the words appear, in ascending order.
+     * @throws IllegalArgumentException if words is null or an empty array
+     *                                  or any of the Strings in the array are null or empty.
+     */
+    default LineIterator iterateSomeWordsOnLine(String[] words) throws IllegalArgumentException {
+        throw new UnsupportedOperationException("StreamingSearch.iterateSomeWordsOnLine() Not Implemented.");
+    }
+
+    /**
+     * Iterates over the lines that contain all the required words and none of the excluded words,
+     * see Search.wordsNotOnLine
+     *
+     * @param wordsRequired Array of words to find on a single line in the document.
+     * @param wordsExcluded Array of words that must not be on the same line as 'wordsRequired'.
+     * @return Iterator over the line numbers meeting the search criteria, in ascending order.
+     * @throws IllegalArgumentException if either of wordsRequired or wordsExcluded are null or an empty array
+     *                                  or any of the Strings in either of the arrays are null or empty.
+     */
+    default LineIterator iterateWordsNotOnLine(String[] wordsRequired, String[] wordsExcluded)
+            throws IllegalArgumentException {
+        throw new UnsupportedOperationException("StreamingSearch.iterateWordsNotOnLine() Not Implemented.");
+    }
+}
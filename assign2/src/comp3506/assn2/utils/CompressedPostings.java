@@ -0,0 +1,531 @@
+package comp3506.assn2.utils;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, compressed copy of a word's Postings. Occurrences are grouped into blocks of BLOCK_SIZE. Each block
+ * is stored as three variable-byte encoded sections: the line number deltas, then the word position deltas, then
+ * the column numbers. Deltas are taken from the previous occurrence in the block, and the first occurrence is
+ * relative to the block's skip header.
+ *
+ * The skip headers hold the first line number, first position and byte offset of every block, so a LineCursor
+ * can jump to the block containing a line and decode only the line numbers of that block.
+ *
+ * In variable-byte encoding each byte carries seven bits of the value, least significant first, and its high
+ * bit is set when more bytes follow. Deltas between consecutive occurrences are usually small, so most take a
+ * single byte where Postings takes twelve for the three ints.
+ *
+ * @bigO
+ *      O(numEncodedBytes + numOccurrences / BLOCK_SIZE + numSections) space complexity: encoded bytes, three
+ *          ints per block header and two ints per section run
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class CompressedPostings {
+
+    protected final static int BLOCK_SIZE = 128;
+
+    private final byte[] data;
+    private final int size;
+
+    //Skip headers: block b starts at data[blockOffsets[b]] with occurrence (blockFirstLines[b], blockFirstPositions[b])
+    private final int[] blockFirstLines;
+    private final int[] blockFirstPositions;
+    private final int[] blockOffsets;
+
+    //Section runs, as in Postings
+    private final int[] sectionIds;
+    private final int[] runStarts;
+
+    /**
+     * Initialises compressed postings from their encoded parts
+     *
+     * @bigO
+     *      O(1): value assignment in constant time
+     */
+    private CompressedPostings(byte[] data, int size, int[] blockFirstLines, int[] blockFirstPositions,
+                               int[] blockOffsets, int[] sectionIds, int[] runStarts) {
+        this.data = data;
+        this.size = size;
+        this.blockFirstLines = blockFirstLines;
+        this.blockFirstPositions = blockFirstPositions;
+        this.blockOffsets = blockOffsets;
+        this.sectionIds = sectionIds;
+        this.runStarts = runStarts;
+    }
+
+    /**
+     * Compresses the specified postings
+     *
+     * @bigO
+     *      O(numOccurrences + numSections): every occurrence is encoded once
+     *
+     * @param postings
+     *      The postings to compress, with ascending line numbers and positions
+     * @return
+     *      The compressed postings
+     */
+    public static CompressedPostings encode(Postings postings) {
+        int size = postings.size();
+        int numBlocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int[] blockFirstLines = new int[numBlocks];
+        int[] blockFirstPositions = new int[numBlocks];
+        int[] blockOffsets = new int[numBlocks];
+
+        //Worst case five bytes per int, trimmed once encoded
+        byte[] data = new byte[Math.max(1, size * 3 * 5)];
+        int offset = 0;
+
+        for(int block = 0; block < numBlocks; block++) {
+            int start = block * BLOCK_SIZE;
+
+            blockFirstLines[block] = postings.getLine(start);
+            blockFirstPositions[block] = postings.getPosition(start);
+            blockOffsets[block] = offset;
+            offset = encodeBlock(postings, start, Math.min(size, start + BLOCK_SIZE), data, offset);
+        }
+
+        int numRuns = postings.getNumSections();
+        int[] sectionIds = new int[numRuns];
+        int[] runStarts = new int[numRuns];
+        for(int run = 0; run < numRuns; run++) {
+            sectionIds[run] = postings.getSectionId(run);
+            runStarts[run] = postings.getSectionStart(run);
+        }
+
+        return new CompressedPostings(Arrays.copyOf(data, offset), size, blockFirstLines, blockFirstPositions,
+                blockOffsets, sectionIds, runStarts);
+    }
+
+    /**
+     * Returns compressed postings of these occurrences followed by the occurrences of tail, shifted by the
+     * specified offsets, leaving these unchanged. Full blocks are kept as encoded, so only the last, partial block
+     * is decoded and encoded again with the tail
+     *
+     * @bigO
+     *      O(BLOCK_SIZE + tail.size() + numEncodedBytes + numBlocks + numSections): encodes the last block and the
+     *          tail, and bulk-copies the kept bytes, headers and runs without decoding them
+     *
+     * @param tail
+     *      The postings to follow these, with ascending line numbers, positions and section ids
+     * @param positionOffset
+     *      The number of words in the document before the part tail was built from
+     * @param lineOffset
+     *      The number of lines in the document before the part tail was built from
+     * @return
+     *      The compressed postings of both
+     */
+    public CompressedPostings append(Postings tail, int positionOffset, int lineOffset) {
+        int numKeptBlocks = this.size / BLOCK_SIZE;
+        int numKept = numKeptBlocks * BLOCK_SIZE;
+        int numKeptBytes = (numKeptBlocks < this.blockOffsets.length) ? this.blockOffsets[numKeptBlocks]
+                : this.data.length;
+
+        //The occurrences of the partial block followed by the shifted tail, encoded from the first kept byte on
+        int numRest = this.size - numKept + tail.size();
+        int[] lines = new int[numRest];
+        int[] columns = new int[numRest];
+        int[] positions = new int[numRest];
+        if(numKept < this.size) {
+            decodeBlock(numKeptBlocks, lines, positions, columns, 0);
+        }
+        for(int i = 0; i < tail.size(); i++) {
+            lines[this.size - numKept + i] = tail.getLine(i) + lineOffset;
+            columns[this.size - numKept + i] = tail.getColumn(i);
+            positions[this.size - numKept + i] = tail.getPosition(i) + positionOffset;
+        }
+        Postings rest = new Postings(lines, columns, positions, numRest, new int[0], new int[0], 0);
+
+        int size = this.size + tail.size();
+        int numBlocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int[] blockFirstLines = Arrays.copyOf(this.blockFirstLines, numBlocks);
+        int[] blockFirstPositions = Arrays.copyOf(this.blockFirstPositions, numBlocks);
+        int[] blockOffsets = Arrays.copyOf(this.blockOffsets, numBlocks);
+        byte[] data = Arrays.copyOf(this.data, numKeptBytes + Math.max(1, numRest * 3 * 5));
+        int offset = numKeptBytes;
+
+        for(int block = numKeptBlocks; block < numBlocks; block++) {
+            int start = (block - numKeptBlocks) * BLOCK_SIZE;
+
+            blockFirstLines[block] = rest.getLine(start);
+            blockFirstPositions[block] = rest.getPosition(start);
+            blockOffsets[block] = offset;
+            offset = encodeBlock(rest, start, Math.min(numRest, start + BLOCK_SIZE), data, offset);
+        }
+
+        //The tail's first run continues the last run if it is in the same section
+        int numRuns = this.sectionIds.length;
+        int first = ((numRuns > 0) && (tail.getNumSections() > 0)
+                && (this.sectionIds[numRuns - 1] == tail.getSectionId(0))) ? 1 : 0;
+        int[] sectionIds = Arrays.copyOf(this.sectionIds, numRuns + tail.getNumSections() - first);
+        int[] runStarts = Arrays.copyOf(this.runStarts, sectionIds.length);
+        for(int run = first; run < tail.getNumSections(); run++) {
+            sectionIds[numRuns + run - first] = tail.getSectionId(run);
+            runStarts[numRuns + run - first] = this.size + tail.getSectionStart(run);
+        }
+
+        return new CompressedPostings(Arrays.copyOf(data, offset), size, blockFirstLines, blockFirstPositions,
+                blockOffsets, sectionIds, runStarts);
+    }
+
+    /**
+     * Encodes the occurrences [start, end) of the postings as a block from the offset of data: line and position
+     * deltas from the first occurrence, then the columns
+     *
+     * @bigO
+     *      O(end - start): every occurrence is encoded once
+     *
+     * @return
+     *      The offset after the encoded block
+     */
+    private static int encodeBlock(Postings postings, int start, int end, byte[] data, int offset) {
+        int previous = postings.getLine(start);
+        for(int i = start; i < end; i++) {
+            offset = writeVarInt(data, offset, postings.getLine(i) - previous);
+            previous = postings.getLine(i);
+        }
+
+        previous = postings.getPosition(start);
+        for(int i = start; i < end; i++) {
+            offset = writeVarInt(data, offset, postings.getPosition(i) - previous);
+            previous = postings.getPosition(i);
+        }
+
+        for(int i = start; i < end; i++) {
+            offset = writeVarInt(data, offset, postings.getColumn(i));
+        }
+        return offset;
+    }
+
+    /**
+     * Decompresses all occurrences
+     *
+     * @bigO
+     *      O(numOccurrences + numSections): every occurrence is decoded once
+     *
+     * @return
+     *      Postings equal to those that were compressed
+     */
+    public Postings decode() {
+        int[] lines = new int[this.size];
+        int[] columns = new int[this.size];
+        int[] positions = new int[this.size];
+
+        for(int block = 0; block < this.blockOffsets.length; block++) {
+            decodeBlock(block, lines, positions, columns, block * BLOCK_SIZE);
+        }
+
+        return new Postings(lines, columns, positions, this.size, Arrays.copyOf(this.sectionIds, this.sectionIds.length),
+                Arrays.copyOf(this.runStarts, this.runStarts.length), this.sectionIds.length);
+    }
+
+    /**
+     * Returns the number of occurrences
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of occurrences
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of runs of consecutive occurrences in the same section, which are stored uncompressed
+     *
+     * @bigO
+     *      O(1): array length
+     *
+     * @return
+     *      The number of section runs
+     */
+    public int getNumSections() {
+        return this.sectionIds.length;
+    }
+
+    /**
+     * Returns the number of blocks
+     *
+     * @bigO
+     *      O(1): array length
+     *
+     * @return
+     *      The number of blocks of up to BLOCK_SIZE occurrences
+     */
+    public int getNumBlocks() {
+        return this.blockOffsets.length;
+    }
+
+    /**
+     * Returns the number of bytes used by the encoded occurrences, excluding headers
+     *
+     * @bigO
+     *      O(1): array length
+     *
+     * @return
+     *      The length of the encoded data
+     */
+    public int getEncodedLength() {
+        return this.data.length;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the compressed postings: the encoded data, block and run arrays and
+     * headers
+     *
+     * @bigO
+     *      O(1): array lengths
+     *
+     * @return
+     *      The estimated number of bytes of the compressed postings
+     */
+    public long getEstimatedBytes() {
+        return this.data.length + 4L * (this.blockFirstLines.length + this.blockFirstPositions.length
+                + this.blockOffsets.length + this.sectionIds.length + this.runStarts.length)
+                + 7 * Postings.ESTIMATED_HEADER_BYTES;
+    }
+
+    /**
+     * Decodes the occurrences of the specified block into the arrays from index to, any of which may be null
+     * to skip decoding that field
+     *
+     * @bigO
+     *      O(blockEncodedLength): every byte of the requested sections is decoded once
+     *
+     * @param block
+     *      The index of the block
+     * @param lines
+     *      The array to decode line numbers into, else null
+     * @param positions
+     *      The array to decode word positions into, else null
+     * @param columns
+     *      The array to decode column numbers into, else null
+     * @param to
+     *      The index of the arrays to decode the first occurrence of the block to
+     * @return
+     *      The number of occurrences in the block
+     */
+    public int decodeBlock(int block, int[] lines, int[] positions, int[] columns, int to) {
+        int count = Math.min(BLOCK_SIZE, this.size - block * BLOCK_SIZE);
+        int offset = this.blockOffsets[block];
+
+        //Line deltas
+        int value = this.blockFirstLines[block];
+        for(int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = this.data[offset++];
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while(b < 0);
+
+            value += delta;
+            if(lines != null) {
+                lines[to + i] = value;
+            }
+        }
+
+        if((positions == null) && (columns == null)) {
+            return count;
+        }
+
+        //Position deltas
+        value = this.blockFirstPositions[block];
+        for(int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = this.data[offset++];
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while(b < 0);
+
+            value += delta;
+            if(positions != null) {
+                positions[to + i] = value;
+            }
+        }
+
+        //Columns
+        for(int i = 0; (i < count) && (columns != null); i++) {
+            int column = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = this.data[offset++];
+                column |= (b & 0x7f) << shift;
+                shift += 7;
+            } while(b < 0);
+
+            columns[to + i] = column;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns a cursor over the line numbers, which decodes one block's line numbers at a time
+     *
+     * @bigO
+     *      O(1): the first block is decoded on the first access
+     *
+     * @return
+     *      A cursor at the first occurrence
+     */
+    public LineCursor cursor() {
+        return new BlockCursor();
+    }
+
+    /**
+     * Cursor over the line numbers, using the skip headers to find the block of a target line
+     */
+    private class BlockCursor implements LineCursor {
+        private final int[] lines = new int[BLOCK_SIZE];
+        private int block = -1;
+        private int count = 0;
+        private int index = 0;
+
+        /**
+         * Decodes the line numbers of the specified block and moves to its first occurrence
+         *
+         * @bigO
+         *      O(BLOCK_SIZE): decodes at most BLOCK_SIZE line deltas
+         */
+        private void load(int block) {
+            this.block = block;
+            this.count = decodeBlock(block, this.lines, null, null, 0);
+            this.index = 0;
+        }
+
+        @Override
+        public int line() {
+            if(this.block < 0) {
+                if(CompressedPostings.this.size == 0) {
+                    return NO_MORE_LINES;
+                }
+                load(0);
+            }
+            return (this.index < this.count) ? this.lines[this.index] : NO_MORE_LINES;
+        }
+
+        /**
+         * Moves to the first occurrence with line >= target
+         *
+         * @bigO
+         *      O(log(numBlocks) + BLOCK_SIZE): binary search of the skip headers, then a scan of one decoded block
+         */
+        @Override
+        public int advance(int target) {
+            int current = line();
+            if(current >= target) {
+                return current;
+            }
+
+            //Find the last block whose first line is below target, the target is in it or starts the next block
+            int[] firstLines = CompressedPostings.this.blockFirstLines;
+            int low = this.block;
+            int high = firstLines.length - 1;
+            while(low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if(firstLines[middle] < target) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+
+            if(low != this.block) {
+                load(low);
+            }
+            while((this.index < this.count) && (this.lines[this.index] < target)) {
+                this.index++;
+            }
+
+            //Passed the end of the block, the next block's first line is >= target
+            if((this.index == this.count) && (this.block + 1 < firstLines.length)) {
+                load(this.block + 1);
+            }
+
+            return line();
+        }
+
+        @Override
+        public int size() {
+            return CompressedPostings.this.size;
+        }
+    }
+
+    /**
+     * Returns an iterator over the (line, column) of every occurrence, in order, which decodes one block at a time
+     *
+     * @bigO
+     *      O(1): the first block is decoded on the first access
+     *
+     * @return
+     *      An iterator before the first occurrence
+     */
+    public OccurrenceIterator iterator() {
+        return new BlockIterator();
+    }
+
+    /**
+     * Iterator over the occurrences, decoding the line and column numbers of each block as it is reached
+     */
+    private class BlockIterator implements OccurrenceIterator {
+        private final int[] lines = new int[Math.min(BLOCK_SIZE, CompressedPostings.this.size)];
+        private final int[] columns = new int[this.lines.length];
+        private int block = -1;
+        private int count = 0;
+        private int index = -1;
+
+        @Override
+        public boolean hasNext() {
+            return (this.index + 1 < this.count) || (this.block + 1 < CompressedPostings.this.blockOffsets.length);
+        }
+
+        @Override
+        public void next() {
+            if(!hasNext()) {
+                throw new java.util.NoSuchElementException();
+            }
+
+            if(++this.index == this.count) {
+                this.count = decodeBlock(++this.block, this.lines, null, this.columns, 0);
+                this.index = 0;
+            }
+        }
+
+        @Override
+        public int getLine() {
+            return this.lines[this.index];
+        }
+
+        @Override
+        public int getColumn() {
+            return this.columns[this.index];
+        }
+    }
+
+    /**
+     * Appends the variable-byte encoding of a non-negative value
+     *
+     * @bigO
+     *      O(1): at most five bytes
+     *
+     * @return
+     *      The offset after the encoded value
+     */
+    private static int writeVarInt(byte[] data, int offset, int value) {
+        while((value & ~0x7f) != 0) {
+            data[offset++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        data[offset++] = (byte) value;
+        return offset;
+    }
+}
@@ -1,9 +1,10 @@
 package comp3506.assn2.utils;
 
-import static java.lang.Math.abs;
-
 /**
- * A generic HashMap implementation utilising linear-probing
+ * A generic HashMap implementation utilising linear-probing with Robin Hood hashing: an entry being put takes
+ * the slot of any entry nearer its home slot, so every lookup probes a short, even distance. The table size is a
+ * power of two and hash codes are mixed, so a probe masks rather than divides. Removal shifts later entries back
+ * rather than leaving deleted markers, so lookups do not lengthen under churn
  *
  * @bigO
  *      O(N) space complexity: memory usage linearly proportional to
@@ -87,91 +88,149 @@ public class HashMap<K, V> {
     private static final int RESIZE_FACTOR = 2;
     private static final int DEFAULT_INITIAL_SIZE = 10;
 
-    private Entry AVAILABLE_POSITION;
     private int size;
+    private int mask;
     private int numEntries = 0;
     private Entry[] entries;
 
+    //Mixed hash code of the entry in each slot, so probes compare and place keys without calling hashCode
+    private int[] hashes;
+
+    //Sum of the probe lengths of the current entries, and the longest probe length since the table was built
+    private long totalProbeLength = 0;
+    private int maxProbeLength = 0;
+
     /**
-     * Initialises a HashMap with a specified initial size
+     * Initialises a HashMap with a specified initial size, rounded up to a power of two
      *
      * @bigO
-     *      O(1): value assignment occurs in constant time
+     *      O(initialSize): array initialisation
      *
      * @param initialSize
      *      The initial size of the HashMap's array
      */
     public HashMap(int initialSize) {
-        this.size = initialSize;
-        entries = new Entry[this.size];
-        AVAILABLE_POSITION = new Entry(null, null);
+        this.size = Math.max(2, Integer.highestOneBit(Math.max(1, initialSize) - 1) << 1);
+        this.mask = this.size - 1;
+        this.entries = new Entry[this.size];
+        this.hashes = new int[this.size];
     }
 
     /**
      * Initialises a HashMap with default initial size
      *
      * @bigO
-     *      O(1): calls O(1) constructor
+     *      O(1): calls constructor with constant size
      */
     public HashMap() {
         this(DEFAULT_INITIAL_SIZE);
     }
 
     /**
-     * Returns the index of the key if found, else returns -i-1 where i
-     * is the index of an available slot
+     * Returns the number of slots the entry in slot i lies past its home slot
      *
      * @bigO
-     *      O(1) average case: calculate hashcode and index into array in constant time
-     *      O(n) worst case: calculate hashcode, index into array, iterate through array to find element
+     *      O(1): constant time arithmetic
+     */
+    private int probeLength(int i) {
+        return (i - (this.hashes[i] & this.mask)) & this.mask;
+    }
+
+    /**
+     * Returns the index of the key if found, else -1.
+     *
+     * Entries are kept in Robin Hood order: along a probe sequence no entry lies further from its home slot than
+     * the entry after it, plus one. The search stops at the first entry nearer its home than the key would be, as
+     * the key would have displaced it
+     *
+     * @bigO
+     *      O(1) average case: mixes the hashcode, masks it and probes at most the longest probe length
+     *      O(n) worst case: every key shares a home slot
      *
      * @param key
      *      The key to find the index of
      *
      * @return
-     *      The index of the key, or an available empty slot
-     *
+     *      The index of the key, else -1
      */
     private int findKeyEntry(K key) {
-        int availableIndex = 0;
         if(key == null) {
             return -1;
         }
 
-        int i = abs(key.hashCode() % this.size);
-        int j = i;
+        int hash = IntObjectMap.hash(key.hashCode());
+        int i = hash & this.mask;
 
-        do {
-            if(this.entries[i] == null) {
-                return -i -1;
-            } else if(this.entries[i] == AVAILABLE_POSITION) {
-                availableIndex = i;
-                i = (i + 1) % this.size;
-            } else if(key.equals(this.entries[i].getKey())) {
+        for(int probeLength = 0; this.entries[i] != null && probeLength <= probeLength(i); probeLength++) {
+            if((this.hashes[i] == hash) && key.equals(this.entries[i].getKey())) {
                 return i;
-            } else {
-                i = (i + 1) % this.size;
             }
-        } while (i != j);
+            i = (i + 1) & this.mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Puts the entry in the table, taking the slot of any entry nearer its home slot and moving that entry on
+     * (Robin Hood hashing), so probe lengths stay short and even
+     *
+     * @bigO
+     *      O(1) average case, O(n) worst case: walks the probe sequence to the first empty slot
+     */
+    private void insertEntry(Entry entry, int hash) {
+        int i = hash & this.mask;
+        int probeLength = 0;
+
+        while(this.entries[i] != null) {
+            int existingProbeLength = probeLength(i);
+
+            //Swap the carried entry with one nearer its home, and carry that one on instead
+            if(existingProbeLength < probeLength) {
+                Entry displaced = this.entries[i];
+                int displacedHash = this.hashes[i];
+                this.entries[i] = entry;
+                this.hashes[i] = hash;
+                this.totalProbeLength += probeLength - existingProbeLength;
+                this.maxProbeLength = Math.max(this.maxProbeLength, probeLength);
+
+                entry = displaced;
+                hash = displacedHash;
+                probeLength = existingProbeLength;
+            }
 
-        return -availableIndex - 1;
+            i = (i + 1) & this.mask;
+            probeLength++;
+        }
+
+        this.entries[i] = entry;
+        this.hashes[i] = hash;
+        this.totalProbeLength += probeLength;
+        this.maxProbeLength = Math.max(this.maxProbeLength, probeLength);
     }
 
     /**
      * Doubles the capacity of the HashMap, and rehashes all elements
      * into the new HashMap
+     *
+     * @bigO
+     *      O(size): reinserts every entry
      */
     private void rehashTable() {
         //Increase table capacity
         this.size *= RESIZE_FACTOR;
+        this.mask = this.size - 1;
         Entry[] oldEntries = this.entries;
+        int[] oldHashes = this.hashes;
         this.entries = new Entry[this.size];
+        this.hashes = new int[this.size];
+        this.totalProbeLength = 0;
+        this.maxProbeLength = 0;
 
         //Rehash elements into new table
         for(int i = 0; i < oldEntries.length; i++) {
-            if((oldEntries[i] != null) && (oldEntries[i] != AVAILABLE_POSITION)) {
-                int newIndex = findKeyEntry((K) oldEntries[i].getKey());
-                this.entries[-newIndex-1] = oldEntries[i];
+            if(oldEntries[i] != null) {
+                insertEntry(oldEntries[i], oldHashes[i]);
             }
         }
     }
@@ -189,6 +248,34 @@ public class HashMap<K, V> {
         return this.numEntries;
     }
 
+    /**
+     * Returns the mean number of slots the entries lie past their home slots, which is the extra probes of an
+     * average successful lookup
+     *
+     * @bigO
+     *      O(1): returns stored values
+     *
+     * @return
+     *      The mean probe length of the entries, 0 if the HashMap is empty
+     */
+    public double getAverageProbeLength() {
+        return (this.numEntries == 0) ? 0 : (double) this.totalProbeLength / this.numEntries;
+    }
+
+    /**
+     * Returns the longest probe length of any entry since the table was last built, which bounds the probes of
+     * any lookup
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The longest probe length
+     */
+    public int getMaxProbeLength() {
+        return this.maxProbeLength;
+    }
+
     /**
      * Returns the value associated with the specified key. Returns null if
      * the key is not found
@@ -216,44 +303,86 @@ public class HashMap<K, V> {
      * in the HashMap, the associated value is updated
      *
      * @bigO
-     *      O(1) average case, O(N) worst case, calls findKeyEntry and performs constant time access
+     *      O(1) average case, O(N) worst case, calls findKeyEntry and insertEntry
      *
      * @param key
      *      The key to add to the HashMap
      * @param value
      *      The value to add to the HashMap
+     * @throws IllegalArgumentException
+     *      If the key is null
      */
     public void put(K key, V value) {
-        if(this.numEntries >= this.MAX_LOAD_FACTOR * this.size) {
-            rehashTable();
+        if(key == null) {
+            throw new IllegalArgumentException("Null key");
         }
 
         int i = findKeyEntry(key);
-
-        if(i < 0) {
-            this.entries[-i-1] = new Entry(key, value);
-            this.numEntries++;
-        } else {
+        if(i >= 0) {
             this.entries[i].setValue(value);
+            return;
         }
+
+        if(this.numEntries >= MAX_LOAD_FACTOR * this.size) {
+            rehashTable();
+        }
+
+        insertEntry(new Entry(key, value), IntObjectMap.hash(key.hashCode()));
+        this.numEntries++;
     }
 
     /**
-     * Removes the key, value paired associated with the specified key
+     * Removes the key, value paired associated with the specified key. The entries after it in the probe sequence
+     * are shifted back a slot until one is in its home slot, so removal leaves no deleted markers and lookups
+     * stay as short under repeated puts and removes as in a freshly built table
      *
      * @bigO
-     *      O(1) average case, O(N) worst case, calls findKeyEntry and performs constant time access
+     *      O(1) average case, O(N) worst case, calls findKeyEntry then shifts the rest of the probe sequence
      *
      * @param key
      *      The key to remove
      */
     public void remove(K key) {
         int i = findKeyEntry(key);
+        if(i < 0) {
+            return;
+        }
 
-        if(i >= 0) {
-            this.entries[i] = AVAILABLE_POSITION;
-            this.numEntries--;
+        this.totalProbeLength -= probeLength(i);
+        int next = (i + 1) & this.mask;
+
+        while((this.entries[next] != null) && (probeLength(next) > 0)) {
+            this.entries[i] = this.entries[next];
+            this.hashes[i] = this.hashes[next];
+            this.totalProbeLength--;
+
+            i = next;
+            next = (next + 1) & this.mask;
+        }
+
+        this.entries[i] = null;
+        this.numEntries--;
+    }
+
+    /**
+     * Returns all keys in the HashMap, in table order
+     *
+     * @bigO
+     *      O(size): visits every slot of the table
+     *
+     * @return
+     *      An ArrayList of the keys in the HashMap
+     */
+    public ArrayList<K> getKeys() {
+        ArrayList<K> keys = new ArrayList<>(Math.max(1, this.numEntries));
+
+        for(int i = 0; i < this.size; i++) {
+            if(this.entries[i] != null) {
+                keys.append((K) this.entries[i].getKey());
+            }
         }
+
+        return keys;
     }
 
     /**
@@ -267,7 +396,7 @@ public class HashMap<K, V> {
         String stringRepresenation = "";
 
         for(int i = 0; i < this.size; i++) {
-            if((this.entries[i] != null) && (this.entries[i] != AVAILABLE_POSITION)) {
+            if(this.entries[i] != null) {
                 stringRepresenation += "(" + this.entries[i].getKey().toString() + ", " +
                         this.entries[i].getValue().toString() + ")";
             }
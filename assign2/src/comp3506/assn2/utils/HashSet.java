@@ -92,4 +92,17 @@ public class HashSet<E> {
     public boolean contains(E element) {
         return hashMap.get(element) == VALUE;
     }
+
+    /**
+     * Returns all elements in the set
+     *
+     * @bigO
+     *      O(N): calls HashMap.getKeys
+     *
+     * @return
+     *      An ArrayList of the elements in the set
+     */
+    public ArrayList<E> toArrayList() {
+        return hashMap.getKeys();
+    }
 }
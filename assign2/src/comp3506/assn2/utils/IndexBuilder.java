@@ -0,0 +1,405 @@
+package comp3506.assn2.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds the OccurrenceTrie of a document in parallel on a ForkJoinPool.
+ *
+ * The document's lines are split into consecutive chunks, cut at section starts where possible. Each chunk is
+ * tokenized into its own trie, with word positions counted from the start of the chunk. The chunk tries are then
+ * merged in line order, shifting each chunk's positions by the number of words before it, so the result equals a
+ * trie built by tokenizing the whole document in one pass. The merge is parallel too: every first letter of a word
+ * roots a disjoint subtree, and each subtree is merged by its own task.
+ *
+ * Words are tokenized directly over the UTF-8 bytes, so no line is materialised as a String. Column numbers count
+ * UTF-16 chars, as String.charAt does.
+ *
+ * @bigO
+ *      O(1) space complexity: class contains static methods, building uses O(numChunks) additional space
+ *          besides the chunk tries
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class IndexBuilder {
+
+    //Chunks per worker thread, so workers that finish early can take more work
+    private final static int CHUNKS_PER_THREAD = 4;
+    //Fewest lines worth tokenizing as a separate chunk
+    private final static int MIN_CHUNK_LINES = 2048;
+
+    /**
+     * Builds the trie of the document on the common ForkJoinPool, with a few chunks per worker thread unless the
+     * document is too short for chunks to pay for merging
+     *
+     * @bigO
+     *      O((numBytes + numWords) / numThreads + numChunks * numNodes / numThreads): see build
+     *
+     * @param document
+     *      The document to index, with its lines already recorded
+     * @param sectionStarts
+     *      The line number each section starts at, in order
+     * @return
+     *      The trie of every word in the document
+     */
+    public static OccurrenceTrie build(MappedDocument document, ArrayList<Integer> sectionStarts) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int numChunks = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, document.getNumLines() / MIN_CHUNK_LINES);
+        return build(document, sectionStarts, pool, numChunks);
+    }
+
+    /**
+     * Builds the trie of the document on the specified pool, from at most numChunks chunks
+     *
+     * @bigO
+     *      O((numBytes + numWords) / numThreads + numChunks * numNodes / numThreads):
+     *
+     *      O((numBytes + numWords) / numThreads) = every byte is tokenized and every word added once, by one of
+     *          numThreads tasks running concurrently
+     *      O(numChunks * numNodes / numThreads) = merging visits every node of every chunk trie once, split
+     *          across the first letter subtrees
+     *
+     * @param document
+     *      The document to index, with its lines already recorded
+     * @param sectionStarts
+     *      The line number each section starts at, in order
+     * @param pool
+     *      The pool to run tasks on
+     * @param numChunks
+     *      The maximum number of chunks to split the document into
+     * @return
+     *      The trie of every word in the document
+     */
+    public static OccurrenceTrie build(MappedDocument document, ArrayList<Integer> sectionStarts, ForkJoinPool pool,
+                                       int numChunks) {
+        int numLines = document.getNumLines();
+        int[] chunkStarts = splitLines(numLines, sectionStarts, Math.max(1, Math.min(numChunks, numLines)));
+
+        //Single chunk, tokenize on this thread
+        if(chunkStarts.length == 1) {
+            OccurrenceTrie trie = new OccurrenceTrie();
+            indexLines(document, trie, 1, numLines + 1, 0, sectionStarts);
+            return trie;
+        }
+
+        OccurrenceTrie trie = new OccurrenceTrie();
+        pool.invoke(new BuildTask(document, sectionStarts, chunkStarts, trie));
+        return trie;
+    }
+
+    /**
+     * Builds the trie of lines added to the end of a document, all of which lie in one section. Line numbers and
+     * word positions count from the first added line, see OccurrenceTrie.append
+     *
+     * @bigO
+     *      O(numBytes + numWords + numLines) of the added lines: tokenizes them in one pass on this thread
+     *
+     * @param lines
+     *      The added lines, with their lines already recorded
+     * @param sectionNumber
+     *      The section number of every added line
+     * @return
+     *      The trie of every word in the added lines
+     */
+    public static OccurrenceTrie buildSection(MappedDocument lines, int sectionNumber) {
+        ArrayList<Integer> sectionStarts = new ArrayList<>(1);
+        sectionStarts.append(1);
+
+        OccurrenceTrie trie = new OccurrenceTrie();
+        indexLines(lines, trie, 1, lines.getNumLines() + 1, sectionNumber, sectionStarts);
+        return trie;
+    }
+
+    /**
+     * Returns the first line of each chunk. Chunks are cut at the first section start at or after each even split
+     * of the lines, unless that section starts after the next even split, in which case the section is cut
+     *
+     * @bigO
+     *      O(numChunks + numSections): walks the section starts once
+     *
+     * @return
+     *      The ascending, distinct first line of every chunk, starting with line 1
+     */
+    private static int[] splitLines(int numLines, ArrayList<Integer> sectionStarts, int numChunks) {
+        int[] chunkStarts = new int[numChunks];
+        int numStarts = 1;
+        chunkStarts[0] = 1;
+
+        int section = 0;
+        for(int chunk = 1; chunk < numChunks; chunk++) {
+            int split = 1 + (int) ((long) numLines * chunk / numChunks);
+            int nextSplit = 1 + (int) ((long) numLines * (chunk + 1) / numChunks);
+
+            while((section < sectionStarts.size()) && (sectionStarts.get(section) < split)) {
+                section++;
+            }
+            if((section < sectionStarts.size()) && (sectionStarts.get(section) < nextSplit)) {
+                split = sectionStarts.get(section);
+            }
+
+            if(split > chunkStarts[numStarts - 1]) {
+                chunkStarts[numStarts++] = split;
+            }
+        }
+
+        if(numStarts == numChunks) {
+            return chunkStarts;
+        }
+
+        int[] trimmed = new int[numStarts];
+        System.arraycopy(chunkStarts, 0, trimmed, 0, numStarts);
+        return trimmed;
+    }
+
+    /**
+     * Returns the section number of every chunk's first line, moving to a new section at most once per line as
+     * tokenizing does
+     *
+     * @bigO
+     *      O(numLines): checks for a new section after each line
+     */
+    private static int[] chunkSections(int[] chunkStarts, ArrayList<Integer> sectionStarts) {
+        int[] sections = new int[chunkStarts.length];
+        int sectionNumber = 0;
+        int lineNumber = 1;
+
+        for(int chunk = 0; chunk < chunkStarts.length; chunk++) {
+            while(lineNumber < chunkStarts[chunk]) {
+                lineNumber++;
+                if((sectionNumber + 1 < sectionStarts.size()) && (lineNumber >= sectionStarts.get(sectionNumber + 1))) {
+                    sectionNumber++;
+                }
+            }
+            sections[chunk] = sectionNumber;
+        }
+
+        return sections;
+    }
+
+    /**
+     * Tokenizes the lines from firstLine up to but excluding endLine into the trie, see Tokenizer. Positions are
+     * counted from 0 at the first word of firstLine
+     *
+     * @bigO
+     *      O(numBytes + numWords + numLines) of the lines:
+     *
+     *      O(numBytes) = the Tokenizer visits every byte of the lines once, then the bytes of each word are decoded
+     *          again to add or traverse down trie for every character, which is O(1) for promoted nodes and at most
+     *          O(37) each
+     *      O(numWords) = adds occurrence to each word, performs O(1) operation numWords times
+     *      O(numLines) = checks if we're in a new section after each line, performs O(1) operations numLines
+     *          number of times
+     *
+     * @param document
+     *      The document to tokenize, with its lines recorded
+     * @param trie
+     *      The trie to add occurrences to
+     * @param firstLine
+     *      The first line to tokenize
+     * @param endLine
+     *      The line after the last line to tokenize
+     * @param firstSection
+     *      The section number of firstLine
+     * @param sectionStarts
+     *      The line number each section starts at, in order
+     * @return
+     *      The number of words tokenized
+     */
+    static int indexLines(MappedDocument document, OccurrenceTrie trie, int firstLine, int endLine,
+                          int firstSection, ArrayList<Integer> sectionStarts) {
+        if(firstLine > document.getNumLines()) {
+            return 0;
+        }
+        int end = (endLine <= document.getNumLines()) ? document.getLineStart(endLine)
+                : document.getBuffer().limit();
+
+        LineIndexer indexer = new LineIndexer(document, trie.getRoot(), firstLine, firstSection, sectionStarts);
+        Tokenizer.tokenize(document, document.getLineStart(firstLine), end, indexer);
+        return indexer.position;
+    }
+
+    /**
+     * Adds each word the Tokenizer finds to the trie, one letter at a time, keeping track of the line and section
+     */
+    private static class LineIndexer implements Tokenizer.TokenHandler {
+        private final MappedDocument document;
+        private final ByteBuffer bytes;
+        private final OccurrenceTrieNode root;
+        private final ArrayList<Integer> sectionStarts;
+        private int lineNumber;
+        private int sectionNumber;
+        private int position = 0; //Ordinal of the next word from firstLine
+
+        LineIndexer(MappedDocument document, OccurrenceTrieNode root, int firstLine, int firstSection,
+                    ArrayList<Integer> sectionStarts) {
+            this.document = document;
+            this.bytes = document.getBuffer();
+            this.root = root;
+            this.sectionStarts = sectionStarts;
+            this.lineNumber = firstLine;
+            this.sectionNumber = firstSection;
+        }
+
+        @Override
+        public void word(int start, int end, int column) {
+            OccurrenceTrieNode reference = this.root;
+
+            //Words hold only letters, digits and apostrophes, each a single char
+            int i = start;
+            while(i < end) {
+                byte b = this.bytes.get(i);
+                if(b >= 0) {
+                    reference = reference.addChild(Tokenizer.normalise((char) b));
+                    i++;
+                } else {
+                    int codePoint = this.document.codePointAt(i);
+                    reference = reference.addChild(Tokenizer.normalise((char) codePoint));
+                    i += MappedDocument.encodedLength(codePoint);
+                }
+            }
+
+            reference.addOccurrence(this.lineNumber, column, this.position++, this.sectionNumber);
+        }
+
+        @Override
+        public void endLine() {
+            this.lineNumber++;
+
+            //Check if we've moved to new section
+            if((this.sectionNumber + 1 < this.sectionStarts.size())
+                    && (this.lineNumber >= this.sectionStarts.get(this.sectionNumber + 1))) {
+                this.sectionNumber++;
+            }
+        }
+    }
+
+    /**
+     * Appends the occurrences of a chunk trie's subtree to the matching subtree of the document trie
+     *
+     * @bigO
+     *      O(numNodes + numOccurrences) of the chunk subtree: visits every node once and appends every occurrence
+     */
+    private static void mergeSubtree(OccurrenceTrieNode target, OccurrenceTrieNode source, int positionOffset) {
+        target.appendOccurrences(source.getOccurrences(), positionOffset);
+
+        for(int i = 0; i < source.getNumChildren(); i++) {
+            OccurrenceTrieNode child = source.getChildAt(i);
+            mergeSubtree(target.addChild(child.getValue()), child, positionOffset);
+        }
+    }
+
+    /**
+     * Tokenizes every chunk in parallel, then merges every first letter subtree in parallel
+     */
+    private static class BuildTask extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final MappedDocument document;
+        private final ArrayList<Integer> sectionStarts;
+        private final int[] chunkStarts;
+        private final OccurrenceTrie trie;
+
+        BuildTask(MappedDocument document, ArrayList<Integer> sectionStarts, int[] chunkStarts, OccurrenceTrie trie) {
+            this.document = document;
+            this.sectionStarts = sectionStarts;
+            this.chunkStarts = chunkStarts;
+            this.trie = trie;
+        }
+
+        @Override
+        protected void compute() {
+            int numChunks = this.chunkStarts.length;
+            int[] sections = chunkSections(this.chunkStarts, this.sectionStarts);
+
+            ChunkTask[] chunks = new ChunkTask[numChunks];
+            for(int chunk = 0; chunk < numChunks; chunk++) {
+                int endLine = (chunk + 1 < numChunks) ? this.chunkStarts[chunk + 1] : this.document.getNumLines() + 1;
+                chunks[chunk] = new ChunkTask(this.document, this.sectionStarts, this.chunkStarts[chunk], endLine,
+                        sections[chunk]);
+            }
+            ForkJoinTask.invokeAll(chunks);
+
+            //Positions of each chunk start after the words of all previous chunks
+            OccurrenceTrieNode[] roots = new OccurrenceTrieNode[numChunks];
+            int[] positionOffsets = new int[numChunks];
+            for(int chunk = 0; chunk < numChunks; chunk++) {
+                roots[chunk] = chunks[chunk].trie.getRoot();
+                positionOffsets[chunk] = (chunk == 0) ? 0 : positionOffsets[chunk - 1] + chunks[chunk - 1].numWords;
+            }
+
+            //Create the first letters up front, so merge tasks only modify their own subtree
+            OccurrenceTrieNode root = this.trie.getRoot();
+            for(int chunk = 0; chunk < numChunks; chunk++) {
+                for(int i = 0; i < roots[chunk].getNumChildren(); i++) {
+                    root.addChild(roots[chunk].getChildAt(i).getValue());
+                }
+            }
+
+            MergeTask[] merges = new MergeTask[root.getNumChildren()];
+            for(int i = 0; i < merges.length; i++) {
+                merges[i] = new MergeTask(root.getChildAt(i), roots, positionOffsets);
+            }
+            ForkJoinTask.invokeAll(merges);
+        }
+    }
+
+    /**
+     * Tokenizes one chunk of lines into its own trie
+     */
+    private static class ChunkTask extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final MappedDocument document;
+        private final ArrayList<Integer> sectionStarts;
+        private final int firstLine;
+        private final int endLine;
+        private final int firstSection;
+
+        private final OccurrenceTrie trie = new OccurrenceTrie();
+        private int numWords;
+
+        ChunkTask(MappedDocument document, ArrayList<Integer> sectionStarts, int firstLine, int endLine,
+                  int firstSection) {
+            this.document = document;
+            this.sectionStarts = sectionStarts;
+            this.firstLine = firstLine;
+            this.endLine = endLine;
+            this.firstSection = firstSection;
+        }
+
+        @Override
+        protected void compute() {
+            this.numWords = indexLines(this.document, this.trie, this.firstLine, this.endLine, this.firstSection,
+                    this.sectionStarts);
+        }
+    }
+
+    /**
+     * Merges the subtree of one first letter from every chunk trie, in chunk order
+     */
+    private static class MergeTask extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final OccurrenceTrieNode target;
+        private final OccurrenceTrieNode[] roots;
+        private final int[] positionOffsets;
+
+        MergeTask(OccurrenceTrieNode target, OccurrenceTrieNode[] roots, int[] positionOffsets) {
+            this.target = target;
+            this.roots = roots;
+            this.positionOffsets = positionOffsets;
+        }
+
+        @Override
+        protected void compute() {
+            for(int chunk = 0; chunk < this.roots.length; chunk++) {
+                OccurrenceTrieNode source = this.roots[chunk].getChild(this.target.getValue());
+                if(source != null) {
+                    mergeSubtree(this.target, source, this.positionOffsets[chunk]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package comp3506.assn2.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A versioned binary snapshot of a built search index: the frozen document trie as the arrays of its vocabulary and
+ * the pre-order layout of its postings, the line starts of the document, the section table and the stop words.
+ * Opening a snapshot maps it and bulk-copies the arrays into a frozen trie, rather than tokenizing the document
+ * again or re-creating and laying out the trie's nodes.
+ *
+ * A snapshot records the CRC32 checksums of the files it was built from. It is only opened when they all still
+ * match, so an edited document, index or stop words file causes a rebuild.
+ *
+ * Format, big-endian:
+ *      int magic, int version, long[3] source checksums
+ *      int[] line starts
+ *      int[] section start lines
+ *      int numTitles, numTitles x (string title, int sectionNumber)
+ *      int numStopWords, numStopWords x string
+ *      char[] labels, int[] firstChild, long[] termBits, int[] subtreeStart, int[] subtreeEnd of the vocabulary
+ *      int numOccurrences, int numRuns
+ *      numTerms x term in term id order:
+ *          int size, int numRuns, size x int line, size x int column, size x int position,
+ *          numRuns x int sectionId, numRuns x int runStart relative to the term's first occurrence
+ *      long CRC32 of all preceding bytes
+ * where an array is an int length followed by that many elements, and a string is an int length followed by that
+ * many UTF-8 bytes.
+ *
+ * @bigO
+ *      O(numNodes + numOccurrences + numLines + numSections + numStopWords) space complexity: stores the
+ *          index structures built from the snapshot
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class IndexSnapshot {
+
+    private final static int MAGIC = 0x4f434958; //"OCIX"
+    private final static int VERSION = 3;
+    private final static int NUM_SOURCES = 3;
+
+    //Checksum recorded for a source file that was not specified
+    public final static long NO_SOURCE = -1;
+
+    private OccurrenceTrie trie;
+    private MappedDocument document;
+    private HashMap<String, HashPair<Integer, Integer>> sectionIndexes;
+    private ArrayList<Integer> sectionStarts;
+    private HashSet<String> stopWords;
+
+    /**
+     * Initialises a snapshot of the specified index structures
+     *
+     * @bigO
+     *      O(1): value assignment in constant time
+     *
+     * @param trie
+     *      The frozen trie storing occurrences of all words in the document
+     * @param document
+     *      The mapped document, with its line starts recorded
+     * @param sectionIndexes
+     *      Section titles mapped to HashPair<sectionNumber, sectionStartLineNumber>
+     * @param sectionStarts
+     *      The starting line of every section, in order
+     * @param stopWords
+     *      The stop words
+     */
+    public IndexSnapshot(OccurrenceTrie trie, MappedDocument document,
+                         HashMap<String, HashPair<Integer, Integer>> sectionIndexes,
+                         ArrayList<Integer> sectionStarts, HashSet<String> stopWords) {
+        this.trie = trie;
+        this.document = document;
+        this.sectionIndexes = sectionIndexes;
+        this.sectionStarts = sectionStarts;
+        this.stopWords = stopWords;
+    }
+
+    /**
+     * Returns the trie storing occurrences of all words in the document
+     *
+     * @bigO
+     *      O(1): returns stored reference in constant time
+     *
+     * @return
+     *      The document trie
+     */
+    public OccurrenceTrie getTrie() {
+        return this.trie;
+    }
+
+    /**
+     * Returns the mapped document
+     *
+     * @bigO
+     *      O(1): returns stored reference in constant time
+     *
+     * @return
+     *      The document with its line starts
+     */
+    public MappedDocument getDocument() {
+        return this.document;
+    }
+
+    /**
+     * Returns the section titles
+     *
+     * @bigO
+     *      O(1): returns stored reference in constant time
+     *
+     * @return
+     *      Section titles mapped to HashPair<sectionNumber, sectionStartLineNumber>
+     */
+    public HashMap<String, HashPair<Integer, Integer>> getSectionIndexes() {
+        return this.sectionIndexes;
+    }
+
+    /**
+     * Returns the starting lines of the sections
+     *
+     * @bigO
+     *      O(1): returns stored reference in constant time
+     *
+     * @return
+     *      The starting line of every section, in order
+     */
+    public ArrayList<Integer> getSectionStarts() {
+        return this.sectionStarts;
+    }
+
+    /**
+     * Returns the stop words
+     *
+     * @bigO
+     *      O(1): returns stored reference in constant time
+     *
+     * @return
+     *      The stop words
+     */
+    public HashSet<String> getStopWords() {
+        return this.stopWords;
+    }
+
+    /**
+     * Returns the CRC32 checksum of the specified file, or NO_SOURCE if no file is specified
+     *
+     * @bigO
+     *      O(fileLength): the file is mapped and every byte visited once
+     *
+     * @param filename
+     *      The file to checksum, may be null or empty
+     * @return
+     *      The checksum of the file's contents
+     *
+     * @throws IOException
+     *      If the file cannot be read
+     */
+    public static long checksum(String filename) throws IOException {
+        if((filename == null) || (filename.length() == 0)) {
+            return NO_SOURCE;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(MappedDocument.map(filename));
+        return crc.getValue();
+    }
+
+    /**
+     * Writes this snapshot to the specified file. The snapshot is written to a temporary file which then replaces
+     * the specified file, so readers never see a partly written snapshot.
+     *
+     * @bigO
+     *      O(numNodes + numOccurrences + numLines + numSections + numStopWords): writes every element of every
+     *          index structure once, visiting the terms in order rather than walking a tree. Compressed postings
+     *          are decoded one term at a time
+     *
+     * @param filename
+     *      The file to write the snapshot to
+     * @param sourceChecksums
+     *      The checksums of the document, index and stop words files the snapshot was built from
+     *
+     * @throws IOException
+     *      If the snapshot cannot be written
+     * @throws IllegalStateException
+     *      If the trie is not frozen, as only a frozen trie has a vocabulary and layout
+     */
+    public void write(String filename, long[] sourceChecksums) throws IOException {
+        if(!this.trie.isFrozen()) {
+            throw new IllegalStateException("Trie is not frozen");
+        }
+
+        File target = new File(filename).getAbsoluteFile();
+        File temporary = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+
+        try {
+            CRC32 crc = new CRC32();
+            try (CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temporary)), crc);
+                 DataOutputStream out = new DataOutputStream(checked)) {
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for(int i = 0; i < NUM_SOURCES; i++) {
+                    out.writeLong(sourceChecksums[i]);
+                }
+
+                out.writeInt(this.document.getNumLines());
+                for(int line = 1; line <= this.document.getNumLines(); line++) {
+                    out.writeInt(this.document.getLineStart(line));
+                }
+
+                out.writeInt(this.sectionStarts.size());
+                for(int i = 0; i < this.sectionStarts.size(); i++) {
+                    out.writeInt(this.sectionStarts.get(i));
+                }
+
+                ArrayList<String> titles = this.sectionIndexes.getKeys();
+                out.writeInt(titles.size());
+                for(int i = 0; i < titles.size(); i++) {
+                    writeString(out, titles.get(i));
+                    out.writeInt(this.sectionIndexes.get(titles.get(i)).getLeftValue());
+                }
+
+                ArrayList<String> words = this.stopWords.toArrayList();
+                out.writeInt(words.size());
+                for(int i = 0; i < words.size(); i++) {
+                    writeString(out, words.get(i));
+                }
+
+                writeTrie(out, this.trie);
+
+                //Checksum of the snapshot itself, read before the stream is closed
+                out.flush();
+                out.writeLong(crc.getValue());
+            }
+
+            Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temporary.delete();
+        }
+    }
+
+    /**
+     * Opens the snapshot in the specified file if it was built from the specified sources
+     *
+     * @bigO
+     *      O(snapshotLength + numTerms + numSections + numStopWords): the snapshot is checksummed, its arrays
+     *          bulk-copied, a view created per term and its titles and stop words re-created
+     *
+     * @param filename
+     *      The file the snapshot was written to
+     * @param documentFileName
+     *      The document the snapshot indexes, which is mapped for the returned snapshot
+     * @param sourceChecksums
+     *      The current checksums of the document, index and stop words files
+     * @return
+     *      The snapshot, else null if the file is missing, corrupt, of another version or built from
+     *      different sources
+     *
+     * @throws IOException
+     *      If the document cannot be mapped
+     */
+    public static IndexSnapshot open(String filename, String documentFileName, long[] sourceChecksums)
+            throws IOException {
+        ByteBuffer in;
+        try {
+            in = MappedDocument.map(filename);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+
+        try {
+            //Verify the snapshot is complete and intact
+            if(in.limit() < 2 * Integer.BYTES + (NUM_SOURCES + 1) * Long.BYTES) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer body = in.duplicate();
+            body.limit(in.limit() - Long.BYTES);
+            crc.update(body);
+            if(crc.getValue() != in.getLong(in.limit() - Long.BYTES)) {
+                return null;
+            }
+
+            if((in.getInt() != MAGIC) || (in.getInt() != VERSION)) {
+                return null;
+            }
+            for(int i = 0; i < NUM_SOURCES; i++) {
+                if(in.getLong() != sourceChecksums[i]) {
+                    return null;
+                }
+            }
+
+            MappedDocument document = new MappedDocument(MappedDocument.map(documentFileName), readInts(in));
+
+            int[] starts = readInts(in);
+            ArrayList<Integer> sectionStarts = new ArrayList<>(Math.max(1, starts.length));
+            for(int i = 0; i < starts.length; i++) {
+                sectionStarts.append(starts[i]);
+            }
+
+            int numTitles = in.getInt();
+            HashMap<String, HashPair<Integer, Integer>> sectionIndexes = new HashMap<>();
+            for(int i = 0; i < numTitles; i++) {
+                String title = readString(in);
+                int sectionNumber = in.getInt();
+                if((sectionNumber < 0) || (sectionNumber >= sectionStarts.size())) {
+                    throw new IllegalArgumentException("Snapshot section number out of range");
+                }
+                sectionIndexes.put(title, new HashPair<>(sectionNumber, sectionStarts.get(sectionNumber)));
+            }
+
+            int numStopWords = in.getInt();
+            HashSet<String> stopWords = new HashSet<>();
+            for(int i = 0; i < numStopWords; i++) {
+                stopWords.put(readString(in));
+            }
+
+            return new IndexSnapshot(readTrie(in), document, sectionIndexes, sectionStarts, stopWords);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            //Lengths inconsistent with the file, treat as corrupt
+            return null;
+        }
+    }
+
+    /**
+     * Writes the vocabulary of a frozen trie, then the postings of every term in term id order, which together
+     * are its pre-order layout
+     *
+     * @bigO
+     *      O(numNodes + numOccurrences): writes every array element once
+     */
+    private static void writeTrie(DataOutputStream out, OccurrenceTrie trie) throws IOException {
+        Vocabulary vocabulary = trie.getVocabulary();
+        char[] labels = vocabulary.getLabels();
+        out.writeInt(labels.length);
+        for(int i = 0; i < labels.length; i++) {
+            out.writeChar(labels[i]);
+        }
+        writeInts(out, vocabulary.getFirstChildren());
+        long[] termBits = vocabulary.getTermBits();
+        out.writeInt(termBits.length);
+        for(int i = 0; i < termBits.length; i++) {
+            out.writeLong(termBits[i]);
+        }
+        writeInts(out, vocabulary.getSubtreeStarts());
+        writeInts(out, vocabulary.getSubtreeEnds());
+
+        int numTerms = vocabulary.getNumTerms();
+        int numRuns = 0;
+        for(int term = 0; term < numTerms; term++) {
+            numRuns += trie.getTermNumSections(term);
+        }
+        out.writeInt(trie.getNumOccurrences());
+        out.writeInt(numRuns);
+
+        for(int term = 0; term < numTerms; term++) {
+            Postings occurrences = trie.getTermPostings(term);
+            out.writeInt(occurrences.size());
+            out.writeInt(occurrences.getNumSections());
+            for(int i = 0; i < occurrences.size(); i++) {
+                out.writeInt(occurrences.getLine(i));
+            }
+            for(int i = 0; i < occurrences.size(); i++) {
+                out.writeInt(occurrences.getColumn(i));
+            }
+            for(int i = 0; i < occurrences.size(); i++) {
+                out.writeInt(occurrences.getPosition(i));
+            }
+            for(int run = 0; run < occurrences.getNumSections(); run++) {
+                out.writeInt(occurrences.getSectionId(run));
+            }
+            for(int run = 0; run < occurrences.getNumSections(); run++) {
+                out.writeInt(occurrences.getSectionStart(run));
+            }
+        }
+    }
+
+    /**
+     * Reads the vocabulary and the postings of every term into one set of layout arrays, returning the frozen
+     * trie they make
+     *
+     * @bigO
+     *      O(numNodes + numOccurrences): bulk-copies every array, then creates a view per term
+     */
+    private static OccurrenceTrie readTrie(ByteBuffer in) {
+        int numNodes = in.getInt();
+        if((numNodes < 1) || (numNodes > in.remaining() / Character.BYTES)) {
+            throw new IllegalArgumentException("Snapshot vocabulary length out of range");
+        }
+        char[] labels = new char[numNodes];
+        in.asCharBuffer().get(labels);
+        in.position(in.position() + numNodes * Character.BYTES);
+
+        int[] firstChild = readInts(in);
+        int numTermBits = in.getInt();
+        if((numTermBits != (numNodes + 63) >>> 6) || (numTermBits > in.remaining() / Long.BYTES)) {
+            throw new IllegalArgumentException("Snapshot vocabulary length out of range");
+        }
+        long[] termBits = new long[numTermBits];
+        in.asLongBuffer().get(termBits);
+        in.position(in.position() + numTermBits * Long.BYTES);
+        int[] subtreeStart = readInts(in);
+        int[] subtreeEnd = readInts(in);
+        if((firstChild.length != numNodes + 1) || (subtreeStart.length != numNodes)
+                || (subtreeEnd.length != numNodes)) {
+            throw new IllegalArgumentException("Snapshot vocabulary is inconsistent");
+        }
+        Vocabulary vocabulary = new Vocabulary(labels, firstChild, termBits, subtreeStart, subtreeEnd);
+
+        int numTerms = vocabulary.getNumTerms();
+        int numOccurrences = in.getInt();
+        int numRuns = in.getInt();
+        if((numTerms < 0) || (numTerms > numNodes) || (numOccurrences < 0) || (numRuns < 0)
+                || ((long) numOccurrences * 3 + numRuns * 2L > in.remaining() / Integer.BYTES)) {
+            throw new IllegalArgumentException("Snapshot postings length out of range");
+        }
+
+        int[] lines = new int[numOccurrences];
+        int[] columns = new int[numOccurrences];
+        int[] positions = new int[numOccurrences];
+        int[] sectionIds = new int[numRuns];
+        int[] runStarts = new int[numRuns];
+        int[] termStarts = new int[numTerms + 1];
+        int[] termRunStarts = new int[numTerms + 1];
+        for(int term = 0; term < numTerms; term++) {
+            int start = termStarts[term];
+            int runStart = termRunStarts[term];
+            int size = in.getInt();
+            int termRuns = in.getInt();
+            if((size < 0) || (size > numOccurrences - start) || (termRuns < 0) || (termRuns > numRuns - runStart)) {
+                throw new IllegalArgumentException("Snapshot postings are inconsistent");
+            }
+
+            readInts(in, lines, start, size);
+            readInts(in, columns, start, size);
+            readInts(in, positions, start, size);
+            readInts(in, sectionIds, runStart, termRuns);
+            readInts(in, runStarts, runStart, termRuns);
+            for(int run = runStart; run < runStart + termRuns; run++) {
+                runStarts[run] += start;
+            }
+
+            termStarts[term + 1] = start + size;
+            termRunStarts[term + 1] = runStart + termRuns;
+        }
+        if((termStarts[numTerms] != numOccurrences) || (termRunStarts[numTerms] != numRuns)) {
+            throw new IllegalArgumentException("Snapshot postings are inconsistent");
+        }
+
+        return OccurrenceTrie.fromLayout(vocabulary, lines, columns, positions, termStarts, sectionIds, runStarts,
+                termRunStarts);
+    }
+
+    /**
+     * Writes a length-prefixed int array
+     *
+     * @bigO
+     *      O(values.length): writes every element
+     */
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for(int i = 0; i < values.length; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Reads a length-prefixed int array
+     *
+     * @bigO
+     *      O(length): bulk copy from the buffer
+     */
+    private static int[] readInts(ByteBuffer in) {
+        int length = in.getInt();
+        if((length < 0) || (length > in.remaining() / Integer.BYTES)) {
+            throw new IllegalArgumentException("Snapshot array length out of range");
+        }
+
+        int[] values = new int[length];
+        readInts(in, values, 0, length);
+        return values;
+    }
+
+    /**
+     * Reads length ints into the array from offset
+     *
+     * @bigO
+     *      O(length): bulk copy from the buffer
+     */
+    private static void readInts(ByteBuffer in, int[] values, int offset, int length) {
+        in.asIntBuffer().get(values, offset, length);
+        in.position(in.position() + length * Integer.BYTES);
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string
+     *
+     * @bigO
+     *      O(value.length()): encodes and writes every character
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string
+     *
+     * @bigO
+     *      O(length): decodes every byte
+     */
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if((length < 0) || (length > in.remaining())) {
+            throw new IllegalArgumentException("Snapshot string length out of range");
+        }
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,283 @@
+package comp3506.assn2.utils;
+
+/**
+ * A HashMap from primitive int keys to objects utilising linear-probing, without boxing the keys or creating an
+ * Entry per key. Keys and values are held in parallel arrays whose length is a power of two, so a probe masks the
+ * hash rather than dividing by the table size. Keys are mixed by a multiplicative hash first, so runs of
+ * consecutive keys, such as letters or line numbers, are spread across the table rather than clustering.
+ *
+ * The key 0 marks an empty slot, so it is stored beside the table. Removal shifts the rest of the key's probe
+ * sequence back into the gap, so no deleted markers are left to lengthen later probes.
+ *
+ * @bigO
+ *      O(N) space complexity: memory usage linearly proportional to number of elements
+ *
+ * @param <V>
+ *     The type of values in the IntObjectMap
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class IntObjectMap<V> {
+
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    private static final int DEFAULT_INITIAL_SIZE = 16;
+    private static final int FREE_KEY = 0;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int numEntries = 0;
+
+    //Value of FREE_KEY, which cannot be stored in the table
+    private boolean hasFreeKey = false;
+    private V freeValue;
+
+    /**
+     * Initialises an IntObjectMap with room for the specified number of keys before resizing
+     *
+     * @bigO
+     *      O(initialSize): array initialisation
+     *
+     * @param initialSize
+     *      The number of keys the IntObjectMap can hold without resizing
+     */
+    public IntObjectMap(int initialSize) {
+        int capacity = tableSize(initialSize);
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Initialises an IntObjectMap with default initial size
+     *
+     * @bigO
+     *      O(1): calls constructor with constant size
+     */
+    public IntObjectMap() {
+        this(DEFAULT_INITIAL_SIZE);
+    }
+
+    /**
+     * Returns the smallest power of two table that holds numKeys under the maximum load factor
+     *
+     * @bigO
+     *      O(1): constant time arithmetic
+     */
+    private static int tableSize(int numKeys) {
+        int minimum = (int) Math.ceil(Math.max(2, numKeys) / MAX_LOAD_FACTOR);
+        return Integer.highestOneBit(minimum - 1) << 1;
+    }
+
+    /**
+     * Returns the home slot of a key: a multiplicative hash with its high bits folded into the low bits the mask
+     * keeps
+     *
+     * @bigO
+     *      O(1): constant time arithmetic
+     */
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the slot of the key if found, else -i-1 where i is the empty slot the key would be put in
+     *
+     * @bigO
+     *      O(1) average case: masks the hash and probes the key's cluster
+     *      O(N) worst case: probes every key
+     */
+    private int findKeySlot(int key) {
+        int i = hash(key) & this.mask;
+
+        while(this.keys[i] != FREE_KEY) {
+            if(this.keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & this.mask;
+        }
+
+        return -i - 1;
+    }
+
+    /**
+     * Doubles the capacity of the table, and rehashes all keys into the new table
+     *
+     * @bigO
+     *      O(N): reinserts every key
+     */
+    private void rehashTable() {
+        int[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+
+        this.keys = new int[oldKeys.length * 2];
+        this.values = new Object[oldKeys.length * 2];
+        this.mask = this.keys.length - 1;
+
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != FREE_KEY) {
+                int slot = -findKeySlot(oldKeys[i]) - 1;
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of keys in the IntObjectMap
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of keys in the IntObjectMap
+     */
+    public int getSize() {
+        return this.numEntries;
+    }
+
+    /**
+     * Returns the value associated with the specified key, else null if the key is not found
+     *
+     * @bigO
+     *      O(1) average case, O(N) worst case, calls findKeySlot
+     *
+     * @param key
+     *      The key to search for
+     * @return
+     *      The value associated with the specified key, else null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if(key == FREE_KEY) {
+            return this.freeValue;
+        }
+
+        int i = findKeySlot(key);
+        return (i < 0) ? null : (V) this.values[i];
+    }
+
+    /**
+     * Returns true iff the key is in the IntObjectMap
+     *
+     * @bigO
+     *      O(1) average case, O(N) worst case, calls findKeySlot
+     *
+     * @param key
+     *      The key to search for
+     * @return
+     *      True iff the key is in the IntObjectMap, else false
+     */
+    public boolean containsKey(int key) {
+        return (key == FREE_KEY) ? this.hasFreeKey : (findKeySlot(key) >= 0);
+    }
+
+    /**
+     * Adds the key, value pair to the IntObjectMap. If the key already exists, the associated value is updated
+     *
+     * @bigO
+     *      O(1) amortised average case, O(N) worst case, calls findKeySlot and may rehash the table
+     *
+     * @param key
+     *      The key to add
+     * @param value
+     *      The value to associate with the key
+     */
+    public void put(int key, V value) {
+        if(key == FREE_KEY) {
+            if(!this.hasFreeKey) {
+                this.hasFreeKey = true;
+                this.numEntries++;
+            }
+            this.freeValue = value;
+            return;
+        }
+
+        int i = findKeySlot(key);
+        if(i >= 0) {
+            this.values[i] = value;
+            return;
+        }
+
+        if(this.numEntries + 1 > MAX_LOAD_FACTOR * this.keys.length) {
+            rehashTable();
+            i = findKeySlot(key);
+        }
+
+        this.keys[-i - 1] = key;
+        this.values[-i - 1] = value;
+        this.numEntries++;
+    }
+
+    /**
+     * Removes the key and its value, shifting later keys of its cluster back so every key stays reachable from
+     * its home slot
+     *
+     * @bigO
+     *      O(1) average case, O(N) worst case, calls findKeySlot then walks the rest of the cluster
+     *
+     * @param key
+     *      The key to remove
+     */
+    public void remove(int key) {
+        if(key == FREE_KEY) {
+            if(this.hasFreeKey) {
+                this.hasFreeKey = false;
+                this.freeValue = null;
+                this.numEntries--;
+            }
+            return;
+        }
+
+        int gap = findKeySlot(key);
+        if(gap < 0) {
+            return;
+        }
+
+        int i = gap;
+        while(true) {
+            i = (i + 1) & this.mask;
+            if(this.keys[i] == FREE_KEY) {
+                break;
+            }
+
+            //A key may fill the gap only if its home slot is not between the gap and its slot
+            int home = hash(this.keys[i]) & this.mask;
+            if(((i - home) & this.mask) >= ((i - gap) & this.mask)) {
+                this.keys[gap] = this.keys[i];
+                this.values[gap] = this.values[i];
+                gap = i;
+            }
+        }
+
+        this.keys[gap] = FREE_KEY;
+        this.values[gap] = null;
+        this.numEntries--;
+    }
+
+    /**
+     * Returns all keys in the IntObjectMap, in table order
+     *
+     * @bigO
+     *      O(tableSize): visits every slot of the table
+     *
+     * @return
+     *      The keys in the IntObjectMap
+     */
+    public int[] getKeys() {
+        int[] found = new int[this.numEntries];
+        int numFound = 0;
+
+        if(this.hasFreeKey) {
+            found[numFound++] = FREE_KEY;
+        }
+        for(int i = 0; i < this.keys.length; i++) {
+            if(this.keys[i] != FREE_KEY) {
+                found[numFound++] = this.keys[i];
+            }
+        }
+
+        return found;
+    }
+}
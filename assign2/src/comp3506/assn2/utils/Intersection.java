@@ -10,283 +10,337 @@ package comp3506.assn2.utils;
 public class Intersection {
 
     /**
-     * Helper method to determine if all pointers point to the end of their respective arrays
+     * Streams the intersection (AND) of the line numbers of the specified cursors in ascending order, each line
+     * number once. Assumes that the line numbers of every cursor are in ascending order.
      *
-     * @param occurrences
-     *      The arrays being traversed
-     * @param pointers
-     *      The pointers indexing into the occurrences arrays
-     * @return
-     *      True iff all pointers point to the end of their arrays, else false
-     */
-    private static boolean allPointersFinished(ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences, ArrayList<Integer> pointers) {
-        for(int i = 0; i < occurrences.size(); i++) {
-            //A pointer isn't finished
-            if(pointers.get(i) + 1 != occurrences.get(i).size()) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    /**
-     * Returns the intersection (AND) of the line numbers of the specified occurences. Assmumes that all
-     * ArrayLists in occurences are sorted in ascending order.
+     * Cursors are ordered by size. Candidate lines are taken from the smallest cursor and every other cursor,
+     * smallest first, gallops forward to the candidate. When a cursor overshoots the candidate, its line becomes
+     * the next candidate and the smallest cursor gallops forward to it, so lines common to the short lists are
+     * never compared against most of a long list. Cursors over compressed postings only decode the blocks
+     * containing a candidate line.
      *
-     * Simultaneously traverses all arrays in ascending order incrementing minimum value, checking for intersections
+     * Each line number is found when it is requested, so a caller that stops early never advances the cursors past
+     * the lines it consumed. The cursors are advanced and the array is reordered.
      *
      * @bigO
-     *      O(sum(numElements) * numLists): Compares numLists elements and increments one pointer every loop. Needs
-     *          to increment all pointers to their end, so it loops sum(numElements) times
+     *      O(numLists * log(numLists)) to initialise, then amortised O(numLists * advanceCost) per candidate line.
+     *          A cursor's seeks move monotonically so together cost O(minNumElements * log(numElements /
+     *          minNumElements))
      *
-     * @param occurrences
-     *      An ArrayList of ArrayLists of lineNumber, columnNumber pairs to calculate the intersection of
+     * @param cursors
+     *      Cursors at the first occurrence of each list to calculate the intersection of
      *
      * @return
-     *      A list of the intersecting line numbers
+     *      An iterator over the intersecting line numbers
      */
-    public static ArrayList<Integer> getIntersections(ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences) {
-
-        ArrayList<Integer> intersections = new ArrayList<>();
-
-        //Intersection of one list is itself - extract line numbers from <lineNumber, columnNumber> pairs
-        if(occurrences.size() == 1) {
-            for(int i = 0; i < occurrences.get(0).size(); i++) {
-                intersections.append(occurrences.get(0).get(i).getLeftValue());
-            }
-
-            return intersections;
-        }
+    public static LineIterator iterateIntersection(LineCursor[] cursors) {
+        return new IntersectionIterator(cursors);
+    }
 
-        //Initialise a pointer to start of every array
-        ArrayList<Integer> pointers = new ArrayList<>(occurrences.size());
-        for(int i = 0; i < occurrences.size(); i++) {
-            //No intersections for empty list
-            if(occurrences.get(i).size() == 0) {
-                return intersections;
+    /**
+     * Leapfrog intersection of several cursors, see iterateIntersection
+     *
+     * @bigO
+     *      O(1) space complexity: refers to the cursors
+     */
+    private static class IntersectionIterator implements LineIterator {
+        private final LineCursor[] cursors;
+
+        //The next intersecting line, NO_MORE_LINES once finished, else -1 if not yet found
+        private int next;
+
+        /**
+         * Orders the cursors by length
+         *
+         * @bigO
+         *      O(numLists^2): insertion sort, there are few lists
+         */
+        IntersectionIterator(LineCursor[] cursors) {
+            this.cursors = cursors;
+            this.next = (cursors.length == 0) ? LineCursor.NO_MORE_LINES : -1;
+
+            for(int i = 1; i < cursors.length; i++) {
+                LineCursor cursor = cursors[i];
+                int j = i;
+                while((j > 0) && (cursors[j - 1].size() > cursor.size())) {
+                    cursors[j] = cursors[j - 1];
+                    j--;
+                }
+                cursors[j] = cursor;
             }
-            pointers.append(0);
         }
 
+        /**
+         * Finds the next line common to every cursor, leaving every cursor at it
+         *
+         * @bigO
+         *      O(numLists * advanceCost) per candidate line examined
+         */
+        private void findNext() {
+            LineCursor shortest = this.cursors[0];
+            int candidate = shortest.line();
+
+            while(candidate != LineCursor.NO_MORE_LINES) {
+                boolean inAll = true;
+
+                for(int i = 1; i < this.cursors.length; i++) {
+                    int line = this.cursors[i].advance(candidate);
+
+                    //A list is exhausted, no more intersections
+                    if(line == LineCursor.NO_MORE_LINES) {
+                        this.next = LineCursor.NO_MORE_LINES;
+                        return;
+                    }
 
-        //Traverse all lists, finding intersections
-        while(!allPointersFinished(occurrences, pointers)) {
-
-            int firstValue = occurrences.get(0).get(pointers.get(0)).getLeftValue();
-            boolean allEqual = true;
-            int minimumIndex = 0;
-            int minimumValue = firstValue;
-
-
-            for(int i = 0; i < pointers.size(); i++) {
-                //Check for intersection
-                if(occurrences.get(i).get(pointers.get(i)).getLeftValue() != firstValue) {
-                    allEqual = false;
-                }
-
-                //Dont increment pointer at end of array
-                if(pointers.get(i) + 1 >= occurrences.get(i).size()) {
-                    continue;
+                    //List overshot the candidate, its line is the next candidate
+                    if(line != candidate) {
+                        candidate = line;
+                        inAll = false;
+                        break;
+                    }
                 }
 
-                //Find smallest value - is next value to increment
-                if(occurrences.get(i).get(pointers.get(i)).getLeftValue() < minimumValue) {
-                    minimumIndex = i;
-                    minimumValue = occurrences.get(i).get(pointers.get(i)).getLeftValue();
+                if(inAll) {
+                    this.next = candidate;
+                    return;
                 }
-            }
 
-            //Found intersection
-            if(allEqual) {
-                intersections.append(firstValue);
-
-                //Move all pointers off last minimumValue to avoid duplicates
-                for(int i = 0; i < pointers.size(); i++) {
-                    while(occurrences.get(i).get(pointers.get(i)).getLeftValue() == minimumValue) {
-                        if(pointers.get(i) + 1 < occurrences.get(i).size()) {
-                            pointers.set(i, pointers.get(i) + 1);
-                        } else {
-                            break;
-                        }
-                    }
-                }
+                candidate = shortest.advance(candidate);
             }
 
-            //If minimum value array has reached end, no more possible intersections
-            if(pointers.get(minimumIndex) + 1 == occurrences.get(minimumIndex).size()) {
-                break;
-            }
-
-            //Increment smallest value - passing over duplicates
-            while(occurrences.get(minimumIndex).get(pointers.get(minimumIndex)).getLeftValue() == minimumValue) {
-                if(pointers.get(minimumIndex) + 1 < occurrences.get(minimumIndex).size()) {
-                    pointers.set(minimumIndex, pointers.get(minimumIndex) + 1);
-                } else {
-                    break;
-                }
-            }
+            this.next = LineCursor.NO_MORE_LINES;
         }
 
-        //Check last elements aren't an intersection
-        Integer lastValue = occurrences.get(0).get(occurrences.get(0).size() - 1).getLeftValue();
-
-        //Check last value for duplicates
-        if((intersections.size() != 0 ) && (intersections.get(intersections.size() - 1).equals(lastValue))) {
-            return intersections;
+        @Override
+        public boolean hasNext() {
+            if(this.next == -1) {
+                findNext();
+            }
+            return this.next != LineCursor.NO_MORE_LINES;
         }
 
-        for(int i = 1; i < occurrences.size(); i++) {
-            if(!occurrences.get(i).get(occurrences.get(i).size() - 1).getLeftValue().equals(lastValue)) {
-                //Last value is not an intersection
-                return intersections;
+        @Override
+        public int next() {
+            if(!hasNext()) {
+                throw new java.util.NoSuchElementException();
             }
-        }
 
-        //Last value is an intersection
-        intersections.append(lastValue);
-        return intersections;
+            //Move the shortest list past the duplicates of the returned line
+            int line = this.next;
+            this.cursors[0].advance(line + 1);
+            this.next = -1;
+            return line;
+        }
     }
 
     /**
-     * Returns the union (OR) of the line numbers of the specified occurrences. Assumes that the
-     * ArrayLists in occurrences are sorted in ascending order
-     *
-     * Simultaneously traverses all arrays in ascending order incrementing minimum value, checking for unions
+     * Streams the line numbers of an iterator that are not in any of the excluded cursors (NOT), in ascending
+     * order. Each excluded cursor is only advanced as far as the line numbers consumed.
      *
      * @bigO
-     *      O(sum(numElements) * numLists): Compares numLists elements and increments one pointer every loop. Needs
-     *          to increment all pointers to their end, so it loops sum(numElements) times
+     *      O(1) to initialise, then O(numExcluded * advanceCost) per line number of lines consumed
      *
-     * @param occurrences
-     *      An ArrayList of ArrayLists of lineNumber, columnNumber pairs to calculate the union of
+     * @param lines
+     *      The ascending line numbers to filter
+     * @param excluded
+     *      Cursors over the line numbers to remove
      *
      * @return
-     *      A list of the union line numbers
+     *      An iterator over the line numbers of lines not in excluded
      */
-    public static ArrayList<Integer> getUnion(ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences) {
-        ArrayList<Integer> unions = new ArrayList<>();
-
-        //Initialise a pointer to start of every array
-        ArrayList<Integer> pointers = new ArrayList<>(occurrences.size());
-        for(int i = 0; i < occurrences.size(); i++) {
-
-            //Remove empty lists
-            if(occurrences.get(i).size() == 0) {
-                occurrences.remove(i);
-                i--;
-                continue;
-            }
+    public static LineIterator iterateNot(LineIterator lines, LineCursor[] excluded) {
+        return new NotIterator(lines, excluded);
+    }
 
-            pointers.append(0);
-        }
+    /**
+     * Filters an iterator against excluded cursors, see iterateNot
+     *
+     * @bigO
+     *      O(1) space complexity: refers to the iterator and cursors
+     */
+    private static class NotIterator implements LineIterator {
+        private final LineIterator lines;
+        private final LineCursor[] excluded;
+
+        //The next line not excluded, NO_MORE_LINES once finished, else -1 if not yet found
+        private int next = -1;
 
-        //Union of no lists is empty list
-        if (occurrences.size() == 0) {
-            return new ArrayList<>(0);
+        NotIterator(LineIterator lines, LineCursor[] excluded) {
+            this.lines = lines;
+            this.excluded = excluded;
         }
 
-        //Traverse all lists, finding unions
-        do {
-            int minimumIndex = 0;
-            int minimumValue = occurrences.get(0).get(pointers.get(0)).getLeftValue();
-
-            outerLoop:
-            for(int i = 0; i < pointers.size(); i++) {
-
-                //If duplicate is found, move pointer along without adding to union
-                for(int j = i + 1; j < pointers.size(); j++) {
-                    if(occurrences.get(i).get(pointers.get(i)).getLeftValue().equals(occurrences.get(j).get(pointers.get(j)).getLeftValue())) {
-                        pointers.set(j, pointers.get(j) + 1);
-
-                        //Remove completed arrays
-                        if(pointers.get(j) + 1 > occurrences.get(j).size()) {
-                            pointers.remove(j);
-                            occurrences.remove(j);
-                        }
-                        //continue outerLoop;
-                        j--;
-                    }
+        @Override
+        public boolean hasNext() {
+            candidates:
+            while(this.next == -1) {
+                if(!this.lines.hasNext()) {
+                    this.next = LineCursor.NO_MORE_LINES;
+                    break;
                 }
 
-                //Find smallest value - is next value to increment
-                if(occurrences.get(i).get(pointers.get(i)).getLeftValue() < minimumValue) {
-                    minimumIndex = i;
-                    minimumValue = occurrences.get(i).get(pointers.get(i)).getLeftValue();
+                int line = this.lines.next();
+                for(int i = 0; i < this.excluded.length; i++) {
+                    if(this.excluded[i].advance(line) == line) {
+                        continue candidates;
+                    }
                 }
+                this.next = line;
             }
 
-            unions.append(minimumValue);
-
-            //Move pointer along for minimum value array, removing completed arrays
-            if(pointers.get(minimumIndex) + 1 < occurrences.get(minimumIndex).size()) {
-                pointers.set(minimumIndex, pointers.get(minimumIndex) + 1);
-            } else {
-                pointers.remove(minimumIndex);
-                occurrences.remove(minimumIndex);
-            }
+            return this.next != LineCursor.NO_MORE_LINES;
+        }
 
-            //Jump over duplicates
-            while((pointers.get(minimumIndex) > 0) && (pointers.get(minimumIndex) < occurrences.get(minimumIndex).size()) && (occurrences.get(minimumIndex).get(pointers.get(minimumIndex)).equals(occurrences.get(minimumIndex).get(pointers.get(minimumIndex) - 1)))) {
-                pointers.set(minimumIndex, pointers.get(minimumIndex) + 1);
+        @Override
+        public int next() {
+            if(!hasNext()) {
+                throw new java.util.NoSuchElementException();
             }
 
-        } while(occurrences.size() != 0);
-
-        return unions;
+            int line = this.next;
+            this.next = -1;
+            return line;
+        }
     }
 
     /**
-     * Returns the lineNumbers in occurrences not in notOccurrences. Assumes that the elements in occurrences are in
-     * ascending order and the lineNumbers in notOccurrences are in ascending order
-     *
-     * Traverses occurrences while simultaneously traversing all arrays in notOccurrences, removing common values
+     * Streams the union (OR) of the line numbers of the specified occurrences in ascending order, each line number
+     * once. Assumes that the line numbers of every postings are in ascending order. Neither the ArrayList nor the
+     * postings are modified.
      *
      * @bigO
-     *      O(numOccurrences * notOccurrences.length + sum(numNotOccurrences)): notOccurrences.length comparisons
-     *      are made for each loop in numOccurrences and each element in the lists in notOccurrences have to be visited
+     *      O(numLists) to initialise, then O(log(numLists)) per line number of each list consumed: see UnionIterator
      *
      * @param occurrences
-     * @param notOccurrences
+     *      An ArrayList of the postings to calculate the union of
+     *
      * @return
+     *      An iterator over the union line numbers
+     */
+    public static LineIterator iterateUnion(ArrayList<Postings> occurrences) {
+        return new UnionIterator(occurrences);
+    }
+
+    /**
+     * K-way merge of the line numbers of several postings through a min-heap of primitive arrays. The heap holds
+     * the current line number of every unfinished list; when a line number is returned every list at that line is
+     * advanced past it, so line numbers shared between or repeated within lists are returned once.
+     *
+     * @bigO
+     *      O(numLists) space complexity: three ints per list
      */
-    public static ArrayList<Integer> getNot(ArrayList<Integer> occurrences, ArrayList<ArrayList<HashPair<Integer, Integer>>> notOccurrences) {
+    private static class UnionIterator implements LineIterator {
+        private Postings[] lists;
+        private int[] cursors;
+
+        //Min-heap of (current line number, list index) pairs, ordered by line number
+        private int[] heapLines;
+        private int[] heapLists;
+        private int heapSize;
+
+        /**
+         * Initialises the heap with the first line number of every non-empty list
+         *
+         * @bigO
+         *      O(numLists): bottom-up heap construction
+         *
+         * @param occurrences
+         *      The postings to merge
+         */
+        UnionIterator(ArrayList<Postings> occurrences) {
+            int numLists = occurrences.size();
+            this.lists = new Postings[numLists];
+            this.cursors = new int[numLists];
+            this.heapLines = new int[numLists];
+            this.heapLists = new int[numLists];
+            this.heapSize = 0;
+
+            for(int i = 0; i < numLists; i++) {
+                this.lists[i] = occurrences.get(i);
+                if(this.lists[i].size() > 0) {
+                    this.heapLines[this.heapSize] = this.lists[i].getLine(0);
+                    this.heapLists[this.heapSize++] = i;
+                }
+            }
 
-        ArrayList<Integer> exclusiveOccurrences = new ArrayList<>();
+            for(int i = this.heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
 
-        //Initialise pointers to start of notOccurrences lists
-        int includedPointer = 0;
-        ArrayList<Integer> notPointers = new ArrayList<>(notOccurrences.size());
-        for (int i = 0; i < notOccurrences.size(); i++) {
-            notPointers.append(0);
+        /**
+         * Returns true iff any list has line numbers remaining
+         *
+         * @bigO
+         *      O(1): constant time comparison
+         */
+        @Override
+        public boolean hasNext() {
+            return this.heapSize > 0;
         }
 
+        /**
+         * Returns the smallest remaining line number, advancing every list past it
+         *
+         * @bigO
+         *      O(numListsAtLine * (log(numLists) + log(numDuplicates))): each list at the line gallops past
+         *          its duplicates then is re-sifted or removed
+         */
+        @Override
+        public int next() {
+            if(this.heapSize == 0) {
+                throw new java.util.NoSuchElementException();
+            }
 
-        //Iterate through occurrences
-        while (includedPointer < occurrences.size()) {
-            boolean allGreater = true;
-            boolean nonEqual = true;
-            for (int i = 0; i < notPointers.size(); i++) {
-                if (notPointers.get(i) < notOccurrences.get(i).size()) {
-                    if (notOccurrences.get(i).get(notPointers.get(i)).getLeftValue() < occurrences.get(includedPointer)) {
-                        notPointers.set(i, notPointers.get(i) + 1);
-                        allGreater = false;
+            int line = this.heapLines[0];
 
-                        //Found match between occurrences and notOccurrences - remove
-                    } else if (notOccurrences.get(i).get(notPointers.get(i)).getLeftValue().equals(occurrences.get(includedPointer))) {
-                        nonEqual = false;
-                        break;
-                    }
+            while((this.heapSize > 0) && (this.heapLines[0] == line)) {
+                int list = this.heapLists[0];
+                this.cursors[list] = this.lists[list].seekLine(line + 1, this.cursors[list]);
+
+                if(this.cursors[list] < this.lists[list].size()) {
+                    this.heapLines[0] = this.lists[list].getLine(this.cursors[list]);
+                } else {
+                    //List finished, replace it by the last heap entry
+                    this.heapSize--;
+                    this.heapLines[0] = this.heapLines[this.heapSize];
+                    this.heapLists[0] = this.heapLists[this.heapSize];
                 }
+                siftDown(0);
             }
-            //Increment occurrences
-            if (allGreater) {
-                if(nonEqual) {
-                    exclusiveOccurrences.append(occurrences.get(includedPointer));
+
+            return line;
+        }
+
+        /**
+         * Moves the heap entry at index i down until neither child is smaller
+         *
+         * @bigO
+         *      O(log(heapSize)): one comparison per level of the heap
+         *
+         * @param i
+         *      The index of the entry to sift
+         */
+        private void siftDown(int i) {
+            int line = this.heapLines[i];
+            int list = this.heapLists[i];
+
+            while(2 * i + 1 < this.heapSize) {
+                int child = 2 * i + 1;
+                if((child + 1 < this.heapSize) && (this.heapLines[child + 1] < this.heapLines[child])) {
+                    child++;
                 }
-                includedPointer++;
+                if(this.heapLines[child] >= line) {
+                    break;
+                }
+
+                this.heapLines[i] = this.heapLines[child];
+                this.heapLists[i] = this.heapLists[child];
+                i = child;
             }
-        }
 
-        return exclusiveOccurrences;
+            this.heapLines[i] = line;
+            this.heapLists[i] = list;
+        }
     }
 }
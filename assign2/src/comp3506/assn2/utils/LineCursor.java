@@ -0,0 +1,40 @@
+package comp3506.assn2.utils;
+
+/**
+ * A forward-only cursor over the ascending line numbers of a word's occurrences, which can skip ahead to a line.
+ * Lets logical operations run over any postings representation, decoding no more than they visit.
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public interface LineCursor {
+
+    //Line number reported once the cursor has passed the last occurrence
+    int NO_MORE_LINES = Integer.MAX_VALUE;
+
+    /**
+     * Returns the line number of the current occurrence
+     *
+     * @return
+     *      The current line number, else NO_MORE_LINES
+     */
+    int line();
+
+    /**
+     * Moves the cursor forward to the first occurrence whose line number is at least the target. The cursor never
+     * moves backwards, so a target at or before the current line leaves it in place.
+     *
+     * @param target
+     *      The line number to advance to
+     * @return
+     *      The new current line number, else NO_MORE_LINES
+     */
+    int advance(int target);
+
+    /**
+     * Returns the total number of occurrences the cursor ranges over, used to order cursors by cost
+     *
+     * @return
+     *      The number of occurrences
+     */
+    int size();
+}
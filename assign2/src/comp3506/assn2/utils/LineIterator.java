@@ -0,0 +1,58 @@
+package comp3506.assn2.utils;
+
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An iterator over line numbers that does not box them, so results of logical operations can be streamed rather
+ * than materialised. Line numbers are returned in ascending order, each once
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public interface LineIterator {
+
+    /**
+     * Returns true iff there are more line numbers
+     *
+     * @return
+     *      True iff next() will return a line number, else false
+     */
+    boolean hasNext();
+
+    /**
+     * Returns the next line number
+     *
+     * @return
+     *      The next line number
+     * @throws java.util.NoSuchElementException
+     *      If there are no more line numbers
+     */
+    int next();
+
+    /**
+     * Returns a sequential, ordered stream of the remaining line numbers, which consumes this iterator lazily
+     *
+     * @return
+     *      A stream of the line numbers
+     */
+    default IntStream stream() {
+        LineIterator lines = this;
+        PrimitiveIterator.OfInt iterator = new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return lines.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+                return lines.next();
+            }
+        };
+
+        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL), false);
+    }
+}
@@ -0,0 +1,259 @@
+package comp3506.assn2.utils;
+
+/**
+ * A cache bounded by an estimated number of bytes, evicting the least recently used entries once the budget is
+ * exceeded. Entries are found through a HashMap and kept in recency order by a doubly linked list, most recently
+ * used first.
+ *
+ * All operations are synchronized, so the cache can be shared by concurrent readers. Hits, misses and evictions are
+ * counted for monitoring.
+ *
+ * @bigO
+ *      O(numEntries) space complexity: a HashMap entry and a list node per entry, besides the values themselves
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class LruCache<K, V> {
+
+    //Estimated bytes of a list node and its HashMap entry, charged to every entry besides its own weight
+    protected final static int ENTRY_OVERHEAD = 64;
+
+    /**
+     * A node of the recency list
+     */
+    private class Node {
+        private final K key;
+        private final V value;
+        private final long bytes;
+        private Node previous;
+        private Node next;
+
+        Node(K key, V value, long bytes) {
+            this.key = key;
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    private final long byteBudget;
+    private HashMap<K, Node> entries;
+    private int numEntries;
+    private long numBytes;
+
+    //Most and least recently used nodes
+    private Node head;
+    private Node tail;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Initialises an empty cache
+     *
+     * @bigO
+     *      O(1): value assignment in constant time
+     *
+     * @param byteBudget
+     *      The estimated number of bytes the cache may hold
+     */
+    public LruCache(long byteBudget) {
+        this.byteBudget = byteBudget;
+        clear();
+    }
+
+    /**
+     * Returns the value of the key and marks it most recently used
+     *
+     * @bigO
+     *      O(1) average case: HashMap access and constant time list relinking
+     *
+     * @param key
+     *      The key to look up
+     * @return
+     *      The cached value, else null
+     */
+    public synchronized V get(K key) {
+        Node node = this.entries.get(key);
+
+        if(node == null) {
+            this.misses++;
+            return null;
+        }
+
+        this.hits++;
+        unlink(node);
+        linkFirst(node);
+        return node.value;
+    }
+
+    /**
+     * Adds or replaces the value of the key, then evicts least recently used entries until the cache is within
+     * budget. Values larger than the whole budget are not cached
+     *
+     * @bigO
+     *      O(1 + numEvicted) average case: HashMap and list operations for the entry and every evicted entry
+     *
+     * @param key
+     *      The key to cache the value under
+     * @param value
+     *      The value to cache
+     * @param bytes
+     *      The estimated size of the value in bytes
+     */
+    public synchronized void put(K key, V value, long bytes) {
+        long weight = bytes + ENTRY_OVERHEAD;
+        if(weight > this.byteBudget) {
+            return;
+        }
+
+        Node existing = this.entries.get(key);
+        if(existing != null) {
+            remove(existing);
+        }
+
+        Node node = new Node(key, value, weight);
+        this.entries.put(key, node);
+        linkFirst(node);
+        this.numEntries++;
+        this.numBytes += weight;
+
+        while(this.numBytes > this.byteBudget) {
+            remove(this.tail);
+            this.evictions++;
+        }
+    }
+
+    /**
+     * Removes every entry, keeping the counters
+     *
+     * @bigO
+     *      O(1): replaces the storage in constant time
+     */
+    public synchronized void clear() {
+        this.entries = new HashMap<>();
+        this.numEntries = 0;
+        this.numBytes = 0;
+        this.head = null;
+        this.tail = null;
+    }
+
+    /**
+     * Returns the number of lookups that found a value
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of hits
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that found no value
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of misses
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of entries evicted to stay within budget
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of evictions
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Returns the number of cached entries
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of entries
+     */
+    public synchronized int size() {
+        return this.numEntries;
+    }
+
+    /**
+     * Returns the estimated number of bytes held, including per entry overhead
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The estimated size of the cache in bytes
+     */
+    public synchronized long getNumBytes() {
+        return this.numBytes;
+    }
+
+    /**
+     * Removes a node from the cache
+     *
+     * @bigO
+     *      O(1) average case: HashMap removal and list relinking
+     */
+    private void remove(Node node) {
+        unlink(node);
+        this.entries.remove(node.key);
+        this.numEntries--;
+        this.numBytes -= node.bytes;
+    }
+
+    /**
+     * Inserts a node at the front of the recency list
+     *
+     * @bigO
+     *      O(1): constant time relinking
+     */
+    private void linkFirst(Node node) {
+        node.previous = null;
+        node.next = this.head;
+
+        if(this.head != null) {
+            this.head.previous = node;
+        } else {
+            this.tail = node;
+        }
+        this.head = node;
+    }
+
+    /**
+     * Removes a node from the recency list
+     *
+     * @bigO
+     *      O(1): constant time relinking
+     */
+    private void unlink(Node node) {
+        if(node.previous != null) {
+            node.previous.next = node.next;
+        } else {
+            this.head = node.next;
+        }
+
+        if(node.next != null) {
+            node.next.previous = node.previous;
+        } else {
+            this.tail = node.previous;
+        }
+
+        node.previous = null;
+        node.next = null;
+    }
+}
@@ -0,0 +1,315 @@
+package comp3506.assn2.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A read-only view of a UTF-8 document that is memory-mapped rather than read into the heap. Only the byte offset
+ * of the start of each line is held in main memory, lines are decoded on demand.
+ *
+ * Line numbers are 1-based. Lines are terminated by "\n", "\r" or "\r\n", matching BufferedReader.readLine().
+ *
+ * Reads use absolute buffer positions, so a MappedDocument can be shared by concurrent readers.
+ *
+ * @bigO
+ *      O(numLines) space complexity: one int per line, the document itself is paged in by the operating system
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class MappedDocument {
+
+    private final static int INITIAL_CAPACITY = 1024;
+    private final static int RESIZING_FACTOR = 2;
+
+    private final ByteBuffer buffer;
+    private int[] lineStarts;
+    private int numLines;
+
+    /**
+     * Memory-maps the specified file read-only
+     *
+     * @bigO
+     *      O(1): the file is mapped, not read
+     *
+     * @param filename
+     *      The filename of the document to map
+     * @return
+     *      A read-only buffer over the whole file
+     *
+     * @throws java.io.FileNotFoundException
+     *      If the file does not exist or cannot be opened
+     * @throws IOException
+     *      If the file cannot be mapped, or is larger than a single buffer can address (2GB)
+     */
+    public static MappedByteBuffer map(String filename) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Document too large to map: " + filename);
+            }
+
+            //The mapping remains valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Initialises an empty view over the specified buffer. Lines are recorded with startLine as the buffer is
+     * scanned, or all at once with scanLines.
+     *
+     * @bigO
+     *      O(1): array initialisation of constant size
+     *
+     * @param buffer
+     *      The bytes of the document
+     */
+    public MappedDocument(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.lineStarts = new int[INITIAL_CAPACITY];
+        this.numLines = 0;
+    }
+
+    /**
+     * Initialises a view over the specified buffer with already recorded line starts
+     *
+     * @bigO
+     *      O(1): value assignment in constant time
+     *
+     * @param buffer
+     *      The bytes of the document
+     * @param lineStarts
+     *      The byte offset of the start of every line, in order
+     */
+    public MappedDocument(ByteBuffer buffer, int[] lineStarts) {
+        this.buffer = buffer;
+        this.lineStarts = lineStarts;
+        this.numLines = lineStarts.length;
+    }
+
+    /**
+     * Records that the next line starts at the specified byte offset. Lines must be recorded in order.
+     *
+     * @bigO
+     *      O(1): amortised constant time array append
+     *
+     * @param offset
+     *      The byte offset of the first byte of the line
+     */
+    void startLine(int offset) {
+        if(this.numLines == this.lineStarts.length) {
+            this.lineStarts = Arrays.copyOf(this.lineStarts, this.numLines * RESIZING_FACTOR);
+        }
+        this.lineStarts[this.numLines++] = offset;
+    }
+
+    /**
+     * Records the start of every line by scanning the buffer for line terminators, so the document can be split
+     * into lines before it is tokenized. No lines may have been recorded yet.
+     *
+     * @bigO
+     *      O(numBytes): visits every byte of the document once
+     */
+    public void scanLines() {
+        int length = this.buffer.limit();
+
+        if(length > 0) {
+            startLine(0);
+        }
+
+        int i = 0;
+        while(i < length) {
+            byte b = this.buffer.get(i++);
+
+            //Handle end of line - "\n", "\r" or "\r\n"
+            if((b == '\n') || (b == '\r')) {
+                if((b == '\r') && (i < length) && (this.buffer.get(i) == '\n')) {
+                    i++;
+                }
+
+                if(i < length) {
+                    startLine(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the underlying bytes of the document
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The document's buffer
+     */
+    public ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Returns the number of lines recorded
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of lines in the document
+     */
+    public int getNumLines() {
+        return this.numLines;
+    }
+
+    /**
+     * Returns the byte offset of the start of the specified line
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param lineNumber
+     *      The 1-based line number
+     * @return
+     *      The byte offset of the line's first byte
+     */
+    public int getLineStart(int lineNumber) {
+        return this.lineStarts[lineNumber - 1];
+    }
+
+    /**
+     * Returns the byte offset one past the last byte of the specified line, excluding its terminator
+     *
+     * @bigO
+     *      O(1): array access and at most two byte comparisons
+     *
+     * @param lineNumber
+     *      The 1-based line number
+     * @return
+     *      The exclusive byte offset of the end of the line's content
+     */
+    public int getLineEnd(int lineNumber) {
+        int end = (lineNumber < this.numLines) ? this.lineStarts[lineNumber] : this.buffer.limit();
+
+        //Strip "\n", "\r" or "\r\n"
+        if((end > this.lineStarts[lineNumber - 1]) && (this.buffer.get(end - 1) == '\n')) {
+            end--;
+        }
+        if((end > this.lineStarts[lineNumber - 1]) && (this.buffer.get(end - 1) == '\r')) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Decodes the UTF-8 encoded code point starting at the specified byte offset
+     *
+     * @bigO
+     *      O(1): reads at most four bytes
+     *
+     * @param offset
+     *      The byte offset of the code point's lead byte
+     * @return
+     *      The code point, else -1 if the bytes at offset are not a well-formed UTF-8 sequence
+     */
+    public int codePointAt(int offset) {
+        int lead = this.buffer.get(offset) & 0xff;
+
+        if(lead < 0x80) {
+            return lead;
+        }
+
+        int length, codePoint, minimum;
+        if((lead & 0xe0) == 0xc0) {
+            length = 2;
+            codePoint = lead & 0x1f;
+            minimum = 0x80;
+        } else if((lead & 0xf0) == 0xe0) {
+            length = 3;
+            codePoint = lead & 0x0f;
+            minimum = 0x800;
+        } else if((lead & 0xf8) == 0xf0) {
+            length = 4;
+            codePoint = lead & 0x07;
+            minimum = 0x10000;
+        } else {
+            return -1;
+        }
+
+        if(offset + length > this.buffer.limit()) {
+            return -1;
+        }
+
+        for(int i = 1; i < length; i++) {
+            int continuation = this.buffer.get(offset + i) & 0xff;
+            if((continuation & 0xc0) != 0x80) {
+                return -1;
+            }
+            codePoint = (codePoint << 6) | (continuation & 0x3f);
+        }
+
+        //Reject overlong encodings, surrogates and values past the last code point
+        if((codePoint < minimum) || (codePoint > Character.MAX_CODE_POINT)
+                || ((codePoint >= Character.MIN_SURROGATE) && (codePoint <= Character.MAX_SURROGATE))) {
+            return -1;
+        }
+        return codePoint;
+    }
+
+    /**
+     * Returns the number of bytes used to encode the specified code point in UTF-8
+     *
+     * @bigO
+     *      O(1): constant number of comparisons
+     *
+     * @param codePoint
+     *      A valid code point
+     * @return
+     *      The encoded length of the code point, from 1 to 4 bytes
+     */
+    public static int encodedLength(int codePoint) {
+        if(codePoint < 0x80) {
+            return 1;
+        } else if(codePoint < 0x800) {
+            return 2;
+        } else if(codePoint < 0x10000) {
+            return 3;
+        }
+        return 4;
+    }
+
+    /**
+     * Decodes the specified line and converts it to lower case. Queries tokenize the buffer directly, so this is
+     * only used to check the recorded lines
+     *
+     * @bigO
+     *      O(line.length()): copies and decodes every byte of the line
+     *
+     * @param lineNumber
+     *      The 1-based line number
+     * @return
+     *      The lower case text of the line, without its terminator
+     */
+    String getLine(int lineNumber) {
+        int start = getLineStart(lineNumber);
+        byte[] bytes = new byte[getLineEnd(lineNumber) - start];
+
+        for(int i = 0; i < bytes.length; i++) {
+            bytes[i] = this.buffer.get(start + i);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8).toLowerCase();
+    }
+
+    /**
+     * Releases unused line capacity once the whole document has been recorded
+     *
+     * @bigO
+     *      O(numLines): array copy
+     */
+    public void trimToSize() {
+        this.lineStarts = Arrays.copyOf(this.lineStarts, this.numLines);
+    }
+}
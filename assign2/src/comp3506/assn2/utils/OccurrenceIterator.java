@@ -0,0 +1,43 @@
+package comp3506.assn2.utils;
+
+/**
+ * An iterator over the (line, column) positions of occurrences that does not allocate per occurrence, so results
+ * can be consumed as they are found rather than materialised. next() moves to the next occurrence, whose position
+ * is then read with getLine() and getColumn().
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public interface OccurrenceIterator {
+
+    /**
+     * Returns true iff there are more occurrences
+     *
+     * @return
+     *      True iff next() will move to an occurrence, else false
+     */
+    boolean hasNext();
+
+    /**
+     * Moves to the next occurrence
+     *
+     * @throws java.util.NoSuchElementException
+     *      If there are no more occurrences
+     */
+    void next();
+
+    /**
+     * Returns the line number of the current occurrence
+     *
+     * @return
+     *      The line number of the occurrence next() last moved to
+     */
+    int getLine();
+
+    /**
+     * Returns the column number of the current occurrence
+     *
+     * @return
+     *      The column number of the occurrence next() last moved to
+     */
+    int getColumn();
+}
@@ -2,7 +2,18 @@ package comp3506.assn2.utils;
 
 
 /**
- * A trie structure for OccurrenceTrieNodes 
+ * A trie structure for OccurrenceTrieNodes
+ *
+ * Every trie owns its root. Once built, a trie is frozen: occurrences can no longer be added, so lookups never
+ * observe a partially written node and any number of threads may query a safely published frozen trie without
+ * locking.
+ *
+ * Freezing replaces the nodes with a Vocabulary, which maps words and prefixes to term ids numbered in pre-order,
+ * and keeps the postings in arrays indexed by term id. The nodes are released, so a frozen trie has only an empty
+ * root and the node methods find nothing. Freezing lays out every occurrence once, in one set of arrays in term
+ * order, and the postings of each term are a view of its range of them. The occurrences of every word with a given
+ * prefix are then a contiguous range, so a prefix search is a slice of the layout rather than a walk of the
+ * subtree. Compressing a frozen trie encodes each term's range and releases the layout.
  *
  * @bigO
  *      O(N) space complexity: space proportionate to number of nodes
@@ -12,12 +23,26 @@ package comp3506.assn2.utils;
  */
 public class OccurrenceTrie {
 
-    private final static OccurrenceTrieNode ROOT_NODE= new OccurrenceTrieNode();
     protected final static int INITAL_CHILDREN_SPACES = 4;
 
+    //Decoded postings of compressed terms are cached within this fraction of the uncompressed occurrences' bytes
+    private final static int DECODED_CACHE_FRACTION = 4;
+
 	private OccurrenceTrieNode root;
 	private int depth;
 	private int initialChildrenSpaces;
+	private boolean frozen;
+
+	//Words of the frozen trie and the postings of each term id, exactly one of which is non-null per term. The
+	//postings are views of the pre-order layout until compressed
+	private Vocabulary vocabulary;
+	private Postings[] termPostings;
+	private CompressedPostings[] termCompressed;
+	private int numOccurrences;
+
+	//Postings of recently looked up compressed terms, decoded once with their section bitmap and maximum section
+	//frequency, else null if the trie is not compressed
+	private TermPostingsCache decodedTerms;
 
     /**
      * Constructor for specifying initial root node children capacity
@@ -29,9 +54,10 @@ public class OccurrenceTrie {
      *      Initial root node children capacity
      */
 	public OccurrenceTrie(int initialChildrenSpaces) {
-		this.root = ROOT_NODE;
+		this.root = new OccurrenceTrieNode();
 		this.initialChildrenSpaces = initialChildrenSpaces;
 		this.depth = 0;
+		this.frozen = false;
 	}
 
     /**
@@ -44,6 +70,24 @@ public class OccurrenceTrie {
 	    this(INITAL_CHILDREN_SPACES);
     }
 
+    /**
+     * Returns a frozen trie of a vocabulary and its pre-order layout, used when loading a trie rather than building
+     * it, so no nodes are created and nothing is laid out again. See setLayout for the arrays
+     *
+     * @bigO
+     *      O(numTerms): creates a view per term
+     *
+     * @return
+     *      The frozen trie
+     */
+    static OccurrenceTrie fromLayout(Vocabulary vocabulary, int[] lines, int[] columns, int[] positions,
+                                     int[] termStarts, int[] sectionIds, int[] runStarts, int[] termRunStarts) {
+        OccurrenceTrie trie = new OccurrenceTrie();
+        trie.setLayout(vocabulary, lines, columns, positions, termStarts, sectionIds, runStarts, termRunStarts);
+        trie.frozen = true;
+        return trie;
+    }
+
     /**
      * Returns the root of the Trie
      *
@@ -51,20 +95,342 @@ public class OccurrenceTrie {
      *      O(1): returns stored reference in constant time
      *
      * @return
-     *      The OccurrenceTrieNode at the root of the tree
+     *      The OccurrenceTrieNode at the root of the tree, an empty root once frozen
      */
     public OccurrenceTrieNode getRoot() {
         return this.root;
     }
 
+    /**
+     * Ends the build phase of the trie, after which occurrences can no longer be added. The nodes are replaced by
+     * the vocabulary and term-indexed postings, see layoutTerms, so getRoot() returns an empty root once frozen
+     *
+     * @bigO
+     *      O(numNodes + numOccurrences): lays out every node's occurrences the first time, else O(1)
+     */
+    public void freeze() {
+        if(!this.frozen) {
+            layoutTerms();
+            this.root = new OccurrenceTrieNode();
+            this.frozen = true;
+        }
+    }
+
+    /**
+     * Builds the vocabulary of the nodes and lays out the occurrences and section runs of every term once, in
+     * term order, so each term's postings are a view of its range of the layout. Terms are in pre-order, each word
+     * before the words it prefixes and children in letter order. Compressed nodes are decoded into the layout and
+     * the frozen trie compressed again
+     *
+     * @bigO
+     *      O(numNodes + numOccurrences): builds the vocabulary and copies every occurrence once
+     */
+    private void layoutTerms() {
+        ArrayList<OccurrenceTrieNode> termNodes = new ArrayList<>();
+        Vocabulary vocabulary = Vocabulary.build(this.root, termNodes);
+        int numTerms = vocabulary.getNumTerms();
+
+        //The index of each term's first occurrence and first run in the layout
+        Postings[] occurrences = new Postings[numTerms];
+        int[] termStarts = new int[numTerms + 1];
+        int[] termRunStarts = new int[numTerms + 1];
+        boolean compressed = false;
+        for(int term = 0; term < numTerms; term++) {
+            OccurrenceTrieNode node = termNodes.get(term);
+            compressed |= node.isCompressed();
+            occurrences[term] = node.getOccurrences();
+            termStarts[term + 1] = termStarts[term] + occurrences[term].size();
+            termRunStarts[term + 1] = termRunStarts[term] + occurrences[term].getNumSections();
+        }
+
+        int[] lines = new int[termStarts[numTerms]];
+        int[] columns = new int[lines.length];
+        int[] positions = new int[lines.length];
+        int[] sectionIds = new int[termRunStarts[numTerms]];
+        int[] runStarts = new int[sectionIds.length];
+        for(int term = 0; term < numTerms; term++) {
+            Postings postings = occurrences[term];
+            int start = termStarts[term];
+
+            for(int i = 0; i < postings.size(); i++) {
+                lines[start + i] = postings.getLine(i);
+                columns[start + i] = postings.getColumn(i);
+                positions[start + i] = postings.getPosition(i);
+            }
+            for(int run = 0; run < postings.getNumSections(); run++) {
+                sectionIds[termRunStarts[term] + run] = postings.getSectionId(run);
+                runStarts[termRunStarts[term] + run] = start + postings.getSectionStart(run);
+            }
+        }
+
+        setLayout(vocabulary, lines, columns, positions, termStarts, sectionIds, runStarts, termRunStarts);
+        if(compressed) {
+            compress();
+        }
+    }
+
+    /**
+     * Sets the vocabulary and makes the postings of each term a view of its range of the layout
+     *
+     * @bigO
+     *      O(numTerms): creates a view per term
+     *
+     * @param vocabulary
+     *      The vocabulary of the terms
+     * @param lines
+     *      The line numbers of every occurrence, in term order
+     * @param columns
+     *      The column numbers of every occurrence, in term order
+     * @param positions
+     *      The word positions of every occurrence, in term order
+     * @param termStarts
+     *      The index of each term's first occurrence, and the number of occurrences last
+     * @param sectionIds
+     *      The section number of every section run, in term order
+     * @param runStarts
+     *      The index in the occurrence arrays of the first occurrence of every run
+     * @param termRunStarts
+     *      The index of each term's first run, and the number of runs last
+     */
+    private void setLayout(Vocabulary vocabulary, int[] lines, int[] columns, int[] positions, int[] termStarts,
+                           int[] sectionIds, int[] runStarts, int[] termRunStarts) {
+        int numTerms = vocabulary.getNumTerms();
+        this.vocabulary = vocabulary;
+        this.termPostings = new Postings[numTerms];
+        this.termCompressed = new CompressedPostings[numTerms];
+        this.numOccurrences = lines.length;
+
+        for(int term = 0; term < numTerms; term++) {
+            this.termPostings[term] = new Postings(lines, columns, positions, termStarts[term],
+                    termStarts[term + 1] - termStarts[term], sectionIds, runStarts, termRunStarts[term],
+                    termRunStarts[term + 1] - termRunStarts[term]);
+        }
+    }
+
+    /**
+     * Returns the number of occurrences of a term
+     *
+     * @bigO
+     *      O(1): returns stored size
+     */
+    private int getTermSize(int term) {
+        return (this.termCompressed[term] != null) ? this.termCompressed[term].size() : this.termPostings[term].size();
+    }
+
+    /**
+     * Returns the number of section runs of a term
+     *
+     * @bigO
+     *      O(1): returns stored size
+     */
+    int getTermNumSections(int term) {
+        return (this.termCompressed[term] != null) ? this.termCompressed[term].getNumSections()
+                : this.termPostings[term].getNumSections();
+    }
+
+    /**
+     * Returns the postings of a term for writing them out, decoding them without caching if compressed, so a
+     * pass over every term does not evict the postings cached for queries
+     *
+     * @bigO
+     *      O(1), O(numOccurrences) if compressed
+     */
+    Postings getTermPostings(int term) {
+        return (this.termCompressed[term] != null) ? this.termCompressed[term].decode() : this.termPostings[term];
+    }
+
+    /**
+     * Returns the postings of a term. Compressed postings are decoded on their first lookup and cached, so repeated
+     * lookups of a word share one decoded Postings, and with it the section bitmap and maximum section frequency
+     * computed on it. The cache does not lock, so concurrent lookups of a compressed trie are not serialised
+     *
+     * @bigO
+     *      O(1) amortised, O(numOccurrences) if compressed and not cached
+     */
+    private Postings getTermOccurrences(int term) {
+        CompressedPostings compressed = this.termCompressed[term];
+        if(compressed == null) {
+            return this.termPostings[term];
+        }
+
+        Postings decoded = this.decodedTerms.get(term);
+        return (decoded != null) ? decoded : this.decodedTerms.put(term, compressed.decode());
+    }
+
+    /**
+     * Returns an iterator over the (line, column) of a term's occurrences, decoding a block at a time if compressed
+     *
+     * @bigO
+     *      O(1): constant time initialisation
+     */
+    private OccurrenceIterator iterateTerm(int term) {
+        return (this.termCompressed[term] != null) ? this.termCompressed[term].iterator()
+                : this.termPostings[term].iterator();
+    }
+
+    /**
+     * Returns a view of the occurrences of the terms [start, end) if they are consecutive in the layout, else null
+     *
+     * @bigO
+     *      O(end - start): checks each term follows the previous
+     */
+    private Postings getLayoutRange(int start, int end) {
+        if(start == end) {
+            return Postings.EMPTY;
+        }
+
+        for(int term = start; term < end; term++) {
+            if((this.termPostings[term] == null)
+                    || ((term > start) && !this.termPostings[term - 1].isFollowedBy(this.termPostings[term]))) {
+                return null;
+            }
+        }
+        return this.termPostings[start].through(this.termPostings[end - 1]);
+    }
+
+    /**
+     * Returns the vocabulary of the frozen trie
+     *
+     * @bigO
+     *      O(1): returns stored reference
+     *
+     * @return
+     *      The vocabulary, else null if the trie is not frozen
+     */
+    public Vocabulary getVocabulary() {
+        return this.vocabulary;
+    }
+
+    /**
+     * Returns the number of occurrences of every word in the frozen trie, which is the number of words in the
+     * document
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of occurrences, else 0 if the trie is not frozen
+     */
+    public int getNumOccurrences() {
+        return this.numOccurrences;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the frozen trie: its vocabulary and the postings of every term,
+     * whose views together count the pre-order layout once, and the decoded postings cache, at its budget, if
+     * compressed. Postings shared with another version of the trie are counted by both
+     *
+     * @bigO
+     *      O(numTerms): sums the estimate of every term's postings
+     *
+     * @return
+     *      The estimated number of bytes of the trie
+     * @throws IllegalStateException
+     *      If the trie is not frozen
+     */
+    public long getEstimatedBytes() {
+        if(!this.frozen) {
+            throw new IllegalStateException("Trie is not frozen");
+        }
+
+        long bytes = this.vocabulary.getEstimatedBytes() + 8L * (this.termPostings.length
+                + this.termCompressed.length);
+        for(int term = 0; term < this.termPostings.length; term++) {
+            bytes += (this.termCompressed[term] != null) ? this.termCompressed[term].getEstimatedBytes()
+                    : this.termPostings[term].getEstimatedBytes();
+        }
+        if(this.decodedTerms != null) {
+            bytes += this.decodedTerms.getEstimatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns a new frozen trie of this trie's occurrences followed by the occurrences of a trie built over lines
+     * added to the end of the document. This trie is not changed, so it can still be queried while the new trie is
+     * built. The vocabularies are merged without creating their words, the postings of words that do not occur in
+     * the added lines are shared with this trie, and the added occurrences are appended to the postings of the
+     * words that do, see Postings.append. A compressed trie appends to the compressed postings, so the new trie is
+     * compressed too
+     *
+     * @bigO
+     *      O(numNodes + numAddedNodes + numTerms + numAddedOccurrences) amortised: merges the vocabularies and
+     *          appends each added occurrence. Compressed words in the added lines also copy their encoded bytes
+     *
+     * @param added
+     *      The trie of the added lines, whose line numbers and positions count from the first added line
+     * @param lineOffset
+     *      The number of lines in the document before the added lines
+     * @return
+     *      The frozen trie of the whole document
+     * @throws IllegalStateException
+     *      If this trie is not frozen
+     */
+    public OccurrenceTrie append(OccurrenceTrie added, int lineOffset) {
+        if(!this.frozen) {
+            throw new IllegalStateException("Trie is not frozen");
+        }
+        added.freeze();
+
+        int[] terms = new int[this.vocabulary.getNumTerms() + added.vocabulary.getNumTerms()];
+        int[] addedTerms = new int[terms.length];
+        Vocabulary vocabulary = Vocabulary.merge(this.vocabulary, added.vocabulary, terms, addedTerms);
+        int numTerms = vocabulary.getNumTerms();
+        int positionOffset = this.numOccurrences;
+
+        OccurrenceTrie merged = new OccurrenceTrie();
+        merged.vocabulary = vocabulary;
+        merged.termPostings = new Postings[numTerms];
+        merged.termCompressed = new CompressedPostings[numTerms];
+        merged.numOccurrences = this.numOccurrences + added.numOccurrences;
+        merged.frozen = true;
+
+        for(int term = 0; term < numTerms; term++) {
+            int i = terms[term];
+            Postings tail = (addedTerms[term] < 0) ? null : added.getTermPostings(addedTerms[term]);
+
+            if(tail == null) {
+                merged.termPostings[term] = this.termPostings[i];
+                merged.termCompressed[term] = this.termCompressed[i];
+            } else if((i >= 0) && (this.termCompressed[i] != null)) {
+                merged.termCompressed[term] = this.termCompressed[i].append(tail, positionOffset, lineOffset);
+            } else {
+                Postings occurrences = ((i < 0) ? Postings.EMPTY : this.termPostings[i]).append(tail,
+                        positionOffset, lineOffset);
+                if(this.decodedTerms != null) {
+                    merged.termCompressed[term] = CompressedPostings.encode(occurrences);
+                } else {
+                    merged.termPostings[term] = occurrences;
+                }
+            }
+        }
+
+        if(this.decodedTerms != null) {
+            merged.decodedTerms = createDecodedCache(numTerms, merged.numOccurrences);
+        }
+        return merged;
+    }
+
+    /**
+     * Returns true iff the trie is frozen
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      True iff occurrences can no longer be added, else false
+     */
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
     /**
      * Returns the longest prefix of the specified word in the trie and the
      * length of this prefix
      *
      * @bigO
-     *      O(numChildren * word.length()): traverses down trie at most word.length() number
-     *      of times. Getting children runs in O(numChildren) each time, O(numChildren) is essentially
-     *      constant O(27) but can be improved using HashMap. Essentially O(word.length())
+     *      O(word.length()): traverses down trie at most word.length() number of times. Getting children
+     *      runs in O(1) for promoted nodes and O(log(SMALL_CHILDREN_LIMIT)) for small nodes
      *
      *
      * @param word
@@ -121,87 +487,197 @@ public class OccurrenceTrie {
     }
 
     /**
-     * Returns the occurrences of the specified word. Returns null if word not in trie
+     * Returns the occurrences of the specified word. Returns empty postings if word not in trie
      *
      * @bigO
      *      O(word.length()): calls O(word.length()) function and performs constant time
-     *      comparison
+     *      comparison. Once frozen, walks the vocabulary's arrays to the word's term id instead
      *
      * @param word
      *      The word being queried for occurrences
      * @return
-     *      The occurrences of the word in line number, column number pairs
+     *      A view of the occurrences of the word: line numbers, column numbers and their sections
      */
-    public ArrayList<HashPair<Integer, Integer>> getOccurrences(String word) {
+    public Postings getOccurrences(String word) {
+        if(this.vocabulary != null) {
+            int term = this.vocabulary.getTermId(word);
+            return (term < 0) ? Postings.EMPTY : getTermOccurrences(term);
+        }
+
         OccurrenceTrieNode terminatingNode = getNodeTerminatingWord(word);
 
         if(terminatingNode == null) {
-            return new ArrayList<HashPair<Integer, Integer>>();
+            return Postings.EMPTY;
         }
 
         return terminatingNode.getOccurrences();
     }
 
     /**
-     * Returns the sections that the word occurs in
+     * Returns the occurrences of the word in the span [start, end) of the text, such as a word of a query found by
+     * the Tokenizer. Once frozen the word is found without copying it out of the text
      *
      * @bigO
-     *      O(word.length()): calls O(word.length()) function and performs constant time
-     *      comparison
+     *      O(end - start): see getOccurrences
+     *
+     * @param text
+     *      The text holding the word
+     * @param start
+     *      The offset of the word's first letter
+     * @param end
+     *      The offset after the word's last letter
+     * @return
+     *      A view of the occurrences of the word: line numbers, column numbers and their sections
+     */
+    public Postings getOccurrences(CharSequence text, int start, int end) {
+        if(this.vocabulary != null) {
+            int term = this.vocabulary.getTermId(text, start, end);
+            return (term < 0) ? Postings.EMPTY : getTermOccurrences(term);
+        }
+
+        return getOccurrences(text.subSequence(start, end).toString());
+    }
+
+    /**
+     * Returns the number of occurrences of the specified word, without decoding them if compressed
+     *
+     * @bigO
+     *      O(word.length()): finds the word's term id or node, then returns its stored size
      *
      * @param word
-     *      The query word
+     *      The word being queried for occurrences
+     * @return
+     *      The number of occurrences of the word, 0 if it is not in the trie
+     */
+    public int getTermSize(String word) {
+        if(this.vocabulary != null) {
+            int term = this.vocabulary.getTermId(word);
+            return (term < 0) ? 0 : getTermSize(term);
+        }
+
+        OccurrenceTrieNode terminatingNode = getNodeTerminatingWord(word);
+        return (terminatingNode == null) ? 0 : terminatingNode.getNumOccurrences();
+    }
+
+    /**
+     * Returns a cursor over the line numbers of the occurrences of the word
+     *
+     * @bigO
+     *      O(word.length()): finds the node terminating the word
      *
+     * @param word
+     *      The word being queried for occurrences
      * @return
-     *      A list of section numbers that the word occurs in
+     *      A cursor at the first occurrence of the word, which has no lines if the word is not in the trie
      */
-    public ArrayList<Integer> getSectionNumbers(String word) {
+    public LineCursor getLineCursor(String word) {
+        if(this.vocabulary != null) {
+            int term = this.vocabulary.getTermId(word);
+            if(term < 0) {
+                return Postings.EMPTY.cursor();
+            }
+            return (this.termCompressed[term] != null) ? this.termCompressed[term].cursor()
+                    : this.termPostings[term].cursor();
+        }
+
         OccurrenceTrieNode terminatingNode = getNodeTerminatingWord(word);
 
         if(terminatingNode == null) {
-            return new ArrayList<>();
+            return Postings.EMPTY.cursor();
         }
 
-        return terminatingNode.getSectionNumbers();
+        return terminatingNode.getLineCursor();
     }
 
     /**
-     * Helper method to recursively traverse subtree and accumulate occurrences
+     * Compresses the occurrences of every node in the trie, or of every term once frozen, releasing the layout.
+     * This changes how occurrences are stored, not which are stored, so a frozen trie may be compressed, but not
+     * while other threads are querying it. A compressed frozen trie caches the postings it decodes for lookups, see
+     * getTermOccurrences, within a quarter of the bytes the occurrences took uncompressed. The cache is a
+     * TermPostingsCache, so lookups stay lock-free
      *
-     * @param root
-     *      The root of the subtree to traverse
-     * @param occurrences
-     *      An ArrayList of occurrences to add to
+     * @bigO
+     *      O(numNodes + numOccurrences): visits every node or term and encodes every occurrence once
      */
-    private void getOccurrencesRecursiveHelper(OccurrenceTrieNode root, ArrayList<HashPair<Integer, Integer>> occurrences) {
-        occurrences.extend(root.getOccurrences());
+    public void compress() {
+        if(this.vocabulary == null) {
+            compressRecursiveHelper(this.root);
+            return;
+        }
 
-        for(int i = 0; i < root.getChildren().size(); i++) {
-            getOccurrencesRecursiveHelper(root.getChildren().get(i), occurrences);
+        for(int term = 0; term < this.termPostings.length; term++) {
+            if(this.termPostings[term] != null) {
+                this.termCompressed[term] = CompressedPostings.encode(this.termPostings[term]);
+                this.termPostings[term] = null;
+            }
+        }
+        if(this.decodedTerms == null) {
+            this.decodedTerms = createDecodedCache(this.termCompressed.length, this.numOccurrences);
         }
     }
 
     /**
-     * Returns all occurrences of the given prefix
+     * Returns an empty cache for the decoded postings of a compressed trie, within DECODED_CACHE_FRACTION of the
+     * bytes its occurrences take uncompressed: twelve each, for the line, column and position
      *
      * @bigO
-     *      O((numOccurrencesPerNode)x (27 ^ heightRoot)):
-     *
-     *          Breaking it down
-     *          O(numChildrenInSubtree*(numOccurrences + 1)) because .extend() is called on every child in
-     *          subtree and this calls .append() numOccurrences times and runs in O(1). Nodes are visited in
-     *          constant time and numChildrenInSubtree nodes are visited hence the +1 in the brackets
+     *      O(numTerms): allocates a cache slot per term
+     */
+    private static TermPostingsCache createDecodedCache(int numTerms, int numOccurrences) {
+        return new TermPostingsCache(numTerms, 12L * numOccurrences / DECODED_CACHE_FRACTION);
+    }
+
+    /**
+     * Helper method to recursively compress the occurrences of a subtree
      *
-     *          numChildrenInSubtree = childrenPerParent ^ longestSuffix = 27 ^ heightRoot
+     * @param root
+     *      The root of the subtree to compress
+     */
+    private void compressRecursiveHelper(OccurrenceTrieNode root) {
+        root.compress();
+
+        for(int i = 0; i < root.getNumChildren(); i++) {
+            compressRecursiveHelper(root.getChildAt(i));
+        }
+    }
+
+    /**
+     * Returns all occurrences of the given prefix as postings, with their positions and sections, in term order.
+     * Once frozen this is a view of the prefix node's slice of the layout, unless the trie is compressed, when the
+     * terms are decoded and joined
      *
-     *          Combining these give: O((numOccurrencesPerNode)x (27 ^ heightRoot))
+     * @bigO
+     *      O(prefix.length() + numTermsInSubtree) once frozen, else O(prefix.length() + numNodesInSubtree +
+     *      numOccurrencesInSubtree): visits every node of the subtree in pre-order with an explicit stack, and
+     *      .extend() appends each of its occurrences in O(1)
      *
      * @param prefix
      *      The prefix to query for occurrences
      * @return
-     *      The occurrences of the specified prefix in the trie
+     *      The occurrences of the specified prefix in the trie, else null if the prefix is not in the trie
      */
-    public ArrayList<HashPair<Integer, Integer>> getOccurrencesForSubtree(String prefix) {
+    public Postings getOccurrencesForSubtree(String prefix) {
+        if(this.vocabulary != null) {
+            int node = this.vocabulary.findNode(prefix);
+            if(node < 0) {
+                return null;
+            }
+
+            int start = this.vocabulary.getSubtreeStart(node);
+            int end = this.vocabulary.getSubtreeEnd(node);
+            Postings range = getLayoutRange(start, end);
+            if(range != null) {
+                return range;
+            }
+
+            //Decoded without caching, so a scan of many terms does not evict the postings cached for lookups
+            Postings occurrences = new Postings();
+            for(int term = start; term < end; term++) {
+                occurrences.extend(getTermPostings(term));
+            }
+            return occurrences;
+        }
+
         OccurrenceTrieNode subtreeRoot = getNodeTerminatingWord(prefix);
 
         //Prefix not in trie
@@ -209,12 +685,149 @@ public class OccurrenceTrie {
             return null;
         }
 
-        ArrayList<HashPair<Integer, Integer>> occurrences = new ArrayList<>();
+        Postings occurrences = new Postings();
 
         //Traverse subtree rooted at longestPrefix's node - accumulate occurrences
-        getOccurrencesRecursiveHelper(subtreeRoot, occurrences);
+        ArrayList<OccurrenceTrieNode> stack = new ArrayList<>();
+        stack.append(subtreeRoot);
+        while(stack.size() > 0) {
+            OccurrenceTrieNode node = stack.remove(stack.size() - 1);
+            occurrences.extend(node.getOccurrences());
+
+            for(int i = node.getNumChildren() - 1; i >= 0; i--) {
+                stack.append(node.getChildAt(i));
+            }
+        }
         return occurrences;
+    }
+
+    /**
+     * Returns an iterator over the occurrences of the given prefix, in the same order as getOccurrencesForSubtree.
+     * Once frozen this is the prefix node's slice of the layout, or if compressed each term's occurrences in turn,
+     * decoded a block at a time. Before then nodes are visited as the occurrences are consumed, so no postings are
+     * concatenated either way
+     *
+     * @bigO
+     *      O(prefix.length() + numTermsInSubtree) to initialise, then O(1) per occurrence once frozen, else
+     *      O(prefix.length()) then amortised O(1) per occurrence and node visited
+     *
+     * @param prefix
+     *      The prefix to query for occurrences
+     * @return
+     *      An iterator over the occurrences of words starting with the prefix, which has none if the prefix is not
+     *      in the trie
+     */
+    public OccurrenceIterator iterateSubtree(String prefix) {
+        if(this.vocabulary == null) {
+            return new SubtreeIterator(getNodeTerminatingWord(prefix));
+        }
+
+        int node = this.vocabulary.findNode(prefix);
+        if(node < 0) {
+            return Postings.EMPTY.iterator();
+        }
+
+        int start = this.vocabulary.getSubtreeStart(node);
+        int end = this.vocabulary.getSubtreeEnd(node);
+        Postings range = getLayoutRange(start, end);
+        return (range != null) ? range.iterator() : new TermsIterator(start, end);
+    }
+
+    /**
+     * Iteration over the occurrences of the terms [start, end), each term's in turn
+     */
+    private class TermsIterator implements OccurrenceIterator {
+        private final int end;
+        private int term;
+        private OccurrenceIterator occurrences = Postings.EMPTY.iterator();
+
+        TermsIterator(int start, int end) {
+            this.term = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while(!this.occurrences.hasNext()) {
+                if(this.term == this.end) {
+                    return false;
+                }
+                this.occurrences = iterateTerm(this.term++);
+            }
+
+            return true;
+        }
+
+        @Override
+        public void next() {
+            if(!hasNext()) {
+                throw new java.util.NoSuchElementException();
+            }
+            this.occurrences.next();
+        }
+
+        @Override
+        public int getLine() {
+            return this.occurrences.getLine();
+        }
 
+        @Override
+        public int getColumn() {
+            return this.occurrences.getColumn();
+        }
+    }
+
+    /**
+     * Pre-order traversal of a subtree, iterating over the occurrences of each node in turn
+     *
+     * @bigO
+     *      O(heightSubtree * maxNumChildren) space complexity: the stack of unvisited nodes
+     */
+    private static class SubtreeIterator implements OccurrenceIterator {
+        private final ArrayList<OccurrenceTrieNode> stack = new ArrayList<>();
+        private OccurrenceIterator occurrences = Postings.EMPTY.iterator();
+
+        SubtreeIterator(OccurrenceTrieNode root) {
+            if(root != null) {
+                this.stack.append(root);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            //Visit nodes until one has occurrences left
+            while(!this.occurrences.hasNext()) {
+                if(this.stack.size() == 0) {
+                    return false;
+                }
+
+                OccurrenceTrieNode node = this.stack.remove(this.stack.size() - 1);
+                for(int i = node.getNumChildren() - 1; i >= 0; i--) {
+                    this.stack.append(node.getChildAt(i));
+                }
+                this.occurrences = node.getOccurrences().iterator();
+            }
+
+            return true;
+        }
+
+        @Override
+        public void next() {
+            if(!hasNext()) {
+                throw new java.util.NoSuchElementException();
+            }
+            this.occurrences.next();
+        }
+
+        @Override
+        public int getLine() {
+            return this.occurrences.getLine();
+        }
+
+        @Override
+        public int getColumn() {
+            return this.occurrences.getColumn();
+        }
     }
 
     /**
@@ -228,10 +841,22 @@ public class OccurrenceTrie {
      *
      * @param word
      *      The word to add an occurrence to
-     * @param occurrence
-     *      The line number, column number pair of the occurrence of the word
+     * @param lineNumber
+     *      The line number of the occurrence of the word
+     * @param columnNumber
+     *      The column number the occurrence of the word starts at
+     * @param position
+     *      The ordinal of the occurrence of the word in the document
+     * @param sectionNumber
+     *      The section number of the occurrence of the word
+     * @throws IllegalStateException
+     *      If the trie is frozen
      */
-    public void addOccurrence(String word, HashPair<Integer, Integer> occurrence, Integer sectionNumber) {
+    public void addOccurrence(String word, int lineNumber, int columnNumber, int position, int sectionNumber) {
+        if(this.frozen) {
+            throw new IllegalStateException("Trie is frozen");
+        }
+
         //Find longest prefix of word already in trie
         HashPair<OccurrenceTrieNode, Integer> longestPrefix = getLongestPrefixNode(word);
         int stringIndex = longestPrefix.getRightValue();
@@ -239,10 +864,10 @@ public class OccurrenceTrie {
 
         //Add additional letters to trie
         while(stringIndex < word.length()) {
-            reference = new OccurrenceTrieNode(word.charAt(stringIndex++), reference, true);
+            reference = reference.addChild(word.charAt(stringIndex++));
         }
 
         //Add occurrence and sectionNumber to end of word in trie
-        reference.addOccurrence(occurrence,sectionNumber);
+        reference.addOccurrence(lineNumber, columnNumber, position, sectionNumber);
     }
 }
@@ -1,29 +1,50 @@
 package comp3506.assn2.utils;
 
+import java.util.Arrays;
+
 /**
  * A trie node for storing occurrences of words in text
  *
+ * Children are stored adaptively. Nodes with few children keep them in small arrays sorted by letter.
+ * Once a node has more than SMALL_CHILDREN_LIMIT children (typically nodes near the root) it is promoted:
+ * children in the alphabet a-z, 0-9 and ' are also indexed by a direct table of ALPHABET_SIZE slots, and
+ * any other letters (e.g. non-ASCII) by a fallback IntObjectMap.
+ *
  * @bigO
  *      O(numOccurrences + numSections) space complexity: O(numOccurrences + numSections + numChildren), however
- *          numChildren is limited to 27 hence O(numOccurrences + numSections)
+ *          numChildren is limited to 37 for the document alphabet hence O(numOccurrences + numSections).
+ *          Occurrences are stored as primitive Postings, which are only allocated for nodes that terminate a word,
+ *          and child arrays are only allocated for nodes with children
  * @author Sam Eadie <s.eadie@uq.edu.au>
  */
 public class OccurrenceTrieNode {
     protected final static int INITIAL_CHILDREN_SPACE = 4;
     private final static int INITIAL_OCCURRENCES_SPACE = 2;
 
+    //Number of children above which a node indexes its children by a direct table
+    protected final static int SMALL_CHILDREN_LIMIT = 8;
+    //a-z, 0-9 and '
+    protected final static int ALPHABET_SIZE = 37;
+
     private char value;
     private boolean isWord;
 
-    private ArrayList<OccurrenceTrieNode> children;
-    private OccurrenceTrieNode parent;
+    //Children sorted by letter, allocated when the first child is added
+    private char[] childLetters;
+    private OccurrenceTrieNode[] children;
+    private int numChildren;
+    private int initialChildrenSpace;
 
-    //Occurrences of the word terminating at this node in the form HashPair<lineNumber, columnNumber>
-	private ArrayList<HashPair<Integer, Integer>> occurrences;
+    //Indexes of promoted nodes: direct table for the document alphabet, IntObjectMap for all other letters
+    private OccurrenceTrieNode[] childTable;
+    private IntObjectMap<OccurrenceTrieNode> otherChildren;
 
-	//Section numbers occurences of this word occur in
-	private ArrayList<Integer> sectionNumbers;
-	private HashSet<Integer> sectionSet;
+    private OccurrenceTrieNode parent;
+
+    //Occurrences of the word terminating at this node, null until the first occurrence is added
+	private Postings occurrences;
+    //Compressed occurrences once the trie is compressed, in which case occurrences is null
+    private CompressedPostings compressed;
 
     /**
      * Constructor for OccurrenceTrieNode
@@ -41,11 +62,10 @@ public class OccurrenceTrieNode {
 	public OccurrenceTrieNode(char value, OccurrenceTrieNode parent, boolean isWord, int initialChildrenSpace) {
         this.value = value;
         this.parent = parent;
-        this.children = new ArrayList<>(initialChildrenSpace);
+        this.initialChildrenSpace = initialChildrenSpace;
+        this.numChildren = 0;
         this.isWord = isWord;
-		this.occurrences = new ArrayList<>(INITIAL_OCCURRENCES_SPACE);
-		this.sectionNumbers = new ArrayList<>();
-		this.sectionSet = new HashSet<>();
+		this.occurrences = null;
 	}
 
     /**
@@ -91,60 +111,170 @@ public class OccurrenceTrieNode {
      * Returns all occurrences of the word terminated by this OccurrenceTrieNode
      *
      * @bigO
-     *      O(1): constant time access to variable reference
+     *      O(1): constant time access to variable reference, O(numOccurrences) if compressed. Nodes only exist
+     *      until their trie is frozen, which decodes each compressed node once, so queries of a frozen trie never
+     *      decode here
      *
      * @return
-     *      A list of occurrences of this word as HashPairs of line number and
-     *      initial column number
+     *      The postings of this word: line numbers, initial column numbers and the sections
+     *      they occur in. The postings are a view of this node's storage, not a copy, unless compressed
      */
-    public ArrayList<HashPair<Integer, Integer>> getOccurrences() {
+    public Postings getOccurrences() {
+        if(this.compressed != null) {
+            return this.compressed.decode();
+        }
+
+        if(this.occurrences == null) {
+            return Postings.EMPTY;
+        }
+
         return this.occurrences;
     }
 
     /**
-     * Returns a HashSet of all sections the word terminating in this node occurs at
+     * Returns the number of occurrences of the word terminated by this OccurrenceTrieNode, without decoding them
      *
      * @bigO
-     *      O(1): constant time access to variable reference
+     *      O(1): returns stored size
      *
      * @return
-     *      A HashSet of all sections this word occurs in
+     *      The number of occurrences, 0 if this node terminates no word
+     */
+    public int getNumOccurrences() {
+        if(this.compressed != null) {
+            return this.compressed.size();
+        }
+        return (this.occurrences == null) ? 0 : this.occurrences.size();
+    }
+
+    /**
+     * Returns a cursor over the line numbers of the occurrences of the word terminated by this node, which
+     * decodes compressed occurrences one block at a time
+     *
+     * @bigO
+     *      O(1): creates cursor in constant time
      *
+     * @return
+     *      A cursor at the first occurrence
      */
-    public HashSet<Integer> getSectionSet() { return this.sectionSet; }
+    public LineCursor getLineCursor() {
+        if(this.compressed != null) {
+            return this.compressed.cursor();
+        }
+
+        return getOccurrences().cursor();
+    }
 
     /**
-     * Returns an ArrayList of section numbers with corresponding indices to the
-     * occurences of this node
+     * Replaces the occurrences of this node with their compressed encoding
      *
      * @bigO
-     *      O(1): constant time access to variable reference
+     *      O(numOccurrences + numSections): encodes every occurrence once
+     */
+    public void compress() {
+        if(this.occurrences != null) {
+            this.compressed = CompressedPostings.encode(this.occurrences);
+            this.occurrences = null;
+        }
+    }
+
+    /**
+     * Returns the compressed occurrences of this node
+     *
+     * @bigO
+     *      O(1): returns stored reference
      *
      * @return
-     *      A list of section numbers the occurrences of this node occur in
+     *      The compressed occurrences, else null if the occurrences are not compressed
      */
-    public ArrayList<Integer> getSectionNumbers() {
-        return sectionNumbers;
+    CompressedPostings getCompressedOccurrences() {
+        return this.compressed;
     }
 
     /**
-     * Adds an occurence to the node
+     * Returns true iff the occurrences of this node are compressed
      *
      * @bigO
-     *      O(1): ArrayList append and HashSet put occur in constant time
+     *      O(1): constant time comparison
+     *
+     * @return
+     *      True iff the occurrences are compressed, else false
+     */
+    public boolean isCompressed() {
+        return this.compressed != null;
+    }
+
+    /**
+     * Adds an occurence to the node. Occurrences must be added in document order
      *
-     * @param occurrence
-     *      A lineNumber, columnNumber pair denoting the occurrence
+     * @bigO
+     *      O(1): amortised constant time append to the postings
+     *
+     * @param lineNumber
+     *      The line number of the occurrence
+     * @param columnNumber
+     *      The column number the occurrence starts at
+     * @param position
+     *      The ordinal of the occurrence's word in the document
      * @param sectionNumber
      *      The sectionNumber the word terminated by this node occured in
      */
-	public void addOccurrence(HashPair<Integer, Integer> occurrence, Integer sectionNumber) {
-	    if(occurrence != null) {
-            this.setIsWord(true);
-            this.occurrences.append(occurrence);
-            this.sectionNumbers.append(sectionNumber);
-            this.sectionSet.put(sectionNumber);
+	public void addOccurrence(int lineNumber, int columnNumber, int position, int sectionNumber) {
+        //Appending to compressed occurrences decompresses them
+        if(this.compressed != null) {
+            this.occurrences = this.compressed.decode();
+            this.compressed = null;
+        }
+
+	    if(this.occurrences == null) {
+	        this.occurrences = new Postings(INITIAL_OCCURRENCES_SPACE);
+        }
+
+        this.setIsWord(true);
+        this.occurrences.add(lineNumber, columnNumber, position, sectionNumber);
+    }
+
+    /**
+     * Appends the occurrences of the same word from a trie built over a later part of the document
+     *
+     * @bigO
+     *      O(other.size()): amortised constant time append of every occurrence
+     *
+     * @param other
+     *      The occurrences to append, all after the occurrences of this node
+     * @param positionOffset
+     *      The number of words in the document before the part other was built from
+     */
+    void appendOccurrences(Postings other, int positionOffset) {
+        if(other.size() == 0) {
+            return;
+        }
+
+        if(this.compressed != null) {
+            this.occurrences = this.compressed.decode();
+            this.compressed = null;
         }
+
+        if(this.occurrences == null) {
+            this.occurrences = new Postings(other.size());
+        }
+
+        this.setIsWord(true);
+        this.occurrences.extend(other, positionOffset);
+    }
+
+    /**
+     * Replaces the occurrences of this node, used when loading a trie rather than building it
+     *
+     * @bigO
+     *      O(1): constant time value assignment
+     *
+     * @param occurrences
+     *      The postings of the word terminated by this node
+     */
+    void setOccurrences(Postings occurrences) {
+        this.occurrences = occurrences;
+        this.compressed = null;
     }
 
     /**
@@ -158,14 +288,66 @@ public class OccurrenceTrieNode {
      */
     public OccurrenceTrieNode getParent() {return this.parent;}
 
+    /**
+     * Returns the slot of the letter in the direct child table, else -1 if the letter
+     * is not in the document alphabet
+     *
+     * @bigO
+     *      O(1): constant time comparisons
+     *
+     * @param letter
+     *      The letter to find the slot of
+     * @return
+     *      The slot of the letter, else -1
+     */
+    protected static int alphabetSlot(char letter) {
+        if((letter >= 'a') && (letter <= 'z')) {
+            return letter - 'a';
+        } else if((letter >= '0') && (letter <= '9')) {
+            return 26 + (letter - '0');
+        } else if(letter == '\'') {
+            return 36;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the letter in the sorted children, else -i-1 where i is
+     * the index the letter would be inserted at
+     *
+     * @bigO
+     *      O(log(numChildren)): binary search of the sorted child letters
+     *
+     * @param letter
+     *      The letter to search for
+     * @return
+     *      The index of the letter, or its insertion point
+     */
+    private int findChildIndex(char letter) {
+        int leftPointer = 0;
+        int rightPointer = this.numChildren - 1;
+
+        while(leftPointer <= rightPointer) {
+            int middlePointer = (leftPointer + rightPointer) >>> 1;
+
+            if(this.childLetters[middlePointer] < letter) {
+                leftPointer = middlePointer + 1;
+            } else if(this.childLetters[middlePointer] > letter) {
+                rightPointer = middlePointer - 1;
+            } else {
+                return middlePointer;
+            }
+        }
+
+        return -leftPointer - 1;
+    }
+
     /**
      * Returns the child of this node with the specified letter
      *
      * @bigO
-     *      O(numChildren): searches children for letter, .getValue() runs in O(1)
-     *      likewise character comparison is constant time. Could be implemented using
-     *      the HashMap but maximum numChildren is 27 (alphabet + ') so linear runtime i
-     *      sn't too bad here
+     *      O(1) for promoted nodes: direct table access, or IntObjectMap lookup for letters outside the
+     *      document alphabet. O(log(numChildren)) otherwise, numChildren is at most SMALL_CHILDREN_LIMIT
      *
      * @param letter
      *      The value of the child node
@@ -173,24 +355,41 @@ public class OccurrenceTrieNode {
      *      The node's child with specified letter, else null
      */
     public OccurrenceTrieNode getChild(char letter) {
-        for(int i = 0; i < this.children.size(); i++) {
-            if(this.children.get(i).getValue() == letter) {
-                return this.children.get(i);
+        if(this.childTable != null) {
+            int slot = alphabetSlot(letter);
+            if(slot >= 0) {
+                return this.childTable[slot];
             }
+            return this.otherChildren.get(letter);
         }
-        return null;
+
+        int index = findChildIndex(letter);
+        return (index >= 0) ? this.children[index] : null;
     }
 
     /**
-     * Returns the children of this node
+     * Returns the number of children of this node
      *
      * @bigO
-     *      O(1): returns stored reference in constant time
+     *      O(1): returns stored value in constant time
      *
      * @return
-     *      An array of children OccurrenceTrieNodes
+     *      The number of children of this node
      */
-    public ArrayList<OccurrenceTrieNode> getChildren() { return children; }
+    public int getNumChildren() { return this.numChildren; }
+
+    /**
+     * Returns the i'th child of this node, children are ordered by letter
+     *
+     * @bigO
+     *      O(1): array access in constant time
+     *
+     * @param i
+     *      The index of the child, 0 <= i < getNumChildren()
+     * @return
+     *      The i'th child of this node
+     */
+    public OccurrenceTrieNode getChildAt(int i) { return this.children[i]; }
 
     /**
      * Returns if this node marks the end of a valid word
@@ -220,10 +419,9 @@ public class OccurrenceTrieNode {
      * returns the child node who's letter is the specified value
      *
      * @bigO
-     *      O(numChildren): checks all children for letter corresponding to
-     *      specified value. Array access and append run in O(1). Could be
-     *      implemented in a HashMap to improve search time but numChildren
-     *      is confined to 27 (alphabet + ') so not too important
+     *      O(1) for existing children of promoted nodes, see getChild. Otherwise O(numChildren):
+     *      inserting a new child shifts the larger letters along one place, numChildren is confined
+     *      to 37 for the document alphabet
      *
      * @param value
      *      The value of the child node
@@ -232,19 +430,75 @@ public class OccurrenceTrieNode {
      */
     public OccurrenceTrieNode addChild(char value) {
         //If value already a child, return child
-        for(int i = 0; i < this.children.size(); i++) {
-            if (this.children.get(i).getValue() == value) {
-                return this.children.get(i);
-            }
+        OccurrenceTrieNode existingChild = getChild(value);
+        if(existingChild != null) {
+            return existingChild;
         }
 
-        //Add child with value to children
         OccurrenceTrieNode newChild = new OccurrenceTrieNode(value, this, false);
-        this.children.append(newChild);
+
+        //Allocate more memory if required
+        if(this.children == null) {
+            int capacity = Math.max(1, this.initialChildrenSpace);
+            this.childLetters = new char[capacity];
+            this.children = new OccurrenceTrieNode[capacity];
+        } else if(this.numChildren == this.children.length) {
+            this.childLetters = Arrays.copyOf(this.childLetters, this.numChildren * 2);
+            this.children = Arrays.copyOf(this.children, this.numChildren * 2);
+        }
+
+        //Insert child in letter order
+        int index = -findChildIndex(value) - 1;
+        java.lang.System.arraycopy(this.childLetters, index, this.childLetters, index + 1, this.numChildren - index);
+        java.lang.System.arraycopy(this.children, index, this.children, index + 1, this.numChildren - index);
+        this.childLetters[index] = value;
+        this.children[index] = newChild;
+        this.numChildren++;
+
+        if(this.childTable != null) {
+            indexChild(newChild);
+        } else if(this.numChildren > SMALL_CHILDREN_LIMIT) {
+            promote();
+        }
 
         return newChild;
     }
 
+    /**
+     * Builds the direct child table and fallback IntObjectMap indexing all children
+     *
+     * @bigO
+     *      O(numChildren): indexes every child in constant time
+     */
+    private void promote() {
+        this.childTable = new OccurrenceTrieNode[ALPHABET_SIZE];
+        this.otherChildren = new IntObjectMap<>(INITIAL_CHILDREN_SPACE);
+
+        for(int i = 0; i < this.numChildren; i++) {
+            indexChild(this.children[i]);
+        }
+    }
+
+    /**
+     * Adds the child to the direct child table, or the fallback IntObjectMap if its letter
+     * is outside the document alphabet
+     *
+     * @bigO
+     *      O(1): array assignment, or average case constant time IntObjectMap put
+     *
+     * @param child
+     *      The child to index
+     */
+    private void indexChild(OccurrenceTrieNode child) {
+        int slot = alphabetSlot(child.getValue());
+
+        if(slot >= 0) {
+            this.childTable[slot] = child;
+        } else {
+            this.otherChildren.put(child.getValue(), child);
+        }
+    }
+
     /**
      * Returns the string representation of this OccurrenceTrieNode
      *
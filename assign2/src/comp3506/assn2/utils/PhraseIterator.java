@@ -0,0 +1,118 @@
+package comp3506.assn2.utils;
+
+/**
+ * Streams the occurrences of a phrase from the postings of its words. The words must occur at consecutive word
+ * positions, candidates are driven by the rarest word and the other words' postings are galloped forward to the
+ * positions the candidates require. Each occurrence is found when it is requested, so a caller that stops early
+ * does not pay for the rest of the phrase's occurrences.
+ *
+ * @bigO
+ *      O(numWords) space complexity: an index into each word's postings
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class PhraseIterator implements OccurrenceIterator {
+
+    private final ArrayList<Postings> wordOccurrences;
+    private final int rarest;
+
+    //Index into each word's postings, only ever moved forward
+    private final int[] cursors;
+
+    //Index of the next candidate in the rarest word's postings
+    private int candidate = 0;
+
+    //Index into the first word's postings of the next occurrence, NO_MORE_LINES once finished, else -1 if not found
+    private int next = -1;
+
+    //Index into the first word's postings of the current occurrence
+    private int current = -1;
+
+    /**
+     * Initialises an iterator over the occurrences of a phrase
+     *
+     * @bigO
+     *      O(numWords): allocates the cursors
+     *
+     * @param wordOccurrences
+     *      The postings of each word of the phrase, in phrase order
+     * @param rarest
+     *      The index of the word with the fewest occurrences
+     */
+    public PhraseIterator(ArrayList<Postings> wordOccurrences, int rarest) {
+        this.wordOccurrences = wordOccurrences;
+        this.rarest = rarest;
+        this.cursors = new int[wordOccurrences.size()];
+    }
+
+    /**
+     * Moves through the rarest word's occurrences until one starts the phrase
+     *
+     * @bigO
+     *      O(numWords * log(maxOccurrences / minOccurrences)) per candidate examined: seeks every other word's
+     *      postings forward
+     */
+    private void findNext() {
+        Postings rarestOccurrences = this.wordOccurrences.get(this.rarest);
+
+        candidates:
+        while(this.candidate < rarestOccurrences.size()) {
+            int i = this.candidate++;
+            int start = rarestOccurrences.getPosition(i) - this.rarest;
+            if(start < 0) {
+                continue;
+            }
+
+            for(int j = 0; j < this.wordOccurrences.size(); j++) {
+                if(j == this.rarest) {
+                    continue;
+                }
+
+                Postings occurrences = this.wordOccurrences.get(j);
+                this.cursors[j] = occurrences.seekPosition(start + j, this.cursors[j]);
+
+                //Word j has no more occurrences, so there are no more phrases
+                if(this.cursors[j] == occurrences.size()) {
+                    break candidates;
+                }
+                if(occurrences.getPosition(this.cursors[j]) != start + j) {
+                    continue candidates;
+                }
+            }
+
+            //Phrase occurs at start, report where its first word is
+            this.next = (this.rarest == 0) ? i : this.cursors[0];
+            return;
+        }
+
+        this.next = LineCursor.NO_MORE_LINES;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(this.next == -1) {
+            findNext();
+        }
+        return this.next != LineCursor.NO_MORE_LINES;
+    }
+
+    @Override
+    public void next() {
+        if(!hasNext()) {
+            throw new java.util.NoSuchElementException();
+        }
+
+        this.current = this.next;
+        this.next = -1;
+    }
+
+    @Override
+    public int getLine() {
+        return this.wordOccurrences.get(0).getLine(this.current);
+    }
+
+    @Override
+    public int getColumn() {
+        return this.wordOccurrences.get(0).getColumn(this.current);
+    }
+}
@@ -0,0 +1,766 @@
+package comp3506.assn2.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The occurrences (postings) of a word, stored as primitive line, column and position arrays in the order they were
+ * added. The position of an occurrence is the ordinal of the word in the document, so consecutive words of a phrase
+ * have consecutive positions even across line breaks.
+ * Section numbers are stored as runs: the postings in [getSectionStart(r), getSectionEnd(r)) all occur in
+ * section getSectionId(r). Postings are added in document order, so line numbers and section ids are ascending.
+ *
+ * Instances returned from the trie are views of the trie's own arrays and are read-only outside this package. A
+ * view covers the occurrences [start, start + size) of arrays shared with the other terms of a frozen trie, and the
+ * runs [runOffset, runOffset + numRuns) of its run arrays, whose run starts index the shared arrays. Postings
+ * appended to, see append, share their arrays with the postings they were appended to, each reading only its own
+ * prefix of them.
+ *
+ * @bigO
+ *      O(numOccurrences + numSections) space complexity: three ints per occurrence and two ints per section run
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class Postings {
+
+    private final static int INITIAL_CAPACITY = 2;
+    private final static int RESIZING_FACTOR = 2;
+
+    //An empty list of postings, shared by all lookups of words not in the trie
+    public final static Postings EMPTY = new Postings(0);
+
+    //Estimated bytes of an object or array header, for estimating memory use
+    final static int ESTIMATED_HEADER_BYTES = 16;
+
+    private int[] lines;
+    private int[] columns;
+    private int[] positions;
+    private int start;
+    private int size;
+
+    //Section runs: run r starts at index runStarts[runOffset + r] of the arrays and lies in section
+    //sectionIds[runOffset + r]
+    private int[] sectionIds;
+    private int[] runStarts;
+    private int runOffset;
+    private int numRuns;
+
+    //Whether the arrays are shared with other postings, which are then read-only
+    private boolean view;
+
+    //Number of occurrences written to the arrays by every postings appending to them, else null if they are not
+    //appended to in place
+    private AtomicInteger claimed;
+
+    //Length of the longest section run, else -1 if not yet computed
+    private int maxSectionFrequency = -1;
+
+    //The sections of the runs, else null if not yet computed. Volatile so the array is published whole
+    private volatile SectionBitmap sectionBitmap;
+
+    /**
+     * Initialises empty postings with specified initial capacity
+     *
+     * @bigO
+     *      O(initialCapacity): array initialisation
+     *
+     * @param initialCapacity
+     *      The initial number of occurrences that can be stored without resizing
+     */
+    public Postings(int initialCapacity) {
+        this.lines = new int[initialCapacity];
+        this.columns = new int[initialCapacity];
+        this.positions = new int[initialCapacity];
+        this.sectionIds = new int[initialCapacity == 0 ? 0 : 1];
+        this.runStarts = new int[initialCapacity == 0 ? 0 : 1];
+        this.size = 0;
+        this.numRuns = 0;
+    }
+
+    /**
+     * Initialises postings over existing arrays, which are not copied
+     *
+     * @bigO
+     *      O(1): value assignment in constant time
+     *
+     * @param lines
+     *      The line numbers of the occurrences, at least size long
+     * @param columns
+     *      The column numbers of the occurrences, at least size long
+     * @param positions
+     *      The ascending word positions of the occurrences, at least size long
+     * @param size
+     *      The number of occurrences
+     * @param sectionIds
+     *      The section number of each run, at least numRuns long
+     * @param runStarts
+     *      The index of the first occurrence of each run, at least numRuns long
+     * @param numRuns
+     *      The number of section runs
+     */
+    Postings(int[] lines, int[] columns, int[] positions, int size, int[] sectionIds, int[] runStarts, int numRuns) {
+        this.lines = lines;
+        this.columns = columns;
+        this.positions = positions;
+        this.size = size;
+        this.sectionIds = sectionIds;
+        this.runStarts = runStarts;
+        this.numRuns = numRuns;
+    }
+
+    /**
+     * Initialises read-only postings over a range of arrays shared with other postings, which are not copied
+     *
+     * @bigO
+     *      O(1): value assignment in constant time
+     *
+     * @param lines
+     *      The line numbers of the occurrences of every postings sharing the arrays
+     * @param columns
+     *      The column numbers of the occurrences
+     * @param positions
+     *      The word positions of the occurrences
+     * @param start
+     *      The index of the first occurrence of these postings in the arrays
+     * @param size
+     *      The number of occurrences
+     * @param sectionIds
+     *      The section number of each run of every postings sharing the arrays
+     * @param runStarts
+     *      The index in the occurrence arrays of the first occurrence of each run
+     * @param runOffset
+     *      The index of the first run of these postings in the run arrays
+     * @param numRuns
+     *      The number of section runs
+     */
+    Postings(int[] lines, int[] columns, int[] positions, int start, int size, int[] sectionIds, int[] runStarts,
+             int runOffset, int numRuns) {
+        this(lines, columns, positions, size, sectionIds, runStarts, numRuns);
+        this.start = start;
+        this.runOffset = runOffset;
+        this.view = true;
+    }
+
+    /**
+     * Returns true iff the specified postings are a view of the occurrences and runs immediately after these in the
+     * same arrays, so the two can be read as one range
+     *
+     * @bigO
+     *      O(1): constant time comparisons
+     *
+     * @param next
+     *      The postings to check
+     * @return
+     *      True iff next continues these postings' arrays, else false
+     */
+    boolean isFollowedBy(Postings next) {
+        return this.view && next.view && (this.lines == next.lines) && (this.sectionIds == next.sectionIds)
+                && (this.start + this.size == next.start) && (this.runOffset + this.numRuns == next.runOffset);
+    }
+
+    /**
+     * Returns a view of the occurrences and runs of consecutive postings, from these to last, which must follow
+     * each other in the same arrays: see isFollowedBy
+     *
+     * @bigO
+     *      O(1): constant time initialisation
+     *
+     * @param last
+     *      The last of the consecutive postings
+     * @return
+     *      The postings of the whole range, in the order of the arrays
+     */
+    Postings through(Postings last) {
+        return new Postings(this.lines, this.columns, this.positions, this.start, last.start + last.size - this.start,
+                this.sectionIds, this.runStarts, this.runOffset, last.runOffset + last.numRuns - this.runOffset);
+    }
+
+    /**
+     * Initialises empty postings with default initial capacity
+     *
+     * @bigO
+     *      O(1): calls constant time constructor
+     */
+    public Postings() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the number of occurrences
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of occurrences
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the line number of the i'th occurrence
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param i
+     *      The index of the occurrence
+     * @return
+     *      The line number of the occurrence
+     */
+    public int getLine(int i) {
+        return this.lines[this.start + i];
+    }
+
+    /**
+     * Returns the column number of the i'th occurrence
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param i
+     *      The index of the occurrence
+     * @return
+     *      The column number of the occurrence
+     */
+    public int getColumn(int i) {
+        return this.columns[this.start + i];
+    }
+
+    /**
+     * Returns the word position of the i'th occurrence
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param i
+     *      The index of the occurrence
+     * @return
+     *      The ordinal of the occurrence's word in the document
+     */
+    public int getPosition(int i) {
+        return this.positions[this.start + i];
+    }
+
+    /**
+     * Returns a cursor over the line numbers of these postings
+     *
+     * @bigO
+     *      O(1): constant time initialisation
+     *
+     * @return
+     *      A cursor at the first occurrence
+     */
+    public LineCursor cursor() {
+        return new PostingsCursor();
+    }
+
+    /**
+     * Cursor over the line numbers of the postings, seeking with gallop
+     */
+    private class PostingsCursor implements LineCursor {
+        private int index = 0;
+
+        @Override
+        public int line() {
+            return (this.index < Postings.this.size) ? getLine(this.index) : NO_MORE_LINES;
+        }
+
+        @Override
+        public int advance(int target) {
+            this.index = seekLine(target, this.index);
+            return line();
+        }
+
+        @Override
+        public int size() {
+            return Postings.this.size;
+        }
+    }
+
+    /**
+     * Returns an iterator over the (line, column) of every occurrence, in order
+     *
+     * @bigO
+     *      O(1): constant time initialisation
+     *
+     * @return
+     *      An iterator before the first occurrence
+     */
+    public OccurrenceIterator iterator() {
+        return new PostingsIterator(0, this.size);
+    }
+
+    /**
+     * Returns an iterator over the (line, column) of the occurrences in the specified section, in order, so they
+     * can be consumed without creating an object per occurrence
+     *
+     * @bigO
+     *      O(1) after the first call: calls findSection
+     *
+     * @param sectionId
+     *      The section number to iterate over occurrences in
+     * @return
+     *      An iterator before the first occurrence in the section, which has none if the section has no occurrences
+     */
+    public OccurrenceIterator iterateSection(int sectionId) {
+        int run = findSection(sectionId);
+        if(run < 0) {
+            return new PostingsIterator(0, 0);
+        }
+        return new PostingsIterator(getSectionStart(run), getSectionEnd(run));
+    }
+
+    /**
+     * Iterator over the occurrences of the postings in [start, end)
+     */
+    private class PostingsIterator implements OccurrenceIterator {
+        private final int end;
+        private int index;
+
+        PostingsIterator(int start, int end) {
+            this.index = start - 1;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.index + 1 < this.end;
+        }
+
+        @Override
+        public void next() {
+            if(!hasNext()) {
+                throw new java.util.NoSuchElementException();
+            }
+            this.index++;
+        }
+
+        @Override
+        public int getLine() {
+            return Postings.this.getLine(this.index);
+        }
+
+        @Override
+        public int getColumn() {
+            return Postings.this.getColumn(this.index);
+        }
+    }
+
+    /**
+     * Returns the index of the first occurrence at or after index from whose position is at least the specified
+     * position, else size() if there is none
+     *
+     * @bigO
+     *      O(log(d)) where d is the number of occurrences skipped: calls gallop
+     *
+     * @param position
+     *      The word position to seek to
+     * @param from
+     *      The index to start seeking from
+     * @return
+     *      The index of the first occurrence from index from with position >= position, else size()
+     */
+    public int seekPosition(int position, int from) {
+        return gallop(this.positions, this.start, this.size, position, from);
+    }
+
+    /**
+     * Returns the index of the first occurrence at or after index from whose line number is at least the
+     * specified line, else size() if there is none
+     *
+     * @bigO
+     *      O(log(d)) where d is the number of occurrences skipped: calls gallop
+     *
+     * @param line
+     *      The line number to seek to
+     * @param from
+     *      The index to start seeking from
+     * @return
+     *      The index of the first occurrence from index from with line number >= line, else size()
+     */
+    public int seekLine(int line, int from) {
+        return gallop(this.lines, this.start, this.size, line, from);
+    }
+
+    /**
+     * Returns the first index i >= from with values[offset + i] >= value, else size. Gallops forward from index
+     * from before binary searching, so a sequence of seeks for ascending values costs little more than the distance
+     * moved.
+     *
+     * @bigO
+     *      O(log(d)) where d is the number of values skipped: doubling steps bound the target within 2d
+     *          values, then binary search
+     *
+     * @param values
+     *      Ascending values from offset, possibly with duplicates
+     * @param offset
+     *      The index in values of the first value
+     * @param size
+     *      The number of values
+     * @param value
+     *      The value to seek to
+     * @param from
+     *      The index to start seeking from
+     * @return
+     *      The index of the first value from index from that is at least value, else size
+     */
+    private static int gallop(int[] values, int offset, int size, int value, int from) {
+        if((from >= size) || (values[offset + from] >= value)) {
+            return from;
+        }
+
+        //Gallop: values[low] < value, find high with values[high] >= value or high >= size
+        int low = from;
+        int step = 1;
+        int high = from + 1;
+        while((high < size) && (values[offset + high] < value)) {
+            low = high;
+            step <<= 1;
+            high = low + step;
+        }
+        high = Math.min(high, size);
+
+        //Binary search (low, high]
+        while(low + 1 < high) {
+            int middle = (low + high) >>> 1;
+            if(values[offset + middle] < value) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+
+        return high;
+    }
+
+    /**
+     * Returns the number of section runs, which is the number of distinct sections for postings
+     * added in document order
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of section runs
+     */
+    public int getNumSections() {
+        return this.numRuns;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the postings: their arrays, at their current capacity, and headers.
+     * A view counts only its own range of the shared arrays
+     *
+     * @bigO
+     *      O(1): array lengths
+     *
+     * @return
+     *      The estimated number of bytes of the postings
+     */
+    public long getEstimatedBytes() {
+        if(this.view) {
+            return 12L * this.size + 8L * this.numRuns + ESTIMATED_HEADER_BYTES;
+        }
+        return 4L * (this.lines.length + this.columns.length + this.positions.length + this.sectionIds.length
+                + this.runStarts.length) + 6 * ESTIMATED_HEADER_BYTES;
+    }
+
+    /**
+     * Returns the section number of the specified run
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param run
+     *      The index of the section run
+     * @return
+     *      The section number all occurrences of the run lie in
+     */
+    public int getSectionId(int run) {
+        return this.sectionIds[this.runOffset + run];
+    }
+
+    /**
+     * Returns the index of the first occurrence in the specified run
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param run
+     *      The index of the section run
+     * @return
+     *      The index of the first occurrence in the run
+     */
+    public int getSectionStart(int run) {
+        return this.runStarts[this.runOffset + run] - this.start;
+    }
+
+    /**
+     * Returns the index one past the last occurrence in the specified run
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param run
+     *      The index of the section run
+     * @return
+     *      The exclusive end index of the occurrences in the run
+     */
+    public int getSectionEnd(int run) {
+        return (run + 1 < this.numRuns) ? getSectionStart(run + 1) : this.size;
+    }
+
+    /**
+     * Returns the run of the specified section, else -1 if no occurrence lies in the section. The runs are the
+     * postings grouped by section, so the run's [getSectionStart, getSectionEnd) is the section's offsets into the
+     * postings. The run is the rank of the section in the section bitmap
+     *
+     * @bigO
+     *      O(1) after the first call: a bit test and a rank of the section bitmap, see getSectionBitmap
+     *
+     * @param sectionId
+     *      The section number to find
+     * @return
+     *      The index of the section's run, else -1
+     */
+    public int findSection(int sectionId) {
+        SectionBitmap sections = getSectionBitmap();
+        return sections.contains(sectionId) ? sections.rank(sectionId) : -1;
+    }
+
+    /**
+     * Returns true iff an occurrence lies in the specified section
+     *
+     * @bigO
+     *      O(1) after the first call: calls findSection
+     *
+     * @param sectionId
+     *      The section number to query
+     * @return
+     *      True iff an occurrence lies in the section, else false
+     */
+    public boolean containsSection(int sectionId) {
+        return findSection(sectionId) >= 0;
+    }
+
+    /**
+     * Returns the index of the first run from the specified run whose section is at least sectionId, galloping
+     * forward so a sequence of ascending seeks costs the log of the distance each one skips
+     *
+     * @bigO
+     *      O(log(distance)): gallop then binary search, where distance is the number of runs skipped
+     *
+     * @param sectionId
+     *      The section number to seek to
+     * @param from
+     *      The index of the run to start seeking from
+     * @return
+     *      The index of the first run from index from whose section is at least sectionId, else getNumSections()
+     */
+    public int seekSection(int sectionId, int from) {
+        return gallop(this.sectionIds, this.runOffset, this.numRuns, sectionId, from);
+    }
+
+    /**
+     * Returns the set of sections the postings occur in, for combining the sections of several words with bitwise
+     * operations. Computed on first use and then kept. The set is shared, so callers must copy it before changing it
+     *
+     * @bigO
+     *      O(numSections + maxSection / 64) on first use, else O(1): see SectionBitmap.of
+     *
+     * @return
+     *      The sections of the postings
+     */
+    public SectionBitmap getSectionBitmap() {
+        SectionBitmap bitmap = this.sectionBitmap;
+        if(bitmap == null) {
+            bitmap = SectionBitmap.of(this);
+            this.sectionBitmap = bitmap;
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Returns the largest number of occurrences in one section. Computed on first use and then kept, which is safe
+     * without locking as every thread computes the same value
+     *
+     * @bigO
+     *      O(numSections) on first use, else O(1)
+     *
+     * @return
+     *      The length of the longest section run, else 0 if there are no occurrences
+     */
+    public int getMaxSectionFrequency() {
+        if(this.maxSectionFrequency < 0) {
+            int max = 0;
+            for(int run = 0; run < this.numRuns; run++) {
+                max = Math.max(max, getSectionEnd(run) - getSectionStart(run));
+            }
+            this.maxSectionFrequency = max;
+        }
+
+        return this.maxSectionFrequency;
+    }
+
+    /**
+     * Appends an occurrence. Occurrences must be appended in document order, and not to a view.
+     *
+     * @bigO
+     *      O(1): amortised constant time array append
+     *
+     * @param line
+     *      The line number of the occurrence
+     * @param column
+     *      The column number of the occurrence
+     * @param position
+     *      The word position of the occurrence
+     * @param sectionId
+     *      The section number of the occurrence
+     */
+    void add(int line, int column, int position, int sectionId) {
+        if(this.size == this.lines.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, this.size * RESIZING_FACTOR);
+            this.lines = Arrays.copyOf(this.lines, capacity);
+            this.columns = Arrays.copyOf(this.columns, capacity);
+            this.positions = Arrays.copyOf(this.positions, capacity);
+        }
+
+        //Start a new run when the section changes
+        if((this.numRuns == 0) || (this.sectionIds[this.numRuns - 1] != sectionId)) {
+            if(this.numRuns == this.sectionIds.length) {
+                int capacity = Math.max(1, this.numRuns * RESIZING_FACTOR);
+                this.sectionIds = Arrays.copyOf(this.sectionIds, capacity);
+                this.runStarts = Arrays.copyOf(this.runStarts, capacity);
+            }
+            this.sectionIds[this.numRuns] = sectionId;
+            this.runStarts[this.numRuns++] = this.size;
+        }
+
+        this.lines[this.size] = line;
+        this.columns[this.size] = column;
+        this.positions[this.size++] = position;
+        this.maxSectionFrequency = -1;
+        this.sectionBitmap = null;
+    }
+
+    /**
+     * Appends all occurrences of other to these postings
+     *
+     * @bigO
+     *      O(other.size()): performs O(1) append for every occurrence in other
+     *
+     * @param other
+     *      The postings to extend these postings with
+     */
+    void extend(Postings other) {
+        extend(other, 0);
+    }
+
+    /**
+     * Appends all occurrences of other to these postings, shifting their positions by the specified offset. Used to
+     * join postings built over consecutive parts of a document, whose positions start from 0 in each part
+     *
+     * @bigO
+     *      O(other.size()): performs O(1) append for every occurrence in other
+     *
+     * @param other
+     *      The postings to extend these postings with
+     * @param positionOffset
+     *      The number of words in the document before the part other was built from
+     */
+    void extend(Postings other, int positionOffset) {
+        extend(other, positionOffset, 0);
+    }
+
+    /**
+     * Appends all occurrences of other to these postings, shifting their positions and line numbers by the
+     * specified offsets. Used to append postings built over lines added to the end of a document, whose lines and
+     * positions start from the beginning of the added lines
+     *
+     * @bigO
+     *      O(other.size()): performs O(1) append for every occurrence in other
+     *
+     * @param other
+     *      The postings to extend these postings with
+     * @param positionOffset
+     *      The number of words in the document before the part other was built from
+     * @param lineOffset
+     *      The number of lines in the document before the part other was built from
+     */
+    void extend(Postings other, int positionOffset, int lineOffset) {
+        for(int run = 0; run < other.numRuns; run++) {
+            for(int i = other.getSectionStart(run); i < other.getSectionEnd(run); i++) {
+                add(other.getLine(i) + lineOffset, other.getColumn(i), other.getPosition(i) + positionOffset,
+                        other.getSectionId(run));
+            }
+        }
+    }
+
+    /**
+     * Returns postings of these occurrences followed by the occurrences of tail, shifted by the specified offsets,
+     * leaving these postings unchanged. The tail is written to the spare capacity of the arrays of these postings
+     * when no other postings has already written there, so the returned postings share their arrays with these,
+     * which only read their own prefix. Otherwise these occurrences are copied to new arrays with room to grow, so
+     * appending repeatedly copies each occurrence an amortised constant number of times
+     *
+     * @bigO
+     *      O(tail.size()) amortised: the tail is appended in place, else O(size() + tail.size()) when copied
+     *
+     * @param tail
+     *      The postings to follow these, with ascending line numbers, positions and section ids
+     * @param positionOffset
+     *      The number of words in the document before the part tail was built from
+     * @param lineOffset
+     *      The number of lines in the document before the part tail was built from
+     * @return
+     *      The postings of both
+     */
+    Postings append(Postings tail, int positionOffset, int lineOffset) {
+        int size = this.size + tail.size;
+        int numRuns = this.numRuns + tail.numRuns;
+        Postings appended;
+
+        //Claiming the capacity after these occurrences succeeds at most once, so no two versions write there
+        if((this.claimed != null) && (size <= this.lines.length) && (numRuns <= this.sectionIds.length)
+                && this.claimed.compareAndSet(this.size, size)) {
+            appended = new Postings(this.lines, this.columns, this.positions, this.size, this.sectionIds,
+                    this.runStarts, this.numRuns);
+            appended.claimed = this.claimed;
+        } else {
+            appended = new Postings(RESIZING_FACTOR * size);
+            appended.sectionIds = new int[RESIZING_FACTOR * numRuns];
+            appended.runStarts = new int[appended.sectionIds.length];
+            appended.extend(this);
+            appended.claimed = new AtomicInteger(size);
+        }
+
+        appended.extend(tail, positionOffset, lineOffset);
+        return appended;
+    }
+
+    /**
+     * Returns a string representation of the postings
+     *
+     * @bigO
+     *      O(N): visits every occurrence
+     *
+     * @return
+     *      A string of (line, column) pairs
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+
+        for(int i = 0; i < this.size; i++) {
+            if(i > 0) {
+                builder.append(", ");
+            }
+            builder.append('(').append(getLine(i)).append(", ").append(getColumn(i)).append(')');
+        }
+
+        return builder.append(']').toString();
+    }
+}
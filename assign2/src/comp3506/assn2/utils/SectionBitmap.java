@@ -0,0 +1,279 @@
+package comp3506.assn2.utils;
+
+import java.util.Arrays;
+
+/**
+ * A set of section numbers stored as a bitset, one bit per section packed into longs. The sections of a query's
+ * words are combined 64 sections at a time with word-wide AND, OR and AND NOT, so checking whether a section
+ * satisfies a query is a single bit test however many words the query has.
+ *
+ * The bitmap of a word's postings also records the number of sections before each long, so the rank of a section,
+ * which is the index of its run in the postings, is found in constant time.
+ *
+ * @bigO
+ *      O(maxSection / 64) space complexity: a long per 64 sections up to the largest section in the set
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class SectionBitmap {
+
+    private final static int ADDRESS_BITS = 6;
+    private final static int BITS_PER_WORD = 1 << ADDRESS_BITS;
+
+    private long[] bits;
+
+    //Number of sections in the longs before each long, else null if the set has changed since they were counted
+    private int[] ranks;
+
+    /**
+     * Initialises an empty set with room for the specified number of sections
+     *
+     * @bigO
+     *      O(numSections / 64): array initialisation
+     *
+     * @param numSections
+     *      The number of sections that can be added without resizing
+     */
+    public SectionBitmap(int numSections) {
+        this.bits = new long[(numSections + BITS_PER_WORD - 1) >>> ADDRESS_BITS];
+    }
+
+    /**
+     * Initialises a set over an existing array, which is not copied
+     *
+     * @bigO
+     *      O(1): value assignment in constant time
+     */
+    private SectionBitmap(long[] bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Returns the set of every section of a document
+     *
+     * @bigO
+     *      O(numSections / 64): fills every word
+     *
+     * @param numSections
+     *      The number of sections in the document
+     * @return
+     *      The set of sections [0, numSections)
+     */
+    public static SectionBitmap all(int numSections) {
+        SectionBitmap bitmap = new SectionBitmap(numSections);
+        Arrays.fill(bitmap.bits, -1L);
+
+        //Clear the bits past the last section
+        if((numSections & (BITS_PER_WORD - 1)) != 0) {
+            bitmap.bits[bitmap.bits.length - 1] = (1L << numSections) - 1;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Returns the set of sections the postings occur in
+     *
+     * @bigO
+     *      O(numSections of the postings + maxSection / 64): sets the bit of every section run
+     *
+     * @param occurrences
+     *      The postings to find the sections of
+     * @return
+     *      The sections of the postings
+     */
+    public static SectionBitmap of(Postings occurrences) {
+        int numRuns = occurrences.getNumSections();
+        SectionBitmap bitmap = new SectionBitmap((numRuns == 0) ? 0 : occurrences.getSectionId(numRuns - 1) + 1);
+
+        for(int run = 0; run < numRuns; run++) {
+            bitmap.add(occurrences.getSectionId(run));
+        }
+        bitmap.countRanks();
+        return bitmap;
+    }
+
+    /**
+     * Returns a copy of this set, which may be modified without changing this set
+     *
+     * @bigO
+     *      O(maxSection / 64): copies every word
+     *
+     * @return
+     *      A copy of the set
+     */
+    public SectionBitmap copy() {
+        return new SectionBitmap(this.bits.clone());
+    }
+
+    /**
+     * Adds a section to the set
+     *
+     * @bigO
+     *      O(1) amortised: sets a bit, growing the array if the section is past its end
+     *
+     * @param section
+     *      The section number to add
+     */
+    public void add(int section) {
+        int word = section >>> ADDRESS_BITS;
+        if(word >= this.bits.length) {
+            this.bits = Arrays.copyOf(this.bits, Math.max(word + 1, 2 * this.bits.length));
+        }
+        this.bits[word] |= 1L << section;
+        this.ranks = null;
+    }
+
+    /**
+     * Returns true iff the section is in the set
+     *
+     * @bigO
+     *      O(1): a bit test
+     *
+     * @param section
+     *      The section number to query
+     * @return
+     *      True iff the section is in the set, else false
+     */
+    public boolean contains(int section) {
+        int word = section >>> ADDRESS_BITS;
+        return (word < this.bits.length) && ((this.bits[word] & (1L << section)) != 0);
+    }
+
+    /**
+     * Keeps only the sections also in other (AND)
+     *
+     * @bigO
+     *      O(maxSection / 64): one AND per word
+     *
+     * @param other
+     *      The set to intersect with
+     */
+    public void and(SectionBitmap other) {
+        int common = Math.min(this.bits.length, other.bits.length);
+        for(int i = 0; i < common; i++) {
+            this.bits[i] &= other.bits[i];
+        }
+        Arrays.fill(this.bits, common, this.bits.length, 0L);
+        this.ranks = null;
+    }
+
+    /**
+     * Adds every section in other (OR)
+     *
+     * @bigO
+     *      O(maxSection / 64): one OR per word
+     *
+     * @param other
+     *      The set to unite with
+     */
+    public void or(SectionBitmap other) {
+        if(other.bits.length > this.bits.length) {
+            this.bits = Arrays.copyOf(this.bits, other.bits.length);
+        }
+        for(int i = 0; i < other.bits.length; i++) {
+            this.bits[i] |= other.bits[i];
+        }
+        this.ranks = null;
+    }
+
+    /**
+     * Removes every section in other (AND NOT)
+     *
+     * @bigO
+     *      O(maxSection / 64): one AND NOT per word
+     *
+     * @param other
+     *      The set of sections to remove
+     */
+    public void andNot(SectionBitmap other) {
+        int common = Math.min(this.bits.length, other.bits.length);
+        for(int i = 0; i < common; i++) {
+            this.bits[i] &= ~other.bits[i];
+        }
+        this.ranks = null;
+    }
+
+    /**
+     * Returns the number of sections in the set less than the specified section. For the bitmap of a word's
+     * postings this is the index of the section's run, if the section is in the set
+     *
+     * @bigO
+     *      O(1) for the bitmap of postings: a stored count and a bit count, else O(section / 64)
+     *
+     * @param section
+     *      The section number to rank
+     * @return
+     *      The number of sections in the set before the section
+     */
+    public int rank(int section) {
+        int word = Math.min(section >>> ADDRESS_BITS, this.bits.length);
+        int rank;
+
+        if(this.ranks != null) {
+            rank = this.ranks[word];
+        } else {
+            rank = 0;
+            for(int i = 0; i < word; i++) {
+                rank += Long.bitCount(this.bits[i]);
+            }
+        }
+
+        if(word < this.bits.length) {
+            rank += Long.bitCount(this.bits[word] & ((1L << section) - 1));
+        }
+        return rank;
+    }
+
+    /**
+     * Counts the sections before each long, so rank runs in constant time until the set changes
+     *
+     * @bigO
+     *      O(maxSection / 64): counts the bits of every word
+     */
+    private void countRanks() {
+        this.ranks = new int[this.bits.length + 1];
+        for(int i = 0; i < this.bits.length; i++) {
+            this.ranks[i + 1] = this.ranks[i] + Long.bitCount(this.bits[i]);
+        }
+    }
+
+    /**
+     * Returns the number of sections in the set
+     *
+     * @bigO
+     *      O(maxSection / 64): counts the bits of every word
+     *
+     * @return
+     *      The number of sections
+     */
+    public int size() {
+        int size = 0;
+        for(int i = 0; i < this.bits.length; i++) {
+            size += Long.bitCount(this.bits[i]);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the section numbers in the set in ascending order
+     *
+     * @bigO
+     *      O(maxSection / 64 + size): visits every word, then every set bit
+     *
+     * @return
+     *      The section numbers in the set
+     */
+    public int[] toArray() {
+        int[] sections = new int[size()];
+        int numFound = 0;
+
+        for(int i = 0; i < this.bits.length; i++) {
+            long word = this.bits[i];
+            while(word != 0) {
+                sections[numFound++] = (i << ADDRESS_BITS) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return sections;
+    }
+}
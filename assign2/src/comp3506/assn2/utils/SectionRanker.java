@@ -0,0 +1,339 @@
+package comp3506.assn2.utils;
+
+/**
+ * Ranks the sections of a document against a query of words with Okapi BM25. The term frequency of a word in a
+ * section is the length of its postings' run in that section, and the length of a section is its number of lines,
+ * from the section starts.
+ *
+ * The top k sections are found document-at-a-time with MaxScore: each word has an upper bound on the score it can
+ * add to any section, from its longest run and the shortest section. Once k sections are held in a bounded min-heap,
+ * the words whose bounds together cannot lift a section past the k-th best score are no longer used to find
+ * candidates, only galloped forward to score candidates found by the other words, and are skipped altogether once
+ * a candidate cannot reach the heap. Large OR queries of common and rare words then only visit the sections of the
+ * rare words once the heap fills.
+ *
+ * @bigO
+ *      O(numSections) space complexity: the length of every section
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class SectionRanker {
+
+    //BM25 term frequency saturation and length normalisation
+    public final static double K1 = 1.2;
+    public final static double B = 0.75;
+
+    private final int[] sectionLengths;
+    private final double averageLength;
+    private final int minLength;
+
+    /**
+     * Initialises a ranker over the sections of a document. Lines before the first section start belong to the
+     * first section, as they do in the index
+     *
+     * @bigO
+     *      O(numSections): computes the length of every section
+     *
+     * @param sectionStarts
+     *      The line number each section starts at, in order
+     * @param numLines
+     *      The number of lines in the document
+     */
+    public SectionRanker(ArrayList<Integer> sectionStarts, int numLines) {
+        int numSections = Math.max(1, sectionStarts.size());
+        this.sectionLengths = new int[numSections];
+
+        long totalLength = 0;
+        int minLength = Integer.MAX_VALUE;
+        for(int i = 0; i < numSections; i++) {
+            int start = (i == 0) ? 1 : sectionStarts.get(i);
+            int end = (i + 1 < sectionStarts.size()) ? sectionStarts.get(i + 1) : numLines + 1;
+
+            this.sectionLengths[i] = Math.max(1, end - start);
+            totalLength += this.sectionLengths[i];
+            minLength = Math.min(minLength, this.sectionLengths[i]);
+        }
+
+        this.averageLength = (double) totalLength / numSections;
+        this.minLength = minLength;
+    }
+
+    /**
+     * Returns the number of sections ranked
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of sections
+     */
+    public int getNumSections() {
+        return this.sectionLengths.length;
+    }
+
+    /**
+     * Returns the inverse document frequency of a word, with sections as documents
+     *
+     * @bigO
+     *      O(1): constant time arithmetic
+     *
+     * @param occurrences
+     *      The postings of the word
+     * @return
+     *      The BM25 idf of the word, which is positive
+     */
+    public double idf(Postings occurrences) {
+        int sectionFrequency = occurrences.getNumSections();
+        return Math.log(1 + (getNumSections() - sectionFrequency + 0.5) / (sectionFrequency + 0.5));
+    }
+
+    /**
+     * Returns the score a word adds to the section of the specified run
+     *
+     * @bigO
+     *      O(1): constant time arithmetic
+     *
+     * @param occurrences
+     *      The postings of the word
+     * @param idf
+     *      The idf of the word
+     * @param run
+     *      The index of the section run to score
+     * @return
+     *      The BM25 score of the word in the run's section
+     */
+    public double score(Postings occurrences, double idf, int run) {
+        int sectionId = occurrences.getSectionId(run);
+        int length = (sectionId < this.sectionLengths.length) ? this.sectionLengths[sectionId] : this.minLength;
+        return termScore(idf, occurrences.getSectionEnd(run) - occurrences.getSectionStart(run), length);
+    }
+
+    /**
+     * Returns the largest score a word can add to any section
+     *
+     * @bigO
+     *      O(numSections of the word) on the word's first query, else O(1): see Postings.getMaxSectionFrequency
+     *
+     * @param occurrences
+     *      The postings of the word
+     * @param idf
+     *      The idf of the word
+     * @return
+     *      An upper bound on the BM25 score of the word in any section
+     */
+    public double upperBound(Postings occurrences, double idf) {
+        return termScore(idf, occurrences.getMaxSectionFrequency(), this.minLength);
+    }
+
+    /**
+     * BM25 score of a term, increasing with frequency and decreasing with length
+     *
+     * @bigO
+     *      O(1): constant time arithmetic
+     */
+    private double termScore(double idf, int frequency, int length) {
+        double norm = K1 * (1 - B + B * length / this.averageLength);
+        return idf * frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    /**
+     * Returns the k sections with the highest BM25 scores for the words, sections containing none of the words are
+     * not returned. Sections are ordered by descending score, ties by ascending section number
+     *
+     * @bigO
+     *      O(numWords^2 + sum(numSectionsVisited) * (numWords + log(k)) + k * log(k)):
+     *          O(numWords^2): orders the words by upper bound, insertion sort as there are few words
+     *          O(sum(numSectionsVisited) * (numWords + log(k))): every candidate section is scored by the words
+     *              that can still lift it into the heap, each galloped forward, then possibly sifted into the heap.
+     *              Until the heap fills every section of every word is a candidate
+     *          O(k * log(k)): sorts the heap
+     *
+     * @param wordOccurrences
+     *      The postings of each word of the query
+     * @param k
+     *      The number of sections to return
+     * @return
+     *      Pairs of (section number, score) of the top k sections
+     */
+    public ArrayList<HashPair<Integer, Double>> topSections(ArrayList<Postings> wordOccurrences, int k) {
+        //Words that occur, ordered by ascending upper bound
+        Postings[] words = new Postings[wordOccurrences.size()];
+        double[] idfs = new double[words.length];
+        double[] bounds = new double[words.length];
+        int numWords = 0;
+
+        for(int i = 0; i < wordOccurrences.size(); i++) {
+            Postings occurrences = wordOccurrences.get(i);
+            if(occurrences.size() == 0) {
+                continue;
+            }
+
+            double idf = idf(occurrences);
+            double bound = upperBound(occurrences, idf);
+            int j = numWords++;
+            while((j > 0) && (bounds[j - 1] > bound)) {
+                words[j] = words[j - 1];
+                idfs[j] = idfs[j - 1];
+                bounds[j] = bounds[j - 1];
+                j--;
+            }
+            words[j] = occurrences;
+            idfs[j] = idf;
+            bounds[j] = bound;
+        }
+
+        //boundSums[i] is the largest score words [0, i) can add together
+        double[] boundSums = new double[numWords + 1];
+        for(int i = 0; i < numWords; i++) {
+            boundSums[i + 1] = boundSums[i] + bounds[i];
+        }
+
+        //Index of each word's current section run
+        int[] runs = new int[numWords];
+
+        //Min-heap of the best (score, section) found, the root is the worst
+        double[] heapScores = new double[Math.max(0, k)];
+        int[] heapSections = new int[heapScores.length];
+        int heapSize = 0;
+
+        //Score to beat once the heap is full, and the first word still used to find candidates
+        double threshold = Double.NEGATIVE_INFINITY;
+        int firstEssential = 0;
+
+        while((k > 0) && (firstEssential < numWords)) {
+            //Next candidate is the smallest section of the essential words
+            int candidate = Integer.MAX_VALUE;
+            for(int i = firstEssential; i < numWords; i++) {
+                if(runs[i] < words[i].getNumSections()) {
+                    candidate = Math.min(candidate, words[i].getSectionId(runs[i]));
+                }
+            }
+            if(candidate == Integer.MAX_VALUE) {
+                break;
+            }
+
+            double score = 0;
+            for(int i = firstEssential; i < numWords; i++) {
+                if((runs[i] < words[i].getNumSections()) && (words[i].getSectionId(runs[i]) == candidate)) {
+                    score += score(words[i], idfs[i], runs[i]++);
+                }
+            }
+
+            //Add non-essential words, strongest first, while the candidate can still beat the threshold
+            for(int i = firstEssential - 1; i >= 0; i--) {
+                if(score + boundSums[i + 1] <= threshold) {
+                    break;
+                }
+
+                runs[i] = words[i].seekSection(candidate, runs[i]);
+                if((runs[i] < words[i].getNumSections()) && (words[i].getSectionId(runs[i]) == candidate)) {
+                    score += score(words[i], idfs[i], runs[i]);
+                }
+            }
+
+            //Keep the candidate if it beats the worst of the heap
+            if(heapSize < k) {
+                heapScores[heapSize] = score;
+                heapSections[heapSize] = candidate;
+                siftUp(heapScores, heapSections, heapSize++);
+            } else if(score > threshold) {
+                heapScores[0] = score;
+                heapSections[0] = candidate;
+                siftDown(heapScores, heapSections, heapSize, 0);
+            } else {
+                continue;
+            }
+
+            //Once full, words whose bounds cannot lift a section past the heap stop finding candidates
+            if(heapSize == k) {
+                threshold = heapScores[0];
+                while((firstEssential < numWords) && (boundSums[firstEssential + 1] <= threshold)) {
+                    firstEssential++;
+                }
+            }
+        }
+
+        //Pop the heap, worst first, filling the ranking from the back
+        int numRanked = heapSize;
+        int[] rankedSections = new int[numRanked];
+        double[] rankedScores = new double[numRanked];
+        for(int i = numRanked - 1; i >= 0; i--) {
+            rankedSections[i] = heapSections[0];
+            rankedScores[i] = heapScores[0];
+            heapSize--;
+            heapScores[0] = heapScores[heapSize];
+            heapSections[0] = heapSections[heapSize];
+            siftDown(heapScores, heapSections, heapSize, 0);
+        }
+
+        ArrayList<HashPair<Integer, Double>> result = new ArrayList<>(Math.max(1, numRanked));
+        for(int i = 0; i < numRanked; i++) {
+            result.append(new HashPair<>(rankedSections[i], rankedScores[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns true iff the first entry ranks below the second: a lower score, or an equal score in a later section
+     *
+     * @bigO
+     *      O(1): constant time comparison
+     */
+    private static boolean isWorse(double score, int section, double otherScore, int otherSection) {
+        return (score < otherScore) || ((score == otherScore) && (section > otherSection));
+    }
+
+    /**
+     * Moves the heap entry at index i up until its parent is worse
+     *
+     * @bigO
+     *      O(log(heapSize)): one comparison per level of the heap
+     */
+    private static void siftUp(double[] scores, int[] sections, int i) {
+        double score = scores[i];
+        int section = sections[i];
+
+        while(i > 0) {
+            int parent = (i - 1) / 2;
+            if(!isWorse(score, section, scores[parent], sections[parent])) {
+                break;
+            }
+
+            scores[i] = scores[parent];
+            sections[i] = sections[parent];
+            i = parent;
+        }
+
+        scores[i] = score;
+        sections[i] = section;
+    }
+
+    /**
+     * Moves the heap entry at index i down until neither child is worse
+     *
+     * @bigO
+     *      O(log(heapSize)): one comparison per level of the heap
+     */
+    private static void siftDown(double[] scores, int[] sections, int heapSize, int i) {
+        double score = scores[i];
+        int section = sections[i];
+
+        while(2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if((child + 1 < heapSize) && isWorse(scores[child + 1], sections[child + 1], scores[child],
+                    sections[child])) {
+                child++;
+            }
+            if(!isWorse(scores[child], sections[child], score, section)) {
+                break;
+            }
+
+            scores[i] = scores[child];
+            sections[i] = sections[child];
+            i = child;
+        }
+
+        scores[i] = score;
+        sections[i] = section;
+    }
+}
@@ -0,0 +1,177 @@
+package comp3506.assn2.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A cache of the decoded postings of a compressed trie's terms, bounded by an estimated number of bytes. Postings
+ * are kept in an array indexed by term id, and the term ids in the order they were cached in a ring. Once the
+ * budget is exceeded the terms cached longest ago are evicted, in ring order.
+ *
+ * No operation locks: lookups read the array, and entries are installed and evicted by compare-and-set, so the
+ * cache can be shared by concurrent readers without serialising them. Two threads missing the same term may both
+ * decode it, but only one copy is cached and returned to later lookups.
+ *
+ * @bigO
+ *      O(numTerms + maxEntries) space complexity: a slot per term and per ring entry, besides the postings themselves
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class TermPostingsCache {
+
+    //Most entries a cache holds, however small they are
+    protected final static int MAX_ENTRIES = 4096;
+
+    private final long byteBudget;
+    private final AtomicReferenceArray<Postings> entries;
+    private final AtomicLong numBytes;
+
+    //Term ids in the order they were cached, -1 where evicted. Slots from head up to tail, modulo the ring length,
+    //hold the terms cached longest ago first
+    private final AtomicIntegerArray ring;
+    private final AtomicLong head;
+    private final AtomicLong tail;
+
+    /**
+     * Initialises an empty cache
+     *
+     * @bigO
+     *      O(numTerms): allocates a slot per term
+     *
+     * @param numTerms
+     *      The number of terms, whose ids index the cache
+     * @param byteBudget
+     *      The estimated number of bytes the cached postings may take
+     */
+    public TermPostingsCache(int numTerms, long byteBudget) {
+        this.byteBudget = byteBudget;
+        this.entries = new AtomicReferenceArray<>(numTerms);
+        this.numBytes = new AtomicLong();
+        this.ring = new AtomicIntegerArray(Math.max(1, Math.min(numTerms, MAX_ENTRIES)));
+        for(int i = 0; i < this.ring.length(); i++) {
+            this.ring.set(i, -1);
+        }
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+    }
+
+    /**
+     * Returns the cached postings of the term
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param term
+     *      The term id to look up
+     * @return
+     *      The cached postings, else null
+     */
+    public Postings get(int term) {
+        return this.entries.get(term);
+    }
+
+    /**
+     * Caches the postings of the term, evicting the terms cached longest ago until they fit. Once the ring is full
+     * the term cached longest ago is evicted too. Postings that still do not fit, such as those larger than the
+     * whole budget, are not cached. If another thread cached the term first, its postings are kept
+     *
+     * @bigO
+     *      O(1) amortised: visits a ring slot per evicted entry
+     *
+     * @param term
+     *      The term id to cache the postings under
+     * @param postings
+     *      The decoded postings of the term
+     * @return
+     *      The postings cached for the term, else the given postings if they were not cached
+     */
+    public Postings put(int term, Postings postings) {
+        long bytes = postings.getEstimatedBytes();
+        if(bytes > this.byteBudget) {
+            return postings;
+        }
+
+        long first = this.head.get();
+        while((this.numBytes.get() + bytes > this.byteBudget) && (first < this.tail.get())) {
+            if(this.head.compareAndSet(first, first + 1)) {
+                evict(this.ring.getAndSet(getSlot(first), -1));
+            }
+            first = this.head.get();
+        }
+        if(this.numBytes.addAndGet(bytes) > this.byteBudget) {
+            this.numBytes.addAndGet(-bytes);
+            return postings;
+        }
+
+        if(!this.entries.compareAndSet(term, null, postings)) {
+            this.numBytes.addAndGet(-bytes);
+            Postings cached = this.entries.get(term);
+            return (cached != null) ? cached : postings;
+        }
+        //A full ring drops the term cached longest ago, which held the slot
+        long last = this.tail.getAndIncrement();
+        while(((first = this.head.get()) <= last - this.ring.length())
+                && !this.head.compareAndSet(first, last - this.ring.length() + 1)) {
+            //Retry until this or another thread moves head past the slot
+        }
+        evict(this.ring.getAndSet(getSlot(last), term));
+        return postings;
+    }
+
+    /**
+     * Returns the ring slot of a position, wrapping around the ring
+     *
+     * @bigO
+     *      O(1): modulo
+     */
+    private int getSlot(long position) {
+        return (int) (position % this.ring.length());
+    }
+
+    /**
+     * Removes the postings of the term if cached, unless another thread removed them first
+     *
+     * @bigO
+     *      O(1): array compare-and-set
+     *
+     * @param term
+     *      The term id to evict, else -1 for none
+     */
+    private void evict(int term) {
+        if(term < 0) {
+            return;
+        }
+
+        Postings cached = this.entries.get(term);
+        if((cached != null) && this.entries.compareAndSet(term, cached, null)) {
+            this.numBytes.addAndGet(-cached.getEstimatedBytes());
+        }
+    }
+
+    /**
+     * Returns the estimated number of bytes of the cached postings
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of bytes
+     */
+    public long getNumBytes() {
+        return this.numBytes.get();
+    }
+
+    /**
+     * Returns the estimated number of bytes the cache may take: its budget and the array and ring slots
+     *
+     * @bigO
+     *      O(1): array lengths
+     *
+     * @return
+     *      The estimated number of bytes
+     */
+    public long getEstimatedBytes() {
+        return this.byteBudget + 4L * this.entries.length() + 4L * this.ring.length();
+    }
+}
@@ -0,0 +1,290 @@
+package comp3506.assn2.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits text into words, by the one set of rules used both to index a document and to parse queries, so a query
+ * word is normalised exactly as the same word in the document was.
+ *
+ * A word is a run of letters, digits and apostrophes, ended by any other character or a line terminator ("\n",
+ * "\r" or "\r\n"). An apostrophe is dropped at the start of a line or after a space, moving the word's column past
+ * it, and dropped before a space or line terminator, so only quotation marks around words are removed. The kept
+ * characters of a word are always contiguous, so each word is reported as the span [start, end) of its kept
+ * characters, with the 1-based column of its first character. Characters are normalised to lower case one for
+ * one, so a span of normalised text is the word.
+ *
+ * Words are reported to a TokenHandler as primitive spans and nothing is allocated per word or per line, so a
+ * document can be tokenized without creating garbage. The methods are static and keep their state in local
+ * variables, so any number of threads may tokenize concurrently.
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class Tokenizer {
+
+    //Replaces malformed bytes and supplementary characters, neither of which is part of a word
+    private final static char REPLACEMENT = 0xfffd;
+
+    /**
+     * Receives the words and line ends found by a Tokenizer, in text order
+     */
+    public interface TokenHandler {
+        /**
+         * Receives a word
+         *
+         * @param start The offset of the word's first kept character, in bytes or chars of the text tokenized.
+         * @param end The offset after the word's last kept character.
+         * @param column The 1-based column of the word's first character in its line, counted in chars.
+         */
+        void word(int start, int end, int column);
+
+        /**
+         * Receives the end of a line, after the line's last word. Not called for an unterminated last line.
+         */
+        void endLine();
+    }
+
+    /**
+     * Returns the normalised form of a character: its lower case
+     *
+     * @bigO
+     *      O(1): a range check for ASCII characters, else a table lookup
+     *
+     * @param c
+     *      The character to normalise
+     * @return
+     *      The character as it is indexed
+     */
+    public static char normalise(char c) {
+        if(c < 0x80) {
+            return ((c >= 'A') && (c <= 'Z')) ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Returns the normalised form of a word, as it is indexed. Normalising is one char for one, so the word keeps
+     * its length
+     *
+     * @bigO
+     *      O(word.length()): normalises every character, copying the word only if one changes
+     *
+     * @param word
+     *      The word to normalise
+     * @return
+     *      The normalised word, which is word itself if it is already normalised
+     */
+    public static String normalise(String word) {
+        for(int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if(normalise(c) != c) {
+                char[] normalised = word.toCharArray();
+                for(int j = i; j < normalised.length; j++) {
+                    normalised[j] = normalise(normalised[j]);
+                }
+                return new String(normalised);
+            }
+        }
+        return word;
+    }
+
+    /**
+     * Returns true iff the normalised character may be part of a word, else it ends the word
+     *
+     * @bigO
+     *      O(1): a range check for ASCII characters, else a table lookup
+     */
+    private static boolean isWordCharacter(char c) {
+        if(c < 0x80) {
+            return ((c >= 'a') && (c <= 'z')) || ((c >= '0') && (c <= '9')) || (c == '\'');
+        }
+        return Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Tokenizes UTF-8 text, from the byte at from up to but excluding to, which must be the start of a line.
+     * Spans are byte offsets into the document's buffer
+     *
+     * @bigO
+     *      O(to - from): decodes every byte once, performing constant time comparisons
+     *
+     * @param document
+     *      The document holding the text
+     * @param from
+     *      The byte offset of the first line to tokenize
+     * @param to
+     *      The byte offset after the last byte to tokenize
+     * @param handler
+     *      Receives the words and line ends
+     */
+    public static void tokenize(MappedDocument document, int from, int to, TokenHandler handler) {
+        ByteBuffer bytes = document.getBuffer();
+        int length = bytes.limit();
+
+        int wordStart = -1; //Offset of the current word's first kept byte, else -1 between words
+        int wordEnd = -1;
+        int columnNumber = 1; //First word occurs at start of line
+        int column = 0; //Index of the current character in its line
+        char previous = ' ';
+
+        int i = from;
+        while(i < to) {
+            byte b = bytes.get(i);
+
+            //Handle end of line - "\n", "\r" or "\r\n"
+            if((b == '\n') || (b == '\r')) {
+                if((b == '\r') && (i + 1 < length) && (bytes.get(i + 1) == '\n')) {
+                    i++;
+                }
+                i++;
+
+                if(wordStart >= 0) {
+                    handler.word(wordStart, wordEnd, columnNumber);
+                }
+                handler.endLine();
+
+                wordStart = -1;
+                columnNumber = 1;
+                column = 0;
+                previous = ' ';
+                continue;
+            }
+
+            //Decode and normalise the next character
+            char c;
+            int width, numChars;
+            if(b >= 0) {
+                c = normalise((char) b);
+                width = 1;
+                numChars = 1;
+            } else {
+                int codePoint = document.codePointAt(i);
+                if(codePoint < 0) {
+                    //Malformed input decodes to the replacement character
+                    codePoint = REPLACEMENT;
+                    width = 1;
+                } else {
+                    width = MappedDocument.encodedLength(codePoint);
+                }
+                numChars = Character.charCount(codePoint);
+
+                //Supplementary characters are surrogate pairs, neither half of which is a letter
+                c = (numChars == 1) ? normalise((char) codePoint) : REPLACEMENT;
+            }
+
+            if(c == '\'') {
+                byte next = (i + 1 < length) ? bytes.get(i + 1) : (byte) '\n';
+                if(keepApostrophe(column, previous, (char) next)) {
+                    wordStart = (wordStart < 0) ? i : wordStart;
+                    wordEnd = i + width;
+                } else if((column == 0) || (previous == ' ')) {
+                    columnNumber++;
+                }
+            } else if(isWordCharacter(c)) {
+                wordStart = (wordStart < 0) ? i : wordStart;
+                wordEnd = i + width;
+            } else {
+                if(wordStart >= 0) {
+                    handler.word(wordStart, wordEnd, columnNumber);
+                    wordStart = -1;
+                }
+
+                //Set occurrence position for next word
+                columnNumber = column + numChars + 1;
+            }
+
+            previous = c;
+            column += numChars;
+            i += width;
+        }
+
+        //Handle end of an unterminated last line
+        if(wordStart >= 0) {
+            handler.word(wordStart, wordEnd, columnNumber);
+        }
+    }
+
+    /**
+     * Tokenizes text, such as a query. Spans are char offsets into text, and as normalising is one char for one,
+     * are also the spans of the words in normalise(text)
+     *
+     * @bigO
+     *      O(text.length()): visits every char once, performing constant time comparisons
+     *
+     * @param text
+     *      The text to tokenize
+     * @param handler
+     *      Receives the words and line ends
+     */
+    public static void tokenize(CharSequence text, TokenHandler handler) {
+        int length = text.length();
+
+        int wordStart = -1;
+        int wordEnd = -1;
+        int columnNumber = 1;
+        char previous = ' ';
+        int lineStart = 0;
+
+        int i = 0;
+        while(i < length) {
+            char c = normalise(text.charAt(i));
+
+            //Handle end of line - "\n", "\r" or "\r\n"
+            if((c == '\n') || (c == '\r')) {
+                if((c == '\r') && (i + 1 < length) && (text.charAt(i + 1) == '\n')) {
+                    i++;
+                }
+                i++;
+
+                if(wordStart >= 0) {
+                    handler.word(wordStart, wordEnd, columnNumber);
+                }
+                handler.endLine();
+
+                wordStart = -1;
+                columnNumber = 1;
+                lineStart = i;
+                previous = ' ';
+                continue;
+            }
+
+            //Surrogates, which are halves of supplementary characters, are not letters so end words
+            int column = i - lineStart;
+            if(c == '\'') {
+                char next = (i + 1 < length) ? text.charAt(i + 1) : '\n';
+                if(keepApostrophe(column, previous, next)) {
+                    wordStart = (wordStart < 0) ? i : wordStart;
+                    wordEnd = i + 1;
+                } else if((column == 0) || (previous == ' ')) {
+                    columnNumber++;
+                }
+            } else if(isWordCharacter(c)) {
+                wordStart = (wordStart < 0) ? i : wordStart;
+                wordEnd = i + 1;
+            } else {
+                if(wordStart >= 0) {
+                    handler.word(wordStart, wordEnd, columnNumber);
+                    wordStart = -1;
+                }
+                columnNumber = column + 2;
+            }
+
+            previous = Character.isSurrogate(c) ? REPLACEMENT : c;
+            i++;
+        }
+
+        if(wordStart >= 0) {
+            handler.word(wordStart, wordEnd, columnNumber);
+        }
+    }
+
+    /**
+     * Returns true iff an apostrophe is kept as part of a word: it is neither at the start of a word, at the start
+     * of the line or after a space, nor at its end, before a space or line terminator
+     *
+     * @bigO
+     *      O(1): constant time comparisons
+     */
+    private static boolean keepApostrophe(int column, char previous, char next) {
+        return (column != 0) && (previous != ' ') && (next != ' ') && (next != '\n') && (next != '\r');
+    }
+}
@@ -0,0 +1,448 @@
+package comp3506.assn2.utils;
+
+/**
+ * A read-only vocabulary mapping words and prefixes to term ids, built from an OccurrenceTrie once it is frozen.
+ *
+ * Nodes are numbered in level order from the root, 0, as in a LOUDS trie, so the children of a node are the
+ * consecutive ids [firstChild[node], firstChild[node + 1]), sorted by letter. The trie is stored as a label per node
+ * and this child offset rather than as node objects, and a lookup walks the arrays, binary searching each node's
+ * labels. Term ids are numbered in pre-order of their nodes, so the words with a given prefix are the consecutive
+ * term ids of the prefix node's subtree, and postings can be kept in arrays indexed by term id.
+ *
+ * @bigO
+ *      O(numNodes) space complexity: a char, three ints and a bit per node
+ *
+ * @author Sam Eadie <s.eadie@uq.edu.au>
+ */
+public class Vocabulary {
+
+    private final char[] labels;
+    private final int[] firstChild;
+
+    //Bit per node, set iff the node terminates a term
+    private final long[] terms;
+
+    //Range of term ids [subtreeStart, subtreeEnd) in each node's subtree, a term's own id is its subtreeStart
+    private final int[] subtreeStart;
+    private final int[] subtreeEnd;
+
+    /**
+     * Initialises a vocabulary from its arrays, as built or as read from a snapshot
+     *
+     * @bigO
+     *      O(1): value assignment in constant time
+     */
+    Vocabulary(char[] labels, int[] firstChild, long[] terms, int[] subtreeStart, int[] subtreeEnd) {
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.terms = terms;
+        this.subtreeStart = subtreeStart;
+        this.subtreeEnd = subtreeEnd;
+    }
+
+    /**
+     * Builds the vocabulary of a trie, where a term is a node with occurrences, and appends the node of every
+     * term to termNodes in term id order
+     *
+     * @bigO
+     *      O(numNodes): visits every node in level order to number them, then every id in pre-order to number
+     *      the terms
+     *
+     * @param root
+     *      The root of the trie
+     * @param termNodes
+     *      The list to append the node of each term to
+     * @return
+     *      The vocabulary of the trie
+     */
+    public static Vocabulary build(OccurrenceTrieNode root, ArrayList<OccurrenceTrieNode> termNodes) {
+        //Number the nodes in level order, the list is the queue
+        ArrayList<OccurrenceTrieNode> levelOrder = new ArrayList<>();
+        levelOrder.append(root);
+        for(int i = 0; i < levelOrder.size(); i++) {
+            OccurrenceTrieNode node = levelOrder.get(i);
+            for(int j = 0; j < node.getNumChildren(); j++) {
+                levelOrder.append(node.getChildAt(j));
+            }
+        }
+
+        int numNodes = levelOrder.size();
+        char[] labels = new char[numNodes];
+        int[] firstChild = new int[numNodes + 1];
+        long[] terms = new long[(numNodes + 63) >>> 6];
+
+        int nextChild = 1;
+        for(int i = 0; i < numNodes; i++) {
+            OccurrenceTrieNode node = levelOrder.get(i);
+            labels[i] = node.getValue();
+            firstChild[i] = nextChild;
+            nextChild += node.getNumChildren();
+
+            if(node.isCompressed() || (node.getOccurrences().size() > 0)) {
+                terms[i >>> 6] |= 1L << i;
+            }
+        }
+        firstChild[numNodes] = nextChild;
+
+        int[] subtreeStart = new int[numNodes];
+        int[] subtreeEnd = new int[numNodes];
+        int[] termIds = new int[numNodes];
+        int numTerms = numberTerms(firstChild, terms, subtreeStart, subtreeEnd, termIds);
+        for(int term = 0; term < numTerms; term++) {
+            termNodes.append(levelOrder.get(termIds[term]));
+        }
+
+        return new Vocabulary(labels, firstChild, terms, subtreeStart, subtreeEnd);
+    }
+
+    /**
+     * Merges two vocabularies into the vocabulary of the terms of either, in one pass over their arrays without
+     * creating the terms' Strings. For every term id of the merged vocabulary, baseTerms and addedTerms receive
+     * the term's id in base and in added, else -1
+     *
+     * @bigO
+     *      O(base.getNumNodes() + added.getNumNodes()): visits the nodes of both in level order, merging the
+     *      sorted children of the two nodes of each prefix, then numbers the terms
+     *
+     * @param base
+     *      The first vocabulary
+     * @param added
+     *      The second vocabulary
+     * @param baseTerms
+     *      Receives the term id in base of each merged term, at least base.getNumTerms() + added.getNumTerms() long
+     * @param addedTerms
+     *      Receives the term id in added of each merged term, as long as baseTerms
+     * @return
+     *      The vocabulary of the terms of both
+     */
+    public static Vocabulary merge(Vocabulary base, Vocabulary added, int[] baseTerms, int[] addedTerms) {
+        //The node of each merged node's prefix in base and in added, else -1. The arrays are the level order queue
+        int maxNumNodes = base.getNumNodes() + added.getNumNodes();
+        int[] baseNodes = new int[maxNumNodes];
+        int[] addedNodes = new int[maxNumNodes];
+        char[] labels = new char[maxNumNodes];
+        int[] firstChild = new int[maxNumNodes + 1];
+        long[] terms = new long[(maxNumNodes + 63) >>> 6];
+
+        labels[0] = base.labels[0];
+        int numNodes = 1;
+        for(int node = 0; node < numNodes; node++) {
+            int baseNode = baseNodes[node];
+            int addedNode = addedNodes[node];
+            if(((baseNode >= 0) && base.isTerm(baseNode)) || ((addedNode >= 0) && added.isTerm(addedNode))) {
+                terms[node >>> 6] |= 1L << node;
+            }
+
+            //Children are sorted by letter in both, so merging them adds each child once, in order
+            firstChild[node] = numNodes;
+            int i = (baseNode < 0) ? 0 : base.firstChild[baseNode];
+            int baseEnd = (baseNode < 0) ? 0 : base.firstChild[baseNode + 1];
+            int j = (addedNode < 0) ? 0 : added.firstChild[addedNode];
+            int addedEnd = (addedNode < 0) ? 0 : added.firstChild[addedNode + 1];
+            while((i < baseEnd) || (j < addedEnd)) {
+                int order = (i == baseEnd) ? 1 : (j == addedEnd) ? -1 : Character.compare(base.labels[i],
+                        added.labels[j]);
+                labels[numNodes] = (order <= 0) ? base.labels[i] : added.labels[j];
+                baseNodes[numNodes] = (order <= 0) ? i++ : -1;
+                addedNodes[numNodes++] = (order >= 0) ? j++ : -1;
+            }
+        }
+        firstChild[numNodes] = numNodes;
+
+        labels = java.util.Arrays.copyOf(labels, numNodes);
+        firstChild = java.util.Arrays.copyOf(firstChild, numNodes + 1);
+        terms = java.util.Arrays.copyOf(terms, (numNodes + 63) >>> 6);
+        int[] subtreeStart = new int[numNodes];
+        int[] subtreeEnd = new int[numNodes];
+        int[] termIds = new int[numNodes];
+        int numTerms = numberTerms(firstChild, terms, subtreeStart, subtreeEnd, termIds);
+
+        for(int term = 0; term < numTerms; term++) {
+            int baseNode = baseNodes[termIds[term]];
+            int addedNode = addedNodes[termIds[term]];
+            baseTerms[term] = ((baseNode >= 0) && base.isTerm(baseNode)) ? base.subtreeStart[baseNode] : -1;
+            addedTerms[term] = ((addedNode >= 0) && added.isTerm(addedNode)) ? added.subtreeStart[addedNode] : -1;
+        }
+
+        return new Vocabulary(labels, firstChild, terms, subtreeStart, subtreeEnd);
+    }
+
+    /**
+     * Numbers the terms in pre-order of their nodes, setting the range of term ids in every node's subtree, and
+     * records the node of each term id in termNodes
+     *
+     * @bigO
+     *      O(numNodes): visits every id once in pre-order, with an explicit stack
+     *
+     * @return
+     *      The number of terms
+     */
+    private static int numberTerms(int[] firstChild, long[] terms, int[] subtreeStart, int[] subtreeEnd,
+                                   int[] termNodes) {
+        //Each id's range is set on entry and closed once its children are done
+        int[] path = new int[16];
+        int[] nextChildOnPath = new int[16];
+        int depth = 0;
+        int numTerms = 0;
+
+        path[0] = 0;
+        nextChildOnPath[0] = firstChild[0];
+        subtreeStart[0] = numTerms;
+        if((terms[0] & 1L) != 0) {
+            termNodes[numTerms++] = 0;
+        }
+
+        while(depth >= 0) {
+            int node = path[depth];
+
+            if(nextChildOnPath[depth] < firstChild[node + 1]) {
+                int child = nextChildOnPath[depth]++;
+                if(++depth == path.length) {
+                    path = java.util.Arrays.copyOf(path, 2 * path.length);
+                    nextChildOnPath = java.util.Arrays.copyOf(nextChildOnPath, 2 * nextChildOnPath.length);
+                }
+                path[depth] = child;
+                nextChildOnPath[depth] = firstChild[child];
+
+                subtreeStart[child] = numTerms;
+                if((terms[child >>> 6] & (1L << child)) != 0) {
+                    termNodes[numTerms++] = child;
+                }
+            } else {
+                subtreeEnd[node] = numTerms;
+                depth--;
+            }
+        }
+
+        return numTerms;
+    }
+
+    /**
+     * Returns the label of every node, in level order, for writing the vocabulary to a snapshot
+     *
+     * @bigO
+     *      O(1): returns stored reference
+     */
+    char[] getLabels() {
+        return this.labels;
+    }
+
+    /**
+     * Returns the id of every node's first child, and the number of nodes last, for writing to a snapshot
+     *
+     * @bigO
+     *      O(1): returns stored reference
+     */
+    int[] getFirstChildren() {
+        return this.firstChild;
+    }
+
+    /**
+     * Returns the bit per node that is set iff the node terminates a term, for writing to a snapshot
+     *
+     * @bigO
+     *      O(1): returns stored reference
+     */
+    long[] getTermBits() {
+        return this.terms;
+    }
+
+    /**
+     * Returns the first term id in every node's subtree, for writing to a snapshot
+     *
+     * @bigO
+     *      O(1): returns stored reference
+     */
+    int[] getSubtreeStarts() {
+        return this.subtreeStart;
+    }
+
+    /**
+     * Returns the term id after the last in every node's subtree, for writing to a snapshot
+     *
+     * @bigO
+     *      O(1): returns stored reference
+     */
+    int[] getSubtreeEnds() {
+        return this.subtreeEnd;
+    }
+
+    /**
+     * Returns the number of nodes in the vocabulary, including the root
+     *
+     * @bigO
+     *      O(1): returns stored value
+     *
+     * @return
+     *      The number of nodes
+     */
+    public int getNumNodes() {
+        return this.labels.length;
+    }
+
+    /**
+     * Returns the number of terms in the vocabulary
+     *
+     * @bigO
+     *      O(1): the size of the root's subtree
+     *
+     * @return
+     *      The number of terms
+     */
+    public int getNumTerms() {
+        return this.subtreeEnd[0];
+    }
+
+    /**
+     * Returns an estimate of the memory used by the vocabulary's arrays
+     *
+     * @bigO
+     *      O(1): array lengths
+     *
+     * @return
+     *      The estimated number of bytes of the vocabulary
+     */
+    public long getEstimatedBytes() {
+        return 2L * this.labels.length + 4L * (this.firstChild.length + this.subtreeStart.length
+                + this.subtreeEnd.length) + 8L * this.terms.length + 6 * Postings.ESTIMATED_HEADER_BYTES;
+    }
+
+    /**
+     * Returns the node reached by following the letters of the word from the root
+     *
+     * @bigO
+     *      O(word.length() * log(maxNumChildren)): binary searches the children's labels for each letter
+     *
+     * @param word
+     *      The word or prefix to find
+     * @return
+     *      The id of the node terminating the word, else -1 if no word has it as a prefix
+     */
+    public int findNode(String word) {
+        return findNode(word, 0, word.length());
+    }
+
+    /**
+     * Returns the node reached by following the letters of the span [start, end) of the text from the root, so the
+     * words of a query can be looked up without copying them out of it
+     *
+     * @bigO
+     *      O((end - start) * log(maxNumChildren)): binary searches the children's labels for each letter
+     *
+     * @param text
+     *      The text holding the word or prefix to find
+     * @param start
+     *      The offset of the first letter
+     * @param end
+     *      The offset after the last letter
+     * @return
+     *      The id of the node terminating the word, else -1 if no word has it as a prefix
+     */
+    public int findNode(CharSequence text, int start, int end) {
+        int node = 0;
+
+        for(int i = start; i < end; i++) {
+            char letter = text.charAt(i);
+            int low = this.firstChild[node];
+            int high = this.firstChild[node + 1] - 1;
+
+            node = -1;
+            while(low <= high) {
+                int middle = (low + high) >>> 1;
+                if(this.labels[middle] < letter) {
+                    low = middle + 1;
+                } else if(this.labels[middle] > letter) {
+                    high = middle - 1;
+                } else {
+                    node = middle;
+                    break;
+                }
+            }
+
+            if(node < 0) {
+                return -1;
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Returns the term id of the word
+     *
+     * @bigO
+     *      O(word.length() * log(maxNumChildren)): calls findNode
+     *
+     * @param word
+     *      The word to find
+     * @return
+     *      The term id of the word, else -1 if the word is not a term
+     */
+    public int getTermId(String word) {
+        return getTermId(word, 0, word.length());
+    }
+
+    /**
+     * Returns the term id of the word in the span [start, end) of the text
+     *
+     * @bigO
+     *      O((end - start) * log(maxNumChildren)): calls findNode
+     *
+     * @param text
+     *      The text holding the word to find
+     * @param start
+     *      The offset of the word's first letter
+     * @param end
+     *      The offset after the word's last letter
+     * @return
+     *      The term id of the word, else -1 if the word is not a term
+     */
+    public int getTermId(CharSequence text, int start, int end) {
+        int node = findNode(text, start, end);
+
+        if((node < 0) || !isTerm(node)) {
+            return -1;
+        }
+        return this.subtreeStart[node];
+    }
+
+    /**
+     * Returns true iff the node terminates a term
+     *
+     * @bigO
+     *      O(1): tests a bit
+     */
+    private boolean isTerm(int node) {
+        return (this.terms[node >>> 6] & (1L << node)) != 0;
+    }
+
+    /**
+     * Returns the first term id in the node's subtree
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param node
+     *      The id of the node
+     * @return
+     *      The first term id of the words with the node's prefix
+     */
+    public int getSubtreeStart(int node) {
+        return this.subtreeStart[node];
+    }
+
+    /**
+     * Returns the term id after the last in the node's subtree
+     *
+     * @bigO
+     *      O(1): array access
+     *
+     * @param node
+     *      The id of the node
+     * @return
+     *      The term id after the last of the words with the node's prefix
+     */
+    public int getSubtreeEnd(int node) {
+        return this.subtreeEnd[node];
+    }
+}
@@ -6,8 +6,10 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 
 /**
@@ -16,33 +18,49 @@ import java.util.List;
  * You must implement the constructor stub below and override the methods from the Search interface
  * so that they call the necessary code in your application.
  *
+ * The index is only written while the object is constructed and is frozen before the constructor returns. Queries
+ * keep all of their working state in local variables, so once constructed the object can be shared by any number of
+ * threads, which may run searches concurrently without locking. Lines are added to the document with append, which
+ * returns a new object over the longer document and leaves this one unchanged, so readers of either see a
+ * consistent index.
+ *
  * @bigO
  *      O(numSections + numStopWords + numLines) space complexity:
  *          documentTrie : O(27^longestWord)
  *          sectionIndexes : O(numSections)
  *          sectionStarts : O(numSections)
  *          stopWords : O(numStopWords)
- *          textLines : O(lenText) but stored on disc with references in main memory
+ *          sectionRanker, sectionTitles : O(numSections)
+ *          document : O(numLines) line offsets, the text itself is memory-mapped
  *
  *
  * @author Sam Eadie
  */
-public class AutoTester implements Search {
+public class AutoTester implements Search, StreamingSearch, RankedSearch, DocumentIndex {
 
     //Trie storing occurrences of all words in text for fast retrieval
-    private OccurrenceTrie documentTrie = new OccurrenceTrie();
+    private final OccurrenceTrie documentTrie;
 
     //Store section titles in HashMap for fast access, value stores HashPair<sectionNumber, sectionStartLineNumber>
-    private HashMap<String, HashPair<Integer, Integer>> sectionIndexes = new HashMap<>();
+    private final HashMap<String, HashPair<Integer, Integer>> sectionIndexes;
 
     //Stores starting line of sections in order, used for creation of documentTrie
-    private ArrayList<Integer> sectionStarts = new ArrayList<>();
+    private final ArrayList<Integer> sectionStarts;
 
     //Stores stop words for fast access
-    private HashSet<String> stopWords = new HashSet<>();
+    private final HashSet<String> stopWords;
+
+    //Memory-mapped text with the start of each line, for fast retrieval without holding lines in main memory
+    private final MappedDocument document;
+
+    //Scores sections against queries for ranked search
+    private final SectionRanker sectionRanker;
 
-    //Stores text for fast retrieval - would actually be stored on disc with reference in main memory
-    private HashMap<Integer, String> textLines = new HashMap<>();
+    //Title of each section by section number
+    private final String[] sectionTitles;
+
+    //Number of lines in the document, including appended lines
+    private final int numLines;
 
 
     /**
@@ -62,65 +80,214 @@ public class AutoTester implements Search {
      */
     public AutoTester(String documentFileName, String indexFileName, String stopWordsFileName)
             throws FileNotFoundException, IllegalArgumentException {
+        this(documentFileName, indexFileName, stopWordsFileName, null);
+    }
+
+    /**
+     * Create an object that performs search operations on a document, opening a persisted index snapshot
+     * instead of building the index when the snapshot was built from the same files.
+     * If the snapshot is missing, corrupt or out of date the index is built from the files and the snapshot
+     * is rewritten. If snapshotFileName is null or an empty string no snapshot is used.
+     *
+     * @param documentFileName  Name of the file containing the text of the document to be searched.
+     * @param indexFileName     Name of the file containing the index of sections in the document.
+     * @param stopWordsFileName Name of the file containing the stop words ignored by most searches.
+     * @param snapshotFileName  Name of the file the index snapshot is persisted in.
+     * @throws FileNotFoundException if any of the files cannot be loaded.
+     * @throws IllegalArgumentException if documentFileName is null or an empty string.
+     */
+    public AutoTester(String documentFileName, String indexFileName, String stopWordsFileName,
+                      String snapshotFileName) throws FileNotFoundException, IllegalArgumentException {
+        this(loadIndex(documentFileName, indexFileName, stopWordsFileName, snapshotFileName));
+    }
+
+    /**
+     * Creates a search object over an index that was built or opened from a snapshot
+     *
+     * @bigO
+     *      O(numSections): initialises ranking, the other structures are already built
+     */
+    private AutoTester(IndexSnapshot index) {
+        this(index.getTrie(), index.getDocument(), index.getSectionIndexes(), index.getSectionStarts(),
+                index.getStopWords(), (index.getDocument() == null) ? 0 : index.getDocument().getNumLines(),
+                getSectionTitles(index.getSectionIndexes(), index.getSectionStarts()));
+    }
+
+    /**
+     * Creates a search object over the structures of a version of the index. Every field is assigned once here,
+     * so each version is immutable apart from compressing its postings
+     *
+     * @bigO
+     *      O(numSections): initialises ranking, the other structures are already built
+     */
+    private AutoTester(OccurrenceTrie documentTrie, MappedDocument document,
+                       HashMap<String, HashPair<Integer, Integer>> sectionIndexes, ArrayList<Integer> sectionStarts,
+                       HashSet<String> stopWords, int numLines, String[] sectionTitles) {
+        this.documentTrie = documentTrie;
+        this.document = document;
+        this.sectionIndexes = sectionIndexes;
+        this.sectionStarts = sectionStarts;
+        this.stopWords = stopWords;
+        this.numLines = numLines;
+        this.sectionRanker = new SectionRanker(sectionStarts, numLines);
+        this.sectionTitles = sectionTitles;
+    }
+
+    /**
+     * Opens the index snapshot if it was built from the same files, else builds the index from the files and
+     * rewrites the snapshot, see the constructor. The built trie is frozen before it is persisted or returned
+     *
+     * @bigO
+     *      O(snapshotLength) when the snapshot is opened, see IndexSnapshot.open, else O(numBytes) to map the
+     *          document and see formTrieFromDocument
+     *
+     * @return
+     *      The index structures
+     * @throws IllegalArgumentException
+     *      If documentFileName is null or an empty string
+     */
+    private static IndexSnapshot loadIndex(String documentFileName, String indexFileName, String stopWordsFileName,
+                                           String snapshotFileName) throws IllegalArgumentException {
         if ((documentFileName == null) || (documentFileName.length() == 0)) {
             throw new IllegalArgumentException("Invalid document filename");
         }
 
-        try {
-            readTextLines(documentFileName);
-        } catch (IOException e ) {
-            System.err.println("IO Exception with reading text lines");
+        long[] sourceChecksums = null;
+        if ((snapshotFileName != null) && (snapshotFileName.length() != 0)) {
+            try {
+                sourceChecksums = new long[] {IndexSnapshot.checksum(documentFileName),
+                        IndexSnapshot.checksum(indexFileName), IndexSnapshot.checksum(stopWordsFileName)};
+
+                IndexSnapshot snapshot = IndexSnapshot.open(snapshotFileName, documentFileName, sourceChecksums);
+                if (snapshot != null) {
+                    return snapshot;
+                }
+            } catch (IOException e) {
+                System.err.println("IO Exception with opening index snapshot");
+                sourceChecksums = null;
+            }
         }
 
+        HashMap<String, HashPair<Integer, Integer>> sectionIndexes = new HashMap<>();
+        ArrayList<Integer> sectionStarts = new ArrayList<>();
         try {
             if ((indexFileName == null) || (indexFileName.length() == 0)) {
-                this.sectionStarts.append(1);
+                sectionStarts.append(1);
             } else {
-                readSectionIndexes(indexFileName);
+                readSectionIndexes(indexFileName, sectionIndexes, sectionStarts);
             }
         } catch (IOException e ) {
             System.err.println("IO Exception with IndexFileName");
         }
 
+        MappedDocument document = null;
+        OccurrenceTrie documentTrie = new OccurrenceTrie();
         try {
-            formTrieFromFile(documentFileName);
+            document = mapDocument(documentFileName);
+            documentTrie = formTrieFromDocument(document, sectionStarts);
         } catch (IOException e ) {
             System.err.println("IO exception with reading text lines");
         }
 
+        HashSet<String> stopWords = new HashSet<>();
         try {
-            if((stopWordsFileName == null) || (stopWordsFileName.length() == 0)) {
-                this.stopWords = new HashSet<>();
-            } else {
-                readStopWords(stopWordsFileName);
+            if((stopWordsFileName != null) && (stopWordsFileName.length() != 0)) {
+                readStopWords(stopWordsFileName, stopWords);
             }
         } catch (Exception e) {
             System.err.println("IOException");
         }
+
+        //Build complete, the index is only read from here on
+        documentTrie.freeze();
+        IndexSnapshot index = new IndexSnapshot(documentTrie, document, sectionIndexes, sectionStarts, stopWords);
+
+        //Persist the frozen index for the next construction
+        if ((sourceChecksums != null) && (document != null)) {
+            try {
+                index.write(snapshotFileName, sourceChecksums);
+            } catch (IOException e) {
+                System.err.println("IO Exception with writing index snapshot");
+            }
+        }
+        return index;
     }
 
     /**
-     * Reads the file's lines into a HashMap
+     * Returns a search object over this document with the lines appended, without indexing the document again.
+     * Only the new lines are tokenized, and their occurrences follow the existing occurrences of each word, as line
+     * numbers only grow. If a section title is given, the lines form a new section with that title, else they
+     * continue the last section.
      *
-     * @param filename
-     *      the document's filename
+     * This object is not changed, so searches running on it are unaffected. The returned object is a new, frozen
+     * version of the index and is published to other threads like any newly constructed object. It shares the
+     * section tables and stop words with this object, and only copies the section tables to add a new section.
+     * Lines are indexed but not stored, as searches return only line and column numbers.
      *
-     * @throws IOException
-     *      If the file cannot be read
+     * @bigO
+     *      O(numNewBytes + numNodes + numTerms + numNewOccurrences + numSections) amortised: tokenizes the new
+     *          lines, then merges their words into a new trie, see OccurrenceTrie.append, and ranks the sections
+     *
+     * @param lines The lines to append, none of which may contain a line terminator.
+     * @param sectionTitle The title of the section the lines form, or null or an empty String to continue the last
+     *                     section.
+     * @return A search object over the document with the lines appended.
+     * @throws IllegalArgumentException if lines is null or an empty array, any line is null or contains a line
+     *                                  terminator, or sectionTitle is already a section title.
      */
-    private void readTextLines(String filename) throws IOException{
-        //Create reader for document
-        FileReader fReader = new FileReader(filename);
-        BufferedReader documentReader = new BufferedReader(fReader);
+    public AutoTester append(String[] lines, String sectionTitle) throws IllegalArgumentException {
+        if((lines == null) || (lines.length == 0)) { throw new IllegalArgumentException("Invalid lines"); }
+
+        //Record where each line starts in the UTF-8 bytes of the lines
+        StringBuilder text = new StringBuilder();
+        int[] lineStarts = new int[lines.length];
+        int offset = 0;
+        for(int i = 0; i < lines.length; i++) {
+            if((lines[i] == null) || (lines[i].indexOf('\n') >= 0) || (lines[i].indexOf('\r') >= 0)) {
+                throw new IllegalArgumentException("Invalid line");
+            }
 
-        this.textLines = new HashMap<>();
-        Integer lineNumber = 0;
-        String line;
+            lineStarts[i] = offset;
+            text.append(lines[i]).append('\n');
+            offset += lines[i].getBytes(java.nio.charset.StandardCharsets.UTF_8).length + 1;
+        }
+
+        //Share the section tables, unless the lines form a new section
+        HashMap<String, HashPair<Integer, Integer>> sectionIndexes = this.sectionIndexes;
+        ArrayList<Integer> sectionStarts = this.sectionStarts;
+        String[] sectionTitles = this.sectionTitles;
+        if((sectionTitle != null) && (sectionTitle.length() != 0)) {
+            String title = sectionTitle.toLowerCase();
+            if(this.sectionIndexes.get(title) != null) {
+                throw new IllegalArgumentException("Duplicate section title");
+            }
 
-        //Store all lines in HashMap
-        while((line = documentReader.readLine()) != null) {
-            this.textLines.put(lineNumber++, line.toLowerCase());
+            //Copy the tables, which this object still reads, then add the section
+            sectionIndexes = new HashMap<>();
+            ArrayList<String> titles = this.sectionIndexes.getKeys();
+            for(int i = 0; i < titles.size(); i++) {
+                sectionIndexes.put(titles.get(i), this.sectionIndexes.get(titles.get(i)));
+            }
+            sectionStarts = new ArrayList<>(this.sectionStarts.size() + 1);
+            for(int i = 0; i < this.sectionStarts.size(); i++) {
+                sectionStarts.append(this.sectionStarts.get(i));
+            }
+
+            int sectionNumber = sectionStarts.size();
+            sectionIndexes.put(title, new HashPair<>(sectionNumber, this.numLines + 1));
+            sectionStarts.append(this.numLines + 1);
+            sectionTitles = Arrays.copyOf(this.sectionTitles, Math.max(this.sectionTitles.length, sectionNumber + 1));
+            sectionTitles[sectionNumber] = title;
         }
+
+        //Tokenize only the new lines, then merge them after the existing occurrences
+        MappedDocument added = new MappedDocument(java.nio.ByteBuffer.wrap(
+                text.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8)), lineStarts);
+        OccurrenceTrie addedTrie = IndexBuilder.buildSection(added, Math.max(0, sectionStarts.size() - 1));
+        OccurrenceTrie documentTrie = this.documentTrie.append(addedTrie, this.numLines);
+
+        return new AutoTester(documentTrie, this.document, sectionIndexes, sectionStarts, this.stopWords,
+                this.numLines + lines.length, sectionTitles);
     }
 
     /**
@@ -130,17 +297,19 @@ public class AutoTester implements Search {
      *
      * @param indexFileName
      *      The filename of the document to read sections from
+     * @param sectionIndexes
+     *      The map to add each section title to
+     * @param sectionStarts
+     *      The list to append each section's start line to
      *
      * @throws IOException
      *      If the file cannot be read
      */
-    private void readSectionIndexes(String indexFileName) throws IOException {
+    private static void readSectionIndexes(String indexFileName, HashMap<String, HashPair<Integer, Integer>>
+            sectionIndexes, ArrayList<Integer> sectionStarts) throws IOException {
         //Create reader for index file
         BufferedReader documentReader = new BufferedReader(new FileReader(indexFileName));
 
-        this.sectionIndexes = new HashMap<>();
-        this.sectionStarts = new ArrayList<>();
-
         String line, sectionTitle;
         String[] parts;
         Integer sectionLineNumber, sectionNumber = 0;
@@ -152,130 +321,123 @@ public class AutoTester implements Search {
             sectionLineNumber = Integer.parseInt(parts[1]);
             sectionTitle = parts[0];
 
-            this.sectionStarts.append(sectionLineNumber);
-            this.sectionIndexes.put(sectionTitle, new HashPair<>(sectionNumber, sectionLineNumber));
+            sectionStarts.append(sectionLineNumber);
+            sectionIndexes.put(sectionTitle, new HashPair<>(sectionNumber, sectionLineNumber));
 
             sectionNumber++;
         }
     }
 
+    /**
+     * Returns the title of every section by section number, for ranked search. Sections without a title, such as
+     * the whole document when there is no index file, have a null title
+     *
+     * @bigO
+     *      O(numSections): visits every section and title once
+     */
+    private static String[] getSectionTitles(HashMap<String, HashPair<Integer, Integer>> sectionIndexes,
+                                             ArrayList<Integer> sectionStarts) {
+        String[] sectionTitles = new String[Math.max(1, sectionStarts.size())];
+
+        ArrayList<String> titles = sectionIndexes.getKeys();
+        for(int i = 0; i < titles.size(); i++) {
+            sectionTitles[sectionIndexes.get(titles.get(i)).getLeftValue()] = titles.get(i);
+        }
+        return sectionTitles;
+    }
+
     /**
      * Reads all words from stopWordsFilename into a HashSet
      *
      * @param stopWordsFileName
      *      The filename of the document storing stop words for this search application
+     * @param stopWords
+     *      The set to add each stop word to
      *
      * @throws IOException
      *      If the file cannot be read
      */
-    private void readStopWords(String stopWordsFileName) throws IOException {
+    private static void readStopWords(String stopWordsFileName, HashSet<String> stopWords) throws IOException {
         //Create reader for stop words file
         BufferedReader documentReader = new BufferedReader(new FileReader(stopWordsFileName));
 
         String line;
-        this.stopWords = new HashSet<>();
 
         while ((line = documentReader.readLine()) != null) {
-            this.stopWords.put(line.toLowerCase());
+            stopWords.put(Tokenizer.normalise(line));
         }
     }
 
+    /**
+     * Compresses the postings of every word in the index. Word counts need no decoding, AND and NOT queries
+     * decode only the blocks of postings they visit, and other queries decode the postings of each word they look
+     * up once, caching them for later queries without locking. Must be called before the object is shared between
+     * threads.
+     *
+     * @bigO
+     *      O(numNodes + numOccurrences): encodes every occurrence once
+     */
+    public void compressIndex() {
+        this.documentTrie.compress();
+    }
 
     /**
-     * Forms an OccurrenceTrie storing occurrences of all words in the document with
-     * specified filename
+     * Returns an estimate of the memory used by the index: the trie, see OccurrenceTrie.getEstimatedBytes, and the
+     * line and section tables. The document itself is memory-mapped, so it is not counted
      *
      * @bigO
-     *      O(numChars + numWords + numLines):
+     *      O(numTerms): sums the estimate of every word's postings
      *
-     *      O(numChars) = it iterates through every character in the document and performs constant time
-     *          comparison against \n to split into lines. Adds or traverses down trie for every character in
-     *          the document which is at most O(27) each, hence O(numChars). Even though it traverses each line
-     *          twice (first to split into new line, then to actually process line and add words to trie) it is
-     *          still O(numChars) time
-     *      O(numWords) = adds occurrence to each word, performs O(1) operation numWords times
-     *      O(numLines) = must check if we're in a new section after each line, performs O(1) operation numLines
-     *          number of times
+     * @return
+     *      The estimated number of bytes of the index
+     */
+    public long getIndexBytes() {
+        return this.documentTrie.getEstimatedBytes() + 4L * this.numLines + 64L * this.sectionStarts.size();
+    }
+
+    /**
+     * Memory-maps the document with specified filename and records the start of every line
+     *
+     * @bigO
+     *      O(numBytes): scans every byte of the document once for line terminators
      *
      * @param filename
-     *      The filename of the document to read words and occurences into a trie
+     *      The filename of the document to map
+     * @return
+     *      The mapped document
      *
      * @throws IOException
      *      If the file cannot be read
      */
-    public void formTrieFromFile(String filename) throws IOException {
-        //Create reader for text
-        BufferedReader documentReader = new BufferedReader(new FileReader(filename));
-
-        Integer sectionNumber = 0;
-        int lineNumber = 1;
-
-        //Initialise Trie for creation
-        this.documentTrie = new OccurrenceTrie();
-        OccurrenceTrieNode reference;
-        HashPair<Integer, Integer> occurrence;
-
-
-        String line;
-        //Read file until end
-        while((line = documentReader.readLine()) != null) {
-            line = line.toLowerCase();
-            reference = documentTrie.getRoot(); //Start adding word from root
-            occurrence = new HashPair<>(lineNumber, 1); //First word occurs at start of line
-
-            for(int i = 0; i < line.length(); i++) {
-                //Non-alphanumerical characters that arent apostrophes also mark the end of words - add word to trie
-                if(!(Character.isLetterOrDigit(line.charAt(i)) || line.charAt(i) == '\'' || line.charAt(i) == ' ')) {
-                    //Check we've traversed a non-empty word
-                    if(!reference.equals(documentTrie.getRoot())) {
-                        reference.addOccurrence(occurrence, sectionNumber);
-                    }
-
-                    //Set occurrence position for next word
-                    occurrence = new HashPair<>(lineNumber, i + 2); //Column number = i + 1: next word starts at i + 2
-                    reference = documentTrie.getRoot();
-                    continue;
-
-                    //Handle space characters - end of word, add to trie
-                } else if(line.charAt(i) == ' ') {
-                    //Check we've traversed a non-empty word
-                    if(!reference.equals(documentTrie.getRoot())) {
-                        reference.addOccurrence(occurrence, sectionNumber);
-                    }
-
-                    //Set occurrence position for next word
-                    occurrence = new HashPair<>(lineNumber, i + 2); //Column number = i + 1: next word starts at i + 2
-                    reference = documentTrie.getRoot();
-                    continue;
-
-                    //Handle apostrophe
-                } else if (line.charAt(i) == '\'') {
-                    //Move start of word up one if apostrophe at start of word
-                    if(i == 0 || (line.charAt(i - 1) == ' ')) {
-                        occurrence.setRightValue(occurrence.getRightValue() + 1);
-                        continue;
-                    }
-
-                    //Ignore apostrophes on ends of word
-                    if (i + 1 == line.length() || (line.charAt(i + 1) == ' ')){
-                        continue;
-                    }
-                }
-
-                //General case - add leter and traverse down Trie
-                reference = reference.addChild(line.charAt(i));
-
-            }
-
-            //Handle end of line
-            reference.addOccurrence(occurrence, sectionNumber);
-            lineNumber++;
+    private static MappedDocument mapDocument(String filename) throws IOException {
+        MappedDocument document = new MappedDocument(MappedDocument.map(filename));
+        document.scanLines();
+        document.trimToSize();
+        return document;
+    }
 
-            //Check if we've moved to new section
-            if((sectionNumber + 1 < this.sectionStarts.size()) && (lineNumber >= this.sectionStarts.get(sectionNumber + 1))) {
-                sectionNumber++;
-            }
-        }
+    /**
+     * Forms an OccurrenceTrie storing occurrences of all words of the mapped document. The lines are tokenized in
+     * parallel chunks, cut at section starts, and the chunk tries are merged in line order: see IndexBuilder. Each
+     * occurrence also records the word's ordinal position in the document, so phrases can be matched from postings
+     * alone.
+     *
+     * @bigO
+     *      O((numBytes + numWords) / numThreads + numChunks * numNodes / numThreads):
+     *
+     *      O((numBytes + numWords) / numThreads) = tokenizes every byte and adds every word once, split across
+     *          numThreads concurrent tasks
+     *      O(numChunks * numNodes / numThreads) = merges the chunk tries
+     *
+     * @param document
+     *      The document to read words and occurences into a trie, with its line starts recorded
+     * @param sectionStarts
+     *      The starting line of every section, in order
+     * @return
+     *      The trie of the document, not yet frozen
+     */
+    private static OccurrenceTrie formTrieFromDocument(MappedDocument document, ArrayList<Integer> sectionStarts) {
+        return IndexBuilder.build(document, sectionStarts);
     }
 
     /**
@@ -294,25 +456,24 @@ public class AutoTester implements Search {
             return 0;
         }
 
-        ArrayList<HashPair<Integer, Integer>> occurrences = this.documentTrie.getOccurrences(word);
-
-        if(occurrences == null) {
-            return 0;
-        } else {
-            return occurrences.size();
-        }
+        return this.documentTrie.getTermSize(Tokenizer.normalise(word));
     }
 
     /**
      * Finds all occurrences of the phrase in the document.
      * A phrase may be a single word or a sequence of words.
      *
+     * The phrase is split into words by the Tokenizer, as the document was, so its words are found whatever their
+     * case or the punctuation between them. The words must occur at consecutive word positions, so a phrase may span
+     * lines and punctuation between its words is ignored. Candidates are driven by the rarest word of the phrase and
+     * the other words' postings are galloped forward to the positions the candidates require.
+     *
      * @bigO
-     *      O(firstWord.length() + firstWord.numOccurrences * phrase.length):
-     *          O(firstWord.length()): traverses phrase to find a ' ' performing constant comparison operation
-     *              on each character to split first word then traverses trie firstWordLength number of times
-     *          O(firstWord.numOccurrences * phrase.length): Runs O(phrase.length) function for each occurrence
-     *              of the first word in the phrase
+     *      O(phrase.length() + minOccurrences * numWords * log(maxOccurrences / minOccurrences)):
+     *          O(phrase.length()): tokenizes the phrase and traverses the trie for each word
+     *          O(minOccurrences * numWords * log(...)): for each occurrence of the rarest word, seeks every
+     *              other word's postings forward. The seeks of one word move monotonically, so each costs the
+     *              log of the distance it skips
      *
      * @param phrase The phrase to be found in the document.
      * @return List of pairs, where each pair indicates the line and column number of each occurrence of the phrase.
@@ -320,103 +481,73 @@ public class AutoTester implements Search {
      * @throws IllegalArgumentException if phrase is null or an empty String.
      */
     public List<Pair<Integer,Integer>> phraseOccurrence(String phrase) throws IllegalArgumentException {
+        return toPairs(iteratePhrase(phrase));
+    }
+
+    /**
+     * Iterates over the occurrences of the phrase in the document, finding each when it is consumed:
+     * see phraseOccurrence
+     *
+     * @bigO
+     *      O(phrase.length()) to initialise, then O(minOccurrences * numWords * log(maxOccurrences / minOccurrences))
+     *      over the whole iteration, see phraseOccurrence
+     *
+     * @param phrase The phrase to be found in the document.
+     * @return Iterator over the line and column number of each occurrence of the phrase.
+     * @throws IllegalArgumentException if phrase is null or an empty String.
+     */
+    public OccurrenceIterator iteratePhrase(String phrase) throws IllegalArgumentException {
 
         if((phrase == null ) || (phrase.length() == 0)) {
             throw new IllegalArgumentException("Invalid phrase");
         }
 
-        //If search for word not phrase
-        if(!phrase.contains(" ")) {
-            ArrayList<HashPair<Integer, Integer>> occurrences = this.documentTrie.getOccurrences(phrase);
-            if (occurrences == null) {
-                return new java.util.ArrayList<>();
-            } else {
-                return dataTypeAdapter(occurrences);
-            }
-        }
-
-        String word = phrase.split(" ")[0];
-
-        //Find occurrences of first word
-        ArrayList<HashPair<Integer, Integer>> occurrences = this.documentTrie.getOccurrences(phrase.split(" ")[0]);
-
-        HashPair<Integer, Integer> occurrence;
-        ArrayList<HashPair<Integer, Integer>> phraseOccurrences = new ArrayList<>();
+        //Find occurrences of every word of the phrase, split as the document was
+        PhraseWords words = new PhraseWords(this.documentTrie, Tokenizer.normalise(phrase));
+        Tokenizer.tokenize(words.phrase, words);
 
-        //Perform search starting at each occurrence of first word
-        for(int i = 0; i < occurrences.size(); i++) {
-            occurrence = occurrences.get(i);
-            if(matchPatternFromOccurrence(occurrence, phrase)) {
-                phraseOccurrences.append(occurrence);
-            }
+        if(words.missing || (words.occurrences.size() == 0)) {
+            return Postings.EMPTY.iterator();
         }
 
-        return dataTypeAdapter(phraseOccurrences);
+        //If search for word not phrase
+        if(words.occurrences.size() == 1) {
+            return words.occurrences.get(0).iterator();
+        }
+        return new PhraseIterator(words.occurrences, words.rarest);
     }
 
     /**
-     * Private helper method to match phrase to text beginning at occurrence
-     *
-     * @bigO
-     *      O(phrase.length()): iterates through each letter in phrase comparing it
-     *      to character in text until mismatch or all letters traversed. HashMap accesses
-     *      and character comparisons are O(1)
-     *
-     * @param occurrence
-     *      <lineNumber, columnNumber> to start searching document from
-     * @param phrase
-     *      the phrase to search for
-     *
-     * @return
-     *      Iff the phrase occurs at the specified occurence in the text
+     * Collects the postings of each word of a phrase as it is tokenized, noting the rarest
      */
-    private boolean matchPatternFromOccurrence(HashPair<Integer, Integer> occurrence, String phrase) {
-        int lineNumber = occurrence.getLeftValue();
-        int columnNumber = occurrence.getRightValue();
-        int stringIndex = 0;
-        char c;
-
-        while (stringIndex < phrase.length()) {
-            //Skip blank lines
-            if(this.textLines.get(lineNumber - 1).length() == 0) {
-                lineNumber++;
-                continue;
-            }
+    private static class PhraseWords implements Tokenizer.TokenHandler {
+        private final OccurrenceTrie trie;
+        private final String phrase;
+        private final ArrayList<Postings> occurrences = new ArrayList<>();
+        private int rarest = 0;
+        private boolean missing = false;
+
+        PhraseWords(OccurrenceTrie trie, String phrase) {
+            this.trie = trie;
+            this.phrase = phrase;
+        }
 
-            //Go to next line
-            if (columnNumber > this.textLines.get(lineNumber - 1).length()) {
-                //New line should correspond to space in search phrase
-                if(phrase.charAt(stringIndex) != ' ') {
-                    return false;
-                }
-                stringIndex++;
-                lineNumber++;
-                columnNumber = 1;
-                continue;
+        @Override
+        public void word(int start, int end, int column) {
+            Postings wordOccurrences = this.trie.getOccurrences(this.phrase, start, end);
+            if(wordOccurrences.size() == 0) {
+                this.missing = true;
             }
-
-            c = this.textLines.get(lineNumber - 1).charAt(columnNumber - 1);
-
-            //Valid char for comparison
-            if (((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || (c == ' ')) {
-                if (c != phrase.charAt(stringIndex++)) {
-                    return false;
-                }
-                //Handle apostrophe
-            } else if (c == '\'') {
-                if ((columnNumber + 1 > this.textLines.get(lineNumber - 1).length()) || (columnNumber == 1)
-                        || (this.textLines.get(lineNumber - 1).charAt(columnNumber - 1 - 1) == ' ')
-                        || (this.textLines.get(lineNumber - 1).charAt(columnNumber - 1 + 1) == ' ')) {
-                    //Apostrophe at start/end of word
-                } else {
-                    if (c != phrase.charAt(stringIndex++)) {
-                        return false;
-                    }
-                }
+            if((this.occurrences.size() > 0) && (wordOccurrences.size() < this.occurrences.get(this.rarest).size())) {
+                this.rarest = this.occurrences.size();
             }
-            columnNumber++;
+            this.occurrences.append(wordOccurrences);
+        }
+
+        @Override
+        public void endLine() {
+            //A phrase may span lines
         }
-        return true;
     }
 
     /**
@@ -425,9 +556,8 @@ public class AutoTester implements Search {
      * For example, "obscure" would be a prefix for "obscure", "obscured", "obscures" and "obscurely".
      *
      * @bigO:
-     *      O((numOccurrencesPerNode + 1)x (27 ^ heightRoot)): calls
-     *          O((numOccurrencesPerNode + 1)x (27 ^ heightRoot)) function and performs constant
-     *          time comparison
+     *      O(prefix.length() + numOccurrences): finds the prefix's node, whose occurrences are a range of the
+     *          frozen trie's pre-order layout, and creates a pair for each
      *
      * @param prefix The prefix of a word that is to be found in the document.
      * @return List of pairs, where each pair indicates the line and column number of each occurrence of the prefix.
@@ -435,17 +565,26 @@ public class AutoTester implements Search {
      * @throws IllegalArgumentException if prefix is null or an empty String.
      */
     public List<Pair<Integer,Integer>> prefixOccurrence(String prefix) throws IllegalArgumentException {
+        return toPairs(iteratePrefix(prefix));
+    }
+
+    /**
+     * Iterates over the occurrences of the prefix in the document, a slice of the frozen trie's pre-order layout:
+     * see prefixOccurrence
+     *
+     * @bigO
+     *      O(prefix.length()) to initialise, then O(1) per occurrence
+     *
+     * @param prefix The prefix of a word that is to be found in the document.
+     * @return Iterator over the line and column number of each occurrence of the prefix.
+     * @throws IllegalArgumentException if prefix is null or an empty String.
+     */
+    public OccurrenceIterator iteratePrefix(String prefix) throws IllegalArgumentException {
         if((prefix == null) || (prefix.length() == 0)) {
             throw new IllegalArgumentException("Invalid prefix");
         }
 
-        ArrayList<HashPair<Integer, Integer>> occurrences = this.documentTrie.getOccurrencesForSubtree(prefix);
-
-        if(occurrences == null) {
-            return new java.util.ArrayList<>();
-        } else {
-            return dataTypeAdapter(occurrences);
-        }
+        return this.documentTrie.iterateSubtree(Tokenizer.normalise(prefix));
     }
 
     /**
@@ -454,13 +593,13 @@ public class AutoTester implements Search {
      * The words do not need to be contiguous on the line.
      *
      * @bigO:
-     *      O(numWords * (wordLength + 1) + sum(numWordsOccurrences) * numWords):
+     *      O(numWords * (wordLength + 1) + minNumWordOccurrences * numWords * log(maxNumWordOccurrences)):
      *
      *          Breaking it down
-     *          O(numWords * (wordLength) + 1): getOccurrences runs in O(wordLength),
-     *              ArrayList.append and HashSet.contains run in O(1), and this occurs numWords times
-     *          O(sum(numWordsOccurrences) * numWords): finding intersection calls
-     *              O(sum(numWordsOccurrences) * numWords) function
+     *          O(numWords * (wordLength) + 1): getLineCursor runs in O(wordLength),
+     *              array assignment and HashSet.contains run in O(1), and this occurs numWords times
+     *          O(minNumWordOccurrences * numWords * log(maxNumWordOccurrences)): finding intersection gallops
+     *              through every list from the candidates of the rarest word
      *
      * @param words Array of words to find on a single line in the document.
      * @return List of line numbers on which all the words appear in the document.
@@ -469,25 +608,41 @@ public class AutoTester implements Search {
      *                                  or any of the Strings in the array are null or empty.
      */
     public List<Integer> wordsOnLine(String[] words) throws IllegalArgumentException {
+        return toLines(iterateWordsOnLine(words));
+    }
+
+    /**
+     * Iterates over the lines that contain all the words, finding each line when it is consumed: see wordsOnLine
+     *
+     * @bigO
+     *      O(numWords * (wordLength + 1)) to initialise, then amortised O(numWords * advanceCost) per candidate line
+     *
+     * @param words Array of words to find on a single line in the document.
+     * @return Iterator over the line numbers on which all the words appear, in ascending order.
+     * @throws IllegalArgumentException if words is null or an empty array
+     *                                  or any of the Strings in the array are null or empty.
+     */
+    public LineIterator iterateWordsOnLine(String[] words) throws IllegalArgumentException {
         if((words == null) || (words.length == 0)) {
             throw new IllegalArgumentException("Invalid search words");
         }
 
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>(words.length);
+        LineCursor[] occurrences = new LineCursor[words.length];
+        int numOccurrences = 0;
 
-        //Get occurrences of every word
+        //Get a cursor over the occurrences of every word
         for(int i = 0; i < words.length; i++) {
             if((words[i] == null) || (words[i].length() == 0)) {
                 throw new IllegalArgumentException("Invalid search word");
             }
 
-            if(!stopWords.contains(words[i])) {
-                occurrences.append(documentTrie.getOccurrences(words[i].toLowerCase()));
+            if(!stopWords.contains(Tokenizer.normalise(words[i]))) {
+                occurrences[numOccurrences++] = documentTrie.getLineCursor(Tokenizer.normalise(words[i]));
             }
         }
 
         //Find interesection of occurrences
-        return Intersection.getIntersections(occurrences).toJavaArrayList();
+        return Intersection.iterateIntersection(Arrays.copyOf(occurrences, numOccurrences));
     }
 
     /**
@@ -495,11 +650,11 @@ public class AutoTester implements Search {
      * Implements simple "or" logic when searching for the words.
      * The words do not need to be contiguous on the line.
      * @bigO:
-     *      O(numWords * (wordLength + 1) + O(sum(wordOccurrences.length) * words.length)):
+     *      O(numWords * (wordLength + 1) + O(sum(wordOccurrences.length) * log(words.length))):
      *          O(numWords * (wordLength) + 1): getOccurrences runs in O(wordLength),
      *              ArrayList.append and HashSet.contains run in O(1), and this occurs numWords times
-     *          O(sum(wordOccurrences.length) * words.length): finding union calls
-     *              O(sum(numElements) * numLists) function
+     *          O(sum(wordOccurrences.length) * log(words.length)): the union is streamed from a k-way heap
+     *              merge straight into the result
      *
      * @param words Array of words to find on a single line in the document.
      * @return List of line numbers on which any of the words appear in the document.
@@ -508,28 +663,44 @@ public class AutoTester implements Search {
      *                                  or any of the Strings in the array are null or empty.
      */
     public List<Integer> someWordsOnLine(String[] words) throws IllegalArgumentException {
+        return toLines(iterateSomeWordsOnLine(words));
+    }
+
+    /**
+     * Iterates over the lines that contain any of the words, merging each line when it is consumed:
+     * see someWordsOnLine
+     *
+     * @bigO
+     *      O(numWords * (wordLength + 1)) to initialise, then O(log(words.length)) per occurrence merged
+     *
+     * @param words Array of words to find on a single line in the document.
+     * @return Iterator over the line numbers on which any of the words appear, in ascending order.
+     * @throws IllegalArgumentException if words is null or an empty array
+     *                                  or any of the Strings in the array are null or empty.
+     */
+    public LineIterator iterateSomeWordsOnLine(String[] words) throws IllegalArgumentException {
         if((words == null) || (words.length == 0)) {
             throw new IllegalArgumentException("Invalid search words");
         }
 
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>(words.length);
-        ArrayList<HashPair<Integer, Integer>> wordOccurences;
+        ArrayList<Postings> occurrences = new ArrayList<>(words.length);
+        Postings wordOccurences;
         //Get occurrences for every word
         for(int i = 0; i < words.length; i++) {
             if((words[i] == null) || (words[i].length() == 0)) {
                 throw new IllegalArgumentException("Invalid search word");
             }
 
-            if(!stopWords.contains(words[i])) {
-                wordOccurences = documentTrie.getOccurrences(words[i].toLowerCase());
+            if(!stopWords.contains(Tokenizer.normalise(words[i]))) {
+                wordOccurences = documentTrie.getOccurrences(Tokenizer.normalise(words[i]));
                 if(wordOccurences.size() != 0) {
                     occurrences.append(wordOccurences);
                 }
             }
         }
 
-        //Find union of occurrences
-        return Intersection.getUnion(occurrences).toJavaArrayList();
+        //Stream union of occurrences
+        return Intersection.iterateUnion(occurrences);
     }
 
     /**
@@ -539,14 +710,14 @@ public class AutoTester implements Search {
      * The words do not need to be contiguous on the line.
      *
      * @bigO:
-     *      O(numWords * (wordLength + 1) + sum(numWordsRequiredOccurrences) * numWordsRequired +
+     *      O(numWords * (wordLength + 1) + minNumRequiredOccurrences * numWordsRequired * log(maxNumRequiredOccurrences) +
      *                          O(numRequiredOccurrences * wordsExcluded.length + sum(numExcludedOccurrences))):
      *
      *          Breaking it down
      *          O(numWords * (wordLength) + 1): getOccurrences runs in O(wordLength),
      *              ArrayList.append and HashSet.contains run in O(1), and this occurs numWords times
-     *          O(sum(numWordsRequiredOccurrences) * numWordsRequired): finding intersection
-     *                  calls O(sum(numElements) * numLists) function
+     *          O(minNumRequiredOccurrences * numWordsRequired * log(maxNumRequiredOccurrences)): finding intersection
+     *                  gallops through every list from the candidates of the rarest required word
      *           O(numRequiredOccurrences * wordsExcluded.length + sum(numExcludedOccurrences)): finding NOT calls
      *              O(numOccurrences * notOccurrences.length + sum(numNotOccurrences)) function
      *
@@ -560,52 +731,118 @@ public class AutoTester implements Search {
      */
     public List<Integer> wordsNotOnLine(String[] wordsRequired, String[] wordsExcluded)
             throws IllegalArgumentException {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> requiredOccurrences = new ArrayList<>(wordsRequired.length);
+        return toLines(iterateWordsNotOnLine(wordsRequired, wordsExcluded));
+    }
 
+    /**
+     * Iterates over the lines that contain all the required words and none of the excluded words, finding each
+     * line when it is consumed: see wordsNotOnLine
+     *
+     * @bigO
+     *      O(numWords * (wordLength + 1)) to initialise, then amortised
+     *      O((numWordsRequired + numWordsExcluded) * advanceCost) per candidate line
+     *
+     * @param wordsRequired Array of words to find on a single line in the document.
+     * @param wordsExcluded Array of words that must not be on the same line as 'wordsRequired'.
+     * @return Iterator over the line numbers meeting the search criteria, in ascending order.
+     * @throws IllegalArgumentException if either of wordsRequired or wordsExcluded are null or an empty array
+     *                                  or any of the Strings in either of the arrays are null or empty.
+     */
+    public LineIterator iterateWordsNotOnLine(String[] wordsRequired, String[] wordsExcluded)
+            throws IllegalArgumentException {
         if((wordsRequired == null ) || (wordsExcluded == null) ||
                 (wordsRequired.length == 0) || (wordsExcluded.length == 0)) {
             throw new IllegalArgumentException("Invalid search words");
         }
 
-        //Get occurrences of required words
+        LineCursor[] requiredOccurrences = new LineCursor[wordsRequired.length];
+        int numRequired = 0;
+
+        //Get a cursor over the occurrences of required words
         for(int i = 0; i < wordsRequired.length; i++) {
             if((wordsRequired[i] == null) || (wordsRequired[i].length() == 0)) {
                 throw new IllegalArgumentException("Invalid required word");
             }
 
-            if(!stopWords.contains(wordsRequired[i])) {
-                requiredOccurrences.append(documentTrie.getOccurrences(wordsRequired[i].toLowerCase()));
+            if(!stopWords.contains(Tokenizer.normalise(wordsRequired[i]))) {
+                requiredOccurrences[numRequired++] = documentTrie.getLineCursor(Tokenizer.normalise(wordsRequired[i]));
             }
         }
 
 
-        //Get occurrences of not required words
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> excludedOccurrences = new ArrayList<>(wordsExcluded.length);
+        //Get a cursor over the occurrences of not required words
+        LineCursor[] excludedOccurrences = new LineCursor[wordsExcluded.length];
+        int numExcluded = 0;
         for(int i = 0; i < wordsExcluded.length; i++) {
             if((wordsExcluded[i] == null) || (wordsExcluded[i].length() == 0)) {
                 throw new IllegalArgumentException("Invalid excluded word");
             }
 
-            if(!this.stopWords.contains(wordsExcluded[i])) {
-                excludedOccurrences.append(documentTrie.getOccurrences(wordsExcluded[i].toLowerCase()));
+            if(!this.stopWords.contains(Tokenizer.normalise(wordsExcluded[i]))) {
+                excludedOccurrences[numExcluded++] = documentTrie.getLineCursor(Tokenizer.normalise(wordsExcluded[i]));
             }
         }
 
-        //Find intersection of required words
-        ArrayList<Integer> intersection = Intersection.getIntersections(requiredOccurrences);
+        //Remove occurrences of excluded words from intersection of required words
+        return Intersection.iterateNot(Intersection.iterateIntersection(Arrays.copyOf(requiredOccurrences, numRequired)),
+                Arrays.copyOf(excludedOccurrences, numExcluded));
+    }
 
-        //Remove occurrences of excluded words from intersection
-        return Intersection.getNot(intersection, excludedOccurrences).toJavaArrayList();
+    /**
+     * Finds the sections that best match the words, scored with BM25 over the words' occurrences in each section.
+     * Stop words are ignored, as are repeated words.
+     *
+     * @bigO
+     *      O(numWords * (wordLength + 1) + numWords^2 + sum(numSectionsVisited) * (numWords + log(k))):
+     *          O(numWords * (wordLength + 1)): getOccurrences runs in O(wordLength),
+     *              HashSet.contains and ArrayList.append run in O(1), and this occurs numWords times
+     *          O(numWords^2 + sum(numSectionsVisited) * (numWords + log(k))): SectionRanker.topSections skips
+     *              the sections of common words that cannot reach the top k
+     *
+     * @param words Array of words to rank sections by.
+     * @param k     The largest number of sections to return.
+     * @return List of pairs, where each pair indicates the title of a section and its score,
+     *         ordered by descending score. Sections of a document without an index have an empty title.
+     * @throws IllegalArgumentException if words is null or an empty array, any of the Strings in the array
+     *                                  are null or empty, or k is not positive.
+     */
+    public List<Pair<String,Double>> topSections(String[] words, int k) throws IllegalArgumentException {
+        if((words == null) || (words.length == 0)) { throw new IllegalArgumentException("Invalid words"); }
+        if(k <= 0) { throw new IllegalArgumentException("Invalid number of sections"); }
+
+        ArrayList<Postings> wordOccurrences = new ArrayList<>(words.length);
+        HashSet<String> queried = new HashSet<>();
+        for(int i = 0; i < words.length; i++) {
+            if((words[i] == null) || (words[i].length() == 0)) { throw new IllegalArgumentException("Invalid search word");
+            } else if(!stopWords.contains(Tokenizer.normalise(words[i]))) {
+                String word = Tokenizer.normalise(words[i]);
+                if(!queried.contains(word)) {
+                    queried.put(word);
+                    wordOccurrences.append(documentTrie.getOccurrences(word));
+                }
+            }
+        }
+
+        ArrayList<HashPair<Integer, Double>> ranked = this.sectionRanker.topSections(wordOccurrences, k);
+        java.util.ArrayList<Pair<String, Double>> sections = new java.util.ArrayList<>(ranked.size());
+        for(int i = 0; i < ranked.size(); i++) {
+            String title = this.sectionTitles[ranked.get(i).getLeftValue()];
+            sections.add(new Pair<>((title == null) ? "" : title, ranked.get(i).getRightValue()));
+        }
+
+        return sections;
     }
 
     /**
-     * Returns the section numbers corresponding to the specified titles and a HashSet for each word of the section
-     * numbers they occur in
+     * Returns the section numbers corresponding to the specified titles and the postings of each word, which give
+     * the section numbers they occur in. The section numbers are null if titles is null or empty, so the whole
+     * document is searched
      *
      * @bigO
      *      O(numTitles + numWords)
      *          O(numTitles): performs comparisons, HashMap access and array assignment (all O(1)) numTitles times
-     *          O(numWords): performs comparisons, HashSet contains, ArrayList appends (all O(1)) numWords times
+     *          O(numWords * word.length()): performs comparisons, HashSet contains, ArrayList appends (all O(1)) and
+     *              trie lookup (O(word.length())) numWords times
      *
      * @param titles
      *      An array of titles of sections in the document
@@ -613,11 +850,11 @@ public class AutoTester implements Search {
      *      An array of words in the document
      * @return
      */
-    private HashPair<Integer[], ArrayList<HashSet<Integer>>> setupSectionSearch(String[] titles, String[] words) {
+    private HashPair<int[], ArrayList<Postings>> setupSectionSearch(String[] titles, String[] words) {
 
         //The section numbers of the titles
-        Integer[] sectionNumbers = new Integer[titles.length];
-        for(int i = 0; i < titles.length; i++) {
+        int[] sectionNumbers = ((titles == null) || (titles.length == 0)) ? null : new int[titles.length];
+        for(int i = 0; (sectionNumbers != null) && (i < titles.length); i++) {
             if((titles[i] == null) || (titles[i].length() == 0)) { throw new IllegalArgumentException("Invalid title");
             } else {
                 HashPair<Integer, Integer> sectionHashPair = this.sectionIndexes.get(titles[i].toLowerCase());
@@ -630,96 +867,51 @@ public class AutoTester implements Search {
         }
 
         //An ArrayList of section numbers (Integers) each word in words occurs in
-        ArrayList<HashSet<Integer>> wordSections = new ArrayList<>(words.length);
+        ArrayList<Postings> wordSections = new ArrayList<>(words.length);
         //Get sections of every word
         for(int i = 0; i < words.length; i++) {
             if((words[i] == null) || (words[i].length() == 0)) { throw new IllegalArgumentException("Invalid search word");
-            } else if(!stopWords.contains(words[i])) {
-                OccurrenceTrieNode node  = documentTrie.getNodeTerminatingWord(words[i].toLowerCase());
-
-                //A word doesnt occur in whole document
-                if(node == null) {
-                    wordSections.append(new HashSet<Integer>(0));
-                } else {
-                    wordSections.append(node.getSectionSet());
-                }
+            } else if(!stopWords.contains(Tokenizer.normalise(words[i]))) {
+                //Words that dont occur in whole document have empty postings
+                wordSections.append(documentTrie.getOccurrences(Tokenizer.normalise(words[i])));
             }
         }
 
         return new HashPair<>(sectionNumbers, wordSections);
     }
 
-    /**
-     * Integer comparator based on primitive value, used for binary search of section numbers
-     */
-    private class IntegerComparator implements Comparator<Integer> {
-
-        /**
-         * Compares two integers based on value.
-         *
-         * @bigO
-         *      O(1): constant time calculation
-         *
-         * @param a
-         *      An Integer for comparison
-         * @param b
-         *      An Integer for comparison
-         * @return
-         *      Returns > 0 if a > b, 0 if a = b, and < 0 if a < b
-         */
-        @Override
-        public int compare(Integer a, Integer b) {
-            return a - b;
-        }
-    }
-
     /**
      * Adds all occurrences of the specified word in the section to occurrencesFound
      *
      * @bigO
-     *      O(word.length() + log(numOccurrences) + numSectionOccurrences):
+     *      O(1 + numSectionOccurrences):
      *
      *          Breaking it down
-     *          O(word.length()): traverses documentTrie down word.length() nodes and returns sectionNumbers
-     *              and occurrences in O(1)
-     *          O(log(numOccurrences)): binary search of section numbers to find sectionNumber
-     *              (numSectionNumbers == numOccurrences)
+     *          O(1): the word's section bitmap gives the run of occurrences in sectionNumber, which is its offsets
+     *              into the postings
      *          O(numSectionOccurrences): traverse all occurrences in specified section and performs constant append
      *
      * @param word
      *      The word to add occurrences of
+     * @param occurrences
+     *      The postings of the word
      * @param sectionNumber
      *      The section number of occurrences to add
      * @param occurrencesFound
      *      The ArrayList to add <lineNumber, columnNumber, word> occurrences to
      */
-    private void addAllOccurrencesOfWordInSection(String word, Integer sectionNumber,
+    private void addAllOccurrencesOfWordInSection(String word, Postings occurrences, int sectionNumber,
                                                   ArrayList<Triple<Integer, Integer, String>> occurrencesFound) {
-
-        ArrayList<Integer> sectionNumbers = documentTrie.getSectionNumbers(word);
-        ArrayList<HashPair<Integer, Integer>> occurrences = documentTrie.getOccurrences(word);
-
-        //Binary search to find index of an occurrence in section
-        int sectionNumberIndex = sectionNumbers.binarySearch(new IntegerComparator(), sectionNumber);
-
-        //Find all other occurrences in section (will be around sectionNumberIndex)
-        int j = sectionNumberIndex;
-        //Add all occurrences before
-        while((j >= 0) &&(sectionNumbers.get(j).equals(sectionNumber))) {
-            occurrencesFound.append(new Triple<>(occurrences.get(j).getLeftValue(),
-                    occurrences.get(j).getRightValue(), word));
-            j--;
+        //Find the run of occurrences in section
+        int run = occurrences.findSection(sectionNumber);
+        if(run < 0) {
+            return;
         }
 
-        //Add all occurrences after
-        j = sectionNumberIndex + 1;
-        while((j < sectionNumbers.size()) &&(sectionNumbers.get(j).equals(sectionNumber))) {
-            occurrencesFound.append(new Triple<>(occurrences.get(j).getLeftValue(),
-                    occurrences.get(j).getRightValue(), word));
-            j++;
+        //All occurrences in section are contiguous
+        for(int j = occurrences.getSectionStart(run); j < occurrences.getSectionEnd(run); j++) {
+            occurrencesFound.append(new Triple<>(occurrences.getLine(j), occurrences.getColumn(j), word));
         }
-
-
     }
 
     /**
@@ -749,10 +941,8 @@ public class AutoTester implements Search {
     public List<Triple<Integer,Integer,String>> simpleAndSearch(String[] titles, String[] words)
             throws IllegalArgumentException {
         if((words == null) || (words.length == 0)) { throw new IllegalArgumentException("Invalid words"); }
-        if((titles == null) || (titles.length == 0)) { throw new IllegalArgumentException("Invalid titles"); }
 
-        ArrayList<Triple<Integer, Integer, String>> occurrencesFound = new ArrayList<>();
-        HashPair<Integer[], ArrayList<HashSet<Integer>>> setupHashPair = setupSectionSearch(titles, words);
+        HashPair<int[], ArrayList<Postings>> setupHashPair = setupSectionSearch(titles, words);
 
         //Not all titles are in document
         if(setupHashPair == null) {
@@ -760,50 +950,40 @@ public class AutoTester implements Search {
         }
 
         //The section numbers of the titles
-        Integer[] sectionNumbers = setupHashPair.getLeftValue();
+        int[] sectionNumbers = setupHashPair.getLeftValue();
 
         //An ArrayList of section numbers (Integers) each word in words occurs in
-        ArrayList<HashSet<Integer>> wordSections = setupHashPair.getRightValue();
+        ArrayList<Postings> wordSections = setupHashPair.getRightValue();
 
-        for(int i = 0; i < titles.length; i++) {
-            addOccurrencesAND(sectionNumbers[i], wordSections, words, occurrencesFound);
-        }
+        //The sections all words occur in
+        SectionBitmap matches = getSectionsOfAll(wordSections);
+        Postings[] wordOccurrences = getOccurrencesOfWords(words);
 
-        return occurrencesFound.toJavaArrayList();
+        return searchSections(sectionNumbers, matches, (sectionNumber, occurrencesFound) ->
+                addOccurrencesAND(sectionNumber, words, wordOccurrences, occurrencesFound));
     }
 
     /**
-     * Adds all occurrences of words in the specified section to occurrencesFound iff they all
-     * occur in the section, otherwise does nothing.
+     * Adds all occurrences of words in the specified section to occurrencesFound. The section is one all the
+     * words occur in.
      *
      * @bigO
-     *      O(numWords(word.length() + log(numOccurrences) + numSectionOccurrences + 1))
-     *
-     *          Breaking it down
-     *          O(numWords): calls HashSet contains O(1), numWords times
-     *          O(numWords*(word.length() + log(numOccurrences) + numSectionOccurrences)): calls
-     *              addAllOccurrencesOfWordInSection numWords times which runs in
-     *              O(word.length() + log(numOccurrences) + numSectionOccurrences)
+     *      O(numWords + numSectionOccurrences): calls addAllOccurrencesOfWordInSection numWords times which runs in
+     *          O(1 + numSectionOccurrences)
      *
      * @param sectionNumber
      *      The section number to add occurrences in
-     * @param wordSections
-     *      A HashSet for each word of the sections they occur in
      * @param words
      *      The words to possibly add their occurrences of
+     * @param wordOccurrences
+     *      The postings of each word
      * @param occurrencesFound
      *      An ArrayList of <lineNumber, columnNumber, word> to possibly add to
      */
-    private void addOccurrencesAND(Integer sectionNumber, ArrayList<HashSet<Integer>> wordSections,
-                                   String[] words, ArrayList<Triple<Integer, Integer, String>> occurrencesFound) {
-        for(int i = 0; i < wordSections.size(); i++) {
-            if(!wordSections.get(i).contains(sectionNumber)) {
-                return; //Not all words are in section
-            }
-        }
-
+    private void addOccurrencesAND(int sectionNumber, String[] words, Postings[] wordOccurrences,
+                                   ArrayList<Triple<Integer, Integer, String>> occurrencesFound) {
         for(int i = 0; i < words.length; i++) {
-            addAllOccurrencesOfWordInSection(words[i], sectionNumber,occurrencesFound);
+            addAllOccurrencesOfWordInSection(words[i], wordOccurrences[i], sectionNumber, occurrencesFound);
         }
 
     }
@@ -835,10 +1015,8 @@ public class AutoTester implements Search {
     public List<Triple<Integer,Integer,String>> simpleOrSearch(String[] titles, String[] words)
             throws IllegalArgumentException {
         if((words == null) || (words.length == 0)) { throw new IllegalArgumentException("Invalid words"); }
-        if((titles == null) || (titles.length == 0)) { throw new IllegalArgumentException("Invalid titles"); }
 
-        ArrayList<Triple<Integer, Integer, String>> occurrencesFound = new ArrayList<>();
-        HashPair<Integer[], ArrayList<HashSet<Integer>>> setupHashPair = setupSectionSearch(titles, words);
+        HashPair<int[], ArrayList<Postings>> setupHashPair = setupSectionSearch(titles, words);
 
         //Not all titles are in document
         if(setupHashPair == null) {
@@ -846,41 +1024,42 @@ public class AutoTester implements Search {
         }
 
         //The section numbers of the titles
-        Integer[] sectionNumbers = setupHashPair.getLeftValue();
+        int[] sectionNumbers = setupHashPair.getLeftValue();
         //An ArrayList of section numbers (Integers) each word in words occurs in
-        ArrayList<HashSet<Integer>> wordSections = setupHashPair.getRightValue();
+        ArrayList<Postings> wordSections = setupHashPair.getRightValue();
 
-        for(int i = 0; i < titles.length; i++) {
-            addOccurrencesOR(sectionNumbers[i], wordSections, words, occurrencesFound);
-        }
+        //The sections any word occurs in
+        SectionBitmap matches = getSectionsOfAny(wordSections);
+        //The words wordSections holds the postings of, in the same order
+        String[] searchWords = removeStopWords(words);
 
-        return occurrencesFound.toJavaArrayList();
+        return searchSections(sectionNumbers, matches, (sectionNumber, occurrencesFound) ->
+                addOccurrencesOR(sectionNumber, searchWords, wordSections, occurrencesFound));
     }
 
 
     /**
-     * Adds all occurrences of words in the specified section to occurrencesFound iff one of them
-     * occurs in the section, otherwise does nothing.
+     * Adds all occurrences of the words that occur in the specified section to occurrencesFound
      *
      * @bigO
-     *      O(numWords*(word.length() + log(numOccurrences) + numSectionOccurrences)):
-     *          calls addAllOccurrencesOfWordInSection numWords times and this runs in
-     *          O(word.length() + log(numOccurrences) + numSectionOccurrences)
+     *      O(numWords + numSectionOccurrences):
+     *          tests each word's section bitmap in O(1), and calls addAllOccurrencesOfWordInSection for each word
+     *          in the section, which runs in O(1 + numSectionOccurrences)
      *
      * @param sectionNumber
      *      The section number to add occurrences in
-     * @param wordSections
-     *      A HashSet for each word of the sections they occur in
      * @param words
-     *      The words to possibly add their occurrences of
+     *      The words to possibly add their occurrences of, without stop words
+     * @param wordSections
+     *      The postings of each of words, in the same order
      * @param occurrencesFound
      *      An ArrayList of <lineNumber, columnNumber, word> to possibly add to
      */
-    private void addOccurrencesOR(Integer sectionNumber, ArrayList<HashSet<Integer>> wordSections,
-                                  String[] words, ArrayList<Triple<Integer, Integer, String>> occurrencesFound) {
+    private void addOccurrencesOR(int sectionNumber, String[] words, ArrayList<Postings> wordSections,
+                                  ArrayList<Triple<Integer, Integer, String>> occurrencesFound) {
         for(int i = 0; i < wordSections.size(); i++) {
-            if(wordSections.get(i).contains(sectionNumber)) {
-                addAllOccurrencesOfWordInSection(words[i], sectionNumber, occurrencesFound);
+            if(wordSections.get(i).getSectionBitmap().contains(sectionNumber)) {
+                addAllOccurrencesOfWordInSection(words[i], wordSections.get(i), sectionNumber, occurrencesFound);
             }
         }
     }
@@ -897,7 +1076,7 @@ public class AutoTester implements Search {
      *
      *          Breaking it down
      *          O(numTitles + numWordsRequired + numWordsExcluded): calls setupSectionSearch which runs
-     *              in O(numTitles + numWords) and performs constant HashSet contains query for each excluded word
+     *              in O(numTitles + numWords) and binary searches the section runs of each excluded word
      *          O(numTitles*(numWordsExcluded + numWordsRequired * (word.length() + log(numOccurrences) + numSectionOccurrences + 1))):
      *              calls addOccurrencesNOT for each title which runs in
      *              O(numWordsExcluded + numWordsRequired * (word.length() + log(numOccurrences) + numSectionOccurrences + 1))
@@ -918,10 +1097,8 @@ public class AutoTester implements Search {
             throws IllegalArgumentException {
         if((wordsRequired == null) || (wordsRequired.length == 0)) { throw new IllegalArgumentException("Invalid required words"); }
         if((wordsExcluded == null) || (wordsExcluded.length == 0)) { throw new IllegalArgumentException("Invalid excluded words"); }
-        if((titles == null) || (titles.length == 0)) { throw new IllegalArgumentException("Invalid titles"); }
 
-        ArrayList<Triple<Integer, Integer, String>> occurrencesFound = new ArrayList<>();
-        HashPair<Integer[], ArrayList<HashSet<Integer>>> setupHashPair = setupSectionSearch(titles, wordsRequired);
+        HashPair<int[], ArrayList<Postings>> setupHashPair = setupSectionSearch(titles, wordsRequired);
 
         //Not all titles are in document
         if(setupHashPair == null) {
@@ -929,76 +1106,52 @@ public class AutoTester implements Search {
         }
 
         //The section numbers of the titles
-        Integer[] sectionNumbers = setupHashPair.getLeftValue();
+        int[] sectionNumbers = setupHashPair.getLeftValue();
         //An ArrayList of section numbers (Integers) each word in words occurs in
-        ArrayList<HashSet<Integer>> wordsRequiredSections = setupHashPair.getRightValue();
+        ArrayList<Postings> wordsRequiredSections = setupHashPair.getRightValue();
 
-        ArrayList<HashSet<Integer>> wordsExcludedSections = new ArrayList<>(wordsExcluded.length);
+        ArrayList<Postings> wordsExcludedSections = new ArrayList<>(wordsExcluded.length);
         //Get sections of excluded words
         for(int i = 0; i < wordsExcluded.length; i++) {
             if((wordsExcluded[i] == null) || (wordsExcluded[i].length() == 0)) { throw new IllegalArgumentException("Invalid search exclude word");
-            } else if(!stopWords.contains(wordsExcluded[i])) {
-                OccurrenceTrieNode node  = documentTrie.getNodeTerminatingWord(wordsExcluded[i].toLowerCase());
-
-                //A word doesnt occur in whole document
-                if(node == null) {
-                    wordsExcludedSections.append(new HashSet<>(0));
-                } else {
-                    wordsExcludedSections.append(node.getSectionSet());
-                }
+            } else if(!stopWords.contains(Tokenizer.normalise(wordsExcluded[i]))) {
+                //Words that dont occur in whole document have empty postings
+                wordsExcludedSections.append(documentTrie.getOccurrences(Tokenizer.normalise(wordsExcluded[i])));
             }
         }
 
-        for(int i = 0; i < titles.length; i++) {
-            addOccurrencesNOT(sectionNumbers[i], wordsRequiredSections, wordsExcludedSections, wordsRequired, occurrencesFound);
-        }
+        //The sections all required words and no excluded word occur in
+        SectionBitmap matches = getSectionsOfAll(wordsRequiredSections);
+        matches.andNot(getSectionsOfAny(wordsExcludedSections));
+        Postings[] requiredOccurrences = getOccurrencesOfWords(wordsRequired);
 
-        return occurrencesFound.toJavaArrayList();
+        return searchSections(sectionNumbers, matches, (sectionNumber, occurrencesFound) ->
+                addOccurrencesNOT(sectionNumber, wordsRequired, requiredOccurrences, occurrencesFound));
     }
 
 
     /**
-     * Adds all occurrences of the required words in the specified section to occurrencesFound iff they
-     * all occur in the specified section and none of the excluded words occur in the section
+     * Adds all occurrences of the required words in the specified section to occurrencesFound. The section is
+     * one all the required words and none of the excluded words occur in
      * @bigO
-     *      O(numWordsExcluded + numWordsRequired * (word.length() + log(numOccurrences) + numSectionOccurrences + 1)):
-     *          O(numWordsRequired): performs constant HashSet query for each required word
-     *          O(numWordsExcluded): performs constant HashSet query for each excluded word
-     *          O(numWordsRequired * (word.length() + log(numOccurrences) + numSectionOccurrences)): calls
-     *              addAllOccurrencesOfWordInSection for each required word, which runs in
-     *              O(word.length() + log(numOccurrences) + numSectionOccurrences)
+     *      O(numWordsRequired + numSectionOccurrences): calls addAllOccurrencesOfWordInSection for each required
+     *          word, which runs in O(1 + numSectionOccurrences)
      *
      * @param sectionNumber
      *      The section number to add occurrences in
-     * @param wordsRequiredSections
-     *      A HashSet for each required word of the sections they occur in
      * @param wordsRequired
-     *      The required words to possibly add their occurrences of
-     * @param wordsExcludedSections
-     *      A HashSet for each excluded word of the sections they occur in
+     *      The required words to add their occurrences of
+     * @param requiredOccurrences
+     *      The postings of each required word
      * @param occurrencesFound
      *      An ArrayList of <lineNumber, columnNumber, word> to possibly add to
      */
-    public void addOccurrencesNOT(Integer sectionNumber, ArrayList<HashSet<Integer>> wordsRequiredSections,
-                                  ArrayList<HashSet<Integer>> wordsExcludedSections, String[] wordsRequired,
+    public void addOccurrencesNOT(int sectionNumber, String[] wordsRequired, Postings[] requiredOccurrences,
                                   ArrayList<Triple<Integer, Integer, String>> occurrencesFound) {
-        //Check section number contains all required words
-        for(int i = 0; i < wordsRequiredSections.size(); i++) {
-            if(!wordsRequiredSections.get(i).contains(sectionNumber)) {
-                return;
-            }
-        }
-
-        //Check section number doesnt contain an excluded word
-        for(int i = 0; i < wordsExcludedSections.size(); i++) {
-            if(wordsExcludedSections.get(i).contains(sectionNumber)) {
-                return;
-            }
-        }
-
         //Add all occurrences of wordsRequired in section
         for(int i = 0; i < wordsRequired.length; i++) {
-            addAllOccurrencesOfWordInSection(wordsRequired[i], sectionNumber, occurrencesFound);
+            addAllOccurrencesOfWordInSection(wordsRequired[i], requiredOccurrences[i], sectionNumber,
+                    occurrencesFound);
         }
     }
 
@@ -1013,7 +1166,7 @@ public class AutoTester implements Search {
      *
      *          Breaking it down
      *          O(numTitles + numAllWords): calls setupSectionSearch which runs
-     *              in O(numTitles + numRequiredWords) and performs constant HashSet contains query for each or word
+     *              in O(numTitles + numRequiredWords) and binary searches the section runs of each or word
      *          O(numTitles * numAllWords*(word.length() + log(numOccurrences) + numSectionOccurrences + 1)):
      *              calls addOccurrencesANDOR for each title which runs in
      *              O(numAllWords*(word.length() + log(numOccurrences) + numSectionOccurrences + 1))
@@ -1034,10 +1187,8 @@ public class AutoTester implements Search {
             throws IllegalArgumentException {
         if((wordsRequired == null) || (wordsRequired.length == 0)) { throw new IllegalArgumentException("Invalid required words"); }
         if((orWords == null) || (orWords.length == 0)) { throw new IllegalArgumentException("Invalid or words"); }
-        if((titles == null) || (titles.length == 0)) { throw new IllegalArgumentException("Invalid titles"); }
 
-        ArrayList<Triple<Integer, Integer, String>> occurrencesFound = new ArrayList<>();
-        HashPair<Integer[], ArrayList<HashSet<Integer>>> setupHashPair = setupSectionSearch(titles, wordsRequired);
+        HashPair<int[], ArrayList<Postings>> setupHashPair = setupSectionSearch(titles, wordsRequired);
 
         //Not all titles are in document
         if(setupHashPair == null) {
@@ -1045,103 +1196,302 @@ public class AutoTester implements Search {
         }
 
         //The section numbers of the titles
-        Integer[] sectionNumbers = setupHashPair.getLeftValue();
+        int[] sectionNumbers = setupHashPair.getLeftValue();
         //An ArrayList of section numbers (Integers) each word in words occurs in
-        ArrayList<HashSet<Integer>> wordsRequiredSections = setupHashPair.getRightValue();
+        ArrayList<Postings> wordsRequiredSections = setupHashPair.getRightValue();
 
-        ArrayList<HashSet<Integer>> orWordsSections = new ArrayList<>(orWords.length);
+        ArrayList<Postings> orWordsSections = new ArrayList<>(orWords.length);
         for(int i = 0; i < orWords.length; i++) {
             if((orWords[i] == null) || (orWords[i].length() == 0)) { throw new IllegalArgumentException("Invalid search or word");
-            } else if(!stopWords.contains(orWords[i])) {
-                OccurrenceTrieNode node  = documentTrie.getNodeTerminatingWord(orWords[i].toLowerCase());
-                //A word doesnt occur in whole document
-                if(node == null) {
-                    orWordsSections.append(new HashSet<Integer>(0));
-                } else {
-                    orWordsSections.append(node.getSectionSet());
-                }
+            } else if(!stopWords.contains(Tokenizer.normalise(orWords[i]))) {
+                //Words that dont occur in whole document have empty postings
+                orWordsSections.append(documentTrie.getOccurrences(Tokenizer.normalise(orWords[i])));
             }
         }
 
-        for(int i = 0; i < titles.length; i++) {
-            addOccurrencesANDOR(sectionNumbers[i], wordsRequiredSections, orWordsSections, wordsRequired, orWords, occurrencesFound);
-        }
+        //The sections all required words and any or word occur in
+        SectionBitmap matches = getSectionsOfAll(wordsRequiredSections);
+        matches.and(getSectionsOfAny(orWordsSections));
+        Postings[] requiredOccurrences = getOccurrencesOfWords(wordsRequired);
+        //The or words orWordsSections holds the postings of, in the same order
+        String[] searchOrWords = removeStopWords(orWords);
 
-        return occurrencesFound.toJavaArrayList();
+        return searchSections(sectionNumbers, matches, (sectionNumber, occurrencesFound) ->
+                addOccurrencesANDOR(sectionNumber, wordsRequired, requiredOccurrences, searchOrWords,
+                        orWordsSections, occurrencesFound));
     }
 
     /**
-     * Adds all occurrences of the required words in the specified section to occurrencesFound iff they
-     * all occur in the specified section and at least one or word also occurs in the section. Adds all
-     * occurrences of the or words that occur in this section if the above condition is met
+     * Adds all occurrences of the or words that occur in the specified section, then all occurrences of the
+     * required words, to occurrencesFound. The section is one all the required words and at least one or word
+     * occur in
      *
      * @bigO
-     *      O(numAllWords*(word.length() + log(numOccurrences) + numSectionOccurrences + 1)):
-     *
-     *          Breaking it down
-     *          O(numAllWords): performs O(1) HashSet contains query for each required and or word
-     *          O(numAllWords*(word.length() + log(numOccurrences) + numSectionOccurrences)): calls
-     *              addAllOccurrencesOfWordInSection for each andWord and orWord which runs in
-     *              O(word.length() + log(numOccurrences) + numSectionOccurrences)
+     *      O(numAllWords + numSectionOccurrences):
+     *          tests each or word's section bitmap in O(1), and calls addAllOccurrencesOfWordInSection for each
+     *          required word and or word in the section, which runs in O(1 + numSectionOccurrences)
      *
      *
      * @param sectionNumber
      *      The section number to add occurrences in
-     * @param wordsRequiredSections
-     *      A HashSet for each required word of the sections they occur in
      * @param wordsRequired
-     *      The required words to possibly add their occurrences of
-     * @param orWordsSections
-     *      A HashSet for each or word of the sections they occur in
+     *      The required words to add their occurrences of
+     * @param requiredOccurrences
+     *      The postings of each required word
      * @param orWords
-     *      The or words to possibly add their occurrences of
+     *      The or words to possibly add their occurrences of, without stop words
+     * @param orWordsSections
+     *      The postings of each of orWords, in the same order
      * @param occurrencesFound
      *      An ArrayList of <lineNumber, columnNumber, word> to possibly add to
      */
-    private void addOccurrencesANDOR(Integer sectionNumber, ArrayList<HashSet<Integer>> wordsRequiredSections,
-                                     ArrayList<HashSet<Integer>> orWordsSections, String[] wordsRequired,
-                                     String [] orWords, ArrayList<Triple<Integer, Integer, String>> occurrencesFound) {
-
-        //Check section contains all required words
-        for(int i = 0; i < wordsRequiredSections.size(); i++) {
-            if(!wordsRequiredSections.get(i).contains(sectionNumber)) {
-                return;
+    private void addOccurrencesANDOR(int sectionNumber, String[] wordsRequired, Postings[] requiredOccurrences,
+                                     String[] orWords, ArrayList<Postings> orWordsSections,
+                                     ArrayList<Triple<Integer, Integer, String>> occurrencesFound) {
+        //Add the or words in the section
+        for(int i = 0; i < orWordsSections.size(); i++) {
+            if(orWordsSections.get(i).getSectionBitmap().contains(sectionNumber)) {
+                addAllOccurrencesOfWordInSection(orWords[i], orWordsSections.get(i), sectionNumber,
+                        occurrencesFound);
             }
         }
 
-        //Check it contains at least one or word
-        boolean orConditionMet = false;
-        for(int i = 0; i < orWordsSections.size(); i++) {
-            if(orWordsSections.get(i).contains(sectionNumber)) {
-                orConditionMet = true;
-                addAllOccurrencesOfWordInSection(orWords[i], sectionNumber, occurrencesFound);
+        //Add all required words
+        for(int i = 0; i < wordsRequired.length; i++) {
+            addAllOccurrencesOfWordInSection(wordsRequired[i], requiredOccurrences[i], sectionNumber,
+                    occurrencesFound);
+        }
+    }
+
+
+    /**
+     * Returns the number of sections in the document, a document without an index is one section
+     *
+     * @bigO
+     *      O(1): returns stored value
+     */
+    private int getNumSections() {
+        return Math.max(1, this.sectionStarts.size());
+    }
+
+    /**
+     * Returns the postings of each word as written, looked up once per search rather than once per section
+     *
+     * @bigO
+     *      O(sum(word.length())): traverses documentTrie down each word
+     *
+     * @param words
+     *      The words to look up
+     * @return
+     *      The postings of each word, in order
+     */
+    private Postings[] getOccurrencesOfWords(String[] words) {
+        Postings[] occurrences = new Postings[words.length];
+        for(int i = 0; i < words.length; i++) {
+            occurrences[i] = this.documentTrie.getOccurrences(Tokenizer.normalise(words[i]));
+        }
+        return occurrences;
+    }
+
+    /**
+     * Returns the words that are not stop words, in order. Section searches look up the postings of exactly these
+     * words, so the two stay parallel
+     *
+     * @bigO
+     *      O(sum(word.length())): normalises each word and performs HashSet contains (O(1))
+     *
+     * @param words
+     *      The words to filter
+     * @return
+     *      The words that are not stop words, as written
+     */
+    private String[] removeStopWords(String[] words) {
+        ArrayList<String> kept = new ArrayList<>(words.length);
+        for(int i = 0; i < words.length; i++) {
+            if(!this.stopWords.contains(Tokenizer.normalise(words[i]))) {
+                kept.append(words[i]);
+            }
+        }
+
+        String[] searchWords = new String[kept.size()];
+        for(int i = 0; i < searchWords.length; i++) {
+            searchWords[i] = kept.get(i);
+        }
+        return searchWords;
+    }
+
+    /**
+     * Returns the sections all of the postings occur in, every section if there are none
+     *
+     * @bigO
+     *      O(numWords * numSections / 64): ANDs each word's section bitmap, 64 sections at a time
+     *
+     * @param occurrences
+     *      The postings of each word
+     * @return
+     *      A new bitmap of the sections common to all the postings
+     */
+    private SectionBitmap getSectionsOfAll(ArrayList<Postings> occurrences) {
+        SectionBitmap sections = SectionBitmap.all(getNumSections());
+        for(int i = 0; i < occurrences.size(); i++) {
+            sections.and(occurrences.get(i).getSectionBitmap());
+        }
+        return sections;
+    }
+
+    /**
+     * Returns the sections any of the postings occur in
+     *
+     * @bigO
+     *      O(numWords * numSections / 64): ORs each word's section bitmap, 64 sections at a time
+     *
+     * @param occurrences
+     *      The postings of each word
+     * @return
+     *      A new bitmap of the sections of all the postings
+     */
+    private SectionBitmap getSectionsOfAny(ArrayList<Postings> occurrences) {
+        SectionBitmap sections = new SectionBitmap(getNumSections());
+        for(int i = 0; i < occurrences.size(); i++) {
+            sections.or(occurrences.get(i).getSectionBitmap());
+        }
+        return sections;
+    }
+
+    /**
+     * Adds the occurrences found in one section to a list
+     */
+    private interface SectionEvaluator {
+        void addOccurrences(int sectionNumber, ArrayList<Triple<Integer, Integer, String>> occurrencesFound);
+    }
+
+    /**
+     * Evaluates each of the sections that match the query in turn, concatenating the occurrences found in section
+     * order. Many sections, as a whole document search of common words has, are evaluated in parallel on the common
+     * ForkJoinPool
+     *
+     * @bigO
+     *      O(numSections / 64 + numMatches * evaluationCost / numThreads + numOccurrencesFound): each section is
+     *          tested against the query with a single bit test, then matching sections are evaluated by
+     *          concurrent tasks, whose results are concatenated
+     *
+     * @param sectionNumbers
+     *      The section numbers of the titles searched, in the order their occurrences are returned, else null to
+     *      search the whole document
+     * @param matches
+     *      The sections that satisfy the query
+     * @param evaluator
+     *      Adds the occurrences found in a matching section
+     *
+     * @return
+     *      The occurrences found in all the sections
+     */
+    private List<Triple<Integer,Integer,String>> searchSections(int[] sectionNumbers, SectionBitmap matches,
+                                                                SectionEvaluator evaluator) {
+        if(sectionNumbers == null) {
+            sectionNumbers = matches.toArray();
+        } else {
+            //Keep the titles' sections that match, in title order
+            int numMatching = 0;
+            int[] matching = new int[sectionNumbers.length];
+            for(int i = 0; i < sectionNumbers.length; i++) {
+                if(matches.contains(sectionNumbers[i])) {
+                    matching[numMatching++] = sectionNumbers[i];
+                }
             }
+            sectionNumbers = Arrays.copyOf(matching, numMatching);
         }
 
-        if(orConditionMet) {
-            //Add all required words
-            for(int i = 0; i < wordsRequired.length; i++) {
-                addAllOccurrencesOfWordInSection(wordsRequired[i], sectionNumber, occurrencesFound);
+        SectionTask task = new SectionTask(sectionNumbers, 0, sectionNumbers.length, evaluator);
+
+        if((sectionNumbers.length >= 2 * SectionTask.SECTIONS_PER_TASK)
+                && (ForkJoinPool.getCommonPoolParallelism() > 1)) {
+            return ForkJoinPool.commonPool().invoke(task).toJavaArrayList();
+        }
+        return task.compute().toJavaArrayList();
+    }
+
+    /**
+     * Evaluates a range of sections, splitting it in half between subtasks while it is large
+     */
+    private static class SectionTask extends RecursiveTask<ArrayList<Triple<Integer, Integer, String>>> {
+        private final static long serialVersionUID = 1L;
+
+        //Fewest sections worth evaluating in a separate task
+        private final static int SECTIONS_PER_TASK = 16;
+
+        private final int[] sectionNumbers;
+        private final int start;
+        private final int end;
+        private final SectionEvaluator evaluator;
+
+        SectionTask(int[] sectionNumbers, int start, int end, SectionEvaluator evaluator) {
+            this.sectionNumbers = sectionNumbers;
+            this.start = start;
+            this.end = end;
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        protected ArrayList<Triple<Integer, Integer, String>> compute() {
+            if((this.end - this.start < 2 * SECTIONS_PER_TASK) || (getPool() == null)) {
+                ArrayList<Triple<Integer, Integer, String>> occurrencesFound = new ArrayList<>();
+                for(int i = this.start; i < this.end; i++) {
+                    this.evaluator.addOccurrences(this.sectionNumbers[i], occurrencesFound);
+                }
+                return occurrencesFound;
             }
+
+            int middle = (this.start + this.end) >>> 1;
+            SectionTask right = new SectionTask(this.sectionNumbers, middle, this.end, this.evaluator);
+            right.fork();
+            ArrayList<Triple<Integer, Integer, String>> occurrencesFound =
+                    new SectionTask(this.sectionNumbers, this.start, middle, this.evaluator).compute();
+            occurrencesFound.extend(right.join());
+            return occurrencesFound;
         }
     }
 
+    /**
+     * Helper method to drain an iterator of occurrences into the required java.util.ArrayList of Pair classes
+     *
+     * @bigO
+     *      O(numOccurrences * iterationCost): appends each occurrence in amortised constant time
+     *
+     * @param occurrences
+     *      Internal data representation
+     *
+     * @return
+     *      External data representation
+     */
+    private java.util.ArrayList<Pair<Integer, Integer>> toPairs(OccurrenceIterator occurrences) {
+        java.util.ArrayList<Pair<Integer, Integer>> convertedList = new java.util.ArrayList<>();
+
+        while(occurrences.hasNext()) {
+            occurrences.next();
+            convertedList.add(new Pair<>(occurrences.getLine(), occurrences.getColumn()));
+        }
+
+        return convertedList;
+    }
 
     /**
-     * Helper method to convert my ArrayList and HashPair implementations to the required java.util.ArrayList
-     * Pair classes
+     * Helper method to drain an iterator of line numbers into the required java.util.ArrayList
+     *
+     * @bigO
+     *      O(numLines * iterationCost): appends each line number in amortised constant time
      *
-     * @param list
+     * @param lines
      *      Internal data representation
      *
      * @return
      *      External data representation
      */
-    private java.util.ArrayList<Pair<Integer, Integer>> dataTypeAdapter(ArrayList<HashPair<Integer, Integer>> list) {
-        java.util.ArrayList<Pair<Integer, Integer>> convertedList = new java.util.ArrayList<>(list.size());
+    private java.util.ArrayList<Integer> toLines(LineIterator lines) {
+        java.util.ArrayList<Integer> convertedList = new java.util.ArrayList<>();
 
-        for(int i = 0; i < list.size(); i++) {
-            convertedList.add(new Pair<>(list.get(i).getLeftValue(), list.get(i).getRightValue()));
+        while(lines.hasNext()) {
+            convertedList.add(lines.next());
         }
 
         return convertedList;
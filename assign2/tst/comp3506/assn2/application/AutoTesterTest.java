@@ -0,0 +1,83 @@
+package comp3506.assn2.application;
+
+import comp3506.assn2.utils.TestingTriple;
+import comp3506.assn2.utils.Triple;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+
+public class AutoTesterTest {
+
+    private File createTempFile(String content) throws IOException {
+        File file = File.createTempFile("autotester", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Two sections, "first" on lines 1-2 and "second" on lines 3-4, with "the", "a" and "and" as stop words
+     */
+    private AutoTester createAutoTester() throws IOException {
+        File document = createTempFile("the king rode\na hamlet spoke\nthe queen wept\nhamlet and the king\n");
+        File index = createTempFile("first,1\nsecond,3\n");
+        File stopWords = createTempFile("the\na\nand\n");
+        return new AutoTester(document.getPath(), index.getPath(), stopWords.getPath());
+    }
+
+    private HashSet<TestingTriple<Integer,Integer,String>> toSet(List<Triple<Integer,Integer,String>> triples) {
+        HashSet<TestingTriple<Integer,Integer,String>> set = new HashSet<>();
+        for(Triple<Integer,Integer,String> triple : triples) {
+            set.add(new TestingTriple<>(triple));
+        }
+        return set;
+    }
+
+    @Test
+    public void orSearchSkipsStopWords() throws IOException {
+        AutoTester tester = createAutoTester();
+
+        HashSet<TestingTriple<Integer,Integer,String>> expected = new HashSet<>();
+        expected.add(new TestingTriple<>(2, 3, "hamlet"));
+        expected.add(new TestingTriple<>(4, 1, "hamlet"));
+
+        List<Triple<Integer,Integer,String>> found = tester.simpleOrSearch(null, new String[] {"the", "hamlet"});
+        Assert.assertEquals(expected.size(), found.size());
+        Assert.assertEquals(expected, toSet(found));
+
+        found = tester.simpleOrSearch(new String[] {"second"}, new String[] {"hamlet", "the"});
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals(new TestingTriple<>(4, 1, "hamlet"), new TestingTriple<>(found.get(0)));
+    }
+
+    @Test
+    public void andOrSearchSkipsStopWords() throws IOException {
+        AutoTester tester = createAutoTester();
+
+        HashSet<TestingTriple<Integer,Integer,String>> expected = new HashSet<>();
+        expected.add(new TestingTriple<>(1, 5, "king"));
+        expected.add(new TestingTriple<>(2, 3, "hamlet"));
+        expected.add(new TestingTriple<>(3, 5, "queen"));
+        expected.add(new TestingTriple<>(4, 1, "hamlet"));
+        expected.add(new TestingTriple<>(4, 16, "king"));
+
+        List<Triple<Integer,Integer,String>> found = tester.compoundAndOrSearch(null, new String[] {"king"},
+                new String[] {"the", "hamlet", "queen"});
+        Assert.assertEquals(expected.size(), found.size());
+        Assert.assertEquals(expected, toSet(found));
+    }
+
+    @Test
+    public void stopWordsAloneMatchNoSection() throws IOException {
+        AutoTester tester = createAutoTester();
+
+        Assert.assertTrue(tester.simpleOrSearch(null, new String[] {"the", "a"}).isEmpty());
+        Assert.assertTrue(tester.compoundAndOrSearch(null, new String[] {"king"}, new String[] {"and"}).isEmpty());
+    }
+}
@@ -0,0 +1,174 @@
+package comp3506.assn2.application;
+
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.Triple;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class CachingSearchTest {
+
+    /**
+     * Search that counts the queries it answers
+     */
+    private static class CountingSearch implements Search {
+        private int numQueries = 0;
+
+        @Override
+        public int wordCount(String word) {
+            this.numQueries++;
+            return word.length();
+        }
+
+        @Override
+        public List<Pair<Integer,Integer>> phraseOccurrence(String phrase) {
+            this.numQueries++;
+            return new java.util.ArrayList<>(Arrays.asList(new Pair<>(1, 2), new Pair<>(3, phrase.length())));
+        }
+
+        @Override
+        public List<Integer> wordsOnLine(String[] words) {
+            this.numQueries++;
+            if(words.length == 0) {
+                throw new IllegalArgumentException("Invalid search words");
+            }
+            return new java.util.ArrayList<>(Arrays.asList(2, 4, 8));
+        }
+
+        @Override
+        public List<Triple<Integer,Integer,String>> simpleAndSearch(String[] titles, String[] words) {
+            this.numQueries++;
+            String title = (titles == null) ? "document" : titles[0];
+            return new java.util.ArrayList<>(Arrays.asList(new Triple<>(5, 1, words[0]), new Triple<>(9, 3, title)));
+        }
+    }
+
+    @Test
+    public void repeatedQueriesHitCache() {
+        CountingSearch counting = new CountingSearch();
+        CachingSearch search = new CachingSearch(counting, 1 << 20);
+
+        Assert.assertEquals(4, search.wordCount("king"));
+        Assert.assertEquals(4, search.wordCount("king"));
+        List<Pair<Integer,Integer>> first = search.phraseOccurrence("to be");
+        List<Pair<Integer,Integer>> second = search.phraseOccurrence("to be");
+
+        Assert.assertEquals(2, counting.numQueries);
+        Assert.assertEquals(2, search.getHits());
+        Assert.assertEquals(2, search.getMisses());
+        Assert.assertEquals(first.size(), second.size());
+        for(int i = 0; i < first.size(); i++) {
+            Assert.assertEquals(first.get(i).getLeftValue(), second.get(i).getLeftValue());
+            Assert.assertEquals(first.get(i).getRightValue(), second.get(i).getRightValue());
+        }
+    }
+
+    @Test
+    public void lineSearchesIgnoreWordOrder() {
+        CountingSearch counting = new CountingSearch();
+        CachingSearch search = new CachingSearch(counting, 1 << 20);
+
+        List<Integer> lines = search.wordsOnLine(new String[] {"king", "queen"});
+        Assert.assertEquals(lines, search.wordsOnLine(new String[] {"queen", "king"}));
+        Assert.assertEquals(lines, search.wordsOnLine(new String[] {"queen", "king", "queen"}));
+        Assert.assertEquals(1, counting.numQueries);
+
+        //Hits are new lists
+        search.wordsOnLine(new String[] {"king", "queen"}).clear();
+        Assert.assertEquals(3, search.wordsOnLine(new String[] {"king", "queen"}).size());
+    }
+
+    @Test
+    public void sectionSearchesKeepArgumentOrder() {
+        CountingSearch counting = new CountingSearch();
+        CachingSearch search = new CachingSearch(counting, 1 << 20);
+
+        search.simpleAndSearch(new String[] {"hamlet"}, new String[] {"king", "queen"});
+        List<Triple<Integer,Integer,String>> result = search.simpleAndSearch(new String[] {"hamlet"},
+                new String[] {"queen", "king"});
+        List<Triple<Integer,Integer,String>> cached = search.simpleAndSearch(new String[] {"hamlet"},
+                new String[] {"queen", "king"});
+
+        Assert.assertEquals(2, counting.numQueries);
+        Assert.assertEquals("queen", cached.get(0).getRightValue());
+        Assert.assertEquals(result.get(1).getCentreValue(), cached.get(1).getCentreValue());
+        Assert.assertEquals("hamlet", cached.get(1).getRightValue());
+    }
+
+    @Test
+    public void keysIgnoreCase() {
+        CountingSearch counting = new CountingSearch();
+        CachingSearch search = new CachingSearch(counting, 1 << 20);
+
+        search.wordCount("King");
+        search.wordCount("KING");
+        search.wordsOnLine(new String[] {"king", "Queen"});
+        search.wordsOnLine(new String[] {"QUEEN", "King"});
+        Assert.assertEquals(2, counting.numQueries);
+
+        //Hits return the words of the query answered
+        search.simpleAndSearch(new String[] {"Hamlet"}, new String[] {"king"});
+        List<Triple<Integer,Integer,String>> cached = search.simpleAndSearch(new String[] {"Hamlet"},
+                new String[] {"King"});
+        Assert.assertEquals(3, counting.numQueries);
+        Assert.assertEquals("King", cached.get(0).getRightValue());
+        Assert.assertEquals("Hamlet", cached.get(1).getRightValue());
+
+        //A word repeated in different cases is not cached
+        search.simpleAndSearch(new String[] {"Hamlet"}, new String[] {"King", "king"});
+        search.simpleAndSearch(new String[] {"Hamlet"}, new String[] {"King", "king"});
+        Assert.assertEquals(5, counting.numQueries);
+    }
+
+    @Test
+    public void wholeDocumentSectionSearchesCached() {
+        CountingSearch counting = new CountingSearch();
+        CachingSearch search = new CachingSearch(counting, 1 << 20);
+
+        search.simpleAndSearch(null, new String[] {"king"});
+        List<Triple<Integer,Integer,String>> cached = search.simpleAndSearch(new String[0], new String[] {"king"});
+
+        Assert.assertEquals(1, counting.numQueries);
+        Assert.assertEquals("document", cached.get(1).getRightValue());
+    }
+
+    @Test
+    public void invalidQueriesAreNotCached() {
+        CountingSearch counting = new CountingSearch();
+        CachingSearch search = new CachingSearch(counting, 1 << 20);
+
+        for(int i = 0; i < 2; i++) {
+            try {
+                search.wordsOnLine(new String[0]);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                //Expected
+            }
+        }
+
+        Assert.assertEquals(2, counting.numQueries);
+        Assert.assertEquals(0, search.getHits());
+    }
+
+    @Test
+    public void evictsWithinBudgetAndInvalidates() {
+        CountingSearch counting = new CountingSearch();
+        CachingSearch search = new CachingSearch(counting, 2000);
+
+        for(int i = 0; i < 100; i++) {
+            search.wordCount("word" + i);
+            Assert.assertTrue(search.getCachedBytes() <= 2000);
+        }
+        Assert.assertTrue(search.getEvictions() > 0);
+
+        search.wordCount("word99");
+        Assert.assertEquals(100, counting.numQueries);
+
+        search.invalidate();
+        search.wordCount("word99");
+        Assert.assertEquals(101, counting.numQueries);
+        Assert.assertTrue(search.getCachedBytes() < 200);
+    }
+}
@@ -0,0 +1,173 @@
+package comp3506.assn2.application;
+
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.Triple;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class CorpusTest {
+
+    /**
+     * Document whose index shrinks to a quarter when compressed, and whose word occurs once on each of its lines
+     */
+    private static class FixedDocument implements DocumentIndex {
+        private final int numLines;
+        private long indexBytes;
+        private boolean compressed = false;
+
+        FixedDocument(int numLines, long indexBytes) {
+            this.numLines = numLines;
+            this.indexBytes = indexBytes;
+        }
+
+        @Override
+        public int wordCount(String word) {
+            return this.numLines;
+        }
+
+        @Override
+        public List<Pair<Integer,Integer>> phraseOccurrence(String phrase) {
+            java.util.ArrayList<Pair<Integer,Integer>> occurrences = new java.util.ArrayList<>();
+            for(int line = 1; line <= this.numLines; line++) {
+                occurrences.add(new Pair<>(line, phrase.length()));
+            }
+            return occurrences;
+        }
+
+        @Override
+        public List<Integer> wordsOnLine(String[] words) {
+            if(words[0] == null) {
+                throw new IllegalArgumentException("Invalid search word");
+            }
+            java.util.ArrayList<Integer> lines = new java.util.ArrayList<>();
+            for(int line = 1; line <= this.numLines; line++) {
+                lines.add(line);
+            }
+            return lines;
+        }
+
+        @Override
+        public List<Pair<String,Double>> topSections(String[] words, int k) {
+            return Arrays.asList(new Pair<>("first", (double) this.numLines), new Pair<>("second", 0.5));
+        }
+
+        @Override
+        public long getIndexBytes() {
+            return this.indexBytes;
+        }
+
+        @Override
+        public void compressIndex() {
+            this.compressed = true;
+            this.indexBytes /= 4;
+        }
+    }
+
+    @Test
+    public void resultsAreKeyedByDocument() {
+        Corpus corpus = new Corpus(1 << 20);
+        Assert.assertEquals(0, corpus.addDocument("one", new FixedDocument(1, 100)));
+        Assert.assertEquals(1, corpus.addDocument("two", new FixedDocument(2, 100)));
+        Assert.assertEquals(2, corpus.addDocument("three", new FixedDocument(3, 100)));
+
+        Assert.assertEquals(6, corpus.wordCount("king"));
+        Assert.assertEquals("two", corpus.getName(1));
+
+        List<Triple<Integer,Integer,Integer>> occurrences = corpus.phraseOccurrence("to be");
+        Assert.assertEquals(6, occurrences.size());
+        int[][] expected = {{0, 1}, {1, 1}, {1, 2}, {2, 1}, {2, 2}, {2, 3}};
+        for(int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i][0], (int) occurrences.get(i).getLeftValue());
+            Assert.assertEquals(expected[i][1], (int) occurrences.get(i).getCentreValue());
+            Assert.assertEquals(5, (int) occurrences.get(i).getRightValue());
+        }
+
+        List<Pair<Integer,Integer>> lines = corpus.wordsOnLine(new String[] {"king"});
+        Assert.assertEquals(6, lines.size());
+        Assert.assertEquals(2, (int) lines.get(5).getLeftValue());
+        Assert.assertEquals(3, (int) lines.get(5).getRightValue());
+    }
+
+    @Test
+    public void topSectionsMergedByScore() {
+        Corpus corpus = new Corpus(1 << 20);
+        corpus.addDocument("one", new FixedDocument(1, 100));
+        corpus.addDocument("three", new FixedDocument(3, 100));
+
+        List<Triple<Integer,String,Double>> sections = corpus.topSections(new String[] {"king"}, 3);
+        Assert.assertEquals(3, sections.size());
+        Assert.assertEquals(1, (int) sections.get(0).getLeftValue());
+        Assert.assertEquals(0, (int) sections.get(1).getLeftValue());
+        Assert.assertEquals("first", sections.get(1).getCentreValue());
+        Assert.assertEquals(0, (int) sections.get(2).getLeftValue());
+        Assert.assertEquals(0.5, sections.get(2).getRightValue(), 0);
+    }
+
+    @Test
+    public void shardBudgetEnforced() {
+        Corpus corpus = new Corpus(1000);
+
+        FixedDocument small = new FixedDocument(1, 1000);
+        FixedDocument compressible = new FixedDocument(1, 4000);
+        corpus.addDocument("small", small);
+        corpus.addDocument("compressible", compressible);
+        Assert.assertFalse(small.compressed);
+        Assert.assertTrue(compressible.compressed);
+        Assert.assertEquals(1000, corpus.getIndexBytes(1));
+
+        try {
+            corpus.addDocument("large", new FixedDocument(1, 4004));
+            Assert.fail();
+        } catch(IllegalArgumentException expected) {
+            Assert.assertEquals(2, corpus.getNumDocuments());
+        }
+    }
+
+    @Test
+    public void replacedDocumentKeepsId() {
+        Corpus corpus = new Corpus(1 << 20);
+        corpus.addDocument("one", new FixedDocument(1, 100));
+        corpus.addDocument("two", new FixedDocument(2, 100));
+
+        corpus.replaceDocument(0, new FixedDocument(5, 100));
+        Assert.assertEquals(7, corpus.wordCount("king"));
+        Assert.assertEquals("one", corpus.getName(0));
+    }
+
+    @Test
+    public void manyShardsOnPool() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Corpus corpus = new Corpus(1 << 20, pool);
+            for(int i = 0; i < 100; i++) {
+                corpus.addDocument("document" + i, new FixedDocument(i % 3, 100));
+            }
+
+            Assert.assertEquals(99, corpus.wordCount("king"));
+            List<Pair<Integer,Integer>> lines = corpus.wordsOnLine(new String[] {"king"});
+            for(int i = 1; i < lines.size(); i++) {
+                Assert.assertTrue(lines.get(i - 1).getLeftValue() <= lines.get(i).getLeftValue());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shardErrorsPropagate() {
+        Corpus corpus = new Corpus(1 << 20);
+        corpus.addDocument("one", new FixedDocument(1, 100));
+        corpus.addDocument("two", new FixedDocument(2, 100));
+
+        corpus.wordsOnLine(new String[] {null});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyCorpusValidatesArguments() {
+        new Corpus(1 << 20).phraseOccurrence("");
+    }
+}
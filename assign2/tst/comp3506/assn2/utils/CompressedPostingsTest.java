@@ -0,0 +1,100 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompressedPostingsTest {
+
+    private Postings getPostings(int size) {
+        Postings postings = new Postings();
+
+        //Several occurrences per line, with gaps large enough to need multi-byte deltas
+        int line = 1;
+        for(int i = 0; i < size; i++) {
+            if(i % 3 == 0) {
+                line += 1 + i % 300;
+            }
+            postings.add(line, i % 80, 7 * i + (i % 3), i / 50);
+        }
+
+        return postings;
+    }
+
+    @Test
+    public void roundTrip() {
+        Postings postings = getPostings(1000);
+        CompressedPostings compressed = CompressedPostings.encode(postings);
+        Postings decoded = compressed.decode();
+
+        Assert.assertEquals(8, compressed.getNumBlocks());
+        Assert.assertEquals(postings.size(), decoded.size());
+        Assert.assertEquals(postings.toString(), decoded.toString());
+        for(int i = 0; i < postings.size(); i++) {
+            Assert.assertEquals(postings.getLine(i), decoded.getLine(i));
+            Assert.assertEquals(postings.getColumn(i), decoded.getColumn(i));
+            Assert.assertEquals(postings.getPosition(i), decoded.getPosition(i));
+        }
+        Assert.assertEquals(postings.getNumSections(), decoded.getNumSections());
+        Assert.assertEquals(postings.getSectionStart(3), decoded.getSectionStart(3));
+
+        OccurrenceIterator iterator = compressed.iterator();
+        for(int i = 0; i < postings.size(); i++) {
+            iterator.next();
+            Assert.assertEquals(postings.getLine(i), iterator.getLine());
+            Assert.assertEquals(postings.getColumn(i), iterator.getColumn());
+        }
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void smallerThanPostings() {
+        CompressedPostings compressed = CompressedPostings.encode(getPostings(1000));
+
+        Assert.assertTrue(compressed.getEncodedLength() < 1000 * 12 / 3);
+    }
+
+    @Test
+    public void empty() {
+        CompressedPostings compressed = CompressedPostings.encode(new Postings());
+
+        Assert.assertEquals(0, compressed.decode().size());
+        Assert.assertEquals(LineCursor.NO_MORE_LINES, compressed.cursor().line());
+        Assert.assertEquals(LineCursor.NO_MORE_LINES, compressed.cursor().advance(5));
+    }
+
+    @Test
+    public void cursorMatchesPostings() {
+        Postings postings = getPostings(1000);
+        int lastLine = postings.getLine(postings.size() - 1);
+
+        for(int step = 1; step < 2000; step += 97) {
+            LineCursor expected = postings.cursor();
+            LineCursor actual = CompressedPostings.encode(postings).cursor();
+
+            Assert.assertEquals(expected.line(), actual.line());
+            for(int target = 0; target <= lastLine + step; target += step) {
+                Assert.assertEquals(expected.advance(target), actual.advance(target));
+            }
+        }
+    }
+
+    @Test
+    public void intersectCompressed() {
+        Postings first = new Postings();
+        Postings second = new Postings();
+        for(int line = 1; line <= 1000; line++) {
+            first.add(line, 0, 2 * line, 0);
+            if(line % 7 == 0) {
+                second.add(line, 0, 2 * line + 1, 0);
+            }
+        }
+
+        LineCursor[] cursors = new LineCursor[] {CompressedPostings.encode(first).cursor(),
+                CompressedPostings.encode(second).cursor()};
+        int[] intersections = Intersection.iterateIntersection(cursors).stream().toArray();
+
+        Assert.assertEquals(142, intersections.length);
+        Assert.assertEquals(7, intersections[0]);
+        Assert.assertEquals(994, intersections[141]);
+    }
+}
@@ -45,6 +45,46 @@ public class HashMapTest {
 
     @Test
     public void remove() throws Exception {
+        HashMap<Integer, Integer> hashMap = new HashMap<>();
+        for(int i = 0; i < 100; i++) {
+            hashMap.put(i, i);
+        }
+        for(int i = 0; i < 100; i += 2) {
+            hashMap.remove(i);
+        }
+        hashMap.remove(1000);
+
+        Assert.assertEquals(50, hashMap.getSize());
+        for(int i = 0; i < 100; i++) {
+            Assert.assertEquals((i % 2 == 0) ? null : Integer.valueOf(i), hashMap.get(i));
+        }
+        Assert.assertEquals(50, hashMap.getKeys().size());
+    }
+
+    @Test
+    public void probesStayShortUnderChurn() throws Exception {
+        HashMap<String, Integer> hashMap = new HashMap<>(64);
+        java.util.HashMap<String, Integer> reference = new java.util.HashMap<>();
+        java.util.Random random = new java.util.Random(3506);
+
+        //Hold about 40 of 80 keys while putting and removing many times more
+        for(int i = 0; i < 100000; i++) {
+            String key = "word" + random.nextInt(80);
+            if(random.nextBoolean()) {
+                hashMap.put(key, i);
+                reference.put(key, i);
+            } else {
+                hashMap.remove(key);
+                reference.remove(key);
+            }
+        }
+
+        Assert.assertEquals(reference.size(), hashMap.getSize());
+        Assert.assertTrue(hashMap.getAverageProbeLength() < 2);
+        Assert.assertTrue(hashMap.getMaxProbeLength() < 16);
+        for(int i = 0; i < 80; i++) {
+            Assert.assertEquals(reference.get("word" + i), hashMap.get("word" + i));
+        }
     }
 
 }
\ No newline at end of file
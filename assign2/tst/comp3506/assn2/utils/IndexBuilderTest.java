@@ -0,0 +1,126 @@
+package comp3506.assn2.utils;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class IndexBuilderTest {
+
+    private static final String[] WORDS = {"the", "then", "thee", "there's", "'tis", "o'er", "café", "1599", "a",
+            "king", "KING", "Ophelia", "to", "be,", "or", "not--", "ἀλφα"};
+    private static final String[] TERMINATORS = {"\n", "\r\n", "\r"};
+
+    private static File documentFile;
+    private static MappedDocument document;
+    private static ArrayList<Integer> sectionStarts;
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        Random random = new Random(3506);
+        StringBuilder text = new StringBuilder();
+        int numLines = 3000;
+
+        for(int line = 0; line < numLines; line++) {
+            int numWords = random.nextInt(8);
+            for(int i = 0; i < numWords; i++) {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+                text.append((i + 1 < numWords) ? " " : "");
+            }
+            text.append(TERMINATORS[random.nextInt(TERMINATORS.length)]);
+        }
+
+        documentFile = File.createTempFile("index-builder", ".txt");
+        try(OutputStream output = new FileOutputStream(documentFile)) {
+            output.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        document = new MappedDocument(MappedDocument.map(documentFile.getPath()));
+        document.scanLines();
+
+        //Sections of irregular lengths, including two starting on consecutive lines
+        sectionStarts = new ArrayList<>();
+        int[] starts = {1, 40, 41, 500, 1234, 1235, 2999};
+        for(int i = 0; i < starts.length; i++) {
+            sectionStarts.append(starts[i]);
+        }
+
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+        documentFile.delete();
+    }
+
+    private void assertSameTrie(OccurrenceTrieNode expected, OccurrenceTrieNode actual) {
+        Postings expectedOccurrences = expected.getOccurrences();
+        Postings actualOccurrences = actual.getOccurrences();
+
+        Assert.assertEquals(expectedOccurrences.size(), actualOccurrences.size());
+        for(int i = 0; i < expectedOccurrences.size(); i++) {
+            Assert.assertEquals(expectedOccurrences.getLine(i), actualOccurrences.getLine(i));
+            Assert.assertEquals(expectedOccurrences.getColumn(i), actualOccurrences.getColumn(i));
+            Assert.assertEquals(expectedOccurrences.getPosition(i), actualOccurrences.getPosition(i));
+        }
+        Assert.assertEquals(expectedOccurrences.getNumSections(), actualOccurrences.getNumSections());
+        for(int run = 0; run < expectedOccurrences.getNumSections(); run++) {
+            Assert.assertEquals(expectedOccurrences.getSectionId(run), actualOccurrences.getSectionId(run));
+            Assert.assertEquals(expectedOccurrences.getSectionStart(run), actualOccurrences.getSectionStart(run));
+        }
+
+        Assert.assertEquals(expected.getNumChildren(), actual.getNumChildren());
+        for(int i = 0; i < expected.getNumChildren(); i++) {
+            Assert.assertEquals(expected.getChildAt(i).getValue(), actual.getChildAt(i).getValue());
+            assertSameTrie(expected.getChildAt(i), actual.getChildAt(i));
+        }
+    }
+
+    @Test
+    public void chunkedBuildMatchesSinglePass() {
+        OccurrenceTrie expected = IndexBuilder.build(document, sectionStarts, pool, 1);
+
+        int[] numChunks = {2, 7, 50, 3000, 10000};
+        for(int i = 0; i < numChunks.length; i++) {
+            OccurrenceTrie actual = IndexBuilder.build(document, sectionStarts, pool, numChunks[i]);
+            assertSameTrie(expected.getRoot(), actual.getRoot());
+        }
+    }
+
+    @Test
+    public void singlePassTokenizes() {
+        OccurrenceTrie trie = IndexBuilder.build(document, sectionStarts, pool, 1);
+
+        Assert.assertTrue(trie.getOccurrences("king").size() > 0);
+        Assert.assertTrue(trie.getOccurrences("there's").size() > 0);
+        Assert.assertTrue(trie.getOccurrences("o'er").size() > 0);
+        Assert.assertTrue(trie.getOccurrences("tis").size() > 0);
+        Assert.assertEquals(0, trie.getOccurrences("KING").size());
+        Assert.assertEquals(0, trie.getOccurrences("be,").size());
+    }
+
+    @Test
+    public void emptyDocument() throws IOException {
+        File empty = File.createTempFile("index-builder-empty", ".txt");
+        try {
+            MappedDocument emptyDocument = new MappedDocument(MappedDocument.map(empty.getPath()));
+            emptyDocument.scanLines();
+
+            OccurrenceTrie trie = IndexBuilder.build(emptyDocument, sectionStarts, pool, 8);
+            Assert.assertEquals(0, emptyDocument.getNumLines());
+            Assert.assertEquals(0, trie.getRoot().getNumChildren());
+        } finally {
+            empty.delete();
+        }
+    }
+}
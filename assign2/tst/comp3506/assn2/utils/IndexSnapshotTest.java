@@ -0,0 +1,153 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class IndexSnapshotTest {
+
+    private static final long[] CHECKSUMS = {11, 22, IndexSnapshot.NO_SOURCE};
+
+    private File createTempFile(String content) throws IOException {
+        File file = File.createTempFile("snapshot", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private File writeSnapshot(File document) throws IOException {
+        return writeSnapshot(document, false);
+    }
+
+    private File writeSnapshot(File document, boolean compressed) throws IOException {
+        OccurrenceTrie trie = new OccurrenceTrie();
+        trie.addOccurrence("to", 1, 1, 0, 0);
+        trie.addOccurrence("be", 1, 4, 1, 0);
+        trie.addOccurrence("to", 2, 1, 2, 1);
+        trie.addOccurrence("thee", 2, 4, 3, 1);
+        trie.freeze();
+        if(compressed) {
+            trie.compress();
+        }
+
+        MappedDocument mapped = new MappedDocument(MappedDocument.map(document.getPath()), new int[] {0, 6});
+
+        HashMap<String, HashPair<Integer, Integer>> sectionIndexes = new HashMap<>();
+        sectionIndexes.put("first", new HashPair<>(0, 1));
+        sectionIndexes.put("second", new HashPair<>(1, 2));
+        ArrayList<Integer> sectionStarts = new ArrayList<>();
+        sectionStarts.append(1);
+        sectionStarts.append(2);
+
+        HashSet<String> stopWords = new HashSet<>();
+        stopWords.put("to");
+
+        File snapshot = File.createTempFile("snapshot", ".idx");
+        snapshot.deleteOnExit();
+        new IndexSnapshot(trie, mapped, sectionIndexes, sectionStarts, stopWords).write(snapshot.getPath(), CHECKSUMS);
+        return snapshot;
+    }
+
+    @Test
+    public void writeThenOpen() throws IOException {
+        File document = createTempFile("to be\nto thee\n");
+        File snapshot = writeSnapshot(document);
+
+        IndexSnapshot opened = IndexSnapshot.open(snapshot.getPath(), document.getPath(), CHECKSUMS);
+
+        //Opened as a frozen trie, with the postings laid out as written
+        Assert.assertNotNull(opened);
+        Assert.assertTrue(opened.getTrie().isFrozen());
+        Assert.assertEquals(3, opened.getTrie().getVocabulary().getNumTerms());
+        Assert.assertEquals(4, opened.getTrie().getNumOccurrences());
+        Assert.assertTrue(opened.getTrie().getOccurrences("thee").isFollowedBy(opened.getTrie().getOccurrences("to")));
+        Postings to = opened.getTrie().getOccurrences("to");
+        Assert.assertEquals(2, to.size());
+        Assert.assertEquals(2, to.getLine(1));
+        Assert.assertEquals(2, to.getNumSections());
+        Assert.assertEquals(1, to.getSectionId(1));
+        Assert.assertEquals(4, opened.getTrie().getOccurrences("thee").getColumn(0));
+        Assert.assertEquals(3, opened.getTrie().getOccurrences("thee").getPosition(0));
+        Assert.assertEquals(0, opened.getTrie().getOccurrences("t").size());
+        Assert.assertEquals(3, opened.getTrie().getOccurrencesForSubtree("t").size());
+
+        Assert.assertEquals(2, opened.getDocument().getNumLines());
+        Assert.assertEquals("to thee", opened.getDocument().getLine(2));
+        Assert.assertEquals(Integer.valueOf(2), opened.getSectionStarts().get(1));
+        Assert.assertEquals(Integer.valueOf(1), opened.getSectionIndexes().get("second").getLeftValue());
+        Assert.assertTrue(opened.getStopWords().contains("to"));
+        Assert.assertFalse(opened.getStopWords().contains("be"));
+    }
+
+    @Test
+    public void compressedTrieWritten() throws IOException {
+        File document = createTempFile("to be\nto thee\n");
+        File snapshot = writeSnapshot(document, true);
+
+        IndexSnapshot opened = IndexSnapshot.open(snapshot.getPath(), document.getPath(), CHECKSUMS);
+
+        Assert.assertNotNull(opened);
+        Postings to = opened.getTrie().getOccurrences("to");
+        Assert.assertEquals(2, to.size());
+        Assert.assertEquals(2, to.getPosition(1));
+        Assert.assertEquals(1, to.getSectionStart(1));
+        Assert.assertEquals(3, opened.getTrie().getOccurrencesForSubtree("t").size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unfrozenTrieNotWritten() throws IOException {
+        File document = createTempFile("to be\n");
+        MappedDocument mapped = new MappedDocument(MappedDocument.map(document.getPath()), new int[] {0});
+        File snapshot = File.createTempFile("snapshot", ".idx");
+        snapshot.deleteOnExit();
+
+        new IndexSnapshot(new OccurrenceTrie(), mapped, new HashMap<>(), new ArrayList<>(), new HashSet<>())
+                .write(snapshot.getPath(), CHECKSUMS);
+    }
+
+    @Test
+    public void changedSourceIsNotOpened() throws IOException {
+        File document = createTempFile("to be\nto thee\n");
+        File snapshot = writeSnapshot(document);
+
+        Assert.assertNull(IndexSnapshot.open(snapshot.getPath(), document.getPath(), new long[] {11, 23, -1}));
+    }
+
+    @Test
+    public void corruptSnapshotIsNotOpened() throws IOException {
+        File document = createTempFile("to be\nto thee\n");
+        File snapshot = writeSnapshot(document);
+
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.seek(file.length() / 2);
+            int b = file.read();
+            file.seek(file.length() / 2);
+            file.write(b ^ 0xff);
+        }
+
+        Assert.assertNull(IndexSnapshot.open(snapshot.getPath(), document.getPath(), CHECKSUMS));
+    }
+
+    @Test
+    public void missingSnapshotIsNotOpened() throws IOException {
+        File document = createTempFile("to be\n");
+
+        Assert.assertNull(IndexSnapshot.open(document.getPath() + ".missing", document.getPath(), CHECKSUMS));
+    }
+
+    @Test
+    public void checksumOfFile() throws IOException {
+        File first = createTempFile("to be");
+        File second = createTempFile("to be");
+        File third = createTempFile("or not");
+
+        Assert.assertEquals(IndexSnapshot.checksum(first.getPath()), IndexSnapshot.checksum(second.getPath()));
+        Assert.assertNotEquals(IndexSnapshot.checksum(first.getPath()), IndexSnapshot.checksum(third.getPath()));
+        Assert.assertEquals(IndexSnapshot.NO_SOURCE, IndexSnapshot.checksum(null));
+    }
+}
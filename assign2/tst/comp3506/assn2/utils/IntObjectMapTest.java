@@ -0,0 +1,34 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntObjectMapTest {
+
+    @Test
+    public void putGetRemove() throws Exception {
+        IntObjectMap<String> map = new IntObjectMap<>();
+
+        for(char letter = 'a'; letter <= 'z'; letter++) {
+            map.put(letter, String.valueOf(letter));
+        }
+        map.put(0, "zero");
+        map.put('q', "Q");
+
+        Assert.assertEquals(27, map.getSize());
+        Assert.assertEquals("Q", map.get('q'));
+        Assert.assertEquals("zero", map.get(0));
+        Assert.assertNull(map.get('A'));
+
+        for(char letter = 'a'; letter <= 'y'; letter++) {
+            map.remove(letter);
+        }
+        map.remove(0);
+        map.remove('A');
+
+        Assert.assertEquals(1, map.getSize());
+        Assert.assertEquals("z", map.get('z'));
+        Assert.assertFalse(map.containsKey('a'));
+        Assert.assertArrayEquals(new int[]{'z'}, map.getKeys());
+    }
+}
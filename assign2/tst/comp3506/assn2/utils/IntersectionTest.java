@@ -5,17 +5,17 @@ import org.junit.Test;
 
 public class IntersectionTest {
 
-    private ArrayList<HashPair<Integer, Integer>> getOccurrencesWithLineNumbers(Integer[] lineNumbers) {
-        ArrayList<HashPair<Integer, Integer>> occurrences = new ArrayList<>(lineNumbers.length);
+    private Postings getOccurrencesWithLineNumbers(Integer[] lineNumbers) {
+        Postings occurrences = new Postings(lineNumbers.length);
         for (int i = 0; i < lineNumbers.length; i++) {
-            occurrences.append(new HashPair<>(lineNumbers[i], 1));
+            occurrences.add(lineNumbers[i], 1, i, 0);
         }
         return occurrences;
     }
 
-    private boolean isLineNumberInOccurrences(ArrayList<HashPair<Integer, Integer>> occurrences, Integer lineNumber) {
+    private boolean isLineNumberInOccurrences(Postings occurrences, Integer lineNumber) {
         for (int i = 0; i < occurrences.size(); i++) {
-            if (occurrences.get(i).getLeftValue().equals(lineNumber)) {
+            if (occurrences.getLine(i) == lineNumber) {
                 return true;
             }
         }
@@ -23,18 +23,34 @@ public class IntersectionTest {
         return false;
     }
 
-    private void testOccurrencesForIntersection(ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences) {
+    private LineCursor[] getCursors(ArrayList<Postings> occurrences) {
+        LineCursor[] cursors = new LineCursor[occurrences.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = occurrences.get(i).cursor();
+        }
+        return cursors;
+    }
+
+    private ArrayList<Integer> drain(LineIterator lines) {
+        ArrayList<Integer> lineNumbers = new ArrayList<>();
+        while (lines.hasNext()) {
+            lineNumbers.append(lines.next());
+        }
+        return lineNumbers;
+    }
+
+    private void testOccurrencesForIntersection(ArrayList<Postings> occurrences) {
         System.out.println("Finding intersection of : ");
 
         for(int i = 0; i < occurrences.size(); i++) {
-            System.out.println(occurrences.get(i).toJavaArrayList().toString());
+            System.out.println(occurrences.get(i).toString());
         }
 
-        ArrayList<Integer> intersection = Intersection.getIntersections(occurrences);
+        ArrayList<Integer> intersection = drain(Intersection.iterateIntersection(getCursors(occurrences)));
         ArrayList<Integer> intersectionCheck = new ArrayList<>();
 
         for (int i = 0; i < occurrences.get(0).size(); i++) {
-            Integer lineNumber = occurrences.get(0).get(i).getLeftValue();
+            Integer lineNumber = occurrences.get(0).getLine(i);
             boolean inAll = true;
             for (int j = 1; j < occurrences.size(); j++) {
                 if (!isLineNumberInOccurrences(occurrences.get(j), lineNumber)) {
@@ -60,24 +76,24 @@ public class IntersectionTest {
 
     }
 
-    private void testOccurrencesForUnion(ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences) {
+    private void testOccurrencesForUnion(ArrayList<Postings> occurrences) {
         System.out.println("Finding union of: ");
 
         for(int i = 0; i < occurrences.size(); i++) {
-            System.out.println(occurrences.get(i).toJavaArrayList().toString());
+            System.out.println(occurrences.get(i).toString());
         }
 
         ArrayList<Integer> unionCheck = new ArrayList<>();
         for (int i = 0; i < occurrences.size(); i++) {
             for (int j = 0; j < occurrences.get(i).size(); j++) {
-                Integer lineNumber = occurrences.get(i).get(j).getLeftValue();
+                Integer lineNumber = occurrences.get(i).getLine(j);
                 if (!unionCheck.contains(lineNumber)) {
                     unionCheck.append(lineNumber);
                 }
             }
         }
 
-        ArrayList<Integer> union = Intersection.getUnion(occurrences);
+        ArrayList<Integer> union = drain(Intersection.iterateUnion(occurrences));
 
         System.out.println("Test: " + union.toJavaArrayList().toString());
         System.out.println("Comp: " + unionCheck.toJavaArrayList().toString());
@@ -88,11 +104,11 @@ public class IntersectionTest {
         }
     }
 
-    private void testOccurrencesForNot(ArrayList<Integer> occurences, ArrayList<ArrayList<HashPair<Integer, Integer>>> notOccurrences) {
+    private void testOccurrencesForNot(ArrayList<Integer> occurences, ArrayList<Postings> notOccurrences) {
 
         System.out.println("Removing : ");
         for(int i = 0; i < notOccurrences.size(); i++) {
-            System.out.println(notOccurrences.get(i).toJavaArrayList().toString());
+            System.out.println(notOccurrences.get(i).toString());
         }
 
         System.out.println("from ");
@@ -113,7 +129,13 @@ public class IntersectionTest {
             }
         }
 
-        ArrayList<Integer> not = Intersection.getNot(occurences, notOccurrences);
+        Integer[] lineNumbers = new Integer[occurences.size()];
+        for (int i = 0; i < lineNumbers.length; i++) {
+            lineNumbers[i] = occurences.get(i);
+        }
+        LineCursor[] required = new LineCursor[]{getOccurrencesWithLineNumbers(lineNumbers).cursor()};
+        ArrayList<Integer> not = drain(Intersection.iterateNot(Intersection.iterateIntersection(required),
+                getCursors(notOccurrences)));
 
         System.out.println("test: " + not.toJavaArrayList().toString());
         System.out.println("comp: " + notCheck.toJavaArrayList().toString());
@@ -126,7 +148,7 @@ public class IntersectionTest {
 
     @Test
     public void testNoIntersection() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 4, 7, 10, 13, 16}));
@@ -138,7 +160,7 @@ public class IntersectionTest {
 
     @Test
     public void testIntersectionAtEnds() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 7, 10, 13, 17}));
@@ -150,7 +172,7 @@ public class IntersectionTest {
 
     @Test
     public void testIntersectionGeneralCase() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 4, 5, 7, 8, 9, 10, 11, 13, 17}));
@@ -162,7 +184,7 @@ public class IntersectionTest {
 
     @Test
     public void testIntersectionDuplicates() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 1, 5, 6, 7, 11, 11}));
@@ -174,7 +196,7 @@ public class IntersectionTest {
 
     @Test
     public void testIntersectionEmptyCase() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 4, 5, 7, 8, 9, 10, 11, 13, 17}));
@@ -186,7 +208,7 @@ public class IntersectionTest {
 
     @Test
     public void testIntersectionSingleCase() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 4, 5, 7, 8, 9, 10, 11, 13, 17}));
@@ -198,7 +220,7 @@ public class IntersectionTest {
 
     @Test
     public void testIntersectionSingleOccurrence() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 4, 5, 7}));
@@ -206,9 +228,41 @@ public class IntersectionTest {
         testOccurrencesForIntersection(occurrences);
     }
 
+    @Test
+    public void testIntersectionRareAndCommon() {
+        ArrayList<Postings> occurrences = new ArrayList<>();
+
+        Integer[] common = new Integer[1000];
+        for (int i = 0; i < common.length; i++) {
+            common[i] = i / 2 + 1;
+        }
+
+        //Add occurrences to list, rarest last
+        occurrences.append(getOccurrencesWithLineNumbers(common));
+        occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{2, 3, 5, 8, 13, 21, 34, 55, 89, 144, 233, 377}));
+        occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{3, 89, 377, 501, 610}));
+
+        testOccurrencesForIntersection(occurrences);
+    }
+
+    @Test
+    public void testIntersectionNoLists() {
+        Assert.assertFalse(Intersection.iterateIntersection(new LineCursor[0]).hasNext());
+    }
+
+    @Test
+    public void testIntersectionSingleDuplicates() {
+        ArrayList<Postings> occurrences = new ArrayList<>();
+
+        //Add occurrences to list
+        occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 1, 4, 5, 5, 5, 7}));
+
+        testOccurrencesForIntersection(occurrences);
+    }
+
     @Test
     public void testNoUnion() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{}));
@@ -220,7 +274,7 @@ public class IntersectionTest {
 
     @Test
     public void testUnionNoDuplicates() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 4, 7, 10, 13, 16, 18, 19}));
@@ -233,7 +287,7 @@ public class IntersectionTest {
 
     @Test
     public void testUnionDuplicatesAtEnds() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 1, 7, 10, 14}));
@@ -246,7 +300,7 @@ public class IntersectionTest {
 
     @Test
     public void testUnionDuplicatesAtEndsMultiple() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 1, 4, 7, 10, 13}));
@@ -259,16 +313,51 @@ public class IntersectionTest {
 
     @Test
     public void testGeneralCase() {
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> occurrences = new ArrayList<>();
+        ArrayList<Postings> occurrences = new ArrayList<>();
 
         //Add occurrences to list
-        occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 4, 7, 8, 9, 11, 10, 13}));
+        occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 4, 7, 8, 9, 10, 11, 13}));
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{2, 5, 11, 11, 14}));
         occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{3, 6, 9, 12, 15, 16, 17, 18, 19}));
 
         testOccurrencesForUnion(occurrences);
     }
 
+    @Test
+    public void testUnionManyLists() {
+        ArrayList<Postings> occurrences = new ArrayList<>();
+
+        //Add occurrences to list, each list overlapping the next
+        for (int i = 0; i < 20; i++) {
+            Integer[] lineNumbers = new Integer[30];
+            for (int j = 0; j < lineNumbers.length; j++) {
+                lineNumbers[j] = i * 7 + (j / 2) * (i % 3 + 1);
+            }
+            occurrences.append(getOccurrencesWithLineNumbers(lineNumbers));
+        }
+
+        testOccurrencesForUnion(occurrences);
+    }
+
+    @Test
+    public void testUnionLeavesInputUnchanged() {
+        ArrayList<Postings> occurrences = new ArrayList<>();
+
+        //Add occurrences to list
+        occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{}));
+        occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 3, 3}));
+        occurrences.append(getOccurrencesWithLineNumbers(new Integer[]{2, 3}));
+
+        LineIterator union = Intersection.iterateUnion(occurrences);
+        Assert.assertEquals(1, union.next());
+        Assert.assertEquals(2, union.next());
+        Assert.assertEquals(3, union.next());
+        Assert.assertFalse(union.hasNext());
+
+        Assert.assertEquals(3, occurrences.size());
+        Assert.assertEquals(3, occurrences.get(1).size());
+    }
+
     @Test
     public void testSingleNot() {
         ArrayList<Integer> occurrences = new ArrayList<>();
@@ -280,7 +369,7 @@ public class IntersectionTest {
         occurrences.append(4);
         occurrences.append(7);
 
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> notOccurrences = new ArrayList<>();
+        ArrayList<Postings> notOccurrences = new ArrayList<>();
         //notOccurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 2, 3, 4}));
         notOccurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 2, 3, 4}));
 
@@ -298,7 +387,7 @@ public class IntersectionTest {
         occurrences.append(4);
         occurrences.append(7);
 
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> notOccurrences = new ArrayList<>();
+        ArrayList<Postings> notOccurrences = new ArrayList<>();
         notOccurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 2, 3, 4}));
         notOccurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 2, 3, 4}));
 
@@ -316,7 +405,7 @@ public class IntersectionTest {
         occurrences.append(4);
         occurrences.append(7);
 
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> notOccurrences = new ArrayList<>();
+        ArrayList<Postings> notOccurrences = new ArrayList<>();
         notOccurrences.append(getOccurrencesWithLineNumbers(new Integer[]{2, 4}));
         notOccurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 3, 4}));
 
@@ -337,11 +426,47 @@ public class IntersectionTest {
         occurrences.append(7);
         occurrences.append(7);
 
-        ArrayList<ArrayList<HashPair<Integer, Integer>>> notOccurrences = new ArrayList<>();
+        ArrayList<Postings> notOccurrences = new ArrayList<>();
         notOccurrences.append(getOccurrencesWithLineNumbers(new Integer[]{2, 4, 7}));
         notOccurrences.append(getOccurrencesWithLineNumbers(new Integer[]{1, 3, 4}));
 
         testOccurrencesForNot(occurrences, notOccurrences);
     }
 
+    @Test
+    public void testIterateIntersectionStopsEarly() {
+        Integer[] multiples = new Integer[1000];
+        for(int i = 0; i < multiples.length; i++) {
+            multiples[i] = 2 * (i + 1);
+        }
+        Postings evens = getOccurrencesWithLineNumbers(multiples);
+        Postings fours = getOccurrencesWithLineNumbers(new Integer[]{4, 4, 8, 12, 1000, 1996});
+
+        LineCursor evensCursor = evens.cursor();
+        LineIterator lines = Intersection.iterateIntersection(new LineCursor[]{evensCursor, fours.cursor()});
+
+        Assert.assertEquals(4, lines.next());
+        Assert.assertEquals(8, lines.next());
+
+        //Nothing past the consumed lines has been read
+        Assert.assertTrue(evensCursor.line() <= 12);
+
+        Assert.assertArrayEquals(new int[]{12, 1000, 1996}, lines.stream().toArray());
+        Assert.assertFalse(lines.hasNext());
+    }
+
+    @Test
+    public void testIterateNot() {
+        Postings required = getOccurrencesWithLineNumbers(new Integer[]{1, 1, 2, 3, 4, 4, 5, 6, 7, 7});
+        Postings first = getOccurrencesWithLineNumbers(new Integer[]{2, 4, 7});
+        Postings second = getOccurrencesWithLineNumbers(new Integer[]{1, 3, 4});
+
+        LineIterator lines = Intersection.iterateNot(
+                Intersection.iterateIntersection(new LineCursor[]{required.cursor()}),
+                new LineCursor[]{first.cursor(), second.cursor()});
+
+        Assert.assertArrayEquals(new int[]{5, 6}, lines.stream().toArray());
+        Assert.assertEquals(0, Intersection.iterateNot(Intersection.iterateIntersection(new LineCursor[0]),
+                new LineCursor[]{first.cursor()}).stream().count());
+    }
 }
@@ -0,0 +1,76 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LruCacheTest {
+
+    private static final int ENTRY = 100 + LruCache.ENTRY_OVERHEAD;
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        LruCache<String, Integer> cache = new LruCache<>(3 * ENTRY);
+
+        cache.put("a", 1, 100);
+        cache.put("b", 2, 100);
+        cache.put("c", 3, 100);
+
+        //Using a makes b the least recently used
+        Assert.assertEquals(1, (int) cache.get("a"));
+        cache.put("d", 4, 100);
+
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(1, (int) cache.get("a"));
+        Assert.assertEquals(3, (int) cache.get("c"));
+        Assert.assertEquals(4, (int) cache.get("d"));
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void staysWithinBudget() {
+        LruCache<Integer, Integer> cache = new LruCache<>(10 * ENTRY);
+
+        for(int i = 0; i < 1000; i++) {
+            cache.put(i, i, 50 + (i % 100));
+            Assert.assertTrue(cache.getNumBytes() <= 10 * ENTRY);
+        }
+
+        //Most recent entries survive
+        Assert.assertEquals(999, (int) cache.get(999));
+        Assert.assertNull(cache.get(0));
+    }
+
+    @Test
+    public void replacesAndRejectsOversized() {
+        LruCache<String, Integer> cache = new LruCache<>(2 * ENTRY);
+
+        cache.put("a", 1, 100);
+        cache.put("a", 2, 100);
+        Assert.assertEquals(2, (int) cache.get("a"));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(ENTRY, cache.getNumBytes());
+
+        cache.put("huge", 3, 10 * ENTRY);
+        Assert.assertNull(cache.get("huge"));
+        Assert.assertEquals(2, (int) cache.get("a"));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        LruCache<String, Integer> cache = new LruCache<>(ENTRY);
+
+        Assert.assertNull(cache.get("a"));
+        cache.put("a", 1, 100);
+        cache.get("a");
+        cache.get("a");
+
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+
+        cache.clear();
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(2, cache.getMisses());
+    }
+}
@@ -0,0 +1,63 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class MappedDocumentTest {
+
+    private MappedDocument mapLines(String text) throws IOException {
+        File file = File.createTempFile("document", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+
+        MappedDocument document = new MappedDocument(MappedDocument.map(file.getPath()));
+        document.startLine(0);
+        for(int i = 0; i < document.getBuffer().limit(); i++) {
+            byte b = document.getBuffer().get(i);
+            if((b == '\r') && (i + 1 < document.getBuffer().limit()) && (document.getBuffer().get(i + 1) == '\n')) {
+                i++;
+            }
+            if(((b == '\n') || (b == '\r')) && (i + 1 < document.getBuffer().limit())) {
+                document.startLine(i + 1);
+            }
+        }
+        document.trimToSize();
+        return document;
+    }
+
+    @Test
+    public void lineTerminators() throws IOException {
+        MappedDocument document = mapLines("To be\r\nor NOT\rto be\n\nthat is");
+
+        Assert.assertEquals(5, document.getNumLines());
+        Assert.assertEquals("to be", document.getLine(1));
+        Assert.assertEquals("or not", document.getLine(2));
+        Assert.assertEquals("to be", document.getLine(3));
+        Assert.assertEquals("", document.getLine(4));
+        Assert.assertEquals("that is", document.getLine(5));
+    }
+
+    @Test
+    public void multiByteCharacters() throws IOException {
+        MappedDocument document = mapLines("Café α\n");
+
+        Assert.assertEquals(1, document.getNumLines());
+        Assert.assertEquals("café α", document.getLine(1));
+        Assert.assertEquals('é', document.codePointAt(3));
+        Assert.assertEquals(2, MappedDocument.encodedLength('é'));
+        Assert.assertEquals('α', document.codePointAt(6));
+        //Continuation byte is not the start of a code point
+        Assert.assertEquals(-1, document.codePointAt(4));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void missingFile() throws IOException {
+        MappedDocument.map("files/no-such-document.txt");
+    }
+}
@@ -0,0 +1,85 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OccurrenceTrieNodeTest {
+
+    private static final String LETTERS = "etaoinshrdlucmfwypvbgkjqxz0123456789'";
+
+    @Test
+    public void addChildSmallNode() {
+        OccurrenceTrieNode node = new OccurrenceTrieNode();
+
+        OccurrenceTrieNode c = node.addChild('c');
+        OccurrenceTrieNode a = node.addChild('a');
+        OccurrenceTrieNode b = node.addChild('b');
+
+        Assert.assertEquals(3, node.getNumChildren());
+        Assert.assertSame(a, node.getChild('a'));
+        Assert.assertSame(b, node.addChild('b'));
+        Assert.assertSame(c, node.getChild('c'));
+        Assert.assertNull(node.getChild('d'));
+
+        //Children are ordered by letter
+        Assert.assertSame(a, node.getChildAt(0));
+        Assert.assertSame(b, node.getChildAt(1));
+        Assert.assertSame(c, node.getChildAt(2));
+    }
+
+    @Test
+    public void addChildPromotedNode() {
+        OccurrenceTrieNode node = new OccurrenceTrieNode();
+        OccurrenceTrieNode[] children = new OccurrenceTrieNode[LETTERS.length()];
+
+        for(int i = 0; i < LETTERS.length(); i++) {
+            children[i] = node.addChild(LETTERS.charAt(i));
+        }
+
+        Assert.assertEquals(LETTERS.length(), node.getNumChildren());
+        for(int i = 0; i < LETTERS.length(); i++) {
+            Assert.assertSame(children[i], node.getChild(LETTERS.charAt(i)));
+            Assert.assertSame(children[i], node.addChild(LETTERS.charAt(i)));
+        }
+
+        for(int i = 1; i < node.getNumChildren(); i++) {
+            Assert.assertTrue(node.getChildAt(i - 1).getValue() < node.getChildAt(i).getValue());
+        }
+    }
+
+    @Test
+    public void nonAlphabetLetters() {
+        OccurrenceTrieNode node = new OccurrenceTrieNode();
+
+        OccurrenceTrieNode accented = node.addChild('é');
+        for(int i = 0; i < LETTERS.length(); i++) {
+            node.addChild(LETTERS.charAt(i));
+        }
+        OccurrenceTrieNode greek = node.addChild('α');
+
+        Assert.assertSame(accented, node.getChild('é'));
+        Assert.assertSame(greek, node.getChild('α'));
+        Assert.assertNull(node.getChild('è'));
+        Assert.assertNull(node.getChild('-'));
+        Assert.assertEquals(LETTERS.length() + 2, node.getNumChildren());
+    }
+
+    @Test
+    public void trieLookups() {
+        OccurrenceTrie trie = new OccurrenceTrie();
+        String[] words = {"the", "then", "thee", "there's", "café", "1599", "a"};
+
+        for(int i = 0; i < words.length; i++) {
+            trie.addOccurrence(words[i], i + 1, 1, i, 0);
+        }
+
+        for(int i = 0; i < words.length; i++) {
+            Assert.assertEquals(1, trie.getOccurrences(words[i]).size());
+            Assert.assertEquals(i + 1, trie.getOccurrences(words[i]).getLine(0));
+        }
+
+        Assert.assertNull(trie.getNodeTerminatingWord("thy"));
+        Assert.assertEquals(0, trie.getOccurrences("th").size());
+        Assert.assertEquals(4, trie.getOccurrencesForSubtree("th").size());
+    }
+}
@@ -0,0 +1,313 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class OccurrenceTrieTest {
+
+    private static final String[] WORDS = {"to", "be", "or", "not", "that", "is", "the", "question", "then", "thee"};
+
+    private OccurrenceTrie buildTrie(int numLines) {
+        OccurrenceTrie trie = buildUnfrozenTrie(numLines);
+        trie.freeze();
+        return trie;
+    }
+
+    private OccurrenceTrie buildUnfrozenTrie(int numLines) {
+        OccurrenceTrie trie = new OccurrenceTrie();
+        int position = 0;
+
+        //Word i occurs on every line divisible by i + 1
+        for(int line = 1; line <= numLines; line++) {
+            for(int i = 0; i < WORDS.length; i++) {
+                if(line % (i + 1) == 0) {
+                    trie.addOccurrence(WORDS[i], line, 1 + 5 * i, position++, line / 100);
+                }
+            }
+        }
+
+        return trie;
+    }
+
+    @Test
+    public void triesHaveSeparateRoots() {
+        OccurrenceTrie first = new OccurrenceTrie();
+        OccurrenceTrie second = new OccurrenceTrie();
+
+        first.addOccurrence("romeo", 1, 1, 0, 0);
+
+        Assert.assertNotSame(first.getRoot(), second.getRoot());
+        Assert.assertEquals(1, first.getOccurrences("romeo").size());
+        Assert.assertEquals(0, second.getOccurrences("romeo").size());
+        Assert.assertNull(second.getNodeTerminatingWord("romeo"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void frozenRejectsOccurrences() {
+        OccurrenceTrie trie = buildTrie(10);
+
+        Assert.assertTrue(trie.isFrozen());
+        trie.addOccurrence("juliet", 11, 1, 100, 0);
+    }
+
+    @Test
+    public void subtreeIteratorMatchesSubtreeOrder() {
+        OccurrenceTrie unfrozen = buildUnfrozenTrie(200);
+        OccurrenceTrie trie = buildTrie(200);
+
+        for(int compressed = 0; compressed < 2; compressed++) {
+            for(String prefix : new String[] {"th", "t", "question", "x", "thee"}) {
+                Postings expected = unfrozen.getOccurrencesForSubtree(prefix);
+                OccurrenceIterator iterator = trie.iterateSubtree(prefix);
+
+                //Absent prefixes have no subtree
+                if(expected == null) {
+                    expected = Postings.EMPTY;
+                }
+
+                for(int i = 0; i < expected.size(); i++) {
+                    Assert.assertTrue(iterator.hasNext());
+                    iterator.next();
+                    Assert.assertEquals(expected.getLine(i), iterator.getLine());
+                    Assert.assertEquals(expected.getColumn(i), iterator.getColumn());
+                }
+                Assert.assertFalse(iterator.hasNext());
+            }
+            trie.compress();
+        }
+    }
+
+    @Test
+    public void subtreeIsSliceOfLayout() {
+        OccurrenceTrie trie = buildTrie(300);
+        Postings subtree = trie.getOccurrencesForSubtree("th");
+        Postings the = trie.getOccurrences("the");
+
+        //"that" comes before "the" in term order, so "the" continues its range of the layout
+        Assert.assertTrue(trie.getOccurrences("that").isFollowedBy(the));
+        Assert.assertEquals(300 / 5 + 300 / 7 + 300 / 9 + 300 / 10, subtree.size());
+        Assert.assertEquals(the.getLine(0), subtree.getLine(300 / 5));
+        Assert.assertEquals(the.getSectionId(1), subtree.getSectionId(4 + 1));
+        Assert.assertEquals(300 / 5 + the.getSectionStart(1), subtree.getSectionStart(4 + 1));
+
+        //Views count only their own range of the layout, which compression releases for a quarter-size cache
+        long bytes = trie.getEstimatedBytes();
+        trie.compress();
+        Assert.assertTrue(trie.getEstimatedBytes() < bytes / 2 + bytes / 4);
+        Assert.assertEquals(subtree.size(), trie.getOccurrencesForSubtree("th").size());
+    }
+
+    @Test
+    public void compressedLookupsShareDecodedPostings() {
+        OccurrenceTrie trie = buildTrie(300);
+        Postings question = trie.getOccurrences("question");
+        int maxSectionFrequency = question.getMaxSectionFrequency();
+        trie.compress();
+
+        //Sizes are stored, and a decoded word is decoded once along with its section statistics
+        Assert.assertEquals(question.size(), trie.getTermSize("question"));
+        Assert.assertEquals(0, trie.getTermSize("x"));
+        Postings decoded = trie.getOccurrences("question");
+        Assert.assertSame(decoded, trie.getOccurrences("question"));
+        Assert.assertEquals(maxSectionFrequency, decoded.getMaxSectionFrequency());
+        Assert.assertEquals(question.getLine(7), decoded.getLine(7));
+
+        OccurrenceTrie unfrozen = buildUnfrozenTrie(300);
+        unfrozen.compress();
+        Assert.assertEquals(question.size(), unfrozen.getTermSize("question"));
+    }
+
+    @Test
+    public void frozenTrieMatchesNodes() {
+        OccurrenceTrie unfrozen = buildUnfrozenTrie(300);
+        OccurrenceTrie trie = buildTrie(300);
+
+        //Nodes are released once frozen
+        Assert.assertEquals(0, trie.getRoot().getNumChildren());
+        Assert.assertEquals(WORDS.length, trie.getVocabulary().getNumTerms());
+
+        for(int compressed = 0; compressed < 2; compressed++) {
+            for(String word : new String[] {"to", "the", "thee", "then", "th", "question", "x", ""}) {
+                Postings expected = unfrozen.getOccurrences(word);
+                Postings actual = trie.getOccurrences(word);
+
+                Assert.assertEquals(expected.size(), actual.size());
+                Assert.assertEquals(expected.size(), trie.getLineCursor(word).size());
+                for(int i = 0; i < expected.size(); i++) {
+                    Assert.assertEquals(expected.getLine(i), actual.getLine(i));
+                    Assert.assertEquals(expected.getPosition(i), actual.getPosition(i));
+                }
+
+                Postings expectedSubtree = unfrozen.getOccurrencesForSubtree(word);
+                Postings actualSubtree = trie.getOccurrencesForSubtree(word);
+                Assert.assertEquals(expectedSubtree == null, actualSubtree == null);
+                if(expectedSubtree != null) {
+                    Assert.assertEquals(expectedSubtree.size(), actualSubtree.size());
+                }
+            }
+            trie.compress();
+        }
+    }
+
+    private OccurrenceTrie buildAddedTrie(int firstLine, int lastLine) {
+        //Lines counted from the first added line, as IndexBuilder.buildSection builds them
+        OccurrenceTrie added = new OccurrenceTrie();
+        int position = 0;
+        for(int line = firstLine; line <= lastLine; line++) {
+            for(int i = 0; i < WORDS.length; i++) {
+                if(line % (i + 1) == 0) {
+                    added.addOccurrence(WORDS[i], line - firstLine + 1, 1 + 5 * i, position++, line / 100);
+                }
+            }
+        }
+        return added;
+    }
+
+    private void assertSameOccurrences(OccurrenceTrie expectedTrie, OccurrenceTrie actualTrie, String word) {
+        Postings expected = expectedTrie.getOccurrences(word);
+        Postings actual = actualTrie.getOccurrences(word);
+
+        Assert.assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.getLine(i), actual.getLine(i));
+            Assert.assertEquals(expected.getColumn(i), actual.getColumn(i));
+            Assert.assertEquals(expected.getPosition(i), actual.getPosition(i));
+        }
+        Assert.assertEquals(expected.getNumSections(), actual.getNumSections());
+        for(int run = 0; run < expected.getNumSections(); run++) {
+            Assert.assertEquals(expected.getSectionId(run), actual.getSectionId(run));
+            Assert.assertEquals(expected.getSectionStart(run), actual.getSectionStart(run));
+        }
+
+        Postings expectedSubtree = expectedTrie.getOccurrencesForSubtree(word);
+        Postings actualSubtree = actualTrie.getOccurrencesForSubtree(word);
+        Assert.assertEquals(expectedSubtree == null, actualSubtree == null);
+        if(expectedSubtree != null) {
+            Assert.assertEquals(expectedSubtree.size(), actualSubtree.size());
+        }
+    }
+
+    @Test
+    public void appendMatchesWholeBuild() {
+        for(int compressed = 0; compressed < 2; compressed++) {
+            OccurrenceTrie whole = buildTrie(300);
+            OccurrenceTrie first = buildTrie(200);
+            if(compressed == 1) {
+                first.compress();
+            }
+
+            //Appending twice appends to the postings the first append created
+            OccurrenceTrie appended = first.append(buildAddedTrie(201, 250), 200).append(buildAddedTrie(251, 300),
+                    250);
+            Assert.assertEquals(whole.getNumOccurrences(), appended.getNumOccurrences());
+            Assert.assertEquals(WORDS.length, appended.getVocabulary().getNumTerms());
+
+            for(String word : new String[] {"to", "the", "thee", "then", "th", "question", "x"}) {
+                assertSameOccurrences(whole, appended, word);
+            }
+
+            //The earlier version is unchanged
+            Assert.assertEquals(200, first.getOccurrences("to").size());
+        }
+    }
+
+    @Test
+    public void appendsToOneVersionAreIndependent() {
+        for(int compressed = 0; compressed < 2; compressed++) {
+            OccurrenceTrie whole = buildTrie(300);
+            OccurrenceTrie first = buildTrie(200);
+            if(compressed == 1) {
+                first.compress();
+            }
+            OccurrenceTrie middle = first.append(buildAddedTrie(201, 250), 200);
+            OccurrenceTrie appended = middle.append(buildAddedTrie(251, 300), 250);
+
+            //A second append to the same version must not overwrite the first's occurrences
+            OccurrenceTrie other = new OccurrenceTrie();
+            other.addOccurrence("to", 1, 99, 0, 2);
+            other.addOccurrence("zed", 1, 102, 1, 2);
+            OccurrenceTrie branch = middle.append(other, 250);
+
+            for(String word : WORDS) {
+                assertSameOccurrences(whole, appended, word);
+            }
+            Postings to = branch.getOccurrences("to");
+            Assert.assertEquals(251, to.size());
+            Assert.assertEquals(251, to.getLine(250));
+            Assert.assertEquals(99, to.getColumn(250));
+            Assert.assertEquals(middle.getNumOccurrences(), to.getPosition(250));
+            Assert.assertEquals(middle.getNumOccurrences() + 1, branch.getOccurrences("zed").getPosition(0));
+            Assert.assertEquals(WORDS.length + 1, branch.getVocabulary().getNumTerms());
+            Assert.assertEquals(250, middle.getOccurrences("to").size());
+            Assert.assertEquals(0, appended.getOccurrences("zed").size());
+        }
+    }
+
+    @Test
+    public void longWordsDoNotOverflowStack() {
+        OccurrenceTrie trie = new OccurrenceTrie();
+        StringBuilder word = new StringBuilder();
+        for(int i = 0; i < 100000; i++) {
+            word.append('a');
+        }
+        trie.addOccurrence(word.toString(), 1, 1, 0, 0);
+        trie.addOccurrence("ab", 2, 3, 1, 0);
+        trie.freeze();
+
+        Assert.assertEquals(2, trie.getOccurrencesForSubtree("a").size());
+
+        OccurrenceIterator iterator = trie.iterateSubtree("a");
+        iterator.next();
+        Assert.assertEquals(1, iterator.getLine());
+        iterator.next();
+        Assert.assertEquals(3, iterator.getColumn());
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void concurrentQueries() throws Exception {
+        final OccurrenceTrie trie = buildTrie(5000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            Future<?>[] results = new Future<?>[32];
+            for(int task = 0; task < results.length; task++) {
+                final int offset = task;
+                results[task] = executor.submit(() -> {
+                    for(int query = 0; query < 200; query++) {
+                        int i = (offset + query) % WORDS.length;
+                        int j = (offset + 3 * query) % WORDS.length;
+
+                        Assert.assertEquals(5000 / (i + 1), trie.getOccurrences(WORDS[i]).size());
+                        Assert.assertEquals(5000 / (j + 1), trie.getLineCursor(WORDS[j]).size());
+                        Assert.assertEquals(5000 / 5 + 5000 / 7 + 5000 / 9 + 5000 / 10,
+                                trie.getOccurrencesForSubtree("th").size());
+
+                        //Lines divisible by both word numbers
+                        int lcm = (i + 1) * (j + 1) / gcd(i + 1, j + 1);
+                        LineCursor[] cursors = {trie.getLineCursor(WORDS[i]), trie.getLineCursor(WORDS[j])};
+                        Assert.assertEquals(5000 / lcm, Intersection.iterateIntersection(cursors).stream().count());
+                    }
+                    return null;
+                });
+            }
+
+            //Rethrows any assertion failure of a task
+            for(int task = 0; task < results.length; task++) {
+                results[task].get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static int gcd(int a, int b) {
+        return (b == 0) ? a : gcd(b, a % b);
+    }
+}
@@ -0,0 +1,60 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PhraseIteratorTest {
+
+    //Words of a document, one per position, five to a line
+    private static final String[] TEXT = ("to be or not to be that is the question whether tis nobler in the mind " +
+            "to suffer or to be").split(" ");
+
+    private ArrayList<Postings> getPostings(String... phrase) {
+        ArrayList<Postings> wordOccurrences = new ArrayList<>();
+
+        for(String word : phrase) {
+            Postings occurrences = new Postings();
+            for(int position = 0; position < TEXT.length; position++) {
+                if(TEXT[position].equals(word)) {
+                    occurrences.add(1 + position / 5, 1 + position % 5, position, 0);
+                }
+            }
+            wordOccurrences.append(occurrences);
+        }
+
+        return wordOccurrences;
+    }
+
+    @Test
+    public void findsEveryOccurrence() {
+        PhraseIterator iterator = new PhraseIterator(getPostings("to", "be"), 1);
+        int[][] expected = {{1, 1}, {1, 5}, {4, 5}};
+
+        for(int[] occurrence : expected) {
+            Assert.assertTrue(iterator.hasNext());
+            iterator.next();
+            Assert.assertEquals(occurrence[0], iterator.getLine());
+            Assert.assertEquals(occurrence[1], iterator.getColumn());
+        }
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void drivenByRarestWord() {
+        PhraseIterator iterator = new PhraseIterator(getPostings("or", "to", "be"), 0);
+
+        Assert.assertTrue(iterator.hasNext());
+        iterator.next();
+        Assert.assertEquals(4, iterator.getLine());
+        Assert.assertEquals(4, iterator.getColumn());
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = java.util.NoSuchElementException.class)
+    public void noOccurrences() {
+        PhraseIterator iterator = new PhraseIterator(getPostings("be", "to", "suffer"), 2);
+
+        Assert.assertFalse(iterator.hasNext());
+        iterator.next();
+    }
+}
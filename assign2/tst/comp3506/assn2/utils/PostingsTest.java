@@ -0,0 +1,75 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PostingsTest {
+
+    private Postings getPostings(int[] positions) {
+        Postings postings = new Postings();
+
+        for(int i = 0; i < positions.length; i++) {
+            postings.add(i + 1, 1, positions[i], i / 3);
+        }
+
+        return postings;
+    }
+
+    @Test
+    public void sectionRuns() {
+        Postings postings = getPostings(new int[] {1, 2, 3, 4, 5, 6, 7});
+
+        Assert.assertEquals(3, postings.getNumSections());
+        Assert.assertEquals(3, postings.getSectionStart(1));
+        Assert.assertEquals(6, postings.getSectionEnd(1));
+        Assert.assertEquals(7, postings.getSectionEnd(2));
+        Assert.assertEquals(2, postings.findSection(2));
+        Assert.assertFalse(postings.containsSection(3));
+    }
+
+    @Test
+    public void seekPosition() {
+        Postings postings = getPostings(new int[] {2, 5, 9, 14, 20, 27, 35, 44, 54, 65});
+
+        Assert.assertEquals(0, postings.seekPosition(0, 0));
+        Assert.assertEquals(0, postings.seekPosition(2, 0));
+        Assert.assertEquals(1, postings.seekPosition(3, 0));
+        Assert.assertEquals(6, postings.seekPosition(35, 0));
+        Assert.assertEquals(7, postings.seekPosition(36, 2));
+        Assert.assertEquals(9, postings.seekPosition(65, 0));
+        Assert.assertEquals(10, postings.seekPosition(66, 0));
+
+        //Never moves backwards from the starting index
+        Assert.assertEquals(4, postings.seekPosition(2, 4));
+        Assert.assertEquals(10, postings.seekPosition(2, 10));
+    }
+
+    @Test
+    public void seekEveryPosition() {
+        int[] positions = new int[200];
+        for(int i = 0; i < positions.length; i++) {
+            positions[i] = 3 * i;
+        }
+        Postings postings = getPostings(positions);
+
+        int cursor = 0;
+        for(int position = 0; position <= 3 * positions.length; position++) {
+            cursor = postings.seekPosition(position, cursor);
+            Assert.assertEquals((position + 2) / 3, cursor);
+        }
+    }
+
+    @Test
+    public void iterateSection() {
+        Postings postings = getPostings(new int[] {1, 2, 3, 4, 5, 6, 7});
+
+        OccurrenceIterator occurrences = postings.iterateSection(1);
+        for(int line = 4; line <= 6; line++) {
+            Assert.assertTrue(occurrences.hasNext());
+            occurrences.next();
+            Assert.assertEquals(line, occurrences.getLine());
+        }
+        Assert.assertFalse(occurrences.hasNext());
+        Assert.assertFalse(postings.iterateSection(3).hasNext());
+    }
+}
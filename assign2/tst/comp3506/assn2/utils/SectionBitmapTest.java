@@ -0,0 +1,75 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SectionBitmapTest {
+
+    private Postings getOccurrencesInSections(int... sections) {
+        Postings occurrences = new Postings();
+        for(int i = 0; i < sections.length; i++) {
+            occurrences.add(10 * sections[i] + i, 1, i, sections[i]);
+        }
+        return occurrences;
+    }
+
+    @Test
+    public void sectionsOfPostings() {
+        SectionBitmap bitmap = SectionBitmap.of(getOccurrencesInSections(0, 0, 2, 63, 64, 130));
+
+        Assert.assertArrayEquals(new int[]{0, 2, 63, 64, 130}, bitmap.toArray());
+        Assert.assertTrue(bitmap.contains(64));
+        Assert.assertFalse(bitmap.contains(1));
+        Assert.assertFalse(bitmap.contains(1000));
+        Assert.assertEquals(0, SectionBitmap.of(Postings.EMPTY).size());
+    }
+
+    @Test
+    public void allSections() {
+        Assert.assertEquals(3, SectionBitmap.all(3).size());
+        Assert.assertEquals(64, SectionBitmap.all(64).size());
+        Assert.assertFalse(SectionBitmap.all(70).contains(70));
+        Assert.assertTrue(SectionBitmap.all(70).contains(69));
+    }
+
+    @Test
+    public void andOrNot() {
+        SectionBitmap first = getOccurrencesInSections(0, 2, 3, 5, 8, 9, 100).getSectionBitmap();
+        SectionBitmap second = getOccurrencesInSections(2, 5, 5, 9).getSectionBitmap();
+        SectionBitmap third = getOccurrencesInSections(1, 2, 3, 70, 100).getSectionBitmap();
+
+        SectionBitmap and = first.copy();
+        and.and(second);
+        Assert.assertArrayEquals(new int[]{2, 5, 9}, and.toArray());
+
+        SectionBitmap or = second.copy();
+        or.or(third);
+        Assert.assertArrayEquals(new int[]{1, 2, 3, 5, 9, 70, 100}, or.toArray());
+
+        SectionBitmap not = first.copy();
+        not.andNot(third);
+        Assert.assertArrayEquals(new int[]{0, 5, 8, 9}, not.toArray());
+
+        //Copies leave the shared bitmaps unchanged
+        Assert.assertArrayEquals(new int[]{0, 2, 3, 5, 8, 9, 100}, first.toArray());
+    }
+
+    @Test
+    public void rankIsRunIndex() {
+        Postings occurrences = getOccurrencesInSections(0, 0, 2, 63, 64, 130, 200);
+        SectionBitmap bitmap = occurrences.getSectionBitmap();
+
+        for(int run = 0; run < occurrences.getNumSections(); run++) {
+            Assert.assertEquals(run, bitmap.rank(occurrences.getSectionId(run)));
+            Assert.assertEquals(run, occurrences.findSection(occurrences.getSectionId(run)));
+        }
+        Assert.assertEquals(-1, occurrences.findSection(65));
+        Assert.assertEquals(6, bitmap.rank(1000));
+
+        //Rank is counted after the set changes
+        SectionBitmap changed = bitmap.copy();
+        changed.add(1);
+        Assert.assertEquals(2, changed.rank(2));
+        Assert.assertEquals(6, changed.rank(200));
+    }
+}
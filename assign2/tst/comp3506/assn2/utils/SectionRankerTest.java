@@ -0,0 +1,134 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class SectionRankerTest {
+
+    private static final int NUM_SECTIONS = 40;
+    private static final int NUM_WORDS = 12;
+
+    private ArrayList<Integer> sectionStarts;
+    private Postings[] words;
+
+    /**
+     * Sections of random lengths, word i occurs on a line with probability decreasing in i
+     */
+    private SectionRanker buildSections(long seed) {
+        Random random = new Random(seed);
+        this.sectionStarts = new ArrayList<>();
+        this.words = new Postings[NUM_WORDS];
+        for(int i = 0; i < NUM_WORDS; i++) {
+            this.words[i] = new Postings();
+        }
+
+        int line = 1;
+        for(int section = 0; section < NUM_SECTIONS; section++) {
+            this.sectionStarts.append(line);
+            int length = 1 + random.nextInt(60);
+            for(int end = line + length; line < end; line++) {
+                for(int i = 0; i < NUM_WORDS; i++) {
+                    if(random.nextInt(4 * (i + 1) * (i + 1)) == 0) {
+                        this.words[i].add(line, 1, 0, section);
+                    }
+                }
+            }
+        }
+
+        return new SectionRanker(this.sectionStarts, line - 1);
+    }
+
+    /**
+     * Scores every section exhaustively
+     */
+    private double[] scoreAll(SectionRanker ranker, ArrayList<Postings> query) {
+        double[] scores = new double[NUM_SECTIONS];
+        for(int i = 0; i < query.size(); i++) {
+            Postings occurrences = query.get(i);
+            double idf = ranker.idf(occurrences);
+            for(int run = 0; run < occurrences.getNumSections(); run++) {
+                scores[occurrences.getSectionId(run)] += ranker.score(occurrences, idf, run);
+            }
+        }
+        return scores;
+    }
+
+    @Test
+    public void topSectionsMatchExhaustiveScoring() {
+        for(long seed = 0; seed < 20; seed++) {
+            SectionRanker ranker = buildSections(seed);
+            Random random = new Random(seed);
+
+            for(int queryNumber = 0; queryNumber < 20; queryNumber++) {
+                ArrayList<Postings> query = new ArrayList<>();
+                for(int i = 0; i < NUM_WORDS; i++) {
+                    if(random.nextInt(3) == 0) {
+                        query.append(this.words[i]);
+                    }
+                }
+                int k = 1 + random.nextInt(8);
+
+                double[] scores = scoreAll(ranker, query);
+                ArrayList<HashPair<Integer, Double>> top = ranker.topSections(query, k);
+
+                //Every returned section has its exhaustive score, in descending order
+                for(int i = 0; i < top.size(); i++) {
+                    Assert.assertEquals(scores[top.get(i).getLeftValue()], top.get(i).getRightValue(), 1e-9);
+                    if(i > 0) {
+                        Assert.assertTrue(top.get(i - 1).getRightValue() >= top.get(i).getRightValue());
+                    }
+                }
+
+                //No section left out scores above the last returned
+                int numMatching = 0;
+                for(int section = 0; section < NUM_SECTIONS; section++) {
+                    if(scores[section] > 0) {
+                        numMatching++;
+                    }
+                }
+                Assert.assertEquals(Math.min(k, numMatching), top.size());
+                for(int section = 0; section < NUM_SECTIONS; section++) {
+                    boolean returned = false;
+                    for(int i = 0; i < top.size(); i++) {
+                        returned |= top.get(i).getLeftValue() == section;
+                    }
+                    if(!returned && (top.size() > 0)) {
+                        Assert.assertTrue(scores[section] <= top.get(top.size() - 1).getRightValue() + 1e-9);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rewardsFrequencyAndRarity() {
+        ArrayList<Integer> sectionStarts = new ArrayList<>();
+        sectionStarts.append(1);
+        sectionStarts.append(11);
+        sectionStarts.append(21);
+
+        //Common occurs once in every section, rare three times in the last only
+        Postings common = new Postings();
+        Postings rare = new Postings();
+        for(int section = 0; section < 3; section++) {
+            common.add(10 * section + 1, 1, 0, section);
+        }
+        for(int line = 21; line < 24; line++) {
+            rare.add(line, 1, 0, 2);
+        }
+
+        SectionRanker ranker = new SectionRanker(sectionStarts, 30);
+        ArrayList<Postings> query = new ArrayList<>();
+        query.append(common);
+        query.append(rare);
+        query.append(Postings.EMPTY);
+
+        ArrayList<HashPair<Integer, Double>> top = ranker.topSections(query, 2);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals(2, (int) top.get(0).getLeftValue());
+        Assert.assertEquals(0, (int) top.get(1).getLeftValue());
+        Assert.assertTrue(ranker.idf(rare) > ranker.idf(common));
+    }
+}
@@ -0,0 +1,103 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class TermPostingsCacheTest {
+
+    private Postings createPostings(int size) {
+        Postings postings = new Postings(size);
+        for(int i = 0; i < size; i++) {
+            postings.add(i + 1, 1, i, 0);
+        }
+        return postings;
+    }
+
+    @Test
+    public void evictsCachedLongestAgo() {
+        long entry = createPostings(10).getEstimatedBytes();
+        TermPostingsCache cache = new TermPostingsCache(100, 3 * entry);
+
+        Postings first = createPostings(10);
+        Assert.assertSame(first, cache.put(0, first));
+        cache.put(1, createPostings(10));
+        cache.put(2, createPostings(10));
+        Assert.assertSame(first, cache.get(0));
+        Assert.assertEquals(3 * entry, cache.getNumBytes());
+
+        cache.put(3, createPostings(10));
+        Assert.assertNull(cache.get(0));
+        Assert.assertNotNull(cache.get(1));
+        Assert.assertNotNull(cache.get(3));
+        Assert.assertEquals(3 * entry, cache.getNumBytes());
+    }
+
+    @Test
+    public void staysWithinBudget() {
+        long entry = createPostings(10).getEstimatedBytes();
+        TermPostingsCache cache = new TermPostingsCache(1000, 10 * entry);
+
+        for(int i = 0; i < 1000; i++) {
+            cache.put(i, createPostings(5 + (i % 10)));
+            Assert.assertTrue(cache.getNumBytes() <= 10 * entry);
+        }
+
+        //Most recent entries survive
+        Assert.assertNotNull(cache.get(999));
+        Assert.assertNull(cache.get(0));
+    }
+
+    @Test
+    public void keepsFirstCachedAndRejectsOversized() {
+        long entry = createPostings(10).getEstimatedBytes();
+        TermPostingsCache cache = new TermPostingsCache(10, 2 * entry);
+
+        Postings first = createPostings(10);
+        cache.put(4, first);
+        Assert.assertSame(first, cache.put(4, createPostings(10)));
+        Assert.assertEquals(entry, cache.getNumBytes());
+
+        Postings huge = createPostings(100);
+        Assert.assertSame(huge, cache.put(5, huge));
+        Assert.assertNull(cache.get(5));
+        Assert.assertSame(first, cache.get(4));
+    }
+
+    @Test
+    public void concurrentPutsStayWithinBudget() {
+        long entry = createPostings(10).getEstimatedBytes();
+        TermPostingsCache cache = new TermPostingsCache(500, 20 * entry);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[4];
+        for(int thread = 0; thread < tasks.length; thread++) {
+            int offset = thread;
+            tasks[thread] = pool.submit(() -> {
+                for(int i = 0; i < 5000; i++) {
+                    int term = (i * 7 + offset) % 500;
+                    Postings postings = cache.get(term);
+                    if(postings == null) {
+                        postings = cache.put(term, createPostings(10));
+                    }
+                    Assert.assertEquals(10, postings.size());
+                }
+            });
+        }
+        for(ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        pool.shutdown();
+
+        long cachedBytes = 0;
+        for(int term = 0; term < 500; term++) {
+            if(cache.get(term) != null) {
+                cachedBytes += entry;
+            }
+        }
+        Assert.assertEquals(cachedBytes, cache.getNumBytes());
+        Assert.assertTrue(cache.getNumBytes() <= 20 * entry);
+    }
+}
@@ -0,0 +1,86 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class TokenizerTest {
+
+    /**
+     * Records each word as "line:column:word" and each line end as "|"
+     */
+    private static class Recorder implements Tokenizer.TokenHandler {
+        private final StringBuilder tokens = new StringBuilder();
+        private final String normalised;
+        private final byte[] bytes;
+        private int line = 1;
+
+        Recorder(String text, boolean utf8) {
+            this.normalised = Tokenizer.normalise(text);
+            this.bytes = utf8 ? this.normalised.getBytes(StandardCharsets.UTF_8) : null;
+        }
+
+        @Override
+        public void word(int start, int end, int column) {
+            String word = (this.bytes == null) ? this.normalised.substring(start, end)
+                    : new String(this.bytes, start, end - start, StandardCharsets.UTF_8);
+            this.tokens.append(this.line).append(':').append(column).append(':').append(word).append(' ');
+        }
+
+        @Override
+        public void endLine() {
+            this.line++;
+            this.tokens.append("| ");
+        }
+    }
+
+    private String tokenizeChars(String text) {
+        Recorder recorder = new Recorder(text, false);
+        Tokenizer.tokenize(text, recorder);
+        return recorder.tokens.toString();
+    }
+
+    private String tokenizeBytes(String text) {
+        Recorder recorder = new Recorder(text, true);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        Tokenizer.tokenize(new MappedDocument(ByteBuffer.wrap(bytes)), 0, bytes.length, recorder);
+        return recorder.tokens.toString();
+    }
+
+    @Test
+    public void wordsAndColumns() {
+        String tokens = "1:1:to 1:4:be | 2:1:or 2:5:not | ";
+
+        Assert.assertEquals(tokens, tokenizeChars("To be,\nor  NOT\r\n"));
+        Assert.assertEquals(tokens, tokenizeBytes("To be,\nor  NOT\r\n"));
+    }
+
+    @Test
+    public void apostrophes() {
+        String text = "'tis o'er the dogs' ''twas\t'em";
+        String tokens = "1:2:tis 1:6:o'er 1:11:the 1:15:dogs 1:22:'twas 1:28:'em ";
+
+        Assert.assertEquals(tokens, tokenizeChars(text));
+        Assert.assertEquals(tokens, tokenizeBytes(text));
+    }
+
+    @Test
+    public void charsAndBytesAgree() {
+        String text = "Café naïve 😀smile\r\rÉTÉ-2017 x­y";
+
+        Assert.assertEquals(tokenizeChars(text), tokenizeBytes(text));
+        Assert.assertEquals("1:1:café 1:6:naïve 1:14:smile | | 3:1:été 3:5:2017 3:10:x 3:12:y ",
+                tokenizeChars(text));
+    }
+
+    @Test
+    public void normaliseOnlyCopiesChangedWords() {
+        String lower = "question";
+
+        Assert.assertSame(lower, Tokenizer.normalise(lower));
+        Assert.assertEquals("question", Tokenizer.normalise("QuEsTiOn"));
+        Assert.assertEquals('é', Tokenizer.normalise('É'));
+    }
+}
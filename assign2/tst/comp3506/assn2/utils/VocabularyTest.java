@@ -0,0 +1,75 @@
+package comp3506.assn2.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VocabularyTest {
+
+    private Vocabulary buildVocabulary(ArrayList<OccurrenceTrieNode> termNodes, String... words) {
+        OccurrenceTrie trie = new OccurrenceTrie();
+        for(int i = 0; i < words.length; i++) {
+            trie.addOccurrence(words[i], i + 1, 1, i, 0);
+        }
+        return Vocabulary.build(trie.getRoot(), termNodes);
+    }
+
+    @Test
+    public void termsArePreOrder() {
+        ArrayList<OccurrenceTrieNode> termNodes = new ArrayList<>();
+        Vocabulary vocabulary = buildVocabulary(termNodes, "to", "the", "a", "thee", "then", "tea");
+
+        Assert.assertEquals(6, vocabulary.getNumTerms());
+        Assert.assertEquals(6, termNodes.size());
+
+        String[] preOrder = {"a", "tea", "the", "thee", "then", "to"};
+        for(int i = 0; i < preOrder.length; i++) {
+            Assert.assertEquals(i, vocabulary.getTermId(preOrder[i]));
+            Assert.assertEquals(1, termNodes.get(i).getOccurrences().size());
+        }
+
+        //Prefixes that are not words have no term id
+        Assert.assertEquals(-1, vocabulary.getTermId("th"));
+        Assert.assertEquals(-1, vocabulary.getTermId("thy"));
+        Assert.assertEquals(-1, vocabulary.getTermId(""));
+    }
+
+    @Test
+    public void prefixesAreTermRanges() {
+        Vocabulary vocabulary = buildVocabulary(new ArrayList<>(), "to", "the", "a", "thee", "then", "tea");
+
+        int th = vocabulary.findNode("th");
+        Assert.assertEquals(2, vocabulary.getSubtreeStart(th));
+        Assert.assertEquals(5, vocabulary.getSubtreeEnd(th));
+
+        int t = vocabulary.findNode("t");
+        Assert.assertEquals(1, vocabulary.getSubtreeStart(t));
+        Assert.assertEquals(6, vocabulary.getSubtreeEnd(t));
+
+        Assert.assertEquals(0, vocabulary.findNode(""));
+        Assert.assertEquals(-1, vocabulary.findNode("x"));
+        Assert.assertEquals(-1, vocabulary.findNode("thee's"));
+    }
+
+    @Test
+    public void mergedTermsMapToBoth() {
+        Vocabulary base = buildVocabulary(new ArrayList<>(), "to", "the", "a");
+        Vocabulary added = buildVocabulary(new ArrayList<>(), "thee", "to", "zed", "th");
+        int[] baseTerms = new int[base.getNumTerms() + added.getNumTerms()];
+        int[] addedTerms = new int[baseTerms.length];
+
+        Vocabulary merged = Vocabulary.merge(base, added, baseTerms, addedTerms);
+
+        String[] preOrder = {"a", "th", "the", "thee", "to", "zed"};
+        Assert.assertEquals(preOrder.length, merged.getNumTerms());
+        for(int i = 0; i < preOrder.length; i++) {
+            Assert.assertEquals(i, merged.getTermId(preOrder[i]));
+            Assert.assertEquals(base.getTermId(preOrder[i]), baseTerms[i]);
+            Assert.assertEquals(added.getTermId(preOrder[i]), addedTerms[i]);
+        }
+
+        int th = merged.findNode("th");
+        Assert.assertEquals(1, merged.getSubtreeStart(th));
+        Assert.assertEquals(4, merged.getSubtreeEnd(th));
+        Assert.assertEquals(-1, merged.getTermId("t"));
+    }
+}